@@ -0,0 +1,55 @@
+package com.jshipper.acled.benchmark;
+
+import java.time.LocalDate;
+
+import com.jshipper.acled.ingest.SyntheticConflictGenerator;
+import com.jshipper.acled.model.ConflictCriteria;
+
+/**
+ * Criteria shapes shared by the query and filtering benchmarks, selected with
+ * a JMH parameter. Values are picked from {@link SyntheticConflictGenerator} so that
+ * every shape matches some rows.
+ *
+ * @author jshipper
+ *
+ */
+public enum BenchmarkCriteria {
+  /** One month of conflicts */
+  DATE_RANGE {
+    @Override
+    public ConflictCriteria get() {
+      return new ConflictCriteria(LocalDate.of(2005, 3, 1), LocalDate.of(2005, 3, 31), null, null, null, null, null);
+    }
+  },
+  /** A mid-frequency country, in lower case as typed by users */
+  COUNTRY {
+    @Override
+    public ConflictCriteria get() {
+      return new ConflictCriteria(null, null, "kenya", null, null, null, null);
+    }
+  },
+  /** One actor, as actor1 */
+  ACTOR {
+    @Override
+    public ConflictCriteria get() {
+      return new ConflictCriteria(null, null, null, SyntheticConflictGenerator.actor("Nigeria", 2), null, null,
+        null);
+    }
+  },
+  /** Deadly conflicts only */
+  FATALITIES {
+    @Override
+    public ConflictCriteria get() {
+      return new ConflictCriteria(null, null, null, null, null, 1000, null);
+    }
+  },
+  /** The kind of query index.html sends: a year in one country, with fatalities */
+  COMBINED {
+    @Override
+    public ConflictCriteria get() {
+      return new ConflictCriteria(LocalDate.of(2010, 1, 1), LocalDate.of(2010, 12, 31), "Somalia", null, null, 1, 500);
+    }
+  };
+
+  public abstract ConflictCriteria get();
+}
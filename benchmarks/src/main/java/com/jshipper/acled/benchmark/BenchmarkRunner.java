@@ -0,0 +1,47 @@
+package com.jshipper.acled.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line options,
+ * but writes results as JSON to {@value #DEFAULT_RESULT_FILE} unless -rf or
+ * -rff say otherwise, so that runs of different releases can be compared.
+ *
+ * @author jshipper
+ *
+ */
+public class BenchmarkRunner {
+  public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    if (commandLine.shouldHelp()) {
+      commandLine.showHelp();
+      return;
+    }
+    if (commandLine.shouldList() || commandLine.shouldListWithParams() || commandLine.shouldListProfilers()
+      || commandLine.shouldListResultFormats()) {
+      // Let JMH's own entry point handle the informational options
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+    OptionsBuilder builder = new OptionsBuilder();
+    builder.parent(commandLine);
+    if (!commandLine.getResultFormat().hasValue()) {
+      builder.resultFormat(ResultFormatType.JSON);
+    }
+    if (!commandLine.getResult().hasValue()) {
+      builder.result(DEFAULT_RESULT_FILE);
+    }
+    Options options = builder.build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,85 @@
+package com.jshipper.acled.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jshipper.acled.ingest.SyntheticConflictGenerator;
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Jackson serialization of the List&lt;Conflict&gt; bodies returned by the
+ * REST endpoints, with an ObjectMapper configured like Spring MVC's
+ *
+ * @author jshipper
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConflictSerializationBenchmark {
+  @Param({ "100", "10000" })
+  public int size;
+
+  private List<Conflict> conflicts;
+  private ObjectWriter writer;
+
+  @Setup
+  public void setup() {
+    conflicts = new SyntheticConflictGenerator(SyntheticConflictGenerator.DEFAULT_SEED).next(size);
+    ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Conflict.class));
+  }
+
+  @Benchmark
+  public byte[] writeBytes() throws IOException {
+    return writer.writeValueAsBytes(conflicts);
+  }
+
+  /**
+   * Serialization to the response stream, without buffering the whole body
+   */
+  @Benchmark
+  public void writeStream(Blackhole blackhole) throws IOException {
+    writer.writeValue(new BlackholeOutputStream(blackhole), conflicts);
+  }
+
+  private static class BlackholeOutputStream extends OutputStream {
+    private final Blackhole blackhole;
+
+    BlackholeOutputStream(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void write(int b) {
+      blackhole.consume(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      blackhole.consume(b);
+      blackhole.consume(len);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package com.jshipper.acled.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.jshipper.acled.ingest.SyntheticConflictGenerator;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.store.ConflictColumns;
+
+/**
+ * Criteria filtering of the in-memory implementation: selecting the matching
+ * rows of the columnar store, for a whole result and for one page
+ *
+ * @author jshipper
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CriteriaFilterBenchmark {
+  @Param("1000000")
+  public int rows;
+
+  @Param
+  public BenchmarkCriteria criteria;
+
+  private ConflictColumns columns;
+  private ConflictCriteria conflictCriteria;
+
+  @Setup
+  public void setup() {
+    SyntheticConflictGenerator generator = new SyntheticConflictGenerator(SyntheticConflictGenerator.DEFAULT_SEED);
+    ConflictColumns.Builder builder = new ConflictColumns.Builder();
+    for (int i = 0; i < rows; i++) {
+      builder.add(generator.next());
+    }
+    columns = builder.build();
+    conflictCriteria = criteria.get();
+  }
+
+  @Benchmark
+  public int[] select() {
+    return columns.select(conflictCriteria);
+  }
+
+  @Benchmark
+  public int[] selectPage() {
+    return columns.select(conflictCriteria, 0, 1000);
+  }
+}
@@ -0,0 +1,89 @@
+package com.jshipper.acled.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.rest.ConflictCriteriaArgumentResolver;
+import com.jshipper.acled.rest.InvalidRequestException;
+
+/**
+ * Parsing and validation of the request parameters done by
+ * {@link ConflictCriteriaArgumentResolver} before every criteria query,
+ * through the entry point Spring MVC calls. Run with -prof gc to see the
+ * allocation per request.
+ *
+ * @author jshipper
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CriteriaParsingBenchmark {
+  private final ConflictCriteriaArgumentResolver resolver = new ConflictCriteriaArgumentResolver();
+  private NativeWebRequest validDateRange;
+  private NativeWebRequest startDateOnly;
+  private NativeWebRequest malformedDate;
+  private NativeWebRequest reversedDateRange;
+
+  @Setup
+  public void setUp() {
+    validDateRange = request("startDate", "2005-01-01", "endDate", "2005-12-31", "country", "Somalia", "lowEnd",
+      "1", "highEnd", "100");
+    startDateOnly = request("startDate", "2005-01-01");
+    malformedDate = request("startDate", "2005-01-01", "endDate", "31/12/2005");
+    reversedDateRange = request("startDate", "2005-12-31", "endDate", "2005-01-01");
+  }
+
+  private static NativeWebRequest request(String... parameters) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/conflict/getConflictsByCriteria");
+    for (int i = 0; i < parameters.length; i += 2) {
+      request.addParameter(parameters[i], parameters[i + 1]);
+    }
+    return new ServletWebRequest(request);
+  }
+
+  @Benchmark
+  public ConflictCriteria validDateRange() {
+    return resolver.resolveArgument(null, null, validDateRange, null);
+  }
+
+  @Benchmark
+  public ConflictCriteria startDateOnly() {
+    return resolver.resolveArgument(null, null, startDateOnly, null);
+  }
+
+  @Benchmark
+  public Object malformedDate() {
+    try {
+      return resolver.resolveArgument(null, null, malformedDate, null);
+    } catch (InvalidRequestException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Object reversedDateRange() {
+    try {
+      return resolver.resolveArgument(null, null, reversedDateRange, null);
+    } catch (InvalidRequestException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+package com.jshipper.acled.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.jshipper.acled.ConflictApplication;
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.ingest.SyntheticDataLoader;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+
+/**
+ * Criteria queries of the JPA implementation against the embedded profile's
+ * H2 database, filled with synthetic conflicts. H2 has no functional indexes,
+ * so only the date and fatalities filters are indexed, the country and actor
+ * filters scan the table.
+ *
+ * @author jshipper
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FindByCriteriaBenchmark {
+  private static final int PAGE_SIZE = 1000;
+
+  @Param("1000000")
+  public int rows;
+
+  @Param
+  public BenchmarkCriteria criteria;
+
+  private ConfigurableApplicationContext context;
+  private ConflictRepository dao;
+  private ConflictCriteria conflictCriteria;
+
+  @Setup
+  public void setup() {
+    // Command line arguments, to take precedence over the profile's properties
+    context = new SpringApplicationBuilder(ConflictApplication.class)
+      .web(WebApplicationType.NONE)
+      .profiles("embedded")
+      .run("--spring.main.banner-mode=off",
+        "--logging.level.root=WARN",
+        "--acled.service.implementation=jpa",
+        "--" + SyntheticDataLoader.ROWS_PROPERTY + "=" + rows);
+    dao = context.getBean(ConflictRepository.class);
+    context.getBean(JdbcTemplate.class).execute("ANALYZE");
+    conflictCriteria = criteria.get();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<Conflict> findByCriteria() {
+    return dao.findByCriteria(conflictCriteria);
+  }
+
+  /**
+   * First page of the keyset-paginated endpoints
+   */
+  @Benchmark
+  public List<Conflict> findByCriteriaFirstPage() {
+    return dao.findByCriteriaAfter(conflictCriteria, null, PAGE_SIZE);
+  }
+}
@@ -0,0 +1,90 @@
+package com.jshipper.acled.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.jshipper.acled.ConflictApplication;
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.ingest.SyntheticDataLoader;
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Reads of the whole Conflict table against the embedded profile's H2
+ * database: through the persistence context in a read-write transaction, as
+ * any @Transactional caller would, in a read-only transaction, and through
+ * a stateless session. Run with {@code -prof gc} to compare the allocations
+ * per read.
+ *
+ * @author jshipper
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 10)
+@Measurement(iterations = 10, time = 10)
+@Fork(value = 3, jvmArgsAppend = "-Xmx4g")
+public class FullReadBenchmark {
+  @Param("1000000")
+  public int rows;
+
+  private ConfigurableApplicationContext context;
+  private ConflictRepository dao;
+  private TransactionTemplate readWrite;
+  private TransactionTemplate readOnly;
+
+  @Setup
+  public void setup() {
+    // Command line arguments, to take precedence over the profile's properties
+    context = new SpringApplicationBuilder(ConflictApplication.class)
+      .web(WebApplicationType.NONE)
+      .profiles("embedded")
+      .run("--spring.main.banner-mode=off",
+        "--logging.level.root=WARN",
+        "--acled.service.implementation=jpa",
+        "--" + SyntheticDataLoader.ROWS_PROPERTY + "=" + rows);
+    dao = context.getBean(ConflictRepository.class);
+    PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+    readWrite = new TransactionTemplate(transactionManager);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<Conflict> readWriteTransaction() {
+    return readWrite.execute(status -> dao.findAll());
+  }
+
+  @Benchmark
+  public List<Conflict> readOnlyTransaction() {
+    return readOnly.execute(status -> dao.findAll());
+  }
+
+  @Benchmark
+  public List<Conflict> statelessSession() {
+    return readOnly.execute(status -> dao.findAllStateless());
+  }
+}
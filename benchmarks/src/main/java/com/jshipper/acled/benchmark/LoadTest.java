@@ -0,0 +1,383 @@
+package com.jshipper.acled.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jshipper.acled.ConflictApplication;
+import com.jshipper.acled.ingest.SyntheticDataLoader;
+
+/**
+ * Replays the request mix of index.html against the REST services and reports
+ * throughput and latency percentiles per endpoint. Each session loads the
+ * page (countries, actors and the initial clustered map) then applies a few
+ * random filters, following every page of map points like the page does.
+ *
+ * Sessions are drawn from a seeded random generator per thread, so the same
+ * options replay the same requests. Without --url the application is
+ * started in-process with the embedded profile.
+ *
+ * Options, as --name=value: url, rows (embedded only, default 1000000),
+ * threads (16), sessions per thread (50), warmup sessions per thread (5),
+ * seed, report (JSON file, default load-test-result.json). Other arguments
+ * are passed to the embedded application, e.g.
+ * --acled.service.implementation=memory.
+ *
+ * @author jshipper
+ *
+ */
+public class LoadTest {
+  private static final int PAGE_SIZE = 2000;
+  private static final int[] PRECISIONS = { 0, 3, 4, 5 };
+
+  private final String baseUrl;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public LoadTest(String baseUrl) {
+    this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    List<String> applicationArgs = new ArrayList<>();
+    List<String> names = Arrays.asList("url", "rows", "threads", "sessions", "warmup", "seed", "report");
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+      if (names.contains(name)) {
+        options.put(name, arg.substring(equals + 1));
+      } else {
+        applicationArgs.add(arg);
+      }
+    }
+    int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+    int sessions = Integer.parseInt(options.getOrDefault("sessions", "50"));
+    int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+    long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+    File report = new File(options.getOrDefault("report", "load-test-result.json"));
+
+    ConfigurableApplicationContext context = null;
+    String url = options.get("url");
+    if (url == null) {
+      applicationArgs.addAll(Arrays.asList("--server.port=0", "--spring.main.banner-mode=off",
+        "--" + SyntheticDataLoader.ROWS_PROPERTY + "=" + options.getOrDefault("rows", "1000000")));
+      context = new SpringApplicationBuilder(ConflictApplication.class).profiles("embedded")
+        .run(applicationArgs.toArray(new String[0]));
+      url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/";
+    }
+    try {
+      LoadTest test = new LoadTest(url);
+      System.out.println("Warming up " + url + " with " + threads + " threads x " + warmup + " sessions");
+      // Different sessions than the measured ones
+      test.run(threads, warmup, seed + threads);
+      System.out.println("Measuring " + threads + " threads x " + sessions + " sessions");
+      Result result = test.run(threads, sessions, seed);
+      result.print();
+      result.write(test.mapper, report);
+      System.out.println("Result saved to " + report);
+    } finally {
+      if (context != null) {
+        context.close();
+      }
+    }
+  }
+
+  /**
+   * Run sessions on concurrent threads
+   *
+   * @param seed
+   *          Seed of the sessions of the first thread, the others use the
+   *          following seeds
+   */
+  public Result run(int threads, int sessionsPerThread, long seed) throws InterruptedException, ExecutionException {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Map<String, Latencies>>> futures = new ArrayList<>();
+      long start = System.nanoTime();
+      for (int t = 0; t < threads; t++) {
+        Random random = new Random(seed + t);
+        futures.add(executor.submit(() -> {
+          Map<String, Latencies> latencies = new TreeMap<>();
+          for (int s = 0; s < sessionsPerThread; s++) {
+            session(random, latencies);
+          }
+          return latencies;
+        }));
+      }
+      Map<String, Latencies> merged = new TreeMap<>();
+      for (Future<Map<String, Latencies>> future : futures) {
+        for (Map.Entry<String, Latencies> entry : future.get().entrySet()) {
+          merged.computeIfAbsent(entry.getKey(), k -> new Latencies()).addAll(entry.getValue());
+        }
+      }
+      return new Result(merged, System.nanoTime() - start, threads);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * One visit of index.html
+   */
+  private void session(Random random, Map<String, Latencies> latencies) throws IOException {
+    List<String> countries = getList("getAllCountries", "conflict/getAllCountries", latencies);
+    List<String> actors = getList("getAllActors", "conflict/getAllActors", latencies);
+    // Initial filters of the page
+    Map<String, Object> filters = new LinkedHashMap<>();
+    filters.put("startDate", "2014-01-01");
+    filters.put("endDate", "2014-12-31");
+    filters.put("lowEnd", 1);
+    applyFilters(filters, 4, latencies);
+
+    int changes = 1 + random.nextInt(4);
+    for (int c = 0; c < changes; c++) {
+      filters.clear();
+      int startYear = 1997 + random.nextInt(18);
+      int endYear = Math.min(2014, startYear + random.nextInt(3));
+      filters.put("startDate", startYear + "-01-01");
+      filters.put("endDate", endYear + "-12-31");
+      if (!countries.isEmpty() && random.nextInt(10) < 6) {
+        String country = countries.get(random.nextInt(countries.size()));
+        filters.put("country", country);
+        actors = getList("getActorsByCountry", "conflict/getActorsByCountry/" + encode(country), latencies);
+      }
+      if (!actors.isEmpty() && random.nextInt(10) < 3) {
+        filters.put(random.nextBoolean() ? "actor1" : "actor2", actors.get(random.nextInt(actors.size())));
+      }
+      if (random.nextInt(10) < 4) {
+        filters.put("lowEnd", 1 + random.nextInt(10));
+      }
+      applyFilters(filters, PRECISIONS[random.nextInt(PRECISIONS.length)], latencies);
+    }
+  }
+
+  /**
+   * Request the map contents as applyFilters() in index.html does: every page
+   * of individual conflicts, or the clusters of the grid
+   */
+  private void applyFilters(Map<String, Object> filters, int precision, Map<String, Latencies> latencies)
+    throws IOException {
+    if (precision == 0) {
+      String pageToken = null;
+      do {
+        StringBuilder path = new StringBuilder("conflict/getMapPointsByCriteria?pageSize=" + PAGE_SIZE
+          + "&columnar=true" + query(filters));
+        if (pageToken != null) {
+          path.append("&pageToken=").append(encode(pageToken));
+        }
+        pageToken = get("getMapPointsByCriteria", path.toString(), latencies).header;
+      } while (pageToken != null);
+    } else {
+      get("getConflictClusters", "conflict/getConflictClusters?precision=" + precision + query(filters), latencies);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<String> getList(String endpoint, String path, Map<String, Latencies> latencies) throws IOException {
+    Response response = get(endpoint, path, latencies);
+    if (response.body == null) {
+      return Collections.emptyList();
+    }
+    List<String> values = new ArrayList<>(mapper.readValue(response.body, List.class));
+    values.removeIf(value -> value == null || value.isEmpty());
+    return values;
+  }
+
+  private Response get(String endpoint, String path, Map<String, Latencies> latencies) throws IOException {
+    long start = System.nanoTime();
+    HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+    int status;
+    byte[] body;
+    String header;
+    try {
+      status = connection.getResponseCode();
+      InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+      body = in == null ? new byte[0] : readFully(in);
+      header = connection.getHeaderField("X-Next-Page-Token");
+    } catch (IOException e) {
+      latencies.computeIfAbsent(endpoint, k -> new Latencies()).error();
+      return new Response(null, null);
+    }
+    long elapsed = System.nanoTime() - start;
+    Latencies endpointLatencies = latencies.computeIfAbsent(endpoint, k -> new Latencies());
+    if (status >= 400) {
+      endpointLatencies.error();
+      return new Response(null, null);
+    }
+    endpointLatencies.add(elapsed, body.length);
+    return new Response(body, header);
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    try (InputStream input = in) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[16384];
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  private static String query(Map<String, Object> filters) {
+    StringBuilder query = new StringBuilder();
+    for (Map.Entry<String, Object> filter : filters.entrySet()) {
+      query.append('&').append(filter.getKey()).append('=').append(encode(filter.getValue().toString()));
+    }
+    return query.toString();
+  }
+
+  private static String encode(String value) {
+    try {
+      return URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace("+", "%20");
+    } catch (java.io.UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class Response {
+    final byte[] body;
+    final String header;
+
+    Response(byte[] body, String header) {
+      this.body = body;
+      this.header = header;
+    }
+  }
+
+  /**
+   * Latencies of the successful requests to one endpoint
+   */
+  static class Latencies {
+    private long[] nanos = new long[1024];
+    private int size;
+    private long bytes;
+    private long errors;
+
+    void add(long elapsed, long responseBytes) {
+      if (size == nanos.length) {
+        nanos = Arrays.copyOf(nanos, size * 2);
+      }
+      nanos[size++] = elapsed;
+      bytes += responseBytes;
+    }
+
+    void error() {
+      errors++;
+    }
+
+    void addAll(Latencies other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.nanos[i], 0);
+      }
+      bytes += other.bytes;
+      errors += other.errors;
+    }
+
+    /**
+     * @return Nearest-rank percentile in milliseconds
+     */
+    double percentile(long[] sorted, double percentile) {
+      if (sorted.length == 0) {
+        return 0;
+      }
+      int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+      return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    Map<String, Object> summary() {
+      long[] sorted = Arrays.copyOf(nanos, size);
+      Arrays.sort(sorted);
+      long total = 0;
+      for (long n : sorted) {
+        total += n;
+      }
+      Map<String, Object> summary = new LinkedHashMap<>();
+      summary.put("requests", size);
+      summary.put("errors", errors);
+      summary.put("meanMs", size == 0 ? 0d : total / 1e6 / size);
+      summary.put("p50Ms", percentile(sorted, 50));
+      summary.put("p90Ms", percentile(sorted, 90));
+      summary.put("p99Ms", percentile(sorted, 99));
+      summary.put("maxMs", size == 0 ? 0d : sorted[size - 1] / 1e6);
+      summary.put("meanBytes", size == 0 ? 0L : bytes / size);
+      return summary;
+    }
+  }
+
+  /**
+   * Latencies per endpoint of one run
+   */
+  public static class Result {
+    private final Map<String, Latencies> latencies;
+    private final long elapsedNanos;
+    private final int threads;
+
+    Result(Map<String, Latencies> latencies, long elapsedNanos, int threads) {
+      this.latencies = latencies;
+      this.elapsedNanos = elapsedNanos;
+      this.threads = threads;
+    }
+
+    public Map<String, Object> summary() {
+      Latencies all = new Latencies();
+      Map<String, Object> endpoints = new LinkedHashMap<>();
+      for (Map.Entry<String, Latencies> entry : latencies.entrySet()) {
+        endpoints.put(entry.getKey(), entry.getValue().summary());
+        all.addAll(entry.getValue());
+      }
+      Map<String, Object> summary = new LinkedHashMap<>();
+      summary.put("threads", threads);
+      summary.put("seconds", elapsedNanos / 1e9);
+      summary.put("requestsPerSecond", all.size / (elapsedNanos / 1e9));
+      summary.put("all", all.summary());
+      summary.put("endpoints", endpoints);
+      return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    void print() {
+      Map<String, Object> summary = summary();
+      System.out.println(String.format(Locale.ROOT, "%d threads, %.1f s, %.1f requests/s", threads,
+        summary.get("seconds"), summary.get("requestsPerSecond")));
+      System.out.println(String.format(Locale.ROOT, "%-24s %9s %7s %9s %9s %9s %9s %9s %11s", "Endpoint",
+        "Requests", "Errors", "Mean ms", "p50 ms", "p90 ms", "p99 ms", "Max ms", "Mean bytes"));
+      Map<String, Object> rows = new LinkedHashMap<>((Map<String, Object>) summary.get("endpoints"));
+      rows.put("all", summary.get("all"));
+      for (Map.Entry<String, Object> row : rows.entrySet()) {
+        Map<String, Object> s = (Map<String, Object>) row.getValue();
+        System.out.println(String.format(Locale.ROOT, "%-24s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %11d",
+          row.getKey(), s.get("requests"), s.get("errors"), s.get("meanMs"), s.get("p50Ms"), s.get("p90Ms"),
+          s.get("p99Ms"), s.get("maxMs"), s.get("meanBytes")));
+      }
+    }
+
+    void write(ObjectMapper mapper, File file) throws IOException {
+      mapper.writerWithDefaultPrettyPrinter().writeValue(file, summary());
+    }
+  }
+}
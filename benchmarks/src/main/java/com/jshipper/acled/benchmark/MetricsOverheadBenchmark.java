@@ -0,0 +1,193 @@
+package com.jshipper.acled.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.boot.actuate.autoconfigure.metrics.PropertiesMeterFilter;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.jshipper.acled.metrics.ConflictMetrics;
+import com.jshipper.acled.metrics.ConflictServiceMetrics;
+import com.jshipper.acled.metrics.ResponseSizeFilter;
+import com.jshipper.acled.metrics.ResultCountAdvice;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.service.ConflictService;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Cost of the metrics recorded on every request, with a Prometheus registry
+ * configured from the management.metrics properties of
+ * application.properties:
+ * <ul>
+ * <li>a criteria query through ConflictService, with and without the timing
+ * proxy</li>
+ * <li>the same query answered as a whole request, writing a 96 KB body in
+ * 8 KB chunks like Jackson does to a response that drops it, with and
+ * without ResponseSizeFilter, ResultCountAdvice and the timing proxy</li>
+ * </ul>
+ * The service is a stand-in returning a prepared result, so that only the
+ * instrumentation is measured. Runs on 4 threads, since the meters are shared
+ * by all request threads.
+ *
+ * @author jshipper
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+@Threads(4)
+public class MetricsOverheadBenchmark {
+  private static final String URI = "/conflict/getConflictsByCriteria";
+  private static final byte[] CHUNK = new byte[8192];
+  private static final int CHUNKS = 12;
+
+  private ConflictService service;
+  private ConflictService instrumented;
+  private ResponseSizeFilter filter;
+  private ResultCountAdvice advice;
+
+  @Setup
+  public void setup() throws IOException {
+    Properties properties = PropertiesLoaderUtils.loadAllProperties("application.properties");
+    MetricsProperties metricsProperties = new Binder(new MapConfigurationPropertySource(properties))
+      .bind("management.metrics", MetricsProperties.class).orElseGet(MetricsProperties::new);
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    registry.config().meterFilter(new PropertiesMeterFilter(metricsProperties));
+    List<Conflict> conflicts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      conflicts.add(new Conflict());
+    }
+    // Stand-in service doing no work, so that only the instrumentation is measured
+    service = (ConflictService) Proxy.newProxyInstance(ConflictService.class.getClassLoader(),
+      new Class<?>[] { ConflictService.class }, (proxy, method, args) -> conflicts);
+    instrumented = ConflictServiceMetrics.instrument(service, registry);
+    ConflictMetrics metrics = new ConflictMetrics(registry);
+    filter = new ResponseSizeFilter(metrics);
+    advice = new ResultCountAdvice(metrics);
+  }
+
+  /**
+   * Request of one thread, reused by its invocations
+   */
+  @State(Scope.Thread)
+  public static class Request {
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+
+    @Setup
+    public void setup() {
+      request.setParameter("country", "Nigeria");
+      request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, URI);
+    }
+  }
+
+  @Benchmark
+  public List<Conflict> serviceCall() {
+    return query(service);
+  }
+
+  @Benchmark
+  public List<Conflict> timedServiceCall() {
+    return query(instrumented);
+  }
+
+  @Benchmark
+  public HttpServletResponse request(Request request) throws IOException {
+    HttpServletResponse response = new DiscardingResponse();
+    query(service);
+    write(response);
+    return response;
+  }
+
+  @Benchmark
+  public HttpServletResponse instrumentedRequest(Request request) throws IOException, ServletException {
+    HttpServletResponse response = new DiscardingResponse();
+    FilterChain chain = (req, res) -> {
+      List<Conflict> result = query(instrumented);
+      advice.beforeBodyWrite(result, null, null, null, new ServletServerHttpRequest((HttpServletRequest) req),
+        null);
+      write((HttpServletResponse) res);
+    };
+    filter.doFilter(request.request, response, chain);
+    return response;
+  }
+
+  /**
+   * Response dropping its body, so that writing it costs no more than a
+   * socket buffer copy would
+   */
+  private static class DiscardingResponse extends HttpServletResponseWrapper {
+    private final ServletOutputStream out = new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(WriteListener listener) {
+      }
+    };
+
+    DiscardingResponse() {
+      super(new MockHttpServletResponse());
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      return out;
+    }
+  }
+
+  private static List<Conflict> query(ConflictService service) {
+    return service.getConflictsByCriteria(null, null, "Nigeria", null, null, null, null);
+  }
+
+  private static void write(HttpServletResponse response) throws IOException {
+    ServletOutputStream out = response.getOutputStream();
+    for (int i = 0; i < CHUNKS; i++) {
+      out.write(CHUNK, 0, CHUNK.length);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.jshipper.acled.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.jshipper.acled.ConflictApplication;
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.ingest.SyntheticDataLoader;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.StringPool;
+
+/**
+ * Reports the heap retained by the whole Conflict table read as entities,
+ * as loaded (text columns shared through the {@link StringPool}) and with a
+ * private copy of every text value, as they would be loaded without it. Runs
+ * against the embedded profile's H2 database; the first argument is the
+ * number of synthetic conflicts (default 1000000), to be run with a heap
+ * large enough for two copies, e.g.
+ * {@code java -Xmx6g -cp benchmarks.jar com.jshipper.acled.benchmark.StringPoolHeapReport}.
+ *
+ * @author jshipper
+ *
+ */
+public class StringPoolHeapReport {
+  private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+  public static void main(String[] args) {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(ConflictApplication.class)
+      .web(WebApplicationType.NONE)
+      .profiles("embedded")
+      .run("--spring.main.banner-mode=off",
+        "--logging.level.root=WARN",
+        "--acled.service.implementation=jpa",
+        "--" + SyntheticDataLoader.ROWS_PROPERTY + "=" + rows);
+    try {
+      ConflictRepository dao = context.getBean(ConflictRepository.class);
+      TransactionTemplate readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+      readOnly.setReadOnly(true);
+
+      // Warm up, so that caches filled by the first read are not counted
+      readOnly.execute(status -> dao.findAllStateless());
+      StringPool.reset();
+
+      long before = usedHeap();
+      List<Conflict> pooled = readOnly.execute(status -> dao.findAllStateless());
+      long pooledBytes = usedHeap() - before;
+      int poolSize = StringPool.size();
+
+      before = usedHeap();
+      List<Conflict> copied = new ArrayList<>(pooled.size());
+      for (Conflict conflict : pooled) {
+        copied.add(copy(conflict));
+      }
+      long copiedBytes = usedHeap() - before;
+
+      System.out.printf("%d conflicts, %d pooled values%n", pooled.size(), poolSize);
+      System.out.printf("Pooled:  %,d MB%n", pooledBytes >> 20);
+      System.out.printf("Private: %,d MB%n", copiedBytes >> 20);
+      // Keep both lists reachable until measured
+      System.out.printf("(%d)%n", pooled.size() + copied.size());
+    } finally {
+      context.close();
+    }
+  }
+
+  private static Conflict copy(Conflict conflict) {
+    Conflict copy = new Conflict();
+    copy.setId(conflict.getId());
+    copy.setGwno(conflict.getGwno());
+    copy.setEventIdCnty(copy(conflict.getEventIdCnty()));
+    copy.setDate(conflict.getDate());
+    copy.setYear(conflict.getYear());
+    copy.setTimePrecision(conflict.getTimePrecision());
+    copy.setEventType(copy(conflict.getEventType()));
+    copy.setActor1(copy(conflict.getActor1()));
+    copy.setAllyActor1(copy(conflict.getAllyActor1()));
+    copy.setInter1(conflict.getInter1());
+    copy.setActor2(copy(conflict.getActor2()));
+    copy.setAllyActor2(copy(conflict.getAllyActor2()));
+    copy.setInter2(conflict.getInter2());
+    copy.setInteraction(conflict.getInteraction());
+    copy.setCountry(copy(conflict.getCountry()));
+    copy.setAdmin1(copy(conflict.getAdmin1()));
+    copy.setAdmin2(copy(conflict.getAdmin2()));
+    copy.setAdmin3(copy(conflict.getAdmin3()));
+    copy.setLocation(copy(conflict.getLocation()));
+    copy.setLatitude(conflict.getLatitude());
+    copy.setLongitude(conflict.getLongitude());
+    copy.setGeoPrecis(conflict.getGeoPrecis());
+    copy.setSource(copy(conflict.getSource()));
+    copy.setFatalities(conflict.getFatalities());
+    return copy;
+  }
+
+  private static String copy(String value) {
+    return value == null ? null : new String(value);
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return MEMORY.getHeapMemoryUsage().getUsed();
+  }
+}
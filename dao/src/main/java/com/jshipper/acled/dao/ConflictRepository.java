@@ -3,36 +3,70 @@ package com.jshipper.acled.dao;
 import com.jshipper.acled.model.Conflict;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
-import java.util.Date;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ConflictRepository extends JpaRepository<Conflict, Long> {
-    List<Conflict> findByDate(Date date);
-    List<Conflict> findByDateBetween(Date startDate, Date endDate);
-    List<Conflict> findByCountryIgnoreCase(String country);
-    @Query("SELECT c FROM Conflict c WHERE LOWER(c.actor1) = LOWER(:actor) OR LOWER(c.actor2) = LOWER(:actor)")
-    List<Conflict> findByActor(@Param("actor") String actor);
-    @Query("SELECT c FROM Conflict c WHERE (LOWER(c.actor1) = LOWER(:actor1) OR LOWER(c.actor1) = LOWER(:actor2)) AND (LOWER(c.actor2) = LOWER(:actor1) OR LOWER(c.actor2) = LOWER(:actor2))")
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface ConflictRepository extends JpaRepository<Conflict, Long>, ConflictRepositoryCustom {
+    // Rows fetched per round trip by the streaming queries (requires useCursorFetch=true on MySQL)
+    String STREAM_FETCH_SIZE = "1000";
+
+    // Entities are loaded read-only: Hibernate keeps no snapshot of them for dirty checking
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    List<Conflict> findByDate(LocalDate date);
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    List<Conflict> findByDateBetween(LocalDate startDate, LocalDate endDate);
+    // Conflicts whose actor1 and actor2 are both one of the actors. Parameters must be lower-cased, to compare
+    // them with the indexed lower-cased actor columns
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query("SELECT c FROM Conflict c WHERE (c.actor1Lower = :actor1 OR c.actor1Lower = :actor2) " +
+            "AND (c.actor2Lower = :actor1 OR c.actor2Lower = :actor2)")
     List<Conflict> findByActors(@Param("actor1") String actor1, @Param("actor2") String actor2);
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     List<Conflict> findByFatalities(Integer fatalities);
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
     List<Conflict> findByFatalitiesBetween(Integer lowEnd, Integer highEnd);
-    @Query("SELECT c FROM Conflict c WHERE (:startDate IS NULL OR c.date >= :startDate) " +
-            "AND (:endDate IS NULL OR c.date <= :endDate) " +
-            "AND (:country IS NULL OR LOWER(c.country) = LOWER(:country)) " +
-            "AND (:actor1 IS NULL OR LOWER(c.actor1) = LOWER(:actor1) OR LOWER(c.actor2) = LOWER(:actor1)) " +
-            "AND (:actor2 IS NULL OR LOWER(c.actor1) = LOWER(:actor2) OR LOWER(c.actor2) = LOWER(:actor2)) " +
-            "AND (:lowEnd IS NULL OR c.fatalities >= :lowEnd) " +
-            "AND (:highEnd IS NULL OR c.fatalities <= :highEnd) ")
-    List<Conflict> findByCriteria(@Param("startDate") Date startDate, @Param("endDate") Date endDate, @Param("country") String country,
-                                  @Param("actor1") String actor1, @Param("actor2") String actor2, @Param("lowEnd") Integer lowEnd, @Param("highEnd") Integer highEnd);
-    @Query("SELECT DISTINCT c.country FROM Conflict c")
-    List<String> getAllCountries();
-    // TODO: Union with actor2
-    @Query("SELECT DISTINCT c.actor1 FROM Conflict c")
-    List<String> getAllActors();
-    // TODO: Union with actor2
-    @Query("SELECT DISTINCT c.actor1 FROM Conflict c WHERE LOWER(c.country) = LOWER(:country)")
-    List<String> getActorsByCountry(@Param("country") String country);
+    // Streaming queries must be consumed inside a transaction and the stream closed afterwards
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("SELECT c FROM Conflict c")
+    Stream<Conflict> streamAll();
+    /**
+     * @return Distinct (country, actor1, actor2) combinations with their
+     *         number of conflicts, from which the country and actor dimensions
+     *         are built
+     */
+    @Query("SELECT c.country, c.actor1, c.actor2, COUNT(c) FROM Conflict c GROUP BY c.country, c.actor1, c.actor2")
+    List<Object[]> getCountryActors();
+    // Actors of every conflict, each row is (actor1, actor2, country, date, fatalities, id)
+    @Query("SELECT c.actor1, c.actor2, c.country, c.date, c.fatalities, c.id FROM Conflict c " +
+            "WHERE c.actor1 IS NOT NULL AND c.actor2 IS NOT NULL")
+    List<Object[]> getDyads();
+    // Map point of every located conflict, each row is
+    // (id, date, latitude, longitude, fatalities, country, actor1, actor2, location)
+    @Query("SELECT c.id, c.date, c.latitude, c.longitude, c.fatalities, c.country, c.actor1, c.actor2, " +
+            "c.location FROM Conflict c WHERE c.latitude IS NOT NULL AND c.longitude IS NOT NULL")
+    List<Object[]> getLocations();
+    // Rollups by (year, month, country, event type), the year being the dataset's YEAR column.
+    // Each row is (year, year of date, month of date, country, event type, [actor,] count, sum of fatalities)
+    @Query("SELECT c.year, YEAR(c.date), MONTH(c.date), c.country, c.eventType, COUNT(c), SUM(c.fatalities) " +
+            "FROM Conflict c GROUP BY c.year, YEAR(c.date), MONTH(c.date), c.country, c.eventType")
+    List<Object[]> getRollup();
+    @Query("SELECT c.year, YEAR(c.date), MONTH(c.date), c.country, c.eventType, c.actor1, COUNT(c), SUM(c.fatalities) " +
+            "FROM Conflict c WHERE c.actor1 IS NOT NULL " +
+            "GROUP BY c.year, YEAR(c.date), MONTH(c.date), c.country, c.eventType, c.actor1")
+    List<Object[]> getActor1Rollup();
+    // Conflicts whose actor2 is also their actor1, ignoring case, are only counted in the actor1 rollup,
+    // so that filtering on an actor with several case variants counts them once
+    @Query("SELECT c.year, YEAR(c.date), MONTH(c.date), c.country, c.eventType, c.actor2, COUNT(c), SUM(c.fatalities) " +
+            "FROM Conflict c WHERE c.actor2 IS NOT NULL AND (c.actor1 IS NULL OR LOWER(c.actor2) <> LOWER(c.actor1)) " +
+            "GROUP BY c.year, YEAR(c.date), MONTH(c.date), c.country, c.eventType, c.actor2")
+    List<Object[]> getActor2Rollup();
 }
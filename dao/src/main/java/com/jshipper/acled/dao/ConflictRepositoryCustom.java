@@ -0,0 +1,44 @@
+package com.jshipper.acled.dao;
+
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+import com.jshipper.acled.model.ConflictMapPoint;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Criteria queries built with the JPA Criteria API. Only the predicates for
+ * the criteria that are set are emitted, so MySQL can pick an index per
+ * query; text criteria are compared with the indexed lower-cased columns.
+ */
+public interface ConflictRepositoryCustom {
+    List<Conflict> findByCriteria(ConflictCriteria criteria);
+    // Keyset pagination over (EVENT_DATE, EVENT_ID_NO_CNTY), a null cursor starts from the first page
+    List<Conflict> findByCriteriaAfter(ConflictCriteria criteria, ConflictCursor after, int limit);
+    // Map point projections, only the columns needed to draw a conflict are selected
+    List<ConflictMapPoint> findMapPointsByCriteria(ConflictCriteria criteria);
+    List<ConflictMapPoint> findMapPointsByCriteriaAfter(ConflictCriteria criteria, ConflictCursor after, int limit);
+    // Streaming queries must be consumed inside a transaction and the stream closed afterwards
+    Stream<Conflict> streamByCriteria(ConflictCriteria criteria);
+    /**
+     * Read every conflict through a stateless session: the entities are not
+     * added to a persistence context, so nothing is kept for each of them
+     * besides the entity itself and no time is spent maintaining it. This
+     * does not allocate less than a read-only query. Runs on the connection,
+     * and within the timeout, of the current transaction; stops with a
+     * {@link java.util.concurrent.CancellationException} when the thread is
+     * interrupted.
+     */
+    List<Conflict> findAllStateless();
+    /**
+     * Pass every conflict to the action as it is read, through a stateless
+     * session as {@link #findAllStateless()} reads them, so that no more than
+     * a fetch of conflicts is held at a time
+     */
+    void forEachStateless(Consumer<Conflict> action);
+    // Map points in (EVENT_DATE, EVENT_ID_NO_CNTY) order
+    Stream<ConflictMapPoint> streamMapPointsByCriteria(ConflictCriteria criteria);
+}
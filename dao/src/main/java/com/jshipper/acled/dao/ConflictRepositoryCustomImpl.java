@@ -0,0 +1,191 @@
+package com.jshipper.acled.dao;
+
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+import com.jshipper.acled.model.ConflictMapPoint;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.AbstractQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public class ConflictRepositoryCustomImpl implements ConflictRepositoryCustom {
+    private static final int INTERRUPT_CHECK_ROWS = 1000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Conflict> findByCriteria(ConflictCriteria criteria) {
+        return entityManager.createQuery(conflictQuery(criteria, null, false)).setHint(HINT_READONLY, true)
+                .getResultList();
+    }
+
+    @Override
+    public List<Conflict> findByCriteriaAfter(ConflictCriteria criteria, ConflictCursor after, int limit) {
+        return entityManager.createQuery(conflictQuery(criteria, after, true)).setHint(HINT_READONLY, true)
+                .setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public List<ConflictMapPoint> findMapPointsByCriteria(ConflictCriteria criteria) {
+        return entityManager.createQuery(mapPointQuery(criteria, null, false)).getResultList();
+    }
+
+    @Override
+    public List<ConflictMapPoint> findMapPointsByCriteriaAfter(ConflictCriteria criteria, ConflictCursor after, int limit) {
+        return entityManager.createQuery(mapPointQuery(criteria, after, true)).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<Conflict> streamByCriteria(ConflictCriteria criteria) {
+        return entityManager.createQuery(conflictQuery(criteria, null, false)).setHint(HINT_READONLY, true)
+                .setHint(HINT_FETCH_SIZE, Integer.valueOf(ConflictRepository.STREAM_FETCH_SIZE))
+                .getResultStream();
+    }
+
+    @Override
+    public Stream<ConflictMapPoint> streamMapPointsByCriteria(ConflictCriteria criteria) {
+        return entityManager.createQuery(mapPointQuery(criteria, null, true))
+                .setHint(HINT_FETCH_SIZE, Integer.valueOf(ConflictRepository.STREAM_FETCH_SIZE))
+                .getResultStream();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Conflict> findAllStateless() {
+        List<Conflict> conflicts = new ArrayList<>();
+        forEachStateless(conflicts::add);
+        return conflicts;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachStateless(Consumer<Conflict> action) {
+        Session session = entityManager.unwrap(Session.class);
+        session.doWork(connection -> {
+            try (StatelessSession stateless = session.getSessionFactory().openStatelessSession(connection)) {
+                Query<Conflict> query = stateless.createQuery("SELECT c FROM Conflict c", Conflict.class)
+                        .setFetchSize(Integer.parseInt(ConflictRepository.STREAM_FETCH_SIZE));
+                EntityManagerFactoryUtils.applyTransactionTimeout(query, entityManager.getEntityManagerFactory());
+                long rows = 0;
+                try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                    while (results.next()) {
+                        // The query timeout does not cover reading the rows, the caller interrupts instead
+                        if (rows % INTERRUPT_CHECK_ROWS == 0 && Thread.currentThread().isInterrupted()) {
+                            throw new CancellationException("Interrupted after reading " + rows + " conflicts");
+                        }
+                        action.accept((Conflict) results.get(0));
+                        rows++;
+                    }
+                }
+            }
+        });
+    }
+
+    private CriteriaQuery<Conflict> conflictQuery(ConflictCriteria criteria, ConflictCursor after, boolean paged) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Conflict> query = cb.createQuery(Conflict.class);
+        Root<Conflict> c = query.from(Conflict.class);
+        query.select(c);
+        where(cb, query, c, criteria, after, paged);
+        return query;
+    }
+
+    private CriteriaQuery<ConflictMapPoint> mapPointQuery(ConflictCriteria criteria, ConflictCursor after, boolean paged) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ConflictMapPoint> query = cb.createQuery(ConflictMapPoint.class);
+        Root<Conflict> c = query.from(Conflict.class);
+        query.select(cb.construct(ConflictMapPoint.class, c.get("id"), c.get("date"), c.get("latitude"),
+                c.get("longitude"), c.get("fatalities"), c.get("location"), c.get("actor1"), c.get("actor2")));
+        where(cb, query, c, criteria, after, paged);
+        return query;
+    }
+
+    /**
+     * Restrict a query to the criteria that are set and, when paging, to the
+     * rows after the cursor (if any) in (date, id) order. Rows without a date
+     * come first, as MySQL and H2 sort NULLs first in ascending order.
+     */
+    private static void where(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Conflict> c,
+                              ConflictCriteria criteria, ConflictCursor after, boolean paged) {
+        List<Predicate> predicates = predicates(cb, c, criteria);
+        Path<LocalDate> date = c.get("date");
+        Path<Long> id = c.get("id");
+        if (after != null && after.getDate() == null) {
+            predicates.add(cb.or(cb.and(cb.isNull(date), cb.greaterThan(id, after.getId())), cb.isNotNull(date)));
+        } else if (after != null) {
+            predicates.add(cb.or(cb.greaterThan(date, after.getDate()),
+                    cb.and(cb.equal(date, after.getDate()), cb.greaterThan(id, after.getId()))));
+        }
+        restrict(query, predicates);
+        if (paged) {
+            query.orderBy(cb.asc(date), cb.asc(id));
+        }
+    }
+
+    private static List<Predicate> predicates(CriteriaBuilder cb, Root<Conflict> c, ConflictCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getStartDate() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(c.<LocalDate> get("date"), criteria.getStartDate()));
+        }
+        if (criteria.getEndDate() != null) {
+            predicates.add(cb.lessThanOrEqualTo(c.<LocalDate> get("date"), criteria.getEndDate()));
+        }
+        if (criteria.getCountry() != null) {
+            predicates.add(cb.equal(c.<String> get("countryLower"), normalize(criteria.getCountry())));
+        }
+        if (criteria.getActor1() != null) {
+            predicates.add(eitherActor(cb, c, criteria.getActor1()));
+        }
+        if (criteria.getActor2() != null) {
+            predicates.add(eitherActor(cb, c, criteria.getActor2()));
+        }
+        if (criteria.getLowEnd() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(c.<Integer> get("fatalities"), criteria.getLowEnd()));
+        }
+        if (criteria.getHighEnd() != null) {
+            predicates.add(cb.lessThanOrEqualTo(c.<Integer> get("fatalities"), criteria.getHighEnd()));
+        }
+        return predicates;
+    }
+
+    // Resolved with an index merge of the actor1 and actor2 indexes
+    private static Predicate eitherActor(CriteriaBuilder cb, Root<Conflict> c, String actor) {
+        String value = normalize(actor);
+        return cb.or(cb.equal(c.<String> get("actor1Lower"), value), cb.equal(c.<String> get("actor2Lower"), value));
+    }
+
+    // Parameters are lower-cased here, to compare them with the lower-cased columns
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static void restrict(AbstractQuery<?> query, List<Predicate> predicates) {
+        if (!predicates.isEmpty()) {
+            query.where(predicates.toArray(new Predicate[0]));
+        }
+    }
+}
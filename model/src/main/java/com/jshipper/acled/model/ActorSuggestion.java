@@ -0,0 +1,56 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+
+/**
+ * Actor offered to complete what the user typed, with the number of its
+ * conflicts
+ *
+ * @author jshipper
+ *
+ */
+public class ActorSuggestion implements Serializable {
+  private static final long serialVersionUID = -4518273309712553409L;
+
+  private String name;
+  private Long events;
+
+  public ActorSuggestion() {
+  }
+
+  public ActorSuggestion(String name, Long events) {
+    this.name = name;
+    this.events = events;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return Number of conflicts of the actor, as actor1 or actor2, in the
+   *         country the suggestions were scoped to if any
+   */
+  public Long getEvents() {
+    return events;
+  }
+
+  public void setEvents(Long events) {
+    this.events = events;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ActorSuggestion [name=");
+    builder.append(name);
+    builder.append(", events=");
+    builder.append(events);
+    builder.append("]");
+    return builder.toString();
+  }
+}
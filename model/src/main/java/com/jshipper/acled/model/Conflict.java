@@ -1,32 +1,50 @@
 package com.jshipper.acled.model;
 
 import java.io.Serializable;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
-import javax.persistence.Temporal;
-import javax.persistence.TemporalType;
 import javax.persistence.UniqueConstraint;
 
+import org.hibernate.annotations.Immutable;
+
 /**
- * POJO representing the ACLED dataset
+ * POJO representing the ACLED dataset. Low-cardinality text columns are read
+ * through {@link InterningConverter}, so entities share their values;
+ * location and source, which are mostly distinct, are not.
+ * Conflicts are only ever inserted in bulk and read: the entity is mapped
+ * {@link Immutable}, so Hibernate keeps no snapshot of loaded conflicts and
+ * never checks them for changes.
  * 
  * @author jshipper
  *
  */
 @Entity
+@Immutable
 @Table(name = Conflict.TABLE_NAME,
-  uniqueConstraints = @UniqueConstraint(columnNames = { "EVENT_ID_NO_CNTY" }) )
+  uniqueConstraints = @UniqueConstraint(columnNames = { "EVENT_ID_NO_CNTY" }),
+  indexes = @Index(name = "IDX_CONFLICT_DATE_ID", columnList = "EVENT_DATE, EVENT_ID_NO_CNTY") )
 public class Conflict implements Serializable {
   public static final String TABLE_NAME = "Conflict";
   public static final String DATE_FORMAT = "yyyy-MM-dd";
+  /**
+   * Parses and formats dates as {@link #DATE_FORMAT}. Immutable, so shared by
+   * all threads
+   */
+  public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+  /**
+   * Parses dates as {@link #DATE_FORMAT}, also accepting single-digit months
+   * and days (2015-1-1) like the lenient parsing of earlier versions
+   */
+  public static final DateTimeFormatter DATE_PARSER = DateTimeFormatter.ofPattern("yyyy-M-d");
   private static final long serialVersionUID = 6010815673597700212L;
 
   @Id
@@ -34,8 +52,7 @@ public class Conflict implements Serializable {
   private Long id;
 
   @Column(name = "EVENT_DATE")
-  @Temporal(TemporalType.DATE)
-  private Date date;
+  private LocalDate date;
 
   @Column(name = "YEAR")
   private Integer year;
@@ -44,21 +61,26 @@ public class Conflict implements Serializable {
   private Integer timePrecision;
 
   @Column(name = "EVENT_TYPE")
+  @Convert(converter = InterningConverter.class)
   private String eventType;
 
   @Column(name = "ACTOR1")
+  @Convert(converter = InterningConverter.class)
   private String actor1;
 
   @Column(name = "ALLY_ACTOR_1")
+  @Convert(converter = InterningConverter.class)
   private String allyActor1;
 
   @Column(name = "INTER1")
   private Integer inter1;
 
   @Column(name = "ACTOR2")
+  @Convert(converter = InterningConverter.class)
   private String actor2;
 
   @Column(name = "ALLY_ACTOR_2")
+  @Convert(converter = InterningConverter.class)
   private String allyActor2;
 
   @Column(name = "INTER2")
@@ -68,15 +90,19 @@ public class Conflict implements Serializable {
   private Integer interaction;
 
   @Column(name = "COUNTRY")
+  @Convert(converter = InterningConverter.class)
   private String country;
 
   @Column(name = "ADMIN1")
+  @Convert(converter = InterningConverter.class)
   private String admin1;
 
   @Column(name = "ADMIN2")
+  @Convert(converter = InterningConverter.class)
   private String admin2;
 
   @Column(name = "ADMIN3")
+  @Convert(converter = InterningConverter.class)
   private String admin3;
 
   @Column(name = "LOCATION")
@@ -103,6 +129,19 @@ public class Conflict implements Serializable {
   @Column(name = "EVENT_ID_CNTY")
   private String eventIdCnty;
 
+  // Generated lower-cased columns, indexed for the case-insensitive filters
+  @Column(name = "COUNTRY_LOWER", insertable = false, updatable = false)
+  @Convert(converter = InterningConverter.class)
+  private String countryLower;
+
+  @Column(name = "ACTOR1_LOWER", insertable = false, updatable = false)
+  @Convert(converter = InterningConverter.class)
+  private String actor1Lower;
+
+  @Column(name = "ACTOR2_LOWER", insertable = false, updatable = false)
+  @Convert(converter = InterningConverter.class)
+  private String actor2Lower;
+
   public Long getId() {
     return id;
   }
@@ -111,11 +150,11 @@ public class Conflict implements Serializable {
     this.id = id;
   }
 
-  public Date getDate() {
+  public LocalDate getDate() {
     return date;
   }
 
-  public void setDate(Date date) {
+  public void setDate(LocalDate date) {
     this.date = date;
   }
 
@@ -438,18 +477,8 @@ public class Conflict implements Serializable {
     if (date == null) {
       if (other.date != null)
         return false;
-    } else {
-      // Compare dates, equal if same day of year and same year
-      Calendar c = new GregorianCalendar();
-      c.setTime(date);
-      int dateDay = c.get(Calendar.DAY_OF_YEAR);
-      int dateYear = c.get(Calendar.YEAR);
-      c.setTime(other.date);
-      int otherDateDay = c.get(Calendar.DAY_OF_YEAR);
-      int otherDateYear = c.get(Calendar.YEAR);
-      if (dateDay != otherDateDay || dateYear != otherDateYear)
-        return false;
-    }
+    } else if (!date.equals(other.date))
+      return false;
     if (eventType == null) {
       if (other.eventType != null)
         return false;
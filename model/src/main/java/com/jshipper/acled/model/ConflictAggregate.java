@@ -0,0 +1,117 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+
+/**
+ * Number of conflicts and sum of fatalities for one group of a group-by
+ * query. Only the fields of the dimensions grouped by are set.
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictAggregate implements Serializable {
+  private static final long serialVersionUID = -4410370787201337153L;
+
+  /**
+   * Dimensions conflicts can be grouped by
+   */
+  public enum Dimension {
+    PERIOD, COUNTRY, EVENT_TYPE, ACTOR
+  }
+
+  /**
+   * Length of the periods of a time series
+   */
+  public enum Grain {
+    /** Periods formatted as yyyy-MM */
+    MONTH,
+    /** Periods formatted as yyyy, using the dataset's YEAR column */
+    YEAR
+  }
+
+  private String period;
+  private String country;
+  private String eventType;
+  private String actor;
+  private Long events;
+  private Long fatalities;
+
+  /**
+   * @return Month (yyyy-MM) or year (yyyy) of the group
+   */
+  public String getPeriod() {
+    return period;
+  }
+
+  public void setPeriod(String period) {
+    this.period = period;
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public void setCountry(String country) {
+    this.country = country;
+  }
+
+  public String getEventType() {
+    return eventType;
+  }
+
+  public void setEventType(String eventType) {
+    this.eventType = eventType;
+  }
+
+  /**
+   * @return Actor of the group, as actor1 or actor2
+   */
+  public String getActor() {
+    return actor;
+  }
+
+  public void setActor(String actor) {
+    this.actor = actor;
+  }
+
+  /**
+   * @return Number of conflicts in the group
+   */
+  public Long getEvents() {
+    return events;
+  }
+
+  public void setEvents(Long events) {
+    this.events = events;
+  }
+
+  /**
+   * @return Sum of fatalities of the group's conflicts
+   */
+  public Long getFatalities() {
+    return fatalities;
+  }
+
+  public void setFatalities(Long fatalities) {
+    this.fatalities = fatalities;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictAggregate [period=");
+    builder.append(period);
+    builder.append(", country=");
+    builder.append(country);
+    builder.append(", eventType=");
+    builder.append(eventType);
+    builder.append(", actor=");
+    builder.append(actor);
+    builder.append(", events=");
+    builder.append(events);
+    builder.append(", fatalities=");
+    builder.append(fatalities);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,107 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Aggregate of all conflicts that fall into one cell of a geohash grid
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictCluster implements Serializable {
+  private static final long serialVersionUID = 2146381583120987339L;
+
+  private String geohash;
+  private Double latitude;
+  private Double longitude;
+  private Integer count;
+  private Integer fatalities;
+  private List<String> topActors;
+
+  /**
+   * @return Geohash of the grid cell
+   */
+  public String getGeohash() {
+    return geohash;
+  }
+
+  public void setGeohash(String geohash) {
+    this.geohash = geohash;
+  }
+
+  /**
+   * @return Latitude of the centroid of the cell's conflicts
+   */
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  public void setLatitude(Double latitude) {
+    this.latitude = latitude;
+  }
+
+  /**
+   * @return Longitude of the centroid of the cell's conflicts
+   */
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  public void setLongitude(Double longitude) {
+    this.longitude = longitude;
+  }
+
+  /**
+   * @return Number of conflicts in the cell
+   */
+  public Integer getCount() {
+    return count;
+  }
+
+  public void setCount(Integer count) {
+    this.count = count;
+  }
+
+  /**
+   * @return Sum of fatalities of the cell's conflicts
+   */
+  public Integer getFatalities() {
+    return fatalities;
+  }
+
+  public void setFatalities(Integer fatalities) {
+    this.fatalities = fatalities;
+  }
+
+  /**
+   * @return Actors involved in the most conflicts in the cell, most frequent
+   *         first
+   */
+  public List<String> getTopActors() {
+    return topActors;
+  }
+
+  public void setTopActors(List<String> topActors) {
+    this.topActors = topActors;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictCluster [geohash=");
+    builder.append(geohash);
+    builder.append(", latitude=");
+    builder.append(latitude);
+    builder.append(", longitude=");
+    builder.append(longitude);
+    builder.append(", count=");
+    builder.append(count);
+    builder.append(", fatalities=");
+    builder.append(fatalities);
+    builder.append(", topActors=");
+    builder.append(topActors);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,201 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Set of optional filters used to select conflicts. A null field means that
+ * the corresponding filter is not applied.
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictCriteria implements Serializable {
+  private static final long serialVersionUID = -3620364961519727806L;
+
+  private LocalDate startDate;
+  private LocalDate endDate;
+  private String country;
+  private String actor1;
+  private String actor2;
+  private Integer lowEnd;
+  private Integer highEnd;
+
+  public ConflictCriteria() {
+  }
+
+  public ConflictCriteria(LocalDate startDate, LocalDate endDate, String country,
+    String actor1, String actor2, Integer lowEnd, Integer highEnd) {
+    this.startDate = startDate;
+    this.endDate = endDate;
+    this.country = country;
+    this.actor1 = actor1;
+    this.actor2 = actor2;
+    this.lowEnd = lowEnd;
+    this.highEnd = highEnd;
+  }
+
+  public LocalDate getStartDate() {
+    return startDate;
+  }
+
+  public void setStartDate(LocalDate startDate) {
+    this.startDate = startDate;
+  }
+
+  public LocalDate getEndDate() {
+    return endDate;
+  }
+
+  public void setEndDate(LocalDate endDate) {
+    this.endDate = endDate;
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public void setCountry(String country) {
+    this.country = country;
+  }
+
+  public String getActor1() {
+    return actor1;
+  }
+
+  public void setActor1(String actor1) {
+    this.actor1 = actor1;
+  }
+
+  public String getActor2() {
+    return actor2;
+  }
+
+  public void setActor2(String actor2) {
+    this.actor2 = actor2;
+  }
+
+  public Integer getLowEnd() {
+    return lowEnd;
+  }
+
+  public void setLowEnd(Integer lowEnd) {
+    this.lowEnd = lowEnd;
+  }
+
+  public Integer getHighEnd() {
+    return highEnd;
+  }
+
+  public void setHighEnd(Integer highEnd) {
+    this.highEnd = highEnd;
+  }
+
+  /**
+   * @return Criteria selecting the same conflicts, identical for all the
+   *         criteria that do: countries and actors are lower-cased, since
+   *         they are matched ignoring case, and the two actors are sorted,
+   *         since each matches either actor column
+   */
+  public ConflictCriteria canonical() {
+    String a1 = lowerCase(actor1);
+    String a2 = lowerCase(actor2);
+    if (a1 == null || (a2 != null && a2.compareTo(a1) < 0)) {
+      String actor = a1;
+      a1 = a2;
+      a2 = actor;
+    }
+    if (a2 != null && a2.equals(a1)) {
+      a2 = null;
+    }
+    return new ConflictCriteria(startDate, endDate, lowerCase(country), a1, a2, lowEnd, highEnd);
+  }
+
+  // Lower-cased like the queries do, an empty value stays a filter of its own
+  private static String lowerCase(String value) {
+    return value == null ? null : value.toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictCriteria [startDate=");
+    builder.append(startDate);
+    builder.append(", endDate=");
+    builder.append(endDate);
+    builder.append(", country=");
+    builder.append(country);
+    builder.append(", actor1=");
+    builder.append(actor1);
+    builder.append(", actor2=");
+    builder.append(actor2);
+    builder.append(", lowEnd=");
+    builder.append(lowEnd);
+    builder.append(", highEnd=");
+    builder.append(highEnd);
+    builder.append("]");
+    return builder.toString();
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + ((actor1 == null) ? 0 : actor1.hashCode());
+    result = prime * result + ((actor2 == null) ? 0 : actor2.hashCode());
+    result = prime * result + ((country == null) ? 0 : country.hashCode());
+    result = prime * result + ((endDate == null) ? 0 : endDate.hashCode());
+    result = prime * result + ((highEnd == null) ? 0 : highEnd.hashCode());
+    result = prime * result + ((lowEnd == null) ? 0 : lowEnd.hashCode());
+    result = prime * result + ((startDate == null) ? 0 : startDate.hashCode());
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    ConflictCriteria other = (ConflictCriteria) obj;
+    if (actor1 == null) {
+      if (other.actor1 != null)
+        return false;
+    } else if (!actor1.equals(other.actor1))
+      return false;
+    if (actor2 == null) {
+      if (other.actor2 != null)
+        return false;
+    } else if (!actor2.equals(other.actor2))
+      return false;
+    if (country == null) {
+      if (other.country != null)
+        return false;
+    } else if (!country.equals(other.country))
+      return false;
+    if (endDate == null) {
+      if (other.endDate != null)
+        return false;
+    } else if (!endDate.equals(other.endDate))
+      return false;
+    if (highEnd == null) {
+      if (other.highEnd != null)
+        return false;
+    } else if (!highEnd.equals(other.highEnd))
+      return false;
+    if (lowEnd == null) {
+      if (other.lowEnd != null)
+        return false;
+    } else if (!lowEnd.equals(other.lowEnd))
+      return false;
+    if (startDate == null) {
+      if (other.startDate != null)
+        return false;
+    } else if (!startDate.equals(other.startDate))
+      return false;
+    return true;
+  }
+}
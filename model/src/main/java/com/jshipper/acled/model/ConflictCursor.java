@@ -0,0 +1,96 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the (date, id) ordering of conflicts, used for keyset
+ * pagination. Exchanged with clients as an opaque token. Conflicts without a
+ * date come first, as databases sort NULLs first in ascending order.
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictCursor implements Serializable {
+  private static final long serialVersionUID = -4722106815011944216L;
+  private static final String SEPARATOR = ":";
+
+  private final LocalDate date;
+  private final Long id;
+
+  /**
+   * @param date
+   *          Date of the conflict, null if it has none
+   */
+  public ConflictCursor(LocalDate date, Long id) {
+    if (id == null) {
+      throw new IllegalArgumentException("Cursor requires an id");
+    }
+    this.date = date;
+    this.id = id;
+  }
+
+  /**
+   * @return Cursor positioned on the provided conflict
+   */
+  public static ConflictCursor of(Conflict conflict) {
+    return new ConflictCursor(conflict.getDate(), conflict.getId());
+  }
+
+  /**
+   * Decode a token produced by {@link #toToken()}
+   *
+   * @throws IllegalArgumentException
+   *           If the token is not valid
+   */
+  public static ConflictCursor fromToken(String token) {
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(token),
+        StandardCharsets.UTF_8);
+      int separator = value.indexOf(SEPARATOR);
+      if (separator < 0) {
+        throw new IllegalArgumentException("Invalid page token: " + token);
+      }
+      String date = value.substring(0, separator);
+      return new ConflictCursor(date.isEmpty() ? null : LocalDate.parse(date, Conflict.DATE_FORMATTER),
+        Long.valueOf(value.substring(separator + 1)));
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid page token: " + token, e);
+    }
+  }
+
+  /**
+   * @return Opaque, URL-safe token representing this cursor
+   */
+  public String toToken() {
+    // An empty date stands for a conflict without one
+    String value = (date == null ? "" : Conflict.DATE_FORMATTER.format(date)) + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return Date of the conflict, null if it has none
+   */
+  public LocalDate getDate() {
+    return date;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictCursor [date=");
+    builder.append(date);
+    builder.append(", id=");
+    builder.append(id);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,92 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Column-oriented form of a list of {@link ConflictMapPoint}: one array per
+ * attribute, all of the same length, so that attribute names are sent once
+ * instead of once per conflict
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictMapColumns implements Serializable {
+  private static final long serialVersionUID = 4380771232425187420L;
+
+  private List<Long> ids;
+  private List<String> dates;
+  private List<Double> latitudes;
+  private List<Double> longitudes;
+  private List<Integer> fatalities;
+  private List<String> locations;
+  private List<String> actor1s;
+  private List<String> actor2s;
+
+  /**
+   * Convert map points to columns
+   *
+   * @param points
+   *          Points to convert, in order
+   * @return Columns holding the points' attributes, dates formatted as
+   *         {@link Conflict#DATE_FORMAT}
+   */
+  public static ConflictMapColumns of(List<ConflictMapPoint> points) {
+    int size = points.size();
+    ConflictMapColumns columns = new ConflictMapColumns();
+    columns.ids = new ArrayList<>(size);
+    columns.dates = new ArrayList<>(size);
+    columns.latitudes = new ArrayList<>(size);
+    columns.longitudes = new ArrayList<>(size);
+    columns.fatalities = new ArrayList<>(size);
+    columns.locations = new ArrayList<>(size);
+    columns.actor1s = new ArrayList<>(size);
+    columns.actor2s = new ArrayList<>(size);
+    for (ConflictMapPoint point : points) {
+      columns.ids.add(point.getId());
+      columns.dates.add(
+        point.getDate() == null ? null
+          : Conflict.DATE_FORMATTER.format(point.getDate()));
+      columns.latitudes.add(point.getLatitude());
+      columns.longitudes.add(point.getLongitude());
+      columns.fatalities.add(point.getFatalities());
+      columns.locations.add(point.getLocation());
+      columns.actor1s.add(point.getActor1());
+      columns.actor2s.add(point.getActor2());
+    }
+    return columns;
+  }
+
+  public List<Long> getIds() {
+    return ids;
+  }
+
+  public List<String> getDates() {
+    return dates;
+  }
+
+  public List<Double> getLatitudes() {
+    return latitudes;
+  }
+
+  public List<Double> getLongitudes() {
+    return longitudes;
+  }
+
+  public List<Integer> getFatalities() {
+    return fatalities;
+  }
+
+  public List<String> getLocations() {
+    return locations;
+  }
+
+  public List<String> getActor1s() {
+    return actor1s;
+  }
+
+  public List<String> getActor2s() {
+    return actor2s;
+  }
+}
@@ -0,0 +1,127 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Projection of a {@link Conflict} onto the attributes needed to draw it on
+ * the map
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictMapPoint implements Serializable {
+  private static final long serialVersionUID = -1753016585335291622L;
+
+  private Long id;
+  private LocalDate date;
+  private Double latitude;
+  private Double longitude;
+  private Integer fatalities;
+  private String location;
+  private String actor1;
+  private String actor2;
+
+  public ConflictMapPoint() {
+  }
+
+  public ConflictMapPoint(Long id, LocalDate date, Double latitude,
+    Double longitude, Integer fatalities, String location, String actor1,
+    String actor2) {
+    this.id = id;
+    this.date = date;
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.fatalities = fatalities;
+    this.location = location;
+    this.actor1 = actor1;
+    this.actor2 = actor2;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public LocalDate getDate() {
+    return date;
+  }
+
+  public void setDate(LocalDate date) {
+    this.date = date;
+  }
+
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  public void setLatitude(Double latitude) {
+    this.latitude = latitude;
+  }
+
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  public void setLongitude(Double longitude) {
+    this.longitude = longitude;
+  }
+
+  public Integer getFatalities() {
+    return fatalities;
+  }
+
+  public void setFatalities(Integer fatalities) {
+    this.fatalities = fatalities;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public void setLocation(String location) {
+    this.location = location;
+  }
+
+  public String getActor1() {
+    return actor1;
+  }
+
+  public void setActor1(String actor1) {
+    this.actor1 = actor1;
+  }
+
+  public String getActor2() {
+    return actor2;
+  }
+
+  public void setActor2(String actor2) {
+    this.actor2 = actor2;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictMapPoint [id=");
+    builder.append(id);
+    builder.append(", date=");
+    builder.append(date);
+    builder.append(", latitude=");
+    builder.append(latitude);
+    builder.append(", longitude=");
+    builder.append(longitude);
+    builder.append(", fatalities=");
+    builder.append(fatalities);
+    builder.append(", location=");
+    builder.append(location);
+    builder.append(", actor1=");
+    builder.append(actor1);
+    builder.append(", actor2=");
+    builder.append(actor2);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,201 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Weighted graph of the actors that fought each other: one node per actor and
+ * one edge per pair of actors (dyad), weighted by their conflicts
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictNetwork implements Serializable {
+  private static final long serialVersionUID = 8532126794260135014L;
+
+  private List<Node> nodes = new ArrayList<>();
+  private List<Edge> edges = new ArrayList<>();
+
+  /**
+   * @return Actors of the edges, by decreasing number of conflicts
+   */
+  public List<Node> getNodes() {
+    return nodes;
+  }
+
+  public void setNodes(List<Node> nodes) {
+    this.nodes = nodes;
+  }
+
+  /**
+   * @return Dyads, by decreasing number of conflicts
+   */
+  public List<Edge> getEdges() {
+    return edges;
+  }
+
+  public void setEdges(List<Edge> edges) {
+    this.edges = edges;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictNetwork [nodes=");
+    builder.append(nodes);
+    builder.append(", edges=");
+    builder.append(edges);
+    builder.append("]");
+    return builder.toString();
+  }
+
+  /**
+   * An actor and the totals of its edges
+   */
+  public static class Node implements Serializable {
+    private static final long serialVersionUID = -2275472733049181573L;
+
+    private String actor;
+    private Long events;
+    private Long fatalities;
+
+    public String getActor() {
+      return actor;
+    }
+
+    public void setActor(String actor) {
+      this.actor = actor;
+    }
+
+    /**
+     * @return Number of conflicts of the actor's edges
+     */
+    public Long getEvents() {
+      return events;
+    }
+
+    public void setEvents(Long events) {
+      this.events = events;
+    }
+
+    /**
+     * @return Sum of fatalities of the actor's edges
+     */
+    public Long getFatalities() {
+      return fatalities;
+    }
+
+    public void setFatalities(Long fatalities) {
+      this.fatalities = fatalities;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append("Node [actor=");
+      builder.append(actor);
+      builder.append(", events=");
+      builder.append(events);
+      builder.append(", fatalities=");
+      builder.append(fatalities);
+      builder.append("]");
+      return builder.toString();
+    }
+  }
+
+  /**
+   * Conflicts between two actors, in either role
+   */
+  public static class Edge implements Serializable {
+    private static final long serialVersionUID = 4471952283964727010L;
+
+    private String source;
+    private String target;
+    private Long events;
+    private Long fatalities;
+    private String firstDate;
+    private String lastDate;
+
+    public String getSource() {
+      return source;
+    }
+
+    public void setSource(String source) {
+      this.source = source;
+    }
+
+    public String getTarget() {
+      return target;
+    }
+
+    public void setTarget(String target) {
+      this.target = target;
+    }
+
+    /**
+     * @return Number of conflicts between the two actors
+     */
+    public Long getEvents() {
+      return events;
+    }
+
+    public void setEvents(Long events) {
+      this.events = events;
+    }
+
+    /**
+     * @return Sum of fatalities of the conflicts between the two actors
+     */
+    public Long getFatalities() {
+      return fatalities;
+    }
+
+    public void setFatalities(Long fatalities) {
+      this.fatalities = fatalities;
+    }
+
+    /**
+     * @return Date of the first conflict, formatted as
+     *         {@link Conflict#DATE_FORMAT}
+     */
+    public String getFirstDate() {
+      return firstDate;
+    }
+
+    public void setFirstDate(String firstDate) {
+      this.firstDate = firstDate;
+    }
+
+    /**
+     * @return Date of the last conflict, formatted as
+     *         {@link Conflict#DATE_FORMAT}
+     */
+    public String getLastDate() {
+      return lastDate;
+    }
+
+    public void setLastDate(String lastDate) {
+      this.lastDate = lastDate;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append("Edge [source=");
+      builder.append(source);
+      builder.append(", target=");
+      builder.append(target);
+      builder.append(", events=");
+      builder.append(events);
+      builder.append(", fatalities=");
+      builder.append(fatalities);
+      builder.append(", firstDate=");
+      builder.append(firstDate);
+      builder.append(", lastDate=");
+      builder.append(lastDate);
+      builder.append("]");
+      return builder.toString();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.jshipper.acled.model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Identifies one loaded version of the ACLED dataset. The version changes
+ * every time the data is reloaded, so it can be used as a cache key.
+ *
+ * @author jshipper
+ *
+ */
+public class DatasetVersion implements Serializable {
+  private static final long serialVersionUID = 8126904123390251186L;
+
+  private String version;
+  private Date loadedAt;
+  private Long rowCount;
+
+  public DatasetVersion() {
+  }
+
+  public DatasetVersion(String version, Date loadedAt, Long rowCount) {
+    this.version = version;
+    this.loadedAt = loadedAt;
+    this.rowCount = rowCount;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public void setVersion(String version) {
+    this.version = version;
+  }
+
+  public Date getLoadedAt() {
+    return loadedAt;
+  }
+
+  public void setLoadedAt(Date loadedAt) {
+    this.loadedAt = loadedAt;
+  }
+
+  public Long getRowCount() {
+    return rowCount;
+  }
+
+  public void setRowCount(Long rowCount) {
+    this.rowCount = rowCount;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("DatasetVersion [version=");
+    builder.append(version);
+    builder.append(", loadedAt=");
+    builder.append(loadedAt);
+    builder.append(", rowCount=");
+    builder.append(rowCount);
+    builder.append("]");
+    return builder.toString();
+  }
+}
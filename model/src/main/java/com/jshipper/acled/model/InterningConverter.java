@@ -0,0 +1,24 @@
+package com.jshipper.acled.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Converter for low-cardinality text columns that replaces each value read
+ * from the database with its {@link StringPool} instance
+ *
+ * @author jshipper
+ *
+ */
+@Converter
+public class InterningConverter implements AttributeConverter<String, String> {
+  @Override
+  public String convertToDatabaseColumn(String attribute) {
+    return attribute;
+  }
+
+  @Override
+  public String convertToEntityAttribute(String dbData) {
+    return StringPool.intern(dbData);
+  }
+}
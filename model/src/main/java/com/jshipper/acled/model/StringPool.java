@@ -0,0 +1,53 @@
+package com.jshipper.acled.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pool of canonical string instances for the current dataset version, so
+ * that equal values of low-cardinality columns loaded into many objects
+ * share one instance instead of each holding its own copy. Values are not
+ * evicted while a version is served: only pool columns whose distinct values
+ * fit comfortably in memory. {@link #reset()} drops the pool when the
+ * dataset changes, so values of previous versions do not accumulate.
+ *
+ * @author jshipper
+ *
+ */
+public final class StringPool {
+  private static final int INITIAL_CAPACITY = 16384;
+
+  private static volatile ConcurrentMap<String, String> pool = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+
+  private StringPool() {
+  }
+
+  /**
+   * @param value
+   *          Value to look up, may be null
+   * @return The pooled instance equal to value, value itself if it was not
+   *         pooled yet
+   */
+  public static String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    String pooled = pool.putIfAbsent(value, value);
+    return pooled == null ? value : pooled;
+  }
+
+  /**
+   * Start an empty pool. Objects loaded before keep their instances, which
+   * are freed with them.
+   */
+  public static void reset() {
+    pool = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @return Number of distinct values in the pool
+   */
+  public static int size() {
+    return pool.size();
+  }
+}
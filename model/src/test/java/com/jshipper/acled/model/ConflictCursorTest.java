@@ -0,0 +1,57 @@
+package com.jshipper.acled.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ConflictCursor}
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictCursorTest {
+  @Test
+  public void roundTrip() {
+    ConflictCursor cursor = ConflictCursor.fromToken(new ConflictCursor(LocalDate.of(2014, 12, 31), 42L).toToken());
+    assertEquals(LocalDate.of(2014, 12, 31), cursor.getDate());
+    assertEquals(Long.valueOf(42), cursor.getId());
+  }
+
+  @Test
+  public void roundTripWithoutDate() {
+    ConflictCursor cursor = ConflictCursor.fromToken(new ConflictCursor(null, 7L).toToken());
+    assertNull(cursor.getDate());
+    assertEquals(Long.valueOf(7), cursor.getId());
+  }
+
+  @Test
+  public void ofConflictWithoutDate() {
+    Conflict conflict = new Conflict();
+    conflict.setId(3L);
+    assertNull(ConflictCursor.of(conflict).getDate());
+  }
+
+  @Test
+  public void rejectsMissingId() {
+    assertThrows(IllegalArgumentException.class, () -> new ConflictCursor(LocalDate.of(2014, 1, 1), null));
+  }
+
+  @Test
+  public void rejectsInvalidTokens() {
+    assertThrows(IllegalArgumentException.class, () -> ConflictCursor.fromToken("not base64!"));
+    assertThrows(IllegalArgumentException.class, () -> ConflictCursor.fromToken(encode("2014-01-01")));
+    assertThrows(IllegalArgumentException.class, () -> ConflictCursor.fromToken(encode("2014-13-01:1")));
+    assertThrows(IllegalArgumentException.class, () -> ConflictCursor.fromToken(encode("2014-01-01:x")));
+  }
+
+  private static String encode(String value) {
+    return Base64.getUrlEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,38 @@
+package com.jshipper.acled.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Sharing of values by {@link StringPool} within a dataset version
+ *
+ * @author jshipper
+ *
+ */
+public class StringPoolTest {
+  @BeforeEach
+  public void reset() {
+    StringPool.reset();
+  }
+
+  @Test
+  public void sharesEqualValues() {
+    String first = StringPool.intern(new String("Nigeria"));
+    assertSame(first, StringPool.intern(new String("Nigeria")));
+    assertEquals(1, StringPool.size());
+    assertNull(StringPool.intern(null));
+  }
+
+  @Test
+  public void resetDropsPreviousValues() {
+    String first = StringPool.intern(new String("Nigeria"));
+    StringPool.reset();
+    assertEquals(0, StringPool.size());
+    assertNotSame(first, StringPool.intern(new String("Nigeria")));
+  }
+}
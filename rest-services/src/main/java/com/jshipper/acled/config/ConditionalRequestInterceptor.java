@@ -0,0 +1,126 @@
+package com.jshipper.acled.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.rest.ConflictCriteriaArgumentResolver;
+import com.jshipper.acled.rest.InvalidRequestException;
+
+/**
+ * Answers conditional GET requests with a 304 before the handler runs, using
+ * weak entity tags derived from the dataset version and canonical parameters
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class ConditionalRequestInterceptor implements HandlerInterceptor {
+  /**
+   * Request attribute holding the entity tag of the response, for GET and
+   * HEAD requests
+   */
+  public static final String ETAG_ATTRIBUTE = ConditionalRequestInterceptor.class.getName() + ".ETAG";
+  /** Request attribute holding the dataset version the entity tag was derived from */
+  public static final String VERSION_ATTRIBUTE = ConditionalRequestInterceptor.class.getName() + ".VERSION";
+
+  private final DatasetService datasetService;
+
+  @Inject
+  public ConditionalRequestInterceptor(DatasetService datasetService) {
+    this.datasetService = datasetService;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+    Object handler) {
+    // Asynchronous results are dispatched again once computed, the tag was already checked
+    if (!isGetOrHead(request) || request.getAttribute(ETAG_ATTRIBUTE) != null) {
+      return true;
+    }
+    String version = datasetService.getVersion().getVersion();
+    String eTag = eTag(version, request, takesCriteria(handler));
+    request.setAttribute(ETAG_ATTRIBUTE, eTag);
+    request.setAttribute(VERSION_ATTRIBUTE, version);
+    if (matches(request.getHeaders(HttpHeaders.IF_NONE_MATCH), eTag)) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      response.setHeader(HttpHeaders.ETAG, eTag);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param criteria
+   *          Whether the handler binds the criteria parameters to a
+   *          {@link ConflictCriteria}
+   * @return Weak entity tag of the response to a request for the provided
+   *         dataset version
+   */
+  static String eTag(String version, HttpServletRequest request, boolean criteria) {
+    StringBuilder key = new StringBuilder(request.getRequestURI());
+    Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+    if (criteria) {
+      try {
+        key.append('\0').append(ConflictCriteriaArgumentResolver.toCriteria(request).canonical());
+        parameters.keySet().removeAll(ConflictCriteriaArgumentResolver.PARAMETERS);
+      } catch (InvalidRequestException e) {
+        // Answered with a 400 by the handler, tagged by the raw parameters
+      }
+    }
+    for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+      for (String value : parameter.getValue()) {
+        // NUL separated, so that a value cannot pass for the next parameter
+        key.append('\0').append(parameter.getKey()).append('=').append(value);
+      }
+    }
+    return "W/\"" + version + "-" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8))
+      + "\"";
+  }
+
+  /**
+   * @return Whether any If-None-Match header matches the entity tag, using the
+   *         weak comparison
+   */
+  private static boolean matches(Enumeration<String> ifNoneMatch, String eTag) {
+    String opaqueTag = eTag.substring(2);
+    while (ifNoneMatch.hasMoreElements()) {
+      for (String tag : ifNoneMatch.nextElement().split(",")) {
+        String t = tag.trim();
+        if (t.equals("*") || (t.startsWith("W/") ? t.substring(2) : t).equals(opaqueTag)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean takesCriteria(Object handler) {
+    if (handler instanceof HandlerMethod) {
+      for (MethodParameter parameter : ((HandlerMethod) handler).getMethodParameters()) {
+        if (parameter.getParameterType() == ConflictCriteria.class) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isGetOrHead(HttpServletRequest request) {
+    return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+  }
+}
@@ -0,0 +1,47 @@
+package com.jshipper.acled.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * DataSource configuration of the REST services
+ *
+ * @author jshipper
+ *
+ */
+@Configuration
+public class DataSourceConfig {
+  /**
+   * Take a pooled connection only once a transaction runs its first statement.
+   * The read-only transaction {@link com.jshipper.acled.rest.QueryExecutor}
+   * opens around every query otherwise holds a connection from its start,
+   * even when the query is answered from the
+   * {@link com.jshipper.acled.service.ConflictQueryCache cache} or waits for
+   * the same query run by another request.
+   */
+  @Bean
+  public static BeanPostProcessor lazyConnectionDataSource() {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource) || bean instanceof LazyConnectionDataSourceProxy) {
+          return bean;
+        }
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource((DataSource) bean);
+        if (bean instanceof HikariDataSource) {
+          // Known without a connection, so that beginning a transaction does not take one
+          proxy.setDefaultAutoCommit(((HikariDataSource) bean).isAutoCommit());
+        }
+        proxy.afterPropertiesSet();
+        return proxy;
+      }
+    };
+  }
+}
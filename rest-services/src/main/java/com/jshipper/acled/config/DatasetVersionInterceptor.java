@@ -0,0 +1,36 @@
+package com.jshipper.acled.config;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.jshipper.acled.dataset.DatasetService;
+
+/**
+ * Adds the {@value #VERSION_HEADER} header to every response, so clients can
+ * key their caches on the version of the dataset that answered
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class DatasetVersionInterceptor implements HandlerInterceptor {
+  public static final String VERSION_HEADER = "X-Dataset-Version";
+
+  private final DatasetService datasetService;
+
+  @Inject
+  public DatasetVersionInterceptor(DatasetService datasetService) {
+    this.datasetService = datasetService;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+    Object handler) {
+    response.setHeader(VERSION_HEADER, datasetService.getVersion().getVersion());
+    return true;
+  }
+}
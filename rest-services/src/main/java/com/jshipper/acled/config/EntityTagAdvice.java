@@ -0,0 +1,65 @@
+package com.jshipper.acled.config;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.rest.ConflictController;
+
+/**
+ * Sets the entity tag computed by {@link ConditionalRequestInterceptor} on
+ * each {@link ConflictController} response, just before it is serialized,
+ * unless the dataset was reloaded since the tag was computed: the response
+ * may hold conflicts of either version.
+ * Responses without a Cache-Control header get "no-cache": browsers and
+ * shared caches may store them but revalidate them on every use, which is
+ * answered with a 304 until the dataset is reloaded. Error responses, written
+ * by the exception handlers, and streamed responses get neither.
+ *
+ * @author jshipper
+ *
+ */
+@ControllerAdvice(assignableTypes = ConflictController.class)
+public class EntityTagAdvice implements ResponseBodyAdvice<Object> {
+  private final DatasetService datasetService;
+
+  @Inject
+  public EntityTagAdvice(DatasetService datasetService) {
+    this.datasetService = datasetService;
+  }
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+    Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+    ServerHttpResponse response) {
+    if (request instanceof ServletServerHttpRequest) {
+      HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+      Object eTag = servletRequest.getAttribute(ConditionalRequestInterceptor.ETAG_ATTRIBUTE);
+      if (eTag != null && datasetService.getVersion().getVersion()
+        .equals(servletRequest.getAttribute(ConditionalRequestInterceptor.VERSION_ATTRIBUTE))) {
+        HttpHeaders headers = response.getHeaders();
+        headers.setETag((String) eTag);
+        if (headers.getCacheControl() == null) {
+          headers.setCacheControl(CacheControl.noCache());
+        }
+      }
+    }
+    return body;
+  }
+}
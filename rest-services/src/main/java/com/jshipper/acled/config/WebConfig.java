@@ -0,0 +1,55 @@
+package com.jshipper.acled.config;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.jshipper.acled.metrics.ConflictMetrics;
+import com.jshipper.acled.metrics.ResponseSizeFilter;
+import com.jshipper.acled.rest.ConflictController;
+import com.jshipper.acled.rest.ConflictCriteriaArgumentResolver;
+
+/**
+ * Spring MVC configuration of the REST services
+ *
+ * @author jshipper
+ *
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+  private final DatasetVersionInterceptor datasetVersionInterceptor;
+  private final ConditionalRequestInterceptor conditionalRequestInterceptor;
+
+  @Inject
+  public WebConfig(DatasetVersionInterceptor datasetVersionInterceptor,
+    ConditionalRequestInterceptor conditionalRequestInterceptor) {
+    this.datasetVersionInterceptor = datasetVersionInterceptor;
+    this.conditionalRequestInterceptor = conditionalRequestInterceptor;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(datasetVersionInterceptor).addPathPatterns(ConflictController.PATH + "/**");
+    registry.addInterceptor(conditionalRequestInterceptor).addPathPatterns(ConflictController.PATH + "/**");
+  }
+
+  @Override
+  public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+    resolvers.add(new ConflictCriteriaArgumentResolver());
+  }
+
+  @Bean
+  public FilterRegistrationBean<ResponseSizeFilter> responseSizeFilter(ConflictMetrics metrics) {
+    FilterRegistrationBean<ResponseSizeFilter> registration =
+      new FilterRegistrationBean<>(new ResponseSizeFilter(metrics));
+    registration.addUrlPatterns(ConflictController.PATH + "/*");
+    return registration;
+  }
+}
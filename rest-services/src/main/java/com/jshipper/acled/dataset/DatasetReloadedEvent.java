@@ -0,0 +1,25 @@
+package com.jshipper.acled.dataset;
+
+import com.jshipper.acled.model.DatasetVersion;
+
+/**
+ * Published once the Conflict table has been replaced or modified. Anything
+ * derived from the dataset should be rebuilt or invalidated.
+ *
+ * @author jshipper
+ *
+ */
+public class DatasetReloadedEvent {
+  private final DatasetVersion version;
+
+  public DatasetReloadedEvent(DatasetVersion version) {
+    this.version = version;
+  }
+
+  /**
+   * @return The new version of the dataset
+   */
+  public DatasetVersion getVersion() {
+    return version;
+  }
+}
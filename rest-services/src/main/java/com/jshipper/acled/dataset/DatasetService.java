@@ -0,0 +1,242 @@
+package com.jshipper.acled.dataset;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.ingest.AcledCsvParser;
+import com.jshipper.acled.ingest.ConflictIngester;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.DatasetVersion;
+import com.jshipper.acled.model.StringPool;
+import com.jshipper.acled.store.ConflictSnapshot;
+
+/**
+ * Tracks the version of the dataset and replaces it without downtime. A
+ * reload loads the new data into a staging table, then swaps it with the live
+ * table in a single atomic RENAME TABLE, so queries never see an empty or
+ * partial dataset. Other databases (H2) copy the staging table into the live
+ * one in a single transaction instead. Versions are recorded in the {@link #VERSION_TABLE} table,
+ * numbered in the order they were recorded: the highest number is the
+ * version being served.
+ * <p>
+ * Instances sharing a database see each other's reloads by polling the table
+ * every {@code acled.dataset.poll-interval} milliseconds, and notify their
+ * listeners as if they had reloaded themselves. With polling turned off (0),
+ * an instance only sees its own reloads. The {@link StringPool} is reset
+ * whenever the version changes, before listeners reload their data.
+ * <p>
+ * When the database cannot be reached at startup, the version of the
+ * {@link ConflictSnapshot} is served, if there is one, so that the memory
+ * implementation can start from the snapshot alone. Polling then switches
+ * to the database's version once it is reachable and differs.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class DatasetService {
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetService.class);
+
+  public static final String VERSION_TABLE = "Dataset_Version";
+  static final String STAGING_TABLE = Conflict.TABLE_NAME + "_staging";
+  static final String OLD_TABLE = Conflict.TABLE_NAME + "_old";
+  private static final String COLUMNS = String.join(", ", AcledCsvParser.COLUMNS);
+  private static final String VERSION_COLUMNS = "ID BIGINT AUTO_INCREMENT PRIMARY KEY, "
+    + "VERSION VARCHAR(64) NOT NULL UNIQUE, LOADED_AT TIMESTAMP(3) NOT NULL, ROW_COUNT BIGINT";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ConflictIngester ingester;
+  private final ApplicationEventPublisher publisher;
+  private final ConflictSnapshot snapshot;
+  private final long pollInterval;
+  private ScheduledExecutorService poller;
+  private volatile DatasetVersion version;
+
+  @Inject
+  public DatasetService(JdbcTemplate jdbcTemplate, ConflictIngester ingester,
+    ApplicationEventPublisher publisher, ConflictSnapshot snapshot,
+    @Value("${acled.dataset.poll-interval:10000}") long pollInterval) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.ingester = ingester;
+    this.publisher = publisher;
+    this.snapshot = snapshot;
+    this.pollInterval = pollInterval;
+  }
+
+  @PostConstruct
+  public void init() {
+    try {
+      jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + VERSION_TABLE + " (" + VERSION_COLUMNS + ")");
+      DatasetVersion latest = latestVersion();
+      version = latest == null ? recordVersion() : latest;
+      LOG.info("Serving dataset {}", version);
+    } catch (DataAccessException e) {
+      DatasetVersion saved = snapshot.readVersion();
+      if (saved == null) {
+        throw e;
+      }
+      version = saved;
+      LOG.warn("Could not read the dataset version from the database, serving the snapshot's {}", version, e);
+    }
+    if (pollInterval > 0) {
+      poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("acled-dataset-poll-"));
+      poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (poller != null) {
+      poller.shutdownNow();
+    }
+  }
+
+  /**
+   * @return The last version recorded, by this instance or another one; null
+   *         if there is none
+   */
+  private DatasetVersion latestVersion() {
+    List<DatasetVersion> versions = jdbcTemplate.query(
+      "SELECT VERSION, LOADED_AT, ROW_COUNT FROM " + VERSION_TABLE + " ORDER BY ID DESC LIMIT 1",
+      (rs, i) -> new DatasetVersion(rs.getString(1), rs.getTimestamp(2), rs.getLong(3)));
+    return versions.isEmpty() ? null : versions.get(0);
+  }
+
+  /**
+   * Serve the version another instance recorded since the last poll, if any
+   */
+  synchronized void poll() {
+    try {
+      DatasetVersion latest = latestVersion();
+      if (latest != null && !latest.getVersion().equals(version.getVersion())) {
+        version = latest;
+        LOG.info("Dataset reloaded by another instance, now serving {}", version);
+        StringPool.reset();
+        publisher.publishEvent(new DatasetReloadedEvent(version));
+      }
+    } catch (RuntimeException e) {
+      LOG.warn("Could not poll the dataset version", e);
+    }
+  }
+
+  /**
+   * @return The version of the data currently in the Conflict table
+   */
+  public DatasetVersion getVersion() {
+    return version;
+  }
+
+  /**
+   * Replace the whole dataset with the contents of an ACLED CSV file. Queries
+   * keep reading the previous data until it is swapped out.
+   *
+   * @param file
+   *          ACLED CSV file, with a header line
+   * @return The new version
+   * @throws IOException
+   *           If the file cannot be read, the live table is left untouched
+   */
+  public synchronized DatasetVersion reload(Path file) throws IOException {
+    boolean mySql = isMySql();
+    jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+    if (mySql) {
+      jdbcTemplate.execute("CREATE TABLE " + STAGING_TABLE + " LIKE " + Conflict.TABLE_NAME);
+    } else {
+      jdbcTemplate.execute("CREATE TABLE " + STAGING_TABLE + " AS SELECT " + COLUMNS + " FROM "
+        + Conflict.TABLE_NAME + " WITH NO DATA");
+    }
+    try {
+      ingester.ingest(file, STAGING_TABLE);
+    } catch (IOException | RuntimeException e) {
+      jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+      throw e;
+    }
+    if (mySql) {
+      jdbcTemplate.execute("DROP TABLE IF EXISTS " + OLD_TABLE);
+      // Atomic: statements see either the old or the new table, never neither
+      jdbcTemplate.execute("RENAME TABLE " + Conflict.TABLE_NAME + " TO " + OLD_TABLE + ", "
+        + STAGING_TABLE + " TO " + Conflict.TABLE_NAME);
+      jdbcTemplate.execute("DROP TABLE " + OLD_TABLE);
+    } else {
+      copyStaging();
+    }
+    return changed();
+  }
+
+  /**
+   * Replace the contents of the Conflict table with the staging table's in a
+   * single transaction, for databases without MySQL's RENAME TABLE
+   */
+  private void copyStaging() {
+    try {
+      jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try (Statement statement = con.createStatement()) {
+          statement.executeUpdate("DELETE FROM " + Conflict.TABLE_NAME);
+          statement.executeUpdate("INSERT INTO " + Conflict.TABLE_NAME + " (" + COLUMNS + ") SELECT " + COLUMNS
+            + " FROM " + STAGING_TABLE);
+          con.commit();
+        } catch (SQLException e) {
+          con.rollback();
+          throw e;
+        } finally {
+          con.setAutoCommit(autoCommit);
+        }
+        return null;
+      });
+    } finally {
+      jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING_TABLE);
+    }
+  }
+
+  private boolean isMySql() {
+    return "MySQL".equalsIgnoreCase(jdbcTemplate.execute(
+      (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName()));
+  }
+
+  /**
+   * Record that the contents of the Conflict table changed: assign a new
+   * version and notify listeners with a {@link DatasetReloadedEvent}
+   *
+   * @return The new version
+   */
+  public synchronized DatasetVersion changed() {
+    version = recordVersion();
+    LOG.info("Dataset changed, now serving {}", version);
+    StringPool.reset();
+    publisher.publishEvent(new DatasetReloadedEvent(version));
+    return version;
+  }
+
+  private DatasetVersion recordVersion() {
+    Date now = new Date();
+    String id = Long.toString(System.currentTimeMillis(), 36)
+      + Long.toString(System.nanoTime() & 0xffff, 36);
+    Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + Conflict.TABLE_NAME, Long.class);
+    jdbcTemplate.update("INSERT INTO " + VERSION_TABLE + " (VERSION, LOADED_AT, ROW_COUNT) VALUES (?, ?, ?)",
+      id, new java.sql.Timestamp(now.getTime()), rows);
+    return new DatasetVersion(id, now, rows);
+  }
+}
@@ -0,0 +1,312 @@
+package com.jshipper.acled.ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Parser for the ACLED v5 CSV export: latin1 encoded, comma separated, fields
+ * optionally enclosed in double quotes, backslash escapes, lines terminated by
+ * '\r' (or '\n' / "\r\n") and dates formatted as dd/MM/yyyy. The file is meant
+ * to be split into chunks at line boundaries with
+ * {@link #chunkBoundaries(FileChannel, long)} and each chunk parsed
+ * independently, so fields must not contain line terminators.
+ *
+ * A parser instance is not thread-safe, use one per chunk or thread.
+ *
+ * @author jshipper
+ *
+ */
+public class AcledCsvParser {
+  /** Number of columns in the CSV, in the order listed by {@link #COLUMNS} */
+  public static final int COLUMN_COUNT = 24;
+  public static final List<String> COLUMNS = Arrays.asList("GWNO",
+    "EVENT_ID_CNTY", "EVENT_ID_NO_CNTY", "EVENT_DATE", "YEAR",
+    "TIME_PRECISION", "EVENT_TYPE", "ACTOR1", "ALLY_ACTOR_1", "INTER1",
+    "ACTOR2", "ALLY_ACTOR_2", "INTER2", "INTERACTION", "COUNTRY", "ADMIN1",
+    "ADMIN2", "ADMIN3", "LOCATION", "LATITUDE", "LONGITUDE", "GEO_PRECIS",
+    "SOURCE", "FATALITIES");
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+  private static final byte SEPARATOR = ',';
+  private static final byte QUOTE = '"';
+  private static final byte ESCAPE = '\\';
+  private static final int SCAN_BLOCK_SIZE = 64 * 1024;
+
+  private final String[] fields = new String[COLUMN_COUNT];
+  private char[] field = new char[256];
+  private int fieldLength;
+  private long malformedLines;
+
+  /**
+   * Split a file into chunks of roughly the provided size that start at the
+   * beginning of a line
+   *
+   * @return Offsets of chunk boundaries, starting with 0 and ending with the
+   *         file size
+   */
+  public static long[] chunkBoundaries(FileChannel channel, long chunkSize)
+    throws IOException {
+    long size = channel.size();
+    List<Long> boundaries = new ArrayList<>();
+    boundaries.add(0L);
+    ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+    long position = chunkSize;
+    while (position < size) {
+      long lineStart = nextLineStart(channel, position, block);
+      if (lineStart >= size) {
+        break;
+      }
+      boundaries.add(lineStart);
+      position = lineStart + chunkSize;
+    }
+    boundaries.add(size);
+    long[] result = new long[boundaries.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = boundaries.get(i);
+    }
+    return result;
+  }
+
+  private static long nextLineStart(FileChannel channel, long position,
+    ByteBuffer block) throws IOException {
+    long size = channel.size();
+    while (position < size) {
+      block.clear();
+      int read = channel.read(block, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        byte b = block.get(i);
+        if (b == CR || b == LF) {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  /**
+   * Parse all lines of a chunk
+   *
+   * @param chunk
+   *          Bytes of the chunk, from its position to its limit
+   * @param skipHeader
+   *          Whether the first line is a header that should be ignored
+   * @param sink
+   *          Receives each parsed conflict
+   */
+  public void parse(ByteBuffer chunk, boolean skipHeader,
+    Consumer<Conflict> sink) {
+    boolean header = skipHeader;
+    int column = 0;
+    boolean lineStarted = false;
+    int i = chunk.position();
+    int end = chunk.limit();
+    while (i < end) {
+      byte b = chunk.get(i);
+      if (b == CR || b == LF) {
+        if (lineStarted) {
+          endLine(column, header, sink);
+          header = false;
+        }
+        column = 0;
+        lineStarted = false;
+        i++;
+        continue;
+      }
+      lineStarted = true;
+      // Read one field, starting at i
+      fieldLength = 0;
+      boolean isNull = false;
+      if (b == QUOTE) {
+        i++;
+        while (i < end) {
+          b = chunk.get(i);
+          if (b == QUOTE) {
+            if (i + 1 < end && chunk.get(i + 1) == QUOTE) {
+              append('"');
+              i += 2;
+              continue;
+            }
+            i++;
+            break;
+          }
+          if (b == ESCAPE && i + 1 < end) {
+            append(unescape(chunk.get(i + 1)));
+            i += 2;
+            continue;
+          }
+          append((char) (b & 0xff));
+          i++;
+        }
+      }
+      while (i < end) {
+        b = chunk.get(i);
+        if (b == SEPARATOR || b == CR || b == LF) {
+          break;
+        }
+        if (b == ESCAPE && i + 1 < end) {
+          byte next = chunk.get(i + 1);
+          if (next == 'N' && fieldLength == 0) {
+            isNull = true;
+          } else {
+            append(unescape(next));
+          }
+          i += 2;
+          continue;
+        }
+        append((char) (b & 0xff));
+        i++;
+      }
+      if (column < COLUMN_COUNT) {
+        fields[column] = isNull ? null : new String(field, 0, fieldLength);
+      }
+      column++;
+      if (i < end && chunk.get(i) == SEPARATOR) {
+        i++;
+        if (i == end || chunk.get(i) == CR || chunk.get(i) == LF) {
+          // Trailing empty field
+          if (column < COLUMN_COUNT) {
+            fields[column] = "";
+          }
+          column++;
+        }
+      }
+    }
+    if (lineStarted) {
+      endLine(column, header, sink);
+    }
+  }
+
+  /**
+   * @return Number of lines skipped because they could not be parsed
+   */
+  public long getMalformedLines() {
+    return malformedLines;
+  }
+
+  private void endLine(int columns, boolean header, Consumer<Conflict> sink) {
+    if (header) {
+      return;
+    }
+    if (columns != COLUMN_COUNT) {
+      malformedLines++;
+      return;
+    }
+    Conflict conflict;
+    try {
+      conflict = toConflict(fields);
+    } catch (IllegalArgumentException | DateTimeException e) {
+      malformedLines++;
+      return;
+    }
+    sink.accept(conflict);
+  }
+
+  private void append(char c) {
+    if (fieldLength == field.length) {
+      field = Arrays.copyOf(field, field.length * 2);
+    }
+    field[fieldLength++] = c;
+  }
+
+  private static char unescape(byte b) {
+    switch (b) {
+      case '0':
+        return '\0';
+      case 'b':
+        return '\b';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'Z':
+        return (char) 26;
+      default:
+        return (char) (b & 0xff);
+    }
+  }
+
+  private static Conflict toConflict(String[] fields) {
+    Conflict conflict = new Conflict();
+    conflict.setGwno(toInteger(fields[0]));
+    conflict.setEventIdCnty(fields[1]);
+    Long id = toLong(fields[2]);
+    if (id == null) {
+      throw new IllegalArgumentException("Missing EVENT_ID_NO_CNTY");
+    }
+    conflict.setId(id);
+    conflict.setDate(toDate(fields[3]));
+    conflict.setYear(toInteger(fields[4]));
+    conflict.setTimePrecision(toInteger(fields[5]));
+    conflict.setEventType(fields[6]);
+    conflict.setActor1(fields[7]);
+    conflict.setAllyActor1(fields[8]);
+    conflict.setInter1(toInteger(fields[9]));
+    conflict.setActor2(fields[10]);
+    conflict.setAllyActor2(fields[11]);
+    conflict.setInter2(toInteger(fields[12]));
+    conflict.setInteraction(toInteger(fields[13]));
+    conflict.setCountry(fields[14]);
+    conflict.setAdmin1(fields[15]);
+    conflict.setAdmin2(fields[16]);
+    conflict.setAdmin3(fields[17]);
+    conflict.setLocation(fields[18]);
+    conflict.setLatitude(toDouble(fields[19]));
+    conflict.setLongitude(toDouble(fields[20]));
+    conflict.setGeoPrecis(toInteger(fields[21]));
+    conflict.setSource(fields[22]);
+    conflict.setFatalities(toInteger(fields[23]));
+    return conflict;
+  }
+
+  private static Integer toInteger(String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    return Integer.valueOf(value.trim());
+  }
+
+  private static Long toLong(String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    return Long.valueOf(value.trim());
+  }
+
+  private static Double toDouble(String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    return Double.valueOf(value.trim());
+  }
+
+  /**
+   * Parse a dd/MM/yyyy date
+   */
+  private static LocalDate toDate(String value) {
+    if (value == null || value.trim().isEmpty()) {
+      return null;
+    }
+    String[] parts = value.trim().split("/");
+    if (parts.length != 3) {
+      throw new IllegalArgumentException("Invalid date: " + value);
+    }
+    return LocalDate.of(Integer.parseInt(parts[2]), Integer.parseInt(parts[1]),
+      Integer.parseInt(parts[0]));
+  }
+}
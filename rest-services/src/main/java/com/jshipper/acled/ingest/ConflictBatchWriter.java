@@ -0,0 +1,126 @@
+package com.jshipper.acled.ingest;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Writes conflicts with batched JDBC inserts, bypassing the persistence
+ * context. With rewriteBatchedStatements=true on the MySQL connection each
+ * batch is sent as a single multi-row INSERT.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class ConflictBatchWriter {
+  private static final String COLUMNS = String.join(", ", AcledCsvParser.COLUMNS);
+  private static final String PLACEHOLDERS =
+    String.join(", ", Collections.nCopies(AcledCsvParser.COLUMN_COUNT, "?"));
+  private static final String UPDATES = AcledCsvParser.COLUMNS.stream()
+    .map(column -> column + " = VALUES(" + column + ")").collect(Collectors.joining(", "));
+
+  private final JdbcTemplate jdbcTemplate;
+
+  @Inject
+  public ConflictBatchWriter(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Insert conflicts into a table with the Conflict table's columns
+   *
+   * @param table
+   *          Name of the table to insert into
+   * @param conflicts
+   *          Conflicts to insert, as a single batch
+   */
+  public void write(String table, Collection<Conflict> conflicts) {
+    batchUpdate("INSERT INTO " + table + " (" + COLUMNS + ") VALUES ("
+      + PLACEHOLDERS + ")", conflicts);
+  }
+
+  /**
+   * Insert conflicts into a table with the Conflict table's columns, replacing
+   * those with an existing id
+   *
+   * @param table
+   *          Name of the table to write to
+   * @param conflicts
+   *          Conflicts to write, as a single batch
+   */
+  public void upsert(String table, Collection<Conflict> conflicts) {
+    batchUpdate("INSERT INTO " + table + " (" + COLUMNS + ") VALUES ("
+      + PLACEHOLDERS + ") ON DUPLICATE KEY UPDATE " + UPDATES, conflicts);
+  }
+
+  private void batchUpdate(String sql, Collection<Conflict> conflicts) {
+    if (conflicts.isEmpty()) {
+      return;
+    }
+    List<Conflict> batch = conflicts instanceof List ? (List<Conflict>) conflicts
+      : new ArrayList<>(conflicts);
+    jdbcTemplate.batchUpdate(sql, batch, batch.size(), ConflictBatchWriter::bind);
+  }
+
+  private static void bind(PreparedStatement ps, Conflict c) throws SQLException {
+    setInteger(ps, 1, c.getGwno());
+    ps.setString(2, c.getEventIdCnty());
+    ps.setLong(3, c.getId());
+    if (c.getDate() == null) {
+      ps.setNull(4, Types.DATE);
+    } else {
+      ps.setDate(4, java.sql.Date.valueOf(c.getDate()));
+    }
+    setInteger(ps, 5, c.getYear());
+    setInteger(ps, 6, c.getTimePrecision());
+    ps.setString(7, c.getEventType());
+    ps.setString(8, c.getActor1());
+    ps.setString(9, c.getAllyActor1());
+    setInteger(ps, 10, c.getInter1());
+    ps.setString(11, c.getActor2());
+    ps.setString(12, c.getAllyActor2());
+    setInteger(ps, 13, c.getInter2());
+    setInteger(ps, 14, c.getInteraction());
+    ps.setString(15, c.getCountry());
+    ps.setString(16, c.getAdmin1());
+    ps.setString(17, c.getAdmin2());
+    ps.setString(18, c.getAdmin3());
+    ps.setString(19, c.getLocation());
+    setDouble(ps, 20, c.getLatitude());
+    setDouble(ps, 21, c.getLongitude());
+    setInteger(ps, 22, c.getGeoPrecis());
+    ps.setString(23, c.getSource());
+    setInteger(ps, 24, c.getFatalities());
+  }
+
+  private static void setInteger(PreparedStatement ps, int index, Integer value)
+    throws SQLException {
+    if (value == null) {
+      ps.setNull(index, Types.INTEGER);
+    } else {
+      ps.setInt(index, value);
+    }
+  }
+
+  private static void setDouble(PreparedStatement ps, int index, Double value)
+    throws SQLException {
+    if (value == null) {
+      ps.setNull(index, Types.DOUBLE);
+    } else {
+      ps.setDouble(index, value);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.jshipper.acled.ingest;
+
+import java.nio.file.Paths;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dataset.DatasetService;
+
+/**
+ * Replaces the dataset with the CSV file named by {@code acled.ingest.file}
+ * once the application has started. The previous data keeps being served
+ * until the new data is fully loaded.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+@ConditionalOnProperty(name = ConflictIngestRunner.FILE_PROPERTY)
+public class ConflictIngestRunner implements ApplicationRunner {
+  public static final String FILE_PROPERTY = "acled.ingest.file";
+
+  private final DatasetService datasetService;
+  private final String file;
+
+  @Inject
+  public ConflictIngestRunner(DatasetService datasetService,
+    @Value("${" + FILE_PROPERTY + "}") String file) {
+    this.datasetService = datasetService;
+    this.file = file;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    datasetService.reload(Paths.get(file));
+  }
+}
@@ -0,0 +1,128 @@
+package com.jshipper.acled.ingest;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Loads an ACLED CSV file into a table. The file is memory-mapped and split
+ * into chunks at line boundaries; chunks are parsed and written with batched
+ * inserts in parallel, and progress is logged in rows per second.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class ConflictIngester {
+  private static final Logger LOG = LoggerFactory.getLogger(ConflictIngester.class);
+  private static final long PROGRESS_INTERVAL_SECONDS = 5;
+
+  private final ConflictBatchWriter writer;
+  private final int threads;
+  private final int batchSize;
+  private final long chunkSize;
+
+  @Inject
+  public ConflictIngester(ConflictBatchWriter writer,
+    @Value("${acled.ingest.threads:4}") int threads,
+    @Value("${acled.ingest.batch-size:1000}") int batchSize,
+    @Value("${acled.ingest.chunk-size:8388608}") long chunkSize) {
+    this.writer = writer;
+    this.threads = threads;
+    this.batchSize = batchSize;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Load a CSV file into a table
+   *
+   * @param file
+   *          ACLED CSV file, with a header line
+   * @param table
+   *          Name of the table to insert into, with the Conflict table's
+   *          columns
+   * @return Number of rows inserted
+   * @throws IOException
+   *           If the file cannot be read
+   */
+  public long ingest(Path file, String table) throws IOException {
+    long start = System.nanoTime();
+    AtomicLong rows = new AtomicLong();
+    AtomicLong malformed = new AtomicLong();
+    ExecutorService workers =
+      Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("acled-ingest-"));
+    ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(
+      new CustomizableThreadFactory("acled-ingest-progress-"));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long[] boundaries = AcledCsvParser.chunkBoundaries(channel, chunkSize);
+      LOG.info("Ingesting {} ({} bytes, {} chunks) into {} with {} threads", file,
+        channel.size(), boundaries.length - 1, table, threads);
+      progress.scheduleAtFixedRate(() -> logProgress(rows.get(), start), PROGRESS_INTERVAL_SECONDS,
+        PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+      List<Future<?>> chunks = new ArrayList<>();
+      for (int i = 0; i < boundaries.length - 1; i++) {
+        MappedByteBuffer chunk =
+          channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i], boundaries[i + 1] - boundaries[i]);
+        boolean header = i == 0;
+        chunks.add(workers.submit(() -> {
+          AcledCsvParser parser = new AcledCsvParser();
+          List<Conflict> batch = new ArrayList<>(batchSize);
+          parser.parse(chunk, header, conflict -> {
+            batch.add(conflict);
+            if (batch.size() == batchSize) {
+              writer.write(table, batch);
+              rows.addAndGet(batch.size());
+              batch.clear();
+            }
+          });
+          writer.write(table, batch);
+          rows.addAndGet(batch.size());
+          malformed.addAndGet(parser.getMalformedLines());
+        }));
+      }
+      for (Future<?> chunk : chunks) {
+        chunk.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Ingestion of " + file + " interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Ingestion of " + file + " failed", e.getCause());
+    } finally {
+      workers.shutdownNow();
+      progress.shutdownNow();
+    }
+    logProgress(rows.get(), start);
+    if (malformed.get() > 0) {
+      LOG.warn("Skipped {} malformed lines in {}", malformed.get(), file);
+    }
+    return rows.get();
+  }
+
+  private static void logProgress(long rows, long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    LOG.info("Ingested {} rows in {} s ({} rows/s)", rows, String.format("%.1f", seconds),
+      Math.round(rows / Math.max(seconds, 1e-3)));
+  }
+}
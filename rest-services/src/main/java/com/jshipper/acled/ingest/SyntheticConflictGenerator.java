@@ -0,0 +1,346 @@
+package com.jshipper.acled.ingest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Generates conflicts shaped like the ACLED v5 dataset, for load and
+ * performance testing without the real data:
+ * <ul>
+ * <li>countries drawn with their approximate share of ACLED events, so a few
+ * countries dominate</li>
+ * <li>actors drawn from a Zipf distribution within each country</li>
+ * <li>mostly no fatalities, with a Pareto tail reaching thousands</li>
+ * <li>locations clustered around a few hotspots per country, within
+ * Africa</li>
+ * <li>dates from 1997 to 2014, more frequent in later years</li>
+ * </ul>
+ *
+ * Conflicts get increasing ids starting at 1. The same seed always produces
+ * the same conflicts. Not thread-safe.
+ *
+ * @author jshipper
+ *
+ */
+public class SyntheticConflictGenerator {
+  public static final long DEFAULT_SEED = 20140101L;
+  /** Actors per country, by decreasing frequency */
+  public static final int ACTORS_PER_COUNTRY = 60;
+
+  private static final double MIN_LATITUDE = -35;
+  private static final double MAX_LATITUDE = 37.5;
+  private static final double MIN_LONGITUDE = -17.5;
+  private static final double MAX_LONGITUDE = 51.5;
+  private static final int HOTSPOTS_PER_COUNTRY = 6;
+  private static final int LOCATIONS_PER_HOTSPOT = 25;
+  private static final int MAX_FATALITIES = 25000;
+  private static final LocalDate FIRST_DATE = LocalDate.of(1997, 1, 1);
+  private static final int DAYS = (int) (LocalDate.of(2014, 12, 31).toEpochDay() - FIRST_DATE.toEpochDay()) + 1;
+
+  private static final String VIOLENCE_AGAINST_CIVILIANS = "Violence against civilians";
+  private static final String RIOTS_PROTESTS = "Riots/Protests";
+  private static final List<String> EVENT_TYPES = Arrays.asList("Battle-No change of territory",
+    VIOLENCE_AGAINST_CIVILIANS, RIOTS_PROTESTS, "Remote violence", "Battle-Government regains territory",
+    "Battle-Non-state actor overtakes territory", "Strategic development", "Non-violent transfer of territory",
+    "Headquarters or base established");
+  private static final double[] EVENT_TYPE_WEIGHTS = { 32, 30, 20, 7, 3, 3, 3, 1, 1 };
+  private static final List<String> SOURCES = Arrays.asList("Reuters", "Agence France Presse", "BBC Monitoring",
+    "Associated Press", "All Africa", "Xinhua", "Local sources", "IRIN", "Human Rights Watch", "UN Report");
+
+  private static final List<Country> COUNTRIES = new ArrayList<>();
+  static {
+    // Name, GWNO, approximate share of events, centre and extent of the
+    // conflict areas in degrees
+    COUNTRIES.add(new Country("Somalia", 520, 17000, 4.5, 45.5, 3));
+    COUNTRIES.add(new Country("Democratic Republic of Congo", 490, 11500, -2.5, 27.5, 4));
+    COUNTRIES.add(new Country("Nigeria", 475, 7500, 9.5, 7.5, 3.5));
+    COUNTRIES.add(new Country("Sudan", 625, 6500, 13.5, 27.0, 4));
+    COUNTRIES.add(new Country("Egypt", 651, 6000, 29.5, 31.0, 2));
+    COUNTRIES.add(new Country("Zimbabwe", 552, 6000, -18.5, 30.5, 2.5));
+    COUNTRIES.add(new Country("Uganda", 500, 4000, 2.0, 32.5, 2));
+    COUNTRIES.add(new Country("South Africa", 560, 4000, -27.5, 27.0, 3.5));
+    COUNTRIES.add(new Country("Algeria", 615, 3500, 35.5, 3.0, 3));
+    COUNTRIES.add(new Country("Burundi", 516, 3500, -3.4, 29.9, 0.6));
+    COUNTRIES.add(new Country("Sierra Leone", 451, 3500, 8.5, -11.8, 1));
+    COUNTRIES.add(new Country("Angola", 540, 3000, -11.5, 17.5, 4));
+    COUNTRIES.add(new Country("Ethiopia", 530, 3000, 8.5, 39.5, 3.5));
+    COUNTRIES.add(new Country("Kenya", 501, 3000, -0.5, 37.5, 2.5));
+    COUNTRIES.add(new Country("Libya", 620, 3000, 31.0, 16.0, 3));
+    COUNTRIES.add(new Country("Central African Republic", 482, 2000, 6.5, 20.5, 3));
+    COUNTRIES.add(new Country("Cote D'Ivoire", 437, 2000, 7.5, -5.5, 2));
+    COUNTRIES.add(new Country("Liberia", 450, 2000, 6.5, -9.5, 1));
+    COUNTRIES.add(new Country("Mali", 432, 1500, 15.5, -3.0, 4));
+    COUNTRIES.add(new Country("Rwanda", 517, 1500, -1.9, 29.9, 0.6));
+    COUNTRIES.add(new Country("South Sudan", 626, 1500, 7.5, 30.5, 3));
+    COUNTRIES.add(new Country("Tunisia", 616, 1500, 35.0, 9.8, 1.5));
+    COUNTRIES.add(new Country("Chad", 483, 1200, 12.5, 18.0, 4));
+    COUNTRIES.add(new Country("Guinea", 438, 900, 10.0, -11.0, 1.5));
+    COUNTRIES.add(new Country("Cameroon", 471, 800, 6.0, 12.0, 2.5));
+    COUNTRIES.add(new Country("Madagascar", 580, 800, -19.0, 47.0, 2.5));
+    COUNTRIES.add(new Country("Congo", 484, 700, -3.0, 15.0, 2));
+    COUNTRIES.add(new Country("Mozambique", 541, 700, -18.5, 35.0, 3.5));
+    COUNTRIES.add(new Country("Senegal", 433, 700, 13.5, -15.0, 1.5));
+    COUNTRIES.add(new Country("Morocco", 600, 600, 32.5, -6.5, 2));
+    COUNTRIES.add(new Country("Niger", 436, 600, 14.5, 6.0, 3));
+    COUNTRIES.add(new Country("Tanzania", 510, 600, -6.5, 35.0, 3.5));
+    COUNTRIES.add(new Country("Ghana", 452, 500, 7.5, -1.0, 1.5));
+    COUNTRIES.add(new Country("Zambia", 551, 500, -14.0, 28.0, 3));
+    COUNTRIES.add(new Country("Burkina Faso", 439, 400, 12.3, -1.5, 2));
+    COUNTRIES.add(new Country("Eritrea", 531, 400, 15.3, 38.9, 1.5));
+    COUNTRIES.add(new Country("Malawi", 553, 400, -13.5, 34.0, 1.5));
+    COUNTRIES.add(new Country("Guinea-Bissau", 404, 300, 12.0, -15.0, 0.8));
+    COUNTRIES.add(new Country("Mauritania", 435, 300, 19.0, -12.0, 3));
+    COUNTRIES.add(new Country("Swaziland", 572, 300, -26.5, 31.5, 0.4));
+    COUNTRIES.add(new Country("Togo", 461, 300, 8.5, 1.0, 1));
+    COUNTRIES.add(new Country("Benin", 434, 200, 9.5, 2.3, 1));
+    COUNTRIES.add(new Country("Gabon", 481, 200, -0.8, 11.6, 1.5));
+    COUNTRIES.add(new Country("Lesotho", 570, 200, -29.6, 28.2, 0.5));
+    COUNTRIES.add(new Country("Namibia", 565, 200, -22.5, 17.5, 3));
+    COUNTRIES.add(new Country("Botswana", 571, 100, -22.3, 24.7, 2.5));
+    COUNTRIES.add(new Country("Djibouti", 522, 100, 11.6, 42.8, 0.4));
+    COUNTRIES.add(new Country("Equatorial Guinea", 411, 100, 1.6, 10.3, 0.5));
+    COUNTRIES.add(new Country("Gambia", 420, 100, 13.4, -15.5, 0.3));
+  }
+  private static final double[] COUNTRY_CUMULATIVE_WEIGHTS;
+  private static final double[] ACTOR_CUMULATIVE_WEIGHTS;
+  static {
+    double[] weights = new double[COUNTRIES.size()];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = COUNTRIES.get(i).weight;
+    }
+    COUNTRY_CUMULATIVE_WEIGHTS = cumulative(weights);
+    weights = new double[ACTORS_PER_COUNTRY];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = 1 / Math.pow(i + 1, 1.1);
+    }
+    ACTOR_CUMULATIVE_WEIGHTS = cumulative(weights);
+  }
+  private static final double[] EVENT_TYPE_CUMULATIVE_WEIGHTS = cumulative(EVENT_TYPE_WEIGHTS);
+
+  private final Random random;
+  /** Per country, latitude and longitude of each hotspot */
+  private final double[][][] hotspots;
+  private long nextId = 1;
+
+  public SyntheticConflictGenerator(long seed) {
+    random = new Random(seed);
+    hotspots = new double[COUNTRIES.size()][HOTSPOTS_PER_COUNTRY][];
+    for (int c = 0; c < COUNTRIES.size(); c++) {
+      Country country = COUNTRIES.get(c);
+      for (int h = 0; h < HOTSPOTS_PER_COUNTRY; h++) {
+        hotspots[c][h] = new double[] {
+          clamp(country.latitude + (random.nextDouble() * 2 - 1) * country.extent, MIN_LATITUDE, MAX_LATITUDE),
+          clamp(country.longitude + (random.nextDouble() * 2 - 1) * country.extent, MIN_LONGITUDE,
+            MAX_LONGITUDE) };
+      }
+    }
+  }
+
+  /**
+   * @return Names of the generated countries, by decreasing number of
+   *         conflicts
+   */
+  public static List<String> countries() {
+    List<String> names = new ArrayList<>(COUNTRIES.size());
+    for (Country country : COUNTRIES) {
+      names.add(country.name);
+    }
+    return Collections.unmodifiableList(names);
+  }
+
+  /**
+   * @param country
+   *          Name of a generated country
+   * @param rank
+   *          Rank of the actor in the country, from 0 (most frequent) to
+   *          {@link #ACTORS_PER_COUNTRY} excluded
+   * @return Name of the actor
+   */
+  public static String actor(String country, int rank) {
+    switch (rank) {
+      case 0:
+        return "Military Forces of " + country;
+      case 1:
+        return "Civilians (" + country + ")";
+      case 2:
+        return "Unidentified Armed Group (" + country + ")";
+      case 3:
+        return "Rioters (" + country + ")";
+      case 4:
+        return "Protesters (" + country + ")";
+      case 5:
+        return "Police Forces of " + country;
+      default:
+        return (rank % 2 == 0 ? "Rebel Group " : "Communal Militia ") + (rank - 5) + " (" + country + ")";
+    }
+  }
+
+  /**
+   * Generate the next conflicts
+   */
+  public List<Conflict> next(int count) {
+    List<Conflict> conflicts = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      conflicts.add(next());
+    }
+    return conflicts;
+  }
+
+  /**
+   * Generate the next conflict
+   */
+  public Conflict next() {
+    long id = nextId++;
+    int countryIndex = draw(COUNTRY_CUMULATIVE_WEIGHTS);
+    Country country = COUNTRIES.get(countryIndex);
+    String eventType = EVENT_TYPES.get(draw(EVENT_TYPE_CUMULATIVE_WEIGHTS));
+    // Later years have more events, as ACLED's coverage grew
+    LocalDate date = FIRST_DATE.plusDays((long) (DAYS * Math.sqrt(random.nextDouble())));
+
+    int actor1;
+    Integer actor2;
+    if (RIOTS_PROTESTS.equals(eventType)) {
+      actor1 = random.nextInt(3) == 0 ? 4 : 3;
+      actor2 = random.nextInt(2) == 0 ? null : 5;
+    } else {
+      do {
+        actor1 = draw(ACTOR_CUMULATIVE_WEIGHTS);
+      } while (actor1 == 1 || actor1 == 3 || actor1 == 4);
+      if (VIOLENCE_AGAINST_CIVILIANS.equals(eventType)) {
+        actor2 = 1;
+      } else if (random.nextInt(8) == 0) {
+        actor2 = null;
+      } else {
+        int drawn;
+        do {
+          drawn = draw(ACTOR_CUMULATIVE_WEIGHTS);
+        } while (drawn == actor1);
+        actor2 = drawn;
+      }
+    }
+
+    int hotspot = random.nextInt(HOTSPOTS_PER_COUNTRY);
+    double[] centre = hotspots[countryIndex][hotspot];
+    double spread = Math.min(0.5, country.extent / 4);
+
+    Conflict conflict = new Conflict();
+    conflict.setId(id);
+    conflict.setGwno(country.gwno);
+    conflict.setEventIdCnty(country.name.substring(0, 3).toUpperCase(Locale.ROOT) + id);
+    conflict.setDate(date);
+    conflict.setYear(date.getYear());
+    conflict.setTimePrecision(precision());
+    conflict.setEventType(eventType);
+    conflict.setActor1(actor(country.name, actor1));
+    conflict.setInter1(inter(actor1));
+    if (actor2 != null) {
+      conflict.setActor2(actor(country.name, actor2));
+      conflict.setInter2(inter(actor2));
+    } else {
+      conflict.setInter2(0);
+    }
+    conflict.setInteraction(Math.min(conflict.getInter1(), conflict.getInter2()) * 10
+      + Math.max(conflict.getInter1(), conflict.getInter2()));
+    conflict.setCountry(country.name);
+    conflict.setAdmin1(country.name + " Province " + (hotspot + 1));
+    conflict.setLocation(country.name + " Town " + (hotspot + 1) + "-" + (random.nextInt(LOCATIONS_PER_HOTSPOT) + 1));
+    conflict.setLatitude(round(clamp(centre[0] + random.nextGaussian() * spread, MIN_LATITUDE, MAX_LATITUDE)));
+    conflict.setLongitude(round(clamp(centre[1] + random.nextGaussian() * spread, MIN_LONGITUDE, MAX_LONGITUDE)));
+    conflict.setGeoPrecis(precision());
+    conflict.setSource(SOURCES.get(Math.min(SOURCES.size() - 1, (int) (-Math.log(random.nextDouble()) * 2))));
+    conflict.setFatalities(fatalities(eventType));
+    return conflict;
+  }
+
+  private int fatalities(String eventType) {
+    int zeroPercent = RIOTS_PROTESTS.equals(eventType) ? 95 : 55;
+    if (random.nextInt(100) < zeroPercent) {
+      return 0;
+    }
+    // Pareto with minimum 1 and shape 1.1
+    double pareto = Math.pow(1 - random.nextDouble(), -1 / 1.1);
+    return (int) Math.min(MAX_FATALITIES, Math.floor(pareto));
+  }
+
+  private int precision() {
+    int p = random.nextInt(10);
+    return p < 7 ? 1 : p < 9 ? 2 : 3;
+  }
+
+  /**
+   * ACLED actor type codes: 1 government, 2 rebels, 3 political militias, 4
+   * communal militias, 5 rioters, 6 protesters, 7 civilians
+   */
+  private static int inter(int rank) {
+    switch (rank) {
+      case 0:
+      case 5:
+        return 1;
+      case 1:
+        return 7;
+      case 2:
+        return 3;
+      case 3:
+        return 5;
+      case 4:
+        return 6;
+      default:
+        return rank % 2 == 0 ? 2 : 4;
+    }
+  }
+
+  /**
+   * Draw an index with probability proportional to its weight
+   */
+  private int draw(double[] cumulativeWeights) {
+    double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+    int index = Arrays.binarySearch(cumulativeWeights, target);
+    return index >= 0 ? index : -index - 1;
+  }
+
+  private static double[] cumulative(double[] weights) {
+    double[] result = new double[weights.length];
+    double sum = 0;
+    for (int i = 0; i < weights.length; i++) {
+      sum += weights[i];
+      result[i] = sum;
+    }
+    return result;
+  }
+
+  private static double clamp(double value, double min, double max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * ACLED coordinates have 4 decimals
+   */
+  private static double round(double value) {
+    return Math.round(value * 10000) / 10000d;
+  }
+
+  private static class Country {
+    final String name;
+    final int gwno;
+    final double weight;
+    final double latitude;
+    final double longitude;
+    final double extent;
+
+    Country(String name, int gwno, double weight, double latitude, double longitude, double extent) {
+      this.name = name;
+      this.gwno = gwno;
+      this.weight = weight;
+      this.latitude = latitude;
+      this.longitude = longitude;
+      this.extent = extent;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.jshipper.acled.ingest;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Fills an empty Conflict table with {@code acled.synthetic.rows} conflicts
+ * from {@link SyntheticConflictGenerator}, written with the same batched
+ * inserts as CSV ingestion. A table that already has rows is left untouched,
+ * and the database is not queried at all when no rows are asked for.
+ * The table is filled while the context starts, once every bean and listener
+ * is ready but before the web server, which starts in a later phase, accepts
+ * any request.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+@ConditionalOnProperty(name = SyntheticDataLoader.ROWS_PROPERTY)
+public class SyntheticDataLoader implements SmartLifecycle {
+  private static final Logger LOG = LoggerFactory.getLogger(SyntheticDataLoader.class);
+  public static final String ROWS_PROPERTY = "acled.synthetic.rows";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ConflictBatchWriter writer;
+  private final DatasetService datasetService;
+  private final long rows;
+  private final long seed;
+  private final int batchSize;
+  private volatile boolean running;
+
+  @Inject
+  public SyntheticDataLoader(JdbcTemplate jdbcTemplate, ConflictBatchWriter writer, DatasetService datasetService,
+    @Value("${" + ROWS_PROPERTY + "}") long rows,
+    @Value("${acled.synthetic.seed:" + SyntheticConflictGenerator.DEFAULT_SEED + "}") long seed,
+    @Value("${acled.ingest.batch-size:1000}") int batchSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.writer = writer;
+    this.datasetService = datasetService;
+    this.rows = rows;
+    this.seed = seed;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    load();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return 0;
+  }
+
+  private void load() {
+    if (rows <= 0) {
+      return;
+    }
+    Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + Conflict.TABLE_NAME, Long.class);
+    if (existing != null && existing > 0) {
+      LOG.warn("Table {} already has {} rows, not generating synthetic conflicts", Conflict.TABLE_NAME, existing);
+      return;
+    }
+    long start = System.nanoTime();
+    SyntheticConflictGenerator generator = new SyntheticConflictGenerator(seed);
+    for (long written = 0; written < rows; written += batchSize) {
+      writer.write(Conflict.TABLE_NAME, generator.next((int) Math.min(batchSize, rows - written)));
+    }
+    long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+    LOG.info("Generated {} synthetic conflicts (seed {}) in {} ms, {} rows/s", rows, seed, millis,
+      rows * 1000 / millis);
+    datasetService.changed();
+  }
+}
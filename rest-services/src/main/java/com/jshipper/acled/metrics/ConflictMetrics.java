@@ -0,0 +1,77 @@
+package com.jshipper.acled.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Size metrics of the /conflict responses, tagged with the URI template of
+ * the endpoint like Spring's http.server.requests timer. Meters are created
+ * once per endpoint and cached, so recording does not allocate. Each
+ * publishes a few fixed histogram buckets, from a single row or kilobyte to
+ * the largest responses, so that Prometheus can compute percentiles without a
+ * full percentile histogram per endpoint. They are set here because
+ * management.metrics.distribution.slo reads bare numbers as durations, which
+ * do not apply to distribution summaries.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class ConflictMetrics {
+  /** Number of rows (conflicts, map points, clusters...) per response */
+  public static final String RESULTS = "acled.conflict.results";
+  /** Serialized size of the response body, before compression */
+  public static final String RESPONSE_BYTES = "acled.conflict.response.bytes";
+  /** Duration of the ConflictService calls, tagged with the method */
+  public static final String SERVICE_CALLS = "acled.conflict.service";
+  static final String UNKNOWN_URI = "UNKNOWN";
+  static final double[] RESULTS_BUCKETS = { 1, 10, 100, 1000, 10000, 100000, 1000000 };
+  static final double[] RESPONSE_BYTES_BUCKETS = { 1 << 10, 10 << 10, 100 << 10, 1 << 20, 10 << 20, 100 << 20 };
+
+  private final MeterRegistry registry;
+  private final ConcurrentMap<String, DistributionSummary> results = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, DistributionSummary> responseBytes = new ConcurrentHashMap<>();
+
+  @Inject
+  public ConflictMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * @return URI template of the endpoint handling a request, e.g.
+   *         /conflict/getConflictsByCountry/{country}
+   */
+  public static String uri(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return pattern == null ? UNKNOWN_URI : pattern.toString();
+  }
+
+  public void recordResults(String uri, long rows) {
+    summary(results, uri, RESULTS, "Rows returned per response", "rows", RESULTS_BUCKETS).record(rows);
+  }
+
+  public void recordResponseBytes(String uri, long bytes) {
+    summary(responseBytes, uri, RESPONSE_BYTES, "Serialized size of the response body", "bytes",
+      RESPONSE_BYTES_BUCKETS).record(bytes);
+  }
+
+  private DistributionSummary summary(ConcurrentMap<String, DistributionSummary> summaries, String uri, String name,
+    String description, String baseUnit, double[] buckets) {
+    // get() first: on Java 8 computeIfAbsent() locks even when the key is present
+    DistributionSummary summary = summaries.get(uri);
+    if (summary == null) {
+      summary = summaries.computeIfAbsent(uri, u -> DistributionSummary.builder(name).description(description)
+        .baseUnit(baseUnit).serviceLevelObjectives(buckets).tag("uri", u).register(registry));
+    }
+    return summary;
+  }
+}
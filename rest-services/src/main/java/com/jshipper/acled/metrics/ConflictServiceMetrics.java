@@ -0,0 +1,84 @@
+package com.jshipper.acled.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.jshipper.acled.service.ConflictService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every {@link ConflictService} call as
+ * {@link ConflictMetrics#SERVICE_CALLS}, tagged with the method and the
+ * implementation. The service bean is wrapped in a proxy holding one timer
+ * per method, created up front, so a call only costs two clock reads and a
+ * timer update. Methods taking a callback are timed until the callback has
+ * seen every result.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class ConflictServiceMetrics implements BeanPostProcessor {
+  private final ObjectProvider<MeterRegistry> registry;
+
+  @Inject
+  public ConflictServiceMetrics(ObjectProvider<MeterRegistry> registry) {
+    // Looked up lazily: post-processors are created before the registry
+    this.registry = registry;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    if (bean instanceof ConflictService) {
+      return instrument((ConflictService) bean, registry.getObject());
+    }
+    return bean;
+  }
+
+  /**
+   * Wrap a service so that its calls are timed
+   */
+  public static ConflictService instrument(ConflictService service, MeterRegistry registry) {
+    String implementation = ClassUtils.getUserClass(service).getSimpleName();
+    Map<Method, Timer> timers = new HashMap<>();
+    for (Method method : ConflictService.class.getMethods()) {
+      timers.put(method, Timer.builder(ConflictMetrics.SERVICE_CALLS).description("ConflictService calls")
+        .tag("method", method.getName()).tag("implementation", implementation).register(registry));
+    }
+    return (ConflictService) Proxy.newProxyInstance(ConflictService.class.getClassLoader(),
+      new Class<?>[] { ConflictService.class }, (proxy, method, args) -> {
+        Timer timer = timers.get(method);
+        if (timer == null) {
+          // equals(), hashCode(), toString()
+          return invoke(service, method, args);
+        }
+        long start = System.nanoTime();
+        try {
+          return invoke(service, method, args);
+        } finally {
+          timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+      });
+  }
+
+  private static Object invoke(ConflictService service, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(service, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.jshipper.acled.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.jshipper.acled.model.ConflictMapColumns;
+import com.jshipper.acled.model.ConflictNetwork;
+import com.jshipper.acled.rest.ConflictBatchResult;
+import com.jshipper.acled.rest.ConflictController;
+
+/**
+ * Records the number of rows of each {@link ConflictController} response as
+ * {@link ConflictMetrics#RESULTS}, just before it is serialized. Streamed
+ * responses are counted by the controller itself.
+ *
+ * @author jshipper
+ *
+ */
+@ControllerAdvice(assignableTypes = ConflictController.class)
+public class ResultCountAdvice implements ResponseBodyAdvice<Object> {
+  private final ConflictMetrics metrics;
+
+  @Inject
+  public ResultCountAdvice(ConflictMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+    Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+    ServerHttpResponse response) {
+    long rows = -1;
+    if (body instanceof Collection) {
+      rows = ((Collection<?>) body).size();
+    } else if (body instanceof ConflictMapColumns) {
+      rows = ((ConflictMapColumns) body).getIds().size();
+    } else if (body instanceof ConflictNetwork) {
+      rows = ((ConflictNetwork) body).getEdges().size();
+    } else if (body instanceof Map) {
+      // Batch results: the conflicts of all the queries
+      rows = 0;
+      for (Object result : ((Map<?, ?>) body).values()) {
+        if (result instanceof ConflictBatchResult && ((ConflictBatchResult) result).getConflicts() != null) {
+          rows += ((ConflictBatchResult) result).getConflicts().size();
+        }
+      }
+    }
+    if (rows >= 0 && request instanceof ServletServerHttpRequest) {
+      metrics.recordResults(ConflictMetrics.uri(((ServletServerHttpRequest) request).getServletRequest()), rows);
+    }
+    return body;
+  }
+}
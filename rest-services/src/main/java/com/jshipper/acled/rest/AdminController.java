@@ -0,0 +1,46 @@
+package com.jshipper.acled.rest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.model.DatasetVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Administrative operations on the ACLED dataset, only available when
+ * {@code acled.admin.enabled=true}
+ * 
+ * @author jshipper
+ *
+ */
+@RestController
+@RequestMapping(AdminController.PATH)
+@ConditionalOnProperty(name = AdminController.ENABLED_PROPERTY, havingValue = "true")
+public class AdminController {
+  public static final String PATH = "/admin";
+  public static final String ENABLED_PROPERTY = "acled.admin.enabled";
+
+  @Autowired
+  private DatasetService datasetService;
+
+  /**
+   * Replace the dataset with an ACLED CSV file readable by the server, without
+   * interrupting queries
+   */
+  @PostMapping("/reload")
+  public ResponseEntity<DatasetVersion> reload(@RequestParam("file") String file)
+    throws IOException {
+    Path path = Paths.get(file);
+    if (!Files.isReadable(path)) {
+      throw new InvalidRequestException("File not readable: " + file);
+    }
+    return new ResponseEntity<>(datasetService.reload(path), HttpStatus.OK);
+  }
+}
@@ -0,0 +1,117 @@
+package com.jshipper.acled.rest;
+
+import java.io.Serializable;
+
+/**
+ * One query of a {@link ConflictController#getConflictsInBatch batch}: the
+ * criteria parameters of getConflictsByCriteria, as they would be given in
+ * the query string, and an id naming its result
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictBatchQuery implements Serializable {
+  private static final long serialVersionUID = 4417086512395837215L;
+
+  private String id;
+  private String startDate;
+  private String endDate;
+  private String country;
+  private String actor1;
+  private String actor2;
+  private Integer lowEnd;
+  private Integer highEnd;
+
+  public ConflictBatchQuery() {
+  }
+
+  /**
+   * @return Key of the query's result in the response, unique in the batch
+   */
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getStartDate() {
+    return startDate;
+  }
+
+  public void setStartDate(String startDate) {
+    this.startDate = startDate;
+  }
+
+  public String getEndDate() {
+    return endDate;
+  }
+
+  public void setEndDate(String endDate) {
+    this.endDate = endDate;
+  }
+
+  public String getCountry() {
+    return country;
+  }
+
+  public void setCountry(String country) {
+    this.country = country;
+  }
+
+  public String getActor1() {
+    return actor1;
+  }
+
+  public void setActor1(String actor1) {
+    this.actor1 = actor1;
+  }
+
+  public String getActor2() {
+    return actor2;
+  }
+
+  public void setActor2(String actor2) {
+    this.actor2 = actor2;
+  }
+
+  public Integer getLowEnd() {
+    return lowEnd;
+  }
+
+  public void setLowEnd(Integer lowEnd) {
+    this.lowEnd = lowEnd;
+  }
+
+  public Integer getHighEnd() {
+    return highEnd;
+  }
+
+  public void setHighEnd(Integer highEnd) {
+    this.highEnd = highEnd;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictBatchQuery [id=");
+    builder.append(id);
+    builder.append(", startDate=");
+    builder.append(startDate);
+    builder.append(", endDate=");
+    builder.append(endDate);
+    builder.append(", country=");
+    builder.append(country);
+    builder.append(", actor1=");
+    builder.append(actor1);
+    builder.append(", actor2=");
+    builder.append(actor2);
+    builder.append(", lowEnd=");
+    builder.append(lowEnd);
+    builder.append(", highEnd=");
+    builder.append(highEnd);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,105 @@
+package com.jshipper.acled.rest;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Result of one query of a batch: its conflicts, or the error it would have
+ * been answered with on its own, with the same fields as an
+ * {@link ErrorResponse}
+ *
+ * @author jshipper
+ *
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ConflictBatchResult implements Serializable {
+  private static final long serialVersionUID = -1750846226374093362L;
+
+  private int status;
+  private String error;
+  private String message;
+  private List<Conflict> conflicts;
+
+  public ConflictBatchResult() {
+  }
+
+  public static ConflictBatchResult of(List<Conflict> conflicts) {
+    ConflictBatchResult result = new ConflictBatchResult();
+    result.status = HttpStatus.OK.value();
+    result.conflicts = conflicts;
+    return result;
+  }
+
+  public static ConflictBatchResult error(HttpStatus status, String message) {
+    ConflictBatchResult result = new ConflictBatchResult();
+    result.status = status.value();
+    result.error = status.getReasonPhrase();
+    result.message = message;
+    return result;
+  }
+
+  /**
+   * @return HTTP status code the query would have been answered with
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  /**
+   * @return HTTP status reason if the query failed, e.g. "Bad Request"
+   */
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+  /**
+   * @return What was wrong if the query failed
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  /**
+   * @return Conflicts meeting the criteria in date order, null if the query
+   *         failed
+   */
+  public List<Conflict> getConflicts() {
+    return conflicts;
+  }
+
+  public void setConflicts(List<Conflict> conflicts) {
+    this.conflicts = conflicts;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ConflictBatchResult [status=");
+    builder.append(status);
+    builder.append(", error=");
+    builder.append(error);
+    builder.append(", message=");
+    builder.append(message);
+    builder.append(", conflicts=");
+    builder.append(conflicts == null ? null : conflicts.size());
+    builder.append("]");
+    return builder.toString();
+  }
+}
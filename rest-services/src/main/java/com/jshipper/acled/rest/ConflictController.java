@@ -1,20 +1,60 @@
 package com.jshipper.acled.rest;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.metrics.ConflictMetrics;
+import com.jshipper.acled.model.ActorSuggestion;
 import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictAggregate;
+import com.jshipper.acled.model.ConflictCluster;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+import com.jshipper.acled.model.ConflictMapColumns;
+import com.jshipper.acled.model.ConflictMapPoint;
+import com.jshipper.acled.model.ConflictNetwork;
+import com.jshipper.acled.model.DatasetVersion;
 import com.jshipper.acled.service.ConflictService;
+import com.jshipper.acled.store.GeoHashGrid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
- * REST services for ACLED dataset
+ * REST services for ACLED dataset. Endpoints querying the database answer
+ * asynchronously, from the {@link QueryExecutor}'s threads. Conditional
+ * requests are answered before reaching them, see
+ * {@link com.jshipper.acled.config.ConditionalRequestInterceptor}.
  * 
  * @author jshipper
  *
@@ -23,126 +63,414 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping(ConflictController.PATH)
 public class ConflictController {
   public static final String PATH = "/conflict";
+  public static final String NEXT_PAGE_TOKEN_HEADER = "X-Next-Page-Token";
+  private static final Logger LOG = LoggerFactory.getLogger(ConflictController.class);
 
   @Autowired
   private ConflictService conflictService;
 
+  @Autowired
+  private DatasetService datasetService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private ConflictMetrics metrics;
+
+  @Autowired
+  private QueryExecutor queries;
+
+  @Value("${acled.page.default-size:1000}")
+  private int defaultPageSize;
+
+  @Value("${acled.page.max-size:5000}")
+  private int maxPageSize;
+
+  @Value("${acled.network.max-edges:5000}")
+  private int maxNetworkEdges;
+
+  @Value("${acled.spatial.max-neighbors:1000}")
+  private int maxNeighbors;
+
+  @Value("${acled.clusters.max-precision:7}")
+  private int maxClusterPrecision;
+
+  @Value("${acled.spatial.max-points:5000}")
+  private int maxMapPoints;
+
+  @Value("${acled.suggest.max-limit:100}")
+  private int maxSuggestions;
+
+  @Value("${acled.batch.max-queries:20}")
+  private int maxBatchQueries;
+
+  @Value("${acled.batch.max-rows:100000}")
+  private int maxBatchRows;
+
+  @Value("${acled.batch.parallelism:4}")
+  private int batchParallelism;
+
+  @Value("${acled.stream.batch-size:500}")
+  private int streamBatchSize;
+
   @GetMapping("/getAll")
-  public ResponseEntity<List<Conflict>> getAllConflicts() {
-    return new ResponseEntity<>(conflictService.getAllConflicts(), HttpStatus.OK);
+  public DeferredResult<ResponseEntity<List<Conflict>>> getAllConflicts(
+    @RequestParam(value = "pageSize", required = false) Integer pageSize,
+    @RequestParam(value = "pageToken", required = false) String pageToken) {
+    return queries.submit("getAll", () -> {
+      if (pageSize != null || pageToken != null) {
+        return getConflictPage(new ConflictCriteria(), pageSize, pageToken);
+      }
+      return new ResponseEntity<>(conflictService.getAllConflicts(), HttpStatus.OK);
+    });
+  }
+
+  @GetMapping(value = "/getAll", params = "stream=true")
+  public ResponseEntity<StreamingResponseBody> streamAllConflicts() {
+    return streamJsonArray("getAll", action -> conflictService.forEachConflict(action));
   }
 
   @GetMapping("/getConflictsByDate/{date}")
-  public ResponseEntity<List<Conflict>> getConflictsByDate(@PathVariable("date") String date) {
-    DateFormat dateFormat = new SimpleDateFormat(Conflict.DATE_FORMAT);
-    Date d = null;
-    try {
-      d = dateFormat.parse(date);
-    } catch (ParseException e) {
-      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-      // TODO: Return error "Date not in expected format: " + Conflict.DATE_FORMAT
-    }
-    return new ResponseEntity<>(conflictService.getConflictsByDate(d), HttpStatus.OK);
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsByDate(@PathVariable("date") String date) {
+    LocalDate d = ConflictCriteriaArgumentResolver.toDate("date", date);
+    return queries.submit("getConflictsByDate",
+      () -> new ResponseEntity<>(conflictService.getConflictsByDate(d), HttpStatus.OK));
   }
 
+  /**
+   * Get the conflicts between the startDate and endDate parameters
+   */
   @GetMapping("/getConflictsInDateRange")
-  public ResponseEntity<List<Conflict>> getConflictsInDateRange(
-    @RequestParam(value = "startDate", required = false) String startDate,
-    @RequestParam(value = "endDate", required = false) String endDate) {
-    DateFormat dateFormat = new SimpleDateFormat(Conflict.DATE_FORMAT);
-    Date d1 = null;
-    if (startDate != null) {
-      try {
-        d1 = dateFormat.parse(startDate);
-      } catch (ParseException e) {
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        // TODO: Return error "Start date not in expected format: " + Conflict.DATE_FORMAT
-      }
-    }
-    Date d2 = null;
-    if (endDate != null) {
-      try {
-        d2 = dateFormat.parse(endDate);
-      } catch (ParseException e) {
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        // TODO: Return error "End date not in expected format: " + Conflict.DATE_FORMAT
-      }
-      if (d1 != null && d2 != null && d2.before(d1)) {
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        // TODO: Return error "End date should be after start date"
-      }
-    }
-    return new ResponseEntity<>(conflictService.getConflictsInDateRange(d1, d2), HttpStatus.OK);
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsInDateRange(ConflictCriteria criteria) {
+    return queries.submit("getConflictsInDateRange", () -> new ResponseEntity<>(
+      conflictService.getConflictsInDateRange(criteria.getStartDate(), criteria.getEndDate()), HttpStatus.OK));
   }
 
   @GetMapping("/getConflictsByCountry/{country}")
-  public ResponseEntity<List<Conflict>> getConflictsByCountry(@PathVariable("country") String country) {
-    return new ResponseEntity<>(conflictService.getConflictsByCountry(country), HttpStatus.OK);
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsByCountry(
+    @PathVariable("country") String country,
+    @RequestParam(value = "pageSize", required = false) Integer pageSize,
+    @RequestParam(value = "pageToken", required = false) String pageToken) {
+    return queries.submit("getConflictsByCountry", () -> {
+      if (pageSize != null || pageToken != null) {
+        return getConflictPage(new ConflictCriteria(null, null, country, null, null, null, null), pageSize,
+          pageToken);
+      }
+      return new ResponseEntity<>(conflictService.getConflictsByCountry(country), HttpStatus.OK);
+    });
   }
 
   @GetMapping("/getConflictsByActor/{actor}")
-  public ResponseEntity<List<Conflict>> getConflictsByActor(@PathVariable("actor") String actor) {
-    return new ResponseEntity<>(conflictService.getConflictsByActor(actor), HttpStatus.OK);
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsByActor(@PathVariable("actor") String actor,
+    @RequestParam(value = "pageSize", required = false) Integer pageSize,
+    @RequestParam(value = "pageToken", required = false) String pageToken) {
+    return queries.submit("getConflictsByActor", () -> {
+      if (pageSize != null || pageToken != null) {
+        return getConflictPage(new ConflictCriteria(null, null, null, actor, null, null, null), pageSize,
+          pageToken);
+      }
+      return new ResponseEntity<>(conflictService.getConflictsByActor(actor), HttpStatus.OK);
+    });
   }
 
   @GetMapping("/getConflictsByActors")
-  public ResponseEntity<List<Conflict>> getConflictsByActors(@RequestParam("actor1") String actor1,
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsByActors(@RequestParam("actor1") String actor1,
     @RequestParam("actor2") String actor2) {
-    return new ResponseEntity<>(conflictService.getConflictsByActors(actor1, actor2), HttpStatus.OK);
+    return queries.submit("getConflictsByActors",
+      () -> new ResponseEntity<>(conflictService.getConflictsByActors(actor1, actor2), HttpStatus.OK));
   }
 
   @GetMapping("/getConflictsByFatalities/{fatalities}")
-  public ResponseEntity<List<Conflict>> getConflictsByFatalities(@PathVariable("fatalities") Integer fatalities) {
-    return new ResponseEntity<>(conflictService.getConflictsByFatalities(fatalities), HttpStatus.OK);
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsByFatalities(
+    @PathVariable("fatalities") Integer fatalities) {
+    return queries.submit("getConflictsByFatalities",
+      () -> new ResponseEntity<>(conflictService.getConflictsByFatalities(fatalities), HttpStatus.OK));
   }
 
+  /**
+   * Get the conflicts with lowEnd to highEnd fatalities (inclusive)
+   */
   @GetMapping("/getConflictsInFatalityRange")
-  public ResponseEntity<List<Conflict>> getConflictsInFatalityRange(
-    @RequestParam(value = "lowEnd", required = false) Integer lowEnd,
-    @RequestParam(value = "highEnd", required = false) Integer highEnd) {
-    if (lowEnd != null && highEnd != null && lowEnd > highEnd) {
-      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-      // TODO: Return error "High end should be greater than low end"
-    }
-    return new ResponseEntity<>(conflictService.getConflictsInFatalityRange(lowEnd, highEnd), HttpStatus.OK);
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsInFatalityRange(ConflictCriteria criteria) {
+    return queries.submit("getConflictsInFatalityRange", () -> new ResponseEntity<>(
+      conflictService.getConflictsInFatalityRange(criteria.getLowEnd(), criteria.getHighEnd()), HttpStatus.OK));
   }
 
   @GetMapping("/getConflictsByCriteria")
-  public ResponseEntity<List<Conflict>> getConflictsByCriteria(
-    @RequestParam(value = "startDate", required = false) String startDate,
-    @RequestParam(value = "endDate", required = false) String endDate,
-    @RequestParam(value = "country", required = false) String country, @RequestParam(value = "actor1", required = false) String actor1,
-    @RequestParam(value = "actor2", required = false) String actor2, @RequestParam(value = "lowEnd", required = false) Integer lowEnd,
-    @RequestParam(value = "highEnd", required = false) Integer highEnd) {
-    DateFormat dateFormat = new SimpleDateFormat(Conflict.DATE_FORMAT);
-    Date d1 = null;
-    if (startDate != null) {
-      try {
-        d1 = dateFormat.parse(startDate);
-      } catch (ParseException e) {
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        // TODO: Return error "Start date not in expected format: " + Conflict.DATE_FORMAT
+  public DeferredResult<ResponseEntity<List<Conflict>>> getConflictsByCriteria(ConflictCriteria criteria,
+    @RequestParam(value = "pageSize", required = false) Integer pageSize,
+    @RequestParam(value = "pageToken", required = false) String pageToken) {
+    return queries.submit("getConflictsByCriteria", () -> {
+      if (pageSize != null || pageToken != null) {
+        return getConflictPage(criteria, pageSize, pageToken);
       }
+      return new ResponseEntity<>(conflictService.getConflictsByCriteria(criteria.getStartDate(),
+        criteria.getEndDate(), criteria.getCountry(), criteria.getActor1(), criteria.getActor2(),
+        criteria.getLowEnd(), criteria.getHighEnd()), HttpStatus.OK);
+    });
+  }
+
+  @GetMapping(value = "/getConflictsByCriteria", params = "stream=true")
+  public ResponseEntity<StreamingResponseBody> streamConflictsByCriteria(ConflictCriteria criteria) {
+    return streamJsonArray("getConflictsByCriteria",
+      action -> conflictService.forEachConflictByCriteria(criteria, action));
+  }
+
+  /**
+   * Get the conflicts meeting each of several criteria in one request, e.g.
+   * one per panel of a dashboard. Queries with the same criteria, ignoring
+   * case and the order of the actors, run once; the others run concurrently.
+   * The result of each query, or the error it would have been answered with on
+   * its own, is returned under its id, in request order. A batch that would
+   * return more than {@code acled.batch.max-rows} conflicts in all is rejected
+   * as a whole with a 413, whatever the order of its queries: each query reads
+   * at most one more conflict than the batch has room left for, and the
+   * queries not yet started when the batch goes over are not run.
+   */
+  @PostMapping("/batch")
+  public DeferredResult<ResponseEntity<Map<String, ConflictBatchResult>>> getConflictsInBatch(
+    @RequestBody List<ConflictBatchQuery> batch) {
+    if (batch.isEmpty() || batch.size() > maxBatchQueries) {
+      throw new InvalidRequestException("batch should hold between 1 and " + maxBatchQueries + " queries");
     }
-    Date d2 = null;
-    if (endDate != null) {
+    // Index of the distinct criteria of each id, null if invalid
+    Map<String, Integer> queryOf = new LinkedHashMap<>();
+    Map<String, ConflictBatchResult> invalid = new HashMap<>();
+    Map<ConflictCriteria, Integer> distinct = new HashMap<>();
+    List<Supplier<List<Conflict>>> distinctQueries = new ArrayList<>();
+    // Number of ids of each of the distinct criteria, and conflicts returned so far
+    List<Integer> uses = new ArrayList<>();
+    AtomicLong rows = new AtomicLong();
+    for (ConflictBatchQuery query : batch) {
+      String id = query == null ? null : query.getId();
+      if (id == null || id.isEmpty()) {
+        throw new InvalidRequestException("Every query of the batch should have an id");
+      }
+      if (queryOf.containsKey(id)) {
+        throw new InvalidRequestException("Duplicate id: " + id);
+      }
+      ConflictCriteria criteria;
       try {
-        d2 = dateFormat.parse(endDate);
-      } catch (ParseException e) {
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        // TODO: Return error "End date not in expected format: " + Conflict.DATE_FORMAT
+        criteria = ConflictCriteriaArgumentResolver.toCriteria(query.getStartDate(), query.getEndDate(),
+          query.getCountry(), query.getActor1(), query.getActor2(), query.getLowEnd(), query.getHighEnd())
+          .canonical();
+      } catch (InvalidRequestException e) {
+        queryOf.put(id, null);
+        invalid.put(id, ConflictBatchResult.error(HttpStatus.BAD_REQUEST, e.getMessage()));
+        continue;
+      }
+      Integer index = distinct.get(criteria);
+      if (index == null) {
+        int distinctIndex = distinctQueries.size();
+        index = distinctIndex;
+        distinct.put(criteria, index);
+        uses.add(0);
+        distinctQueries.add(() -> getBatchConflicts(criteria, uses.get(distinctIndex), rows));
+      }
+      uses.set(index, uses.get(index) + 1);
+      queryOf.put(id, index);
+    }
+    return queries.submitAll("batch", distinctQueries, batchParallelism, outcomes -> {
+      if (rows.get() > maxBatchRows) {
+        throw batchTooLarge();
       }
-      if (d1 != null && d2 != null && d2.before(d1)) {
-        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        // TODO: Return error "End date should be after start date"
+      Map<String, ConflictBatchResult> results = new LinkedHashMap<>();
+      for (Map.Entry<String, Integer> entry : queryOf.entrySet()) {
+        String id = entry.getKey();
+        results.put(id, entry.getValue() == null ? invalid.get(id) : toBatchResult(outcomes.get(entry.getValue())));
       }
+      return new ResponseEntity<>(results, HttpStatus.OK);
+    });
+  }
+
+  /**
+   * Get the conflicts of a batch query, counting them against the conflicts
+   * the batch may return
+   *
+   * @param uses
+   *          Number of ids the conflicts are returned under
+   * @param rows
+   *          Conflicts returned by the batch so far
+   * @throws PayloadTooLargeException
+   *           Once the batch returns more than acled.batch.max-rows conflicts
+   */
+  private List<Conflict> getBatchConflicts(ConflictCriteria criteria, int uses, AtomicLong rows) {
+    long room = maxBatchRows - rows.get();
+    if (room < 0) {
+      // Another query already took the batch over the limit
+      throw batchTooLarge();
     }
-    if (lowEnd != null && highEnd != null && lowEnd > highEnd) {
-      return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-      // TODO: Return error "High end should be greater than low end"
+    // One more row than the batch has room for is enough to know it is over the limit
+    List<Conflict> conflicts = conflictService.getFirstConflicts(criteria, (int) (room / uses) + 1);
+    if (rows.addAndGet((long) conflicts.size() * uses) > maxBatchRows) {
+      throw batchTooLarge();
+    }
+    return conflicts;
+  }
+
+  private PayloadTooLargeException batchTooLarge() {
+    return new PayloadTooLargeException("The conflicts of a batch are limited to " + maxBatchRows + " in all");
+  }
+
+  @GetMapping("/getMapPointsByCriteria")
+  public DeferredResult<ResponseEntity<List<ConflictMapPoint>>> getMapPointsByCriteria(ConflictCriteria criteria,
+    @RequestParam(value = "pageSize", required = false) Integer pageSize,
+    @RequestParam(value = "pageToken", required = false) String pageToken) {
+    return queries.submit("getMapPointsByCriteria", () -> getMapPoints(criteria, pageSize, pageToken));
+  }
+
+  @GetMapping(value = "/getMapPointsByCriteria", params = "columnar=true")
+  public DeferredResult<ResponseEntity<ConflictMapColumns>> getMapColumnsByCriteria(ConflictCriteria criteria,
+    @RequestParam(value = "pageSize", required = false) Integer pageSize,
+    @RequestParam(value = "pageToken", required = false) String pageToken) {
+    return queries.submit("getMapPointsByCriteria", () -> {
+      ResponseEntity<List<ConflictMapPoint>> points = getMapPoints(criteria, pageSize, pageToken);
+      return new ResponseEntity<>(ConflictMapColumns.of(points.getBody()), points.getHeaders(), HttpStatus.OK);
+    });
+  }
+
+  /**
+   * Stream the map points of the conflicts that meet the provided criteria as
+   * newline-delimited JSON, one point per line in date order, so that clients
+   * can draw them as they arrive
+   */
+  @GetMapping(value = "/getMapPointsByCriteria", params = "stream=true")
+  public ResponseEntity<StreamingResponseBody> streamMapPointsByCriteria(ConflictCriteria criteria) {
+    return streamNdjson("getMapPointsByCriteria", ConflictMapPoint.class,
+      action -> conflictService.forEachMapPointByCriteria(criteria, action));
+  }
+
+  @GetMapping("/getConflictClusters")
+  public DeferredResult<ResponseEntity<List<ConflictCluster>>> getConflictClusters(ConflictCriteria criteria,
+    @RequestParam(value = "precision", defaultValue = "4") Integer precision) {
+    if (precision < GeoHashGrid.MIN_PRECISION || precision > maxClusterPrecision) {
+      throw new InvalidRequestException("precision should be between " + GeoHashGrid.MIN_PRECISION + " and "
+        + maxClusterPrecision);
+    }
+    return queries.submit("getConflictClusters",
+      () -> new ResponseEntity<>(conflictService.getConflictClusters(criteria, precision), HttpStatus.OK));
+  }
+
+  /**
+   * Get the map points of the conflicts that meet the criteria inside a map
+   * viewport, the earliest limit of them. A viewport whose minLongitude is
+   * greater than its maxLongitude crosses the antimeridian
+   */
+  @GetMapping("/getMapPointsInBox")
+  public DeferredResult<ResponseEntity<List<ConflictMapPoint>>> getMapPointsInBox(ConflictCriteria criteria,
+    @RequestParam("minLatitude") Double minLatitude, @RequestParam("minLongitude") Double minLongitude,
+    @RequestParam("maxLatitude") Double maxLatitude, @RequestParam("maxLongitude") Double maxLongitude,
+    @RequestParam(value = "limit", required = false) Integer limit) {
+    int points = toMapPointLimit(limit);
+    checkLatitude("minLatitude", minLatitude);
+    checkLatitude("maxLatitude", maxLatitude);
+    checkLongitude("minLongitude", minLongitude);
+    checkLongitude("maxLongitude", maxLongitude);
+    if (maxLatitude < minLatitude) {
+      throw new InvalidRequestException("maxLatitude should not be less than minLatitude");
+    }
+    return queries.submit("getMapPointsInBox", () -> new ResponseEntity<>(conflictService.getMapPointsInBox(
+      criteria, minLatitude, minLongitude, maxLatitude, maxLongitude, points), HttpStatus.OK));
+  }
+
+  /**
+   * Get the map points of the conflicts that meet the criteria within
+   * radiusKm kilometers of a location, the earliest limit of them
+   */
+  @GetMapping("/getMapPointsWithinRadius")
+  public DeferredResult<ResponseEntity<List<ConflictMapPoint>>> getMapPointsWithinRadius(
+    ConflictCriteria criteria, @RequestParam("latitude") Double latitude,
+    @RequestParam("longitude") Double longitude, @RequestParam("radiusKm") Double radiusKm,
+    @RequestParam(value = "limit", required = false) Integer limit) {
+    int points = toMapPointLimit(limit);
+    checkLatitude("latitude", latitude);
+    checkLongitude("longitude", longitude);
+    if (!(radiusKm > 0)) {
+      throw new InvalidRequestException("radiusKm should be greater than zero");
     }
-    return new ResponseEntity<>(conflictService.getConflictsByCriteria(d1, d2, country,
-      actor1, actor2, lowEnd, highEnd), HttpStatus.OK);
+    return queries.submit("getMapPointsWithinRadius", () -> new ResponseEntity<>(
+      conflictService.getMapPointsWithinRadius(criteria, latitude, longitude, radiusKm, points), HttpStatus.OK));
+  }
+
+  /**
+   * Get the map points of the k conflicts that meet the criteria nearest to a
+   * location, nearest first
+   */
+  @GetMapping("/getNearestMapPoints")
+  public DeferredResult<ResponseEntity<List<ConflictMapPoint>>> getNearestMapPoints(ConflictCriteria criteria,
+    @RequestParam("latitude") Double latitude, @RequestParam("longitude") Double longitude,
+    @RequestParam(value = "k", defaultValue = "10") Integer k) {
+    checkLatitude("latitude", latitude);
+    checkLongitude("longitude", longitude);
+    if (k < 1 || k > maxNeighbors) {
+      throw new InvalidRequestException("k should be between 1 and " + maxNeighbors);
+    }
+    return queries.submit("getNearestMapPoints", () -> new ResponseEntity<>(
+      conflictService.getNearestMapPoints(criteria, latitude, longitude, k), HttpStatus.OK));
+  }
+
+  /**
+   * Get event counts and fatality sums grouped by the groupBy dimensions. Of
+   * the criteria, only the dates and country apply
+   */
+  @GetMapping("/aggregate")
+  public ResponseEntity<List<ConflictAggregate>> getConflictAggregates(ConflictCriteria criteria,
+    @RequestParam(value = "eventType", required = false) String eventType,
+    @RequestParam(value = "actor", required = false) String actor,
+    @RequestParam(value = "groupBy", defaultValue = "period") String groupBy,
+    @RequestParam(value = "grain", defaultValue = "month") String grain) {
+    Set<ConflictAggregate.Dimension> dimensions = toDimensions(groupBy);
+    ConflictAggregate.Grain g = toEnum(ConflictAggregate.Grain.class, "grain", grain);
+    return new ResponseEntity<>(conflictService.getConflictAggregates(criteria.getStartDate(),
+      criteria.getEndDate(), criteria.getCountry(), eventType, actor, dimensions, g), HttpStatus.OK);
+  }
+
+  /**
+   * Get the groups of one dimension with the most fatalities
+   */
+  @GetMapping("/aggregate/top")
+  public ResponseEntity<List<ConflictAggregate>> getTopConflictAggregates(ConflictCriteria criteria,
+    @RequestParam(value = "eventType", required = false) String eventType,
+    @RequestParam(value = "actor", required = false) String actor,
+    @RequestParam(value = "dimension", defaultValue = "actor") String dimension,
+    @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+    ConflictAggregate.Dimension d = toEnum(ConflictAggregate.Dimension.class, "dimension", dimension);
+    if (d == ConflictAggregate.Dimension.PERIOD) {
+      throw new InvalidRequestException("dimension should not be period");
+    }
+    if (limit < 1) {
+      throw new InvalidRequestException("limit should be greater than zero");
+    }
+    List<ConflictAggregate> aggregates = conflictService.getConflictAggregates(
+      criteria.getStartDate(), criteria.getEndDate(), criteria.getCountry(), eventType, actor,
+      EnumSet.of(d), ConflictAggregate.Grain.MONTH);
+    return new ResponseEntity<>(aggregates.subList(0, Math.min(limit, aggregates.size())),
+      HttpStatus.OK);
+  }
+
+  /**
+   * Get the graph of the actors that fought each other. Of the criteria, only
+   * the dates and country apply
+   */
+  @GetMapping("/network")
+  public ResponseEntity<ConflictNetwork> getConflictNetwork(ConflictCriteria criteria,
+    @RequestParam(value = "actor", required = false) String actor,
+    @RequestParam(value = "minEvents", defaultValue = "1") Integer minEvents,
+    @RequestParam(value = "limit", defaultValue = "200") Integer limit) {
+    if (minEvents < 1) {
+      throw new InvalidRequestException("minEvents should be greater than zero");
+    }
+    if (limit < 1 || limit > maxNetworkEdges) {
+      throw new InvalidRequestException("limit should be between 1 and " + maxNetworkEdges);
+    }
+    return new ResponseEntity<>(conflictService.getConflictNetwork(criteria.getStartDate(),
+      criteria.getEndDate(), criteria.getCountry(), actor, minEvents, limit), HttpStatus.OK);
+  }
+
+  @GetMapping("/getDatasetVersion")
+  public ResponseEntity<DatasetVersion> getDatasetVersion() {
+    return new ResponseEntity<>(datasetService.getVersion(), HttpStatus.OK);
   }
 
   @GetMapping("/getAllCountries")
@@ -159,4 +487,239 @@ public class ConflictController {
   public ResponseEntity<List<String>> getActorsByCountry(@PathVariable("country") String country) {
     return new ResponseEntity<>(conflictService.getActorsByCountry(country), HttpStatus.OK);
   }
+
+  /**
+   * Suggest the actors completing what the user typed, optionally among the
+   * actors of one country
+   */
+  @GetMapping("/actors/suggest")
+  public ResponseEntity<List<ActorSuggestion>> suggestActors(
+    @RequestParam(value = "prefix", defaultValue = "") String prefix,
+    @RequestParam(value = "country", required = false) String country,
+    @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+    if (limit < 1 || limit > maxSuggestions) {
+      throw new InvalidRequestException("limit should be between 1 and " + maxSuggestions);
+    }
+    return new ResponseEntity<>(conflictService.suggestActors(prefix, country, limit), HttpStatus.OK);
+  }
+
+  /**
+   * @return The conflicts of a batch query, or the error response it would
+   *         have been answered with on its own
+   */
+  private static ConflictBatchResult toBatchResult(CompletableFuture<List<Conflict>> outcome) {
+    try {
+      return ConflictBatchResult.of(outcome.join());
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof InvalidRequestException) {
+        return ConflictBatchResult.error(HttpStatus.BAD_REQUEST, cause.getMessage());
+      }
+      if (cause instanceof ServiceUnavailableException) {
+        return ConflictBatchResult.error(HttpStatus.SERVICE_UNAVAILABLE, cause.getMessage());
+      }
+      LOG.warn("Batch query failed", cause);
+      return ConflictBatchResult.error(HttpStatus.INTERNAL_SERVER_ERROR, "Query failed");
+    }
+  }
+
+  /**
+   * @return The limit of a map point search, acled.spatial.max-points if none
+   * @throws InvalidRequestException
+   *           If the limit is not between 1 and acled.spatial.max-points
+   */
+  private int toMapPointLimit(Integer limit) {
+    if (limit == null) {
+      return maxMapPoints;
+    }
+    if (limit < 1 || limit > maxMapPoints) {
+      throw new InvalidRequestException("limit should be between 1 and " + maxMapPoints);
+    }
+    return limit;
+  }
+
+  private static void checkLatitude(String parameter, double latitude) {
+    if (!(latitude >= -90 && latitude <= 90)) {
+      throw new InvalidRequestException(parameter + " should be between -90 and 90");
+    }
+  }
+
+  private static void checkLongitude(String parameter, double longitude) {
+    if (!(longitude >= -180 && longitude <= 180)) {
+      throw new InvalidRequestException(parameter + " should be between -180 and 180");
+    }
+  }
+
+  /**
+   * Parse a comma separated list of dimensions
+   * 
+   * @throws InvalidRequestException
+   *           If any dimension is invalid
+   */
+  private static Set<ConflictAggregate.Dimension> toDimensions(String groupBy) {
+    Set<ConflictAggregate.Dimension> dimensions = EnumSet.noneOf(ConflictAggregate.Dimension.class);
+    for (String name : groupBy.split(",")) {
+      if (name.trim().isEmpty()) {
+        continue;
+      }
+      dimensions.add(toEnum(ConflictAggregate.Dimension.class, "groupBy", name));
+    }
+    return dimensions;
+  }
+
+  /**
+   * Find the constant of an enum by name, ignoring case and underscores (so
+   * "eventType" matches EVENT_TYPE)
+   * 
+   * @param parameter
+   *          Request parameter holding the name
+   * @throws InvalidRequestException
+   *           If no constant matches
+   */
+  private static <E extends Enum<E>> E toEnum(Class<E> type, String parameter, String name) {
+    String key = name.trim().replace("_", "");
+    for (E constant : type.getEnumConstants()) {
+      if (constant.name().replace("_", "").equalsIgnoreCase(key)) {
+        return constant;
+      }
+    }
+    throw new InvalidRequestException("Unknown " + parameter + ": " + name);
+  }
+
+  /**
+   * Get the map points of the conflicts that meet the provided criteria, one
+   * page of them if paging parameters are provided
+   */
+  private ResponseEntity<List<ConflictMapPoint>> getMapPoints(ConflictCriteria criteria, Integer pageSize,
+    String pageToken) {
+    if (pageSize != null || pageToken != null) {
+      return getPage(pageSize, pageToken, (after, limit) -> conflictService.getMapPointPage(criteria, after, limit),
+        p -> new ConflictCursor(p.getDate(), p.getId()));
+    }
+    return new ResponseEntity<>(conflictService.getMapPointsByCriteria(criteria), HttpStatus.OK);
+  }
+
+  /**
+   * Get one page of the conflicts that meet the provided criteria
+   */
+  private ResponseEntity<List<Conflict>> getConflictPage(ConflictCriteria criteria, Integer pageSize,
+    String pageToken) {
+    return getPage(pageSize, pageToken, (after, limit) -> conflictService.getConflictPage(criteria, after, limit),
+      ConflictCursor::of);
+  }
+
+  /**
+   * Get one page of results using keyset pagination. The token for the next
+   * page, if any, is returned in the {@link #NEXT_PAGE_TOKEN_HEADER} header.
+   * 
+   * @param query
+   *          Returns at most the given number of results following the given
+   *          position
+   * @param cursorOf
+   *          Position of a result
+   */
+  private <T> ResponseEntity<List<T>> getPage(Integer pageSize, String pageToken,
+    BiFunction<ConflictCursor, Integer, List<T>> query, Function<T, ConflictCursor> cursorOf) {
+    ConflictCursor after = null;
+    if (pageToken != null) {
+      try {
+        after = ConflictCursor.fromToken(pageToken);
+      } catch (IllegalArgumentException e) {
+        throw new InvalidRequestException("Invalid pageToken: " + pageToken);
+      }
+    }
+    int limit = pageSize == null ? defaultPageSize : pageSize;
+    if (limit < 1 || limit > maxPageSize) {
+      throw new InvalidRequestException("pageSize should be between 1 and " + maxPageSize);
+    }
+    // Fetch one extra conflict to find out whether there is a next page
+    List<T> page = query.apply(after, limit + 1);
+    HttpHeaders headers = new HttpHeaders();
+    if (page.size() > limit) {
+      page = page.subList(0, limit);
+      headers.set(NEXT_PAGE_TOKEN_HEADER, cursorOf.apply(page.get(limit - 1)).toToken());
+    }
+    return new ResponseEntity<>(page, headers, HttpStatus.OK);
+  }
+
+  /**
+   * Stream conflicts to the client as a JSON array as they are produced, so
+   * that no more than one conflict has to be held in memory
+   * 
+   * @param endpoint
+   *          Name of the endpoint, whose timeout applies to the whole stream
+   * @param source
+   *          Passes each conflict to the consumer it is given
+   */
+  private ResponseEntity<StreamingResponseBody> streamJsonArray(String endpoint,
+    Consumer<Consumer<Conflict>> source) {
+    ObjectWriter writer = objectMapper.writerFor(Conflict.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    String uri = currentUri();
+    StreamingResponseBody body = out -> {
+      long[] rows = new long[1];
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+        queries.stream(endpoint, () -> source.accept(conflict -> {
+          try {
+            writer.writeValue(generator, conflict);
+            rows[0]++;
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }));
+        generator.writeEndArray();
+      }
+      metrics.recordResults(uri, rows[0]);
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
+  /**
+   * Stream values to the client as newline-delimited JSON as they are
+   * produced. The response is flushed every {@code acled.stream.batch-size}
+   * values, so the client gets the first batch without waiting for the
+   * others. Writes block while the client is not reading, which in turn stops
+   * the source: values are produced no faster than the client receives them.
+   * 
+   * @param endpoint
+   *          Name of the endpoint, whose timeout applies to the whole stream
+   * @param source
+   *          Passes each value to the consumer it is given
+   */
+  private <T> ResponseEntity<StreamingResponseBody> streamNdjson(String endpoint, Class<T> type,
+    Consumer<Consumer<T>> source) {
+    ObjectWriter writer = objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    String uri = currentUri();
+    StreamingResponseBody body = out -> {
+      long[] rows = new long[1];
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Values are separated by the newlines written after them
+        generator.setRootValueSeparator(null);
+        queries.stream(endpoint, () -> source.accept(value -> {
+          try {
+            writer.writeValue(generator, value);
+            generator.writeRaw('\n');
+            if (++rows[0] % streamBatchSize == 0) {
+              generator.flush();
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }));
+      }
+      metrics.recordResults(uri, rows[0]);
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  /**
+   * @return Metrics uri of the current request, to be captured before a
+   *         response body is written on another thread
+   */
+  private static String currentUri() {
+    return ConflictMetrics.uri(((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+      .getRequest());
+  }
 }
@@ -0,0 +1,112 @@
+package com.jshipper.acled.rest;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.servlet.ServletRequest;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+
+/**
+ * Binds the criteria request parameters (startDate, endDate, country, actor1,
+ * actor2, lowEnd, highEnd) to a {@link ConflictCriteria} handler argument,
+ * once per request. Parameters are read directly from the request and dates
+ * parsed with the shared {@link Conflict#DATE_PARSER}, without going
+ * through the generic data binder. Invalid parameters are rejected with an
+ * {@link InvalidRequestException}.
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictCriteriaArgumentResolver implements HandlerMethodArgumentResolver {
+  /** Names of the request parameters bound to the criteria */
+  public static final List<String> PARAMETERS = Collections.unmodifiableList(
+    Arrays.asList("startDate", "endDate", "country", "actor1", "actor2", "lowEnd", "highEnd"));
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return parameter.getParameterType() == ConflictCriteria.class;
+  }
+
+  @Override
+  public ConflictCriteria resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+    NativeWebRequest request, WebDataBinderFactory binderFactory) {
+    return toCriteria(request::getParameter);
+  }
+
+  /**
+   * Bind the criteria parameters of a request, like a handler argument
+   *
+   * @throws InvalidRequestException
+   *           If any parameter is invalid
+   */
+  public static ConflictCriteria toCriteria(ServletRequest request) {
+    return toCriteria(request::getParameter);
+  }
+
+  private static ConflictCriteria toCriteria(Function<String, String> parameters) {
+    return toCriteria(parameters.apply("startDate"), parameters.apply("endDate"), parameters.apply("country"),
+      parameters.apply("actor1"), parameters.apply("actor2"), toInteger("lowEnd", parameters.apply("lowEnd")),
+      toInteger("highEnd", parameters.apply("highEnd")));
+  }
+
+  /**
+   * Parse and validate the criteria request parameters, also those of the
+   * queries of a batch given in the request body
+   *
+   * @throws InvalidRequestException
+   *           If any parameter is invalid
+   */
+  static ConflictCriteria toCriteria(String startDate, String endDate, String country, String actor1,
+    String actor2, Integer lowEnd, Integer highEnd) {
+    LocalDate d1 = toDate("startDate", startDate);
+    LocalDate d2 = toDate("endDate", endDate);
+    if (d1 != null && d2 != null && d2.isBefore(d1)) {
+      throw new InvalidRequestException("endDate should not be before startDate");
+    }
+    if (lowEnd != null && highEnd != null && lowEnd > highEnd) {
+      throw new InvalidRequestException("highEnd should not be less than lowEnd");
+    }
+    return new ConflictCriteria(d1, d2, country, actor1, actor2, lowEnd, highEnd);
+  }
+
+  /**
+   * Parse a date request parameter
+   *
+   * @return The date, null if the parameter is absent
+   * @throws InvalidRequestException
+   *           If the date is not formatted as {@link Conflict#DATE_FORMAT}
+   */
+  static LocalDate toDate(String name, String value) {
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(value, Conflict.DATE_PARSER);
+    } catch (DateTimeParseException e) {
+      throw new InvalidRequestException(name + " not in expected format " + Conflict.DATE_FORMAT + ": " + value);
+    }
+  }
+
+  private static Integer toInteger(String name, String value) {
+    if (value == null || value.isEmpty()) {
+      return null;
+    }
+    try {
+      return Integer.valueOf(value);
+    } catch (NumberFormatException e) {
+      throw new InvalidRequestException(name + " should be an integer: " + value);
+    }
+  }
+}
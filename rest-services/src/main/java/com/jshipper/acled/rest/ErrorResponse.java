@@ -0,0 +1,72 @@
+package com.jshipper.acled.rest;
+
+import java.io.Serializable;
+
+/**
+ * Body of an error response, explaining why a request was rejected
+ *
+ * @author jshipper
+ *
+ */
+public class ErrorResponse implements Serializable {
+  private static final long serialVersionUID = -2875460311307541176L;
+
+  private int status;
+  private String error;
+  private String message;
+
+  public ErrorResponse() {
+  }
+
+  public ErrorResponse(int status, String error, String message) {
+    this.status = status;
+    this.error = error;
+    this.message = message;
+  }
+
+  /**
+   * @return HTTP status code
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  /**
+   * @return HTTP status reason, e.g. "Bad Request"
+   */
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+  /**
+   * @return What was wrong with the request
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("ErrorResponse [status=");
+    builder.append(status);
+    builder.append(", error=");
+    builder.append(error);
+    builder.append(", message=");
+    builder.append(message);
+    builder.append("]");
+    return builder.toString();
+  }
+}
@@ -0,0 +1,18 @@
+package com.jshipper.acled.rest;
+
+/**
+ * Thrown when a request parameter is missing, malformed or inconsistent with
+ * another one; answered with a 400 and the message as error body by
+ * {@link RestExceptionHandler}. Carries no stack trace, which would only
+ * point at the validation code and costs more than the validation itself.
+ *
+ * @author jshipper
+ *
+ */
+public class InvalidRequestException extends RuntimeException {
+  private static final long serialVersionUID = 5024392751377410913L;
+
+  public InvalidRequestException(String message) {
+    super(message, null, false, false);
+  }
+}
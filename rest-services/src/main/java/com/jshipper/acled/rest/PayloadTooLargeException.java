@@ -0,0 +1,17 @@
+package com.jshipper.acled.rest;
+
+/**
+ * Thrown when a response would hold more rows than allowed; answered with a
+ * 413 by {@link RestExceptionHandler}. Carries no stack trace, like
+ * {@link InvalidRequestException}.
+ *
+ * @author jshipper
+ *
+ */
+public class PayloadTooLargeException extends RuntimeException {
+  private static final long serialVersionUID = 3829576147460932281L;
+
+  public PayloadTooLargeException(String message) {
+    super(message, null, false, false);
+  }
+}
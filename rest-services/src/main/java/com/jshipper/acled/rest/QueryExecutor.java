@@ -0,0 +1,345 @@
+package com.jshipper.acled.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.jshipper.acled.service.ConflictServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Runs the queries of the REST endpoints on a bounded pool, cancelling them
+ * at the request's deadline
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class QueryExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryExecutor.class);
+  private static final String TIMEOUT_PROPERTY = "acled.query.timeout.";
+
+  private final ExecutorService executor;
+  // Cancels the statements of streamed responses at their deadline
+  private final ScheduledThreadPoolExecutor deadlines;
+  private final PlatformTransactionManager transactionManager;
+  private final EntityManagerFactory entityManagerFactory;
+  private final Environment environment;
+  private final long defaultTimeout;
+  private final ConcurrentMap<String, Long> timeouts = new ConcurrentHashMap<>();
+
+  @Inject
+  public QueryExecutor(PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+    Environment environment, MeterRegistry registry, @Value("${acled.query.threads:10}") int threads,
+    @Value("${acled.query.queue-capacity:100}") int queueCapacity,
+    @Value("${" + TIMEOUT_PROPERTY + "default:30000}") long defaultTimeout,
+    @Value("${" + ConflictServiceImpl.IMPLEMENTATION_PROPERTY + ":jpa}") String implementation) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("acled-query-"));
+    this.executor = ExecutorServiceMetrics.monitor(registry, pool, "acled.query");
+    this.deadlines = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("acled-query-deadline-"));
+    deadlines.setRemoveOnCancelPolicy(true);
+    // The in-memory implementation does not query the database, a transaction would only hold a connection
+    this.transactionManager = "jpa".equals(implementation) ? transactionManager : null;
+    this.entityManagerFactory = entityManagerFactory;
+    this.environment = environment;
+    this.defaultTimeout = defaultTimeout;
+  }
+
+  /**
+   * Run a query asynchronously
+   *
+   * @param endpoint
+   *          Name of the endpoint, whose timeout applies
+   * @param query
+   *          Produces the response; may throw an
+   *          {@link InvalidRequestException}
+   * @return The response, or a {@link ServiceUnavailableException} if the
+   *         query did not complete before the deadline
+   * @throws ServiceUnavailableException
+   *           If too many queries are waiting
+   */
+  public <T> DeferredResult<T> submit(String endpoint, Supplier<T> query) {
+    long timeout = timeout(endpoint);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    DeferredResult<T> result = new DeferredResult<>(timeout);
+    AtomicReference<Session> session = new AtomicReference<>();
+    Future<?> future;
+    try {
+      future = executor.submit(() -> {
+        if (result.isSetOrExpired()) {
+          return;
+        }
+        try {
+          if (!result.setResult(run(query, deadline, session))) {
+            LOG.debug("{} completed after its deadline", endpoint);
+          }
+        } catch (RuntimeException e) {
+          if (!result.setErrorResult(e)) {
+            LOG.debug("{} failed after its deadline", endpoint, e);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      throw new ServiceUnavailableException("Too many queries in progress, retry later");
+    }
+    result.onTimeout(() -> {
+      future.cancel(true);
+      cancel(session.get());
+      result.setErrorResult(
+        new ServiceUnavailableException(endpoint + " did not complete within " + timeout + " ms"));
+    });
+    // The client went away
+    result.onError(e -> {
+      future.cancel(true);
+      cancel(session.get());
+    });
+    return result;
+  }
+
+  /**
+   * Run the queries of one request concurrently, each as {@link #submit} runs
+   * a query, at most parallelism of them at a time. The queries left when the
+   * deadline passes, or that too many queries waiting keep from being queued,
+   * fail with a {@link ServiceUnavailableException}: the response is made of
+   * the outcomes of the others.
+   *
+   * @param endpoint
+   *          Name of the endpoint, whose timeout applies to the whole batch
+   * @param respond
+   *          Makes the response out of the outcomes of the queries, in order,
+   *          once they all completed or failed
+   */
+  public <T, R> DeferredResult<R> submitAll(String endpoint, List<Supplier<T>> queries, int parallelism,
+    Function<List<CompletableFuture<T>>, R> respond) {
+    long timeout = timeout(endpoint);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    DeferredResult<R> result = new DeferredResult<>(timeout);
+    Batch<T> batch = new Batch<>(queries, deadline);
+    CompletableFuture.allOf(batch.outcomes.toArray(new CompletableFuture<?>[0])).whenComplete((done, e) -> {
+      try {
+        result.setResult(respond.apply(batch.outcomes));
+      } catch (RuntimeException failure) {
+        result.setErrorResult(failure);
+      }
+    });
+    // Answered with what completed in time
+    result.onTimeout(() -> batch.cancel(
+      new ServiceUnavailableException(endpoint + " did not complete within " + timeout + " ms")));
+    // The client went away
+    result.onError(e -> batch.cancel(new ServiceUnavailableException("Request failed")));
+    batch.start(parallelism);
+    return result;
+  }
+
+  /**
+   * Queries of a batch, each submitted to the pool as another one completes
+   */
+  private final class Batch<T> {
+    private final List<Supplier<T>> queries;
+    private final long deadline;
+    private final List<CompletableFuture<T>> outcomes;
+    private final AtomicReferenceArray<Future<?>> futures;
+    private final List<AtomicReference<Session>> sessions;
+    // Index of the next query to submit
+    private final AtomicInteger next = new AtomicInteger();
+
+    Batch(List<Supplier<T>> queries, long deadline) {
+      this.queries = queries;
+      this.deadline = deadline;
+      this.outcomes = new ArrayList<>(queries.size());
+      this.sessions = new ArrayList<>(queries.size());
+      for (int i = 0; i < queries.size(); i++) {
+        outcomes.add(new CompletableFuture<>());
+        sessions.add(new AtomicReference<>());
+      }
+      this.futures = new AtomicReferenceArray<>(queries.size());
+    }
+
+    void start(int parallelism) {
+      for (int i = 0; i < parallelism; i++) {
+        submitNext();
+      }
+    }
+
+    /**
+     * Submit the next query, failing those the pool has no room for
+     */
+    private void submitNext() {
+      int i;
+      while ((i = next.getAndIncrement()) < queries.size()) {
+        int index = i;
+        try {
+          futures.set(i, executor.submit(() -> execute(index)));
+          return;
+        } catch (RejectedExecutionException e) {
+          outcomes.get(i).completeExceptionally(
+            new ServiceUnavailableException("Too many queries in progress, retry later"));
+        }
+      }
+    }
+
+    private void execute(int i) {
+      CompletableFuture<T> outcome = outcomes.get(i);
+      try {
+        // Not run once cancelled
+        if (!outcome.isDone()) {
+          outcome.complete(run(queries.get(i), deadline, sessions.get(i)));
+        }
+      } catch (RuntimeException e) {
+        outcome.completeExceptionally(e);
+      } finally {
+        submitNext();
+      }
+    }
+
+    /**
+     * Fail the queries that have not completed and stop those running
+     */
+    void cancel(RuntimeException reason) {
+      next.set(queries.size());
+      for (int i = 0; i < queries.size(); i++) {
+        if (outcomes.get(i).completeExceptionally(reason)) {
+          Future<?> future = futures.get(i);
+          if (future != null) {
+            future.cancel(true);
+          }
+          QueryExecutor.cancel(sessions.get(i).get());
+        }
+      }
+    }
+  }
+
+  /**
+   * Run a query on the calling thread, for a response streamed as the query
+   * produces it. With the jpa implementation, the query runs in a transaction
+   * timing out at the endpoint's deadline, and the statement still running
+   * then is cancelled.
+   *
+   * @param endpoint
+   *          Name of the endpoint, whose timeout applies
+   * @throws ServiceUnavailableException
+   *           If the query was cancelled at the deadline
+   */
+  public void stream(String endpoint, Runnable query) {
+    long timeout = timeout(endpoint);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    AtomicReference<Session> session = new AtomicReference<>();
+    AtomicBoolean expired = new AtomicBoolean();
+    ScheduledFuture<?> cancellation = deadlines.schedule(() -> {
+      expired.set(true);
+      cancel(session.get());
+    }, timeout, TimeUnit.MILLISECONDS);
+    try {
+      run(() -> {
+        // Also past the deadline if it came before the session could be cancelled
+        if (expired.get()) {
+          throw new ServiceUnavailableException(endpoint + " did not complete within " + timeout + " ms");
+        }
+        query.run();
+        return null;
+      }, deadline, session);
+    } catch (RuntimeException e) {
+      if (expired.get()) {
+        throw new ServiceUnavailableException(endpoint + " did not complete within " + timeout + " ms");
+      }
+      throw e;
+    } finally {
+      cancellation.cancel(false);
+    }
+  }
+
+  /**
+   * Run a query, in a transaction timing out after the deadline with the jpa
+   * implementation
+   *
+   * @param session
+   *          Set to the session running the query while it runs
+   */
+  private <T> T run(Supplier<T> query, long deadline, AtomicReference<Session> session) {
+    if (transactionManager == null) {
+      return query.get();
+    }
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    // Hibernate rounds the time left down and fails statements once less than a second is left: round up and add a
+    // second so that the deadline is reached first
+    long second = TimeUnit.SECONDS.toNanos(1);
+    transaction.setTimeout((int) ((deadline - System.nanoTime() + second - 1) / second) + 1);
+    return transaction.execute(status -> {
+      session.set(EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory).unwrap(
+        Session.class));
+      try {
+        return query.get();
+      } finally {
+        session.set(null);
+      }
+    });
+  }
+
+  /**
+   * Cancel the statement a session is executing, if any. Unlike the query
+   * timeout, this also stops a statement that is still returning its rows.
+   */
+  private static void cancel(Session session) {
+    if (session != null) {
+      try {
+        session.cancelQuery();
+      } catch (RuntimeException e) {
+        LOG.debug("Could not cancel query", e);
+      }
+    }
+  }
+
+  /**
+   * @return Timeout of an endpoint in milliseconds
+   */
+  long timeout(String endpoint) {
+    Long timeout = timeouts.get(endpoint);
+    if (timeout == null) {
+      timeout = timeouts.computeIfAbsent(endpoint,
+        e -> environment.getProperty(TIMEOUT_PROPERTY + e, Long.class, defaultTimeout));
+    }
+    return timeout;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+    deadlines.shutdownNow();
+  }
+}
@@ -0,0 +1,59 @@
+package com.jshipper.acled.rest;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+/**
+ * Answers the requests rejected by the REST controllers with a 400, a 413
+ * when their response would be too large, or a 503 when they could not be
+ * served in time, and an {@link ErrorResponse} saying what was wrong
+ *
+ * @author jshipper
+ *
+ */
+@RestControllerAdvice(basePackageClasses = ConflictController.class)
+public class RestExceptionHandler {
+  @ExceptionHandler(InvalidRequestException.class)
+  public ResponseEntity<ErrorResponse> invalidRequest(InvalidRequestException e) {
+    return badRequest(e.getMessage());
+  }
+
+  @ExceptionHandler(PayloadTooLargeException.class)
+  public ResponseEntity<ErrorResponse> payloadTooLarge(PayloadTooLargeException e) {
+    return error(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage());
+  }
+
+  @ExceptionHandler(ServiceUnavailableException.class)
+  public ResponseEntity<ErrorResponse> serviceUnavailable(ServiceUnavailableException e) {
+    return error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+  }
+
+  @ExceptionHandler(MissingServletRequestParameterException.class)
+  public ResponseEntity<ErrorResponse> missingParameter(MissingServletRequestParameterException e) {
+    return badRequest("Missing parameter: " + e.getParameterName());
+  }
+
+  @ExceptionHandler(HttpMessageNotReadableException.class)
+  public ResponseEntity<ErrorResponse> unreadableBody(HttpMessageNotReadableException e) {
+    return badRequest("Malformed request body");
+  }
+
+  @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+  public ResponseEntity<ErrorResponse> typeMismatch(MethodArgumentTypeMismatchException e) {
+    String type = e.getRequiredType() == null ? "value" : e.getRequiredType().getSimpleName();
+    return badRequest(e.getName() + " should be of type " + type + ": " + e.getValue());
+  }
+
+  private static ResponseEntity<ErrorResponse> badRequest(String message) {
+    return error(HttpStatus.BAD_REQUEST, message);
+  }
+
+  private static ResponseEntity<ErrorResponse> error(HttpStatus status, String message) {
+    return new ResponseEntity<>(new ErrorResponse(status.value(), status.getReasonPhrase(), message), status);
+  }
+}
@@ -0,0 +1,18 @@
+package com.jshipper.acled.rest;
+
+/**
+ * Thrown when a request cannot be answered in time, because too many queries
+ * are already waiting or because its query exceeded the endpoint's timeout;
+ * answered with a 503 by {@link RestExceptionHandler}. Carries no stack
+ * trace, like {@link InvalidRequestException}.
+ *
+ * @author jshipper
+ *
+ */
+public class ServiceUnavailableException extends RuntimeException {
+  private static final long serialVersionUID = -6182794405376617452L;
+
+  public ServiceUnavailableException(String message) {
+    super(message, null, false, false);
+  }
+}
@@ -0,0 +1,341 @@
+package com.jshipper.acled.service;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dataset.DatasetReloadedEvent;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictMapPoint;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caches the results of the criteria queries of {@link ConflictServiceImpl},
+ * keyed on {@link ConflictCriteria#canonical() canonical criteria}, so that
+ * criteria differing only in case or in the order of the actors share a
+ * result.
+ * <p>
+ * The least recently used results are evicted once more than
+ * {@code acled.cache.max-entries} results or {@code acled.cache.max-rows}
+ * rows in total are held; a result of more than a tenth of the rows is not
+ * cached at all, so that one large query cannot flush the others. Concurrent
+ * misses for the same criteria run a single query, the other callers waiting
+ * for its result. Everything is dropped when the dataset is reloaded, and a
+ * result whose query started before a reload is neither cached nor returned:
+ * the query is run again on the new dataset.
+ * <p>
+ * The first conflicts in (date, id) order, queried with a limit, are cached
+ * apart from the other results, which come in no particular order. Only a
+ * complete result, of fewer conflicts than the limit, is kept: it answers any
+ * later limit.
+ * <p>
+ * Cached lists are shared between callers and unmodifiable.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+@ConditionalOnProperty(name = ConflictServiceImpl.IMPLEMENTATION_PROPERTY, havingValue = "jpa", matchIfMissing = true)
+public class ConflictQueryCache {
+  /** Lookups, tagged with their result: hit, miss or coalesced (waited for the same miss) */
+  public static final String GETS = "acled.cache.gets";
+  /** Results evicted to make room */
+  public static final String EVICTIONS = "acled.cache.evictions";
+  /** Results held */
+  public static final String SIZE = "acled.cache.size";
+  /** Rows held, over all results */
+  public static final String ROWS = "acled.cache.rows";
+
+  private enum Kind {
+    CONFLICTS, FIRST_CONFLICTS, MAP_POINTS
+  }
+
+  private final int maxEntries;
+  private final long maxRows;
+  private final long maxEntryRows;
+  // Access ordered: iteration starts with the least recently used result
+  private final LinkedHashMap<Key, List<?>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ConcurrentMap<Key, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+  // Guarded by entries
+  private long rows;
+  private long generation;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter coalesced;
+  private final Counter evictions;
+
+  @Inject
+  public ConflictQueryCache(MeterRegistry registry, @Value("${acled.cache.max-entries:256}") int maxEntries,
+    @Value("${acled.cache.max-rows:200000}") long maxRows) {
+    this.maxEntries = maxEntries;
+    this.maxRows = maxRows;
+    this.maxEntryRows = maxRows / 10;
+    this.hits = gets(registry, "hit");
+    this.misses = gets(registry, "miss");
+    this.coalesced = gets(registry, "coalesced");
+    this.evictions = Counter.builder(EVICTIONS).description("Query results evicted from the cache")
+      .register(registry);
+    Gauge.builder(SIZE, this, ConflictQueryCache::size).description("Query results in the cache")
+      .register(registry);
+    Gauge.builder(ROWS, this, ConflictQueryCache::rows).description("Rows of the query results in the cache")
+      .baseUnit("rows").register(registry);
+  }
+
+  private static Counter gets(MeterRegistry registry, String result) {
+    return Counter.builder(GETS).description("Query result cache lookups").tag("result", result)
+      .register(registry);
+  }
+
+  /**
+   * Get the conflicts meeting the criteria from the cache, or from the query
+   *
+   * @param query
+   *          Runs the query, given the canonical criteria
+   */
+  public List<Conflict> getConflicts(ConflictCriteria criteria,
+    Function<ConflictCriteria, List<Conflict>> query) {
+    return get(Kind.CONFLICTS, criteria, Integer.MAX_VALUE, query);
+  }
+
+  /**
+   * Get the first conflicts meeting the criteria, in (date, id) order, from
+   * the cache, or from the query
+   *
+   * @param limit
+   *          Maximum number of conflicts
+   * @param query
+   *          Runs the query, given the canonical criteria, returning at most
+   *          limit conflicts
+   * @return At most limit conflicts
+   */
+  public List<Conflict> getFirstConflicts(ConflictCriteria criteria, int limit,
+    Function<ConflictCriteria, List<Conflict>> query) {
+    return get(Kind.FIRST_CONFLICTS, criteria, limit, query);
+  }
+
+  /**
+   * Get the map points of the conflicts meeting the criteria from the cache,
+   * or from the query
+   *
+   * @param query
+   *          Runs the query, given the canonical criteria
+   */
+  public List<ConflictMapPoint> getMapPoints(ConflictCriteria criteria,
+    Function<ConflictCriteria, List<ConflictMapPoint>> query) {
+    return get(Kind.MAP_POINTS, criteria, Integer.MAX_VALUE, query);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T> get(Kind kind, ConflictCriteria criteria, int limit,
+    Function<ConflictCriteria, List<T>> query) {
+    if (maxEntries <= 0) {
+      return query.apply(criteria);
+    }
+    Key key = new Key(kind, criteria.canonical());
+    while (true) {
+      List<?> cached = lookup(key);
+      if (cached != null) {
+        hits.increment();
+        return (List<T>) first(cached, limit);
+      }
+      CompletableFuture<Result> flight = new CompletableFuture<>();
+      CompletableFuture<Result> leader = inFlight.putIfAbsent(key, flight);
+      if (leader != null) {
+        Result result = await(leader);
+        if (result == null || !result.covers(limit)) {
+          // The query failed, possibly because the caller that ran it ran out of time, or was limited to
+          // fewer rows: run it again
+          misses.increment();
+          return query.apply(key.criteria);
+        }
+        if (result.generation == generation()) {
+          coalesced.increment();
+          return (List<T>) first(result.rows, limit);
+        }
+        // The other query read the previous dataset
+        continue;
+      }
+      try {
+        long start;
+        synchronized (entries) {
+          // Another caller may have cached the result since the lookup
+          cached = entries.get(key);
+          start = generation;
+        }
+        if (cached != null) {
+          hits.increment();
+          flight.complete(new Result(cached, start, true));
+          return (List<T>) first(cached, limit);
+        }
+        misses.increment();
+        List<T> result = Collections.unmodifiableList(query.apply(key.criteria));
+        boolean complete = result.size() < limit;
+        flight.complete(new Result(result, start, complete));
+        if (put(key, result, start, complete)) {
+          return result;
+        }
+        // The dataset was reloaded while the query ran: query the new one
+      } catch (Throwable t) {
+        flight.completeExceptionally(t);
+        throw t;
+      } finally {
+        inFlight.remove(key, flight);
+      }
+    }
+  }
+
+  /**
+   * @return The first rows of a result, at most limit of them
+   */
+  private static List<?> first(List<?> rows, int limit) {
+    return rows.size() > limit ? rows.subList(0, limit) : rows;
+  }
+
+  /**
+   * @return The result of another caller's query, null if it failed
+   */
+  private static Result await(CompletableFuture<Result> leader) {
+    try {
+      return leader.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted waiting for the same query");
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  private List<?> lookup(Key key) {
+    synchronized (entries) {
+      return entries.get(key);
+    }
+  }
+
+  /**
+   * Cache a result, unless the dataset was reloaded since its query started,
+   * the result is too large or it was cut short by a limit
+   *
+   * @return Whether the result is of the current dataset
+   */
+  private boolean put(Key key, List<?> result, long start, boolean complete) {
+    synchronized (entries) {
+      if (start != generation) {
+        return false;
+      }
+      if (!complete || result.size() > maxEntryRows) {
+        return true;
+      }
+      List<?> previous = entries.put(key, result);
+      if (previous != null) {
+        rows -= previous.size();
+      }
+      rows += result.size();
+      Iterator<Map.Entry<Key, List<?>>> eldest = entries.entrySet().iterator();
+      while (entries.size() > maxEntries || rows > maxRows) {
+        rows -= eldest.next().getValue().size();
+        eldest.remove();
+        evictions.increment();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Drop every result, queries still running are not cached either
+   */
+  @EventListener
+  public void onDatasetReloaded(DatasetReloadedEvent event) {
+    synchronized (entries) {
+      entries.clear();
+      rows = 0;
+      generation++;
+    }
+    inFlight.clear();
+  }
+
+  private long generation() {
+    synchronized (entries) {
+      return generation;
+    }
+  }
+
+  private int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private long rows() {
+    synchronized (entries) {
+      return rows;
+    }
+  }
+
+  /**
+   * Result of a query, with the generation of the dataset it was run on and
+   * whether it holds every row or was cut short by a limit
+   */
+  private static final class Result {
+    private final List<?> rows;
+    private final long generation;
+    private final boolean complete;
+
+    Result(List<?> rows, long generation, boolean complete) {
+      this.rows = rows;
+      this.generation = generation;
+      this.complete = complete;
+    }
+
+    /**
+     * @return Whether the result answers a query limited to that many rows
+     */
+    boolean covers(int limit) {
+      return complete || rows.size() >= limit;
+    }
+  }
+
+  private static final class Key {
+    private final Kind kind;
+    private final ConflictCriteria criteria;
+    private final int hash;
+
+    Key(Kind kind, ConflictCriteria criteria) {
+      this.kind = kind;
+      this.criteria = criteria;
+      this.hash = 31 * kind.hashCode() + criteria.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return kind == other.kind && criteria.equals(other.criteria);
+    }
+  }
+}
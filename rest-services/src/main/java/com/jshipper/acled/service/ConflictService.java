@@ -1,10 +1,19 @@
 package com.jshipper.acled.service;
 
+import java.time.LocalDate;
 import java.util.Collection;
-import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import com.jshipper.acled.model.ActorSuggestion;
 import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictAggregate;
+import com.jshipper.acled.model.ConflictCluster;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+import com.jshipper.acled.model.ConflictMapPoint;
+import com.jshipper.acled.model.ConflictNetwork;
 
 /**
  * Service to interface between ACLED DAO and REST services
@@ -20,6 +29,15 @@ public interface ConflictService {
    */
   public List<Conflict> getAllConflicts();
 
+  /**
+   * Pass all conflicts to the provided action one at a time, without holding
+   * the whole dataset in memory
+   * 
+   * @param action
+   *          Action to perform on each conflict
+   */
+  public void forEachConflict(Consumer<Conflict> action);
+
   /**
    * Get all conflicts with the provided date
    * 
@@ -27,7 +45,7 @@ public interface ConflictService {
    *          Should represent a day
    * @return A list of all conflicts with the provided date, empty list if none
    */
-  public List<Conflict> getConflictsByDate(Date date);
+  public List<Conflict> getConflictsByDate(LocalDate date);
 
   /**
    * Get all conflicts that are within the provided date range (inclusive)
@@ -40,7 +58,7 @@ public interface ConflictService {
    *         if none, if both dates are null, or if end date is before start
    *         date.
    */
-  public List<Conflict> getConflictsInDateRange(Date startDate, Date endDate);
+  public List<Conflict> getConflictsInDateRange(LocalDate startDate, LocalDate endDate);
 
   /**
    * Get all conflicts with the provided country (case-insensitive)
@@ -119,21 +137,209 @@ public interface ConflictService {
    * @return A list of all conflicts that meet the specified criteria. Empty
    *         list if none or if any constraints are violated.
    */
-  public List<Conflict> getConflictsByCriteria(Date startDate, Date endDate,
+  public List<Conflict> getConflictsByCriteria(LocalDate startDate, LocalDate endDate,
     String country, String actor1, String actor2, Integer lowEnd,
     Integer highEnd);
 
+  /**
+   * Get the first conflicts that meet the specified criteria, ordered by date,
+   * then id. Unlike the first page of {@link #getConflictPage}, answered from
+   * the same cache as the other criteria queries where there is one
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param limit
+   *          Maximum number of conflicts to return
+   * @return A list of at most limit conflicts, empty list if none
+   */
+  public List<Conflict> getFirstConflicts(ConflictCriteria criteria, int limit);
+
+  /**
+   * Get one page of the conflicts that meet the specified criteria, ordered by
+   * date, then id
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param after
+   *          Position of the last conflict of the previous page, null for the
+   *          first page
+   * @param limit
+   *          Maximum number of conflicts to return
+   * @return A list of at most limit conflicts following the provided position,
+   *         empty list if none
+   */
+  public List<Conflict> getConflictPage(ConflictCriteria criteria,
+    ConflictCursor after, int limit);
+
+  /**
+   * Get the map points of all conflicts that meet the specified criteria. Only
+   * the attributes needed to draw a conflict are loaded.
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @return A list of the map points of all conflicts that meet the specified
+   *         criteria, empty list if none
+   */
+  public List<ConflictMapPoint> getMapPointsByCriteria(ConflictCriteria criteria);
+
+  /**
+   * Get one page of the map points of the conflicts that meet the specified
+   * criteria, ordered by date, then id
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param after
+   *          Position of the last map point of the previous page, null for the
+   *          first page
+   * @param limit
+   *          Maximum number of map points to return
+   * @return A list of at most limit map points following the provided
+   *         position, empty list if none
+   */
+  public List<ConflictMapPoint> getMapPointPage(ConflictCriteria criteria,
+    ConflictCursor after, int limit);
+
+  /**
+   * Pass all conflicts that meet the specified criteria to the provided action
+   * one at a time, without holding the whole result in memory
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param action
+   *          Action to perform on each conflict
+   */
+  public void forEachConflictByCriteria(ConflictCriteria criteria,
+    Consumer<Conflict> action);
+
+  /**
+   * Pass the map points of all conflicts that meet the specified criteria to
+   * the provided action one at a time, in (date, id) order, without holding
+   * the whole result in memory
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param action
+   *          Action to perform on each map point
+   */
+  public void forEachMapPointByCriteria(ConflictCriteria criteria,
+    Consumer<ConflictMapPoint> action);
+
+  /**
+   * Get the conflicts that meet the specified criteria aggregated over a
+   * geohash grid
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param precision
+   *          Geohash length of the grid cells
+   * @return One cluster per non-empty grid cell, empty list if none
+   */
+  public List<ConflictCluster> getConflictClusters(ConflictCriteria criteria,
+    int precision);
+
+  /**
+   * Get the map points of the conflicts that meet the specified criteria and
+   * lie inside a bounding box, answered from an in-memory spatial index
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param minLongitude
+   *          Western edge; greater than maxLongitude for a box crossing the
+   *          antimeridian
+   * @param limit
+   *          Maximum number of map points
+   * @return At most limit map points, the earliest in (date, id) order,
+   *         empty list if none
+   */
+  public List<ConflictMapPoint> getMapPointsInBox(ConflictCriteria criteria, double minLatitude,
+    double minLongitude, double maxLatitude, double maxLongitude, int limit);
+
+  /**
+   * Get the map points of the conflicts that meet the specified criteria
+   * within a distance of a location, answered from an in-memory spatial index
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param radiusKm
+   *          Distance in kilometers, along the Earth's surface
+   * @param limit
+   *          Maximum number of map points
+   * @return At most limit map points, the earliest in (date, id) order,
+   *         empty list if none
+   */
+  public List<ConflictMapPoint> getMapPointsWithinRadius(ConflictCriteria criteria, double latitude,
+    double longitude, double radiusKm, int limit);
+
+  /**
+   * Get the map points of the conflicts that meet the specified criteria
+   * nearest to a location, answered from an in-memory spatial index
+   * 
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param k
+   *          Maximum number of map points
+   * @return Map points, nearest first, empty list if none
+   */
+  public List<ConflictMapPoint> getNearestMapPoints(ConflictCriteria criteria, double latitude,
+    double longitude, int k);
+
+  /**
+   * Get the number of conflicts and sum of fatalities per group, answered
+   * from pre-aggregated monthly rollups
+   * 
+   * @param startDate
+   *          Start of the date range, matched by month, null for no lower
+   *          bound
+   * @param endDate
+   *          End of the date range, matched by month, null for no upper bound
+   * @param country
+   *          Country's name, null for all
+   * @param eventType
+   *          Event type, null for all
+   * @param actor
+   *          Actor, as actor1 or actor2, null for all
+   * @param groupBy
+   *          Dimensions to group by, a single group if empty
+   * @param grain
+   *          Length of the periods when grouping by period
+   * @return One aggregate per group, by period then by decreasing fatalities
+   */
+  public List<ConflictAggregate> getConflictAggregates(LocalDate startDate, LocalDate endDate,
+    String country, String eventType, String actor, Set<ConflictAggregate.Dimension> groupBy,
+    ConflictAggregate.Grain grain);
+
+  /**
+   * Get the graph of the actors that fought each other, weighted by their
+   * conflicts
+   * 
+   * @param startDate
+   *          Start of the date range, null for no lower bound
+   * @param endDate
+   *          End of the date range, null for no upper bound
+   * @param country
+   *          Country's name, null for all
+   * @param actor
+   *          Only include the pairs this actor is part of, null for all
+   * @param minEvents
+   *          Minimum number of conflicts between two actors
+   * @param limit
+   *          Maximum number of pairs, those with the most conflicts are kept
+   * @return The graph
+   */
+  public ConflictNetwork getConflictNetwork(LocalDate startDate, LocalDate endDate, String country,
+    String actor, int minEvents, int limit);
+
   /**
    * Get all countries associated with conflicts
    * 
-   * @return A list of all countries associated with conflicts
+   * @return A sorted list of all countries associated with conflicts
    */
   public List<String> getAllCountries();
 
   /**
-   * Get all actors associated with conflicts
+   * Get all actors associated with conflicts, as actor1 or actor2
    * 
-   * @return A list of all actors associated with conflicts
+   * @return A sorted list of all actors associated with conflicts
    */
   public List<String> getAllActors();
 
@@ -142,21 +348,37 @@ public interface ConflictService {
    * 
    * @param country
    *          Country's name
-   * @return A list of all actors associated with the given actor
+   * @return A sorted list of all actors, as actor1 or actor2, associated with
+   *         the given country
    */
   public List<String> getActorsByCountry(String country);
 
   /**
-   * Save all conflicts
+   * Suggest the actors whose name has a word starting with a prefix,
+   * tolerating typos when few do
    * 
-   * @param conflicts
+   * @param prefix
+   *          What the user typed, ignoring case, accents and punctuation;
+   *          every actor if empty
+   * @param country
+   *          Only suggest the actors of this country's conflicts, null for all
+   * @param limit
+   *          Maximum number of suggestions
+   * @return Suggestions, exact matches first, then by decreasing number of
+   *         conflicts
    */
-  public void saveAll(Collection<Conflict> conflicts);
+  public List<ActorSuggestion> suggestActors(String prefix, String country, int limit);
 
   /**
-   * Delete all conflicts
+   * Save all conflicts with a single batched insert, replacing those with an
+   * existing id
    * 
    * @param conflicts
    */
+  public void saveAll(Collection<Conflict> conflicts);
+
+  /**
+   * Delete all conflicts with a single statement
+   */
   public void deleteAll();
 }
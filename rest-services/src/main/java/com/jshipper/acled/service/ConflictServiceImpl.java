@@ -1,59 +1,123 @@
 package com.jshipper.acled.service;
 
+import java.time.LocalDate;
 import java.util.Collection;
-import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.ingest.ConflictBatchWriter;
 
+import com.jshipper.acled.model.ActorSuggestion;
 import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictAggregate;
+import com.jshipper.acled.model.ConflictCluster;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+import com.jshipper.acled.model.ConflictMapPoint;
+import com.jshipper.acled.model.ConflictNetwork;
+import com.jshipper.acled.store.ConflictColumns;
+import com.jshipper.acled.store.DimensionDictionary;
+import com.jshipper.acled.store.DyadIndexStore;
+import com.jshipper.acled.store.GeoHashGrid;
+import com.jshipper.acled.store.RollupCubeStore;
+import com.jshipper.acled.store.SpatialIndexStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Implementation of service to interface between ACLED DAO and REST services
+ * that queries the database, except for the criteria queries answered by the
+ * {@link ConflictQueryCache}. This is the default, see
+ * {@link #IMPLEMENTATION_PROPERTY}.
  * 
  * @author jshipper
  *
  */
 @Component
+@ConditionalOnProperty(name = ConflictServiceImpl.IMPLEMENTATION_PROPERTY, havingValue = "jpa", matchIfMissing = true)
 public class ConflictServiceImpl implements ConflictService {
+  /** Selects the service implementation: "jpa" (default) or "memory" */
+  public static final String IMPLEMENTATION_PROPERTY = "acled.service.implementation";
+
   private ConflictRepository dao;
+  private ConflictBatchWriter writer;
+  private DatasetService datasetService;
+  private DimensionDictionary dimensions;
+  private RollupCubeStore cubes;
+  private DyadIndexStore dyads;
+  private SpatialIndexStore spatial;
+  private ConflictQueryCache cache;
+
+  @PersistenceContext
+  private EntityManager entityManager;
 
   @Inject
-  public ConflictServiceImpl(ConflictRepository dao) {
+  public ConflictServiceImpl(ConflictRepository dao, ConflictBatchWriter writer,
+    DatasetService datasetService, DimensionDictionary dimensions, RollupCubeStore cubes,
+    DyadIndexStore dyads, SpatialIndexStore spatial, ConflictQueryCache cache) {
     this.dao = dao;
+    this.writer = writer;
+    this.datasetService = datasetService;
+    this.dimensions = dimensions;
+    this.cubes = cubes;
+    this.dyads = dyads;
+    this.spatial = spatial;
+    this.cache = cache;
   }
 
   @Override
   public List<Conflict> getAllConflicts() {
-    return dao.findAll();
+    return dao.findAllStateless();
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void forEachConflict(Consumer<Conflict> action) {
+    try (Stream<Conflict> conflicts = dao.streamAll()) {
+      conflicts.forEach(c -> {
+        action.accept(c);
+        entityManager.detach(c);
+      });
+    }
   }
 
   @Override
-  public List<Conflict> getConflictsByDate(Date date) {
+  public List<Conflict> getConflictsByDate(LocalDate date) {
     return dao.findByDate(date);
   }
 
   @Override
-  public List<Conflict> getConflictsInDateRange(Date startDate, Date endDate) {
+  public List<Conflict> getConflictsInDateRange(LocalDate startDate, LocalDate endDate) {
     return dao.findByDateBetween(startDate, endDate);
   }
 
   @Override
   public List<Conflict> getConflictsByCountry(String country) {
-    return dao.findByCountryIgnoreCase(country);
+    ConflictCriteria criteria = new ConflictCriteria();
+    criteria.setCountry(country);
+    return cache.getConflicts(criteria, dao::findByCriteria);
   }
 
   @Override
   public List<Conflict> getConflictsByActor(String actor) {
-    return dao.findByActor(actor);
+    ConflictCriteria criteria = new ConflictCriteria();
+    criteria.setActor1(actor);
+    return cache.getConflicts(criteria, dao::findByCriteria);
   }
 
   @Override
   public List<Conflict> getConflictsByActors(String actor1, String actor2) {
-    return dao.findByActors(actor1, actor2);
+    return dao.findByActors(lowerCase(actor1), lowerCase(actor2));
   }
 
   @Override
@@ -67,33 +131,127 @@ public class ConflictServiceImpl implements ConflictService {
   }
 
   @Override
-  public List<Conflict> getConflictsByCriteria(Date startDate, Date endDate, String country,
+  public List<Conflict> getConflictsByCriteria(LocalDate startDate, LocalDate endDate, String country,
                                                String actor1, String actor2, Integer lowEnd, Integer highEnd) {
-    return dao.findByCriteria(startDate, endDate, country, actor1, actor2, lowEnd, highEnd);
+    return cache.getConflicts(new ConflictCriteria(startDate, endDate, country, actor1, actor2, lowEnd, highEnd),
+      dao::findByCriteria);
+  }
+
+  @Override
+  public List<Conflict> getFirstConflicts(ConflictCriteria criteria, int limit) {
+    return cache.getFirstConflicts(criteria, limit, c -> dao.findByCriteriaAfter(c, null, limit));
+  }
+
+  @Override
+  public List<Conflict> getConflictPage(ConflictCriteria criteria, ConflictCursor after, int limit) {
+    return dao.findByCriteriaAfter(criteria, after, limit);
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointsByCriteria(ConflictCriteria criteria) {
+    return cache.getMapPoints(criteria, dao::findMapPointsByCriteria);
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointPage(ConflictCriteria criteria, ConflictCursor after, int limit) {
+    return dao.findMapPointsByCriteriaAfter(criteria, after, limit);
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void forEachConflictByCriteria(ConflictCriteria criteria, Consumer<Conflict> action) {
+    try (Stream<Conflict> conflicts = dao.streamByCriteria(criteria)) {
+      conflicts.forEach(c -> {
+        action.accept(c);
+        entityManager.detach(c);
+      });
+    }
+  }
+
+  @Override
+  @Transactional(readOnly = true)
+  public void forEachMapPointByCriteria(ConflictCriteria criteria, Consumer<ConflictMapPoint> action) {
+    // Map points are not entities, there is nothing to detach
+    try (Stream<ConflictMapPoint> points = dao.streamMapPointsByCriteria(criteria)) {
+      points.forEach(action);
+    }
+  }
+
+  @Override
+  public List<ConflictCluster> getConflictClusters(ConflictCriteria criteria, int precision) {
+    GeoHashGrid grid = new GeoHashGrid(precision, GeoHashGrid.DEFAULT_TOP_ACTORS);
+    for (ConflictMapPoint p : cache.getMapPoints(criteria, dao::findMapPointsByCriteria)) {
+      grid.add(p.getLatitude() == null ? Double.NaN : p.getLatitude(),
+        p.getLongitude() == null ? Double.NaN : p.getLongitude(),
+        p.getFatalities() == null ? ConflictColumns.NULL_INT : p.getFatalities(), p.getActor1(), p.getActor2());
+    }
+    return grid.getClusters();
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointsInBox(ConflictCriteria criteria, double minLatitude,
+    double minLongitude, double maxLatitude, double maxLongitude, int limit) {
+    return spatial.get().inBox(criteria, minLatitude, minLongitude, maxLatitude, maxLongitude, limit);
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointsWithinRadius(ConflictCriteria criteria, double latitude,
+    double longitude, double radiusKm, int limit) {
+    return spatial.get().withinRadius(criteria, latitude, longitude, radiusKm, limit);
+  }
+
+  @Override
+  public List<ConflictMapPoint> getNearestMapPoints(ConflictCriteria criteria, double latitude,
+    double longitude, int k) {
+    return spatial.get().nearest(criteria, latitude, longitude, k);
+  }
+
+  @Override
+  public List<ConflictAggregate> getConflictAggregates(LocalDate startDate, LocalDate endDate,
+    String country, String eventType, String actor, Set<ConflictAggregate.Dimension> groupBy,
+    ConflictAggregate.Grain grain) {
+    return cubes.get().aggregate(startDate, endDate, country, eventType, actor, groupBy, grain);
+  }
+
+  @Override
+  public ConflictNetwork getConflictNetwork(LocalDate startDate, LocalDate endDate, String country,
+    String actor, int minEvents, int limit) {
+    return dyads.get().network(startDate, endDate, country, actor, minEvents, limit);
   }
 
   @Override
   public List<String> getAllCountries() {
-    return dao.getAllCountries();
+    return dimensions.getCountries();
   }
 
   @Override
   public List<String> getAllActors() {
-    return dao.getAllActors();
+    return dimensions.getActors();
   }
 
   @Override
   public List<String> getActorsByCountry(String country) {
-    return dao.getActorsByCountry(country);
+    return dimensions.getActorsByCountry(country);
+  }
+
+  @Override
+  public List<ActorSuggestion> suggestActors(String prefix, String country, int limit) {
+    return dimensions.suggestActors(prefix, country, limit);
   }
 
   @Override
   public void saveAll(Collection<Conflict> conflicts) {
-    dao.saveAll(conflicts);
+    writer.upsert(Conflict.TABLE_NAME, conflicts);
+    datasetService.changed();
   }
 
   @Override
   public void deleteAll() {
-    dao.deleteAll();
+    dao.deleteAllInBatch();
+    datasetService.changed();
+  }
+
+  private static String lowerCase(String value) {
+    return value == null ? null : value.toLowerCase(Locale.ROOT);
   }
 }
@@ -0,0 +1,287 @@
+package com.jshipper.acled.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.ingest.ConflictBatchWriter;
+import com.jshipper.acled.model.ActorSuggestion;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictAggregate;
+import com.jshipper.acled.model.ConflictCluster;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+import com.jshipper.acled.model.ConflictMapPoint;
+import com.jshipper.acled.model.ConflictNetwork;
+import com.jshipper.acled.store.ConflictColumns;
+import com.jshipper.acled.store.ConflictStore;
+import com.jshipper.acled.store.DimensionDictionary;
+import com.jshipper.acled.store.DyadIndex;
+import com.jshipper.acled.store.DyadIndexStore;
+import com.jshipper.acled.store.GeoHashGrid;
+import com.jshipper.acled.store.RollupCubeStore;
+import com.jshipper.acled.store.SpatialIndexStore;
+import com.jshipper.acled.store.StringDictionary;
+
+/**
+ * Implementation of service to interface between ACLED DAO and REST services
+ * that answers all queries from an in-memory, columnar copy of the dataset.
+ * Enabled with {@code acled.service.implementation=memory}.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+@ConditionalOnProperty(name = ConflictServiceImpl.IMPLEMENTATION_PROPERTY, havingValue = "memory")
+public class InMemoryConflictServiceImpl implements ConflictService {
+  private ConflictRepository dao;
+  private ConflictBatchWriter writer;
+  private DatasetService datasetService;
+  private ConflictStore store;
+  private DimensionDictionary dimensions;
+  private RollupCubeStore cubes;
+  private DyadIndexStore dyads;
+  private SpatialIndexStore spatial;
+
+  @Inject
+  public InMemoryConflictServiceImpl(ConflictRepository dao, ConflictBatchWriter writer,
+    DatasetService datasetService, ConflictStore store, DimensionDictionary dimensions,
+    RollupCubeStore cubes, DyadIndexStore dyads, SpatialIndexStore spatial) {
+    this.dao = dao;
+    this.writer = writer;
+    this.datasetService = datasetService;
+    this.store = store;
+    this.dimensions = dimensions;
+    this.cubes = cubes;
+    this.dyads = dyads;
+    this.spatial = spatial;
+  }
+
+  @PostConstruct
+  public void load() {
+    store.get();
+  }
+
+  @Override
+  public List<Conflict> getAllConflicts() {
+    return store.get().toConflicts();
+  }
+
+  @Override
+  public void forEachConflict(Consumer<Conflict> action) {
+    ConflictColumns columns = store.get();
+    for (int row = 0; row < columns.size(); row++) {
+      action.accept(columns.toConflict(row));
+    }
+  }
+
+  @Override
+  public List<Conflict> getConflictsByDate(LocalDate date) {
+    if (date == null) {
+      return new ArrayList<>();
+    }
+    return select(new ConflictCriteria(date, date, null, null, null, null, null));
+  }
+
+  @Override
+  public List<Conflict> getConflictsInDateRange(LocalDate startDate, LocalDate endDate) {
+    if (startDate == null && endDate == null) {
+      return new ArrayList<>();
+    }
+    return select(new ConflictCriteria(startDate, endDate, null, null, null, null, null));
+  }
+
+  @Override
+  public List<Conflict> getConflictsByCountry(String country) {
+    if (country == null) {
+      return new ArrayList<>();
+    }
+    return select(new ConflictCriteria(null, null, country, null, null, null, null));
+  }
+
+  @Override
+  public List<Conflict> getConflictsByActor(String actor) {
+    if (actor == null) {
+      return new ArrayList<>();
+    }
+    return select(new ConflictCriteria(null, null, null, actor, null, null, null));
+  }
+
+  @Override
+  public List<Conflict> getConflictsByActors(String actor1, String actor2) {
+    ConflictColumns columns = store.get();
+    DyadIndex index = dyads.get();
+    int[] events = index.selectByActors(actor1, actor2);
+    int[] rows = new int[events.length];
+    int count = 0;
+    for (int event : events) {
+      int row = columns.rowOf(index.day(event), index.id(event));
+      if (row >= 0) {
+        rows[count++] = row;
+      }
+    }
+    rows = Arrays.copyOf(rows, count);
+    Arrays.sort(rows);
+    return columns.toConflicts(rows);
+  }
+
+  @Override
+  public List<Conflict> getConflictsByFatalities(Integer fatalities) {
+    if (fatalities == null) {
+      return new ArrayList<>();
+    }
+    ConflictColumns columns = store.get();
+    return columns.toConflicts(columns.selectByFatalities(fatalities, fatalities));
+  }
+
+  @Override
+  public List<Conflict> getConflictsInFatalityRange(Integer lowEnd, Integer highEnd) {
+    if (lowEnd == null && highEnd == null) {
+      return new ArrayList<>();
+    }
+    ConflictColumns columns = store.get();
+    return columns.toConflicts(columns.selectByFatalities(lowEnd == null ? Integer.MIN_VALUE : lowEnd,
+      highEnd == null ? Integer.MAX_VALUE : highEnd));
+  }
+
+  @Override
+  public List<Conflict> getConflictsByCriteria(LocalDate startDate, LocalDate endDate, String country,
+                                               String actor1, String actor2, Integer lowEnd, Integer highEnd) {
+    return select(new ConflictCriteria(startDate, endDate, country, actor1, actor2, lowEnd, highEnd));
+  }
+
+  @Override
+  public List<Conflict> getFirstConflicts(ConflictCriteria criteria, int limit) {
+    return getConflictPage(criteria, null, limit);
+  }
+
+  @Override
+  public List<Conflict> getConflictPage(ConflictCriteria criteria, ConflictCursor after, int limit) {
+    ConflictColumns columns = store.get();
+    int fromRow = after == null ? 0
+      : columns.rowAfter(after);
+    return columns.toConflicts(columns.select(criteria, fromRow, limit));
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointsByCriteria(ConflictCriteria criteria) {
+    ConflictColumns columns = store.get();
+    return columns.toMapPoints(columns.select(criteria));
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointPage(ConflictCriteria criteria, ConflictCursor after, int limit) {
+    ConflictColumns columns = store.get();
+    int fromRow = after == null ? 0
+      : columns.rowAfter(after);
+    return columns.toMapPoints(columns.select(criteria, fromRow, limit));
+  }
+
+  @Override
+  public void forEachConflictByCriteria(ConflictCriteria criteria, Consumer<Conflict> action) {
+    ConflictColumns columns = store.get();
+    for (int row : columns.select(criteria)) {
+      action.accept(columns.toConflict(row));
+    }
+  }
+
+  @Override
+  public void forEachMapPointByCriteria(ConflictCriteria criteria, Consumer<ConflictMapPoint> action) {
+    ConflictColumns columns = store.get();
+    for (int row : columns.select(criteria)) {
+      action.accept(columns.toMapPoint(row));
+    }
+  }
+
+  @Override
+  public List<ConflictCluster> getConflictClusters(ConflictCriteria criteria, int precision) {
+    ConflictColumns columns = store.get();
+    StringDictionary actors = columns.actorDictionary();
+    GeoHashGrid grid = new GeoHashGrid(precision, GeoHashGrid.DEFAULT_TOP_ACTORS);
+    for (int row : columns.select(criteria)) {
+      grid.add(columns.latitude(row), columns.longitude(row), columns.fatalities(row),
+        actors.decode(columns.actor1Code(row)), actors.decode(columns.actor2Code(row)));
+    }
+    return grid.getClusters();
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointsInBox(ConflictCriteria criteria, double minLatitude,
+    double minLongitude, double maxLatitude, double maxLongitude, int limit) {
+    return spatial.get().inBox(criteria, minLatitude, minLongitude, maxLatitude, maxLongitude, limit);
+  }
+
+  @Override
+  public List<ConflictMapPoint> getMapPointsWithinRadius(ConflictCriteria criteria, double latitude,
+    double longitude, double radiusKm, int limit) {
+    return spatial.get().withinRadius(criteria, latitude, longitude, radiusKm, limit);
+  }
+
+  @Override
+  public List<ConflictMapPoint> getNearestMapPoints(ConflictCriteria criteria, double latitude,
+    double longitude, int k) {
+    return spatial.get().nearest(criteria, latitude, longitude, k);
+  }
+
+  @Override
+  public List<ConflictAggregate> getConflictAggregates(LocalDate startDate, LocalDate endDate,
+    String country, String eventType, String actor, Set<ConflictAggregate.Dimension> groupBy,
+    ConflictAggregate.Grain grain) {
+    return cubes.get().aggregate(startDate, endDate, country, eventType, actor, groupBy, grain);
+  }
+
+  @Override
+  public ConflictNetwork getConflictNetwork(LocalDate startDate, LocalDate endDate, String country,
+    String actor, int minEvents, int limit) {
+    return dyads.get().network(startDate, endDate, country, actor, minEvents, limit);
+  }
+
+  @Override
+  public List<String> getAllCountries() {
+    return dimensions.getCountries();
+  }
+
+  @Override
+  public List<String> getAllActors() {
+    return dimensions.getActors();
+  }
+
+  @Override
+  public List<String> getActorsByCountry(String country) {
+    return dimensions.getActorsByCountry(country);
+  }
+
+  @Override
+  public List<ActorSuggestion> suggestActors(String prefix, String country, int limit) {
+    return dimensions.suggestActors(prefix, country, limit);
+  }
+
+  @Override
+  public void saveAll(Collection<Conflict> conflicts) {
+    writer.upsert(Conflict.TABLE_NAME, conflicts);
+    datasetService.changed();
+  }
+
+  @Override
+  public void deleteAll() {
+    dao.deleteAllInBatch();
+    datasetService.changed();
+  }
+
+  private List<Conflict> select(ConflictCriteria criteria) {
+    ConflictColumns columns = store.get();
+    return columns.toConflicts(columns.select(criteria));
+  }
+}
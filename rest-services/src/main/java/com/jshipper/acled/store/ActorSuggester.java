@@ -0,0 +1,285 @@
+package com.jshipper.acled.store;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.jshipper.acled.model.ActorSuggestion;
+
+/**
+ * Completes actor names from what the user typed. Names are normalized
+ * (accents removed, lower-cased, punctuation turned into spaces) and every
+ * word of a name starts a key, so "haram" finds "Boko Haram". The keys are
+ * kept in one sorted array: the keys starting with a prefix are contiguous
+ * and found with two binary searches.
+ * <p>
+ * When a prefix of 3 characters or more completes fewer names than asked
+ * for, names are also matched with up to one typo (two from 7 characters):
+ * keys are walked in order computing the edit distance to the prefix, one
+ * row per character, and rows are shared by keys with a common beginning, so
+ * that a beginning too far from the prefix rules out all the keys starting
+ * with it at once, as in a trie.
+ * <p>
+ * Suggestions are ranked by typos, then by number of conflicts, in the
+ * country if one is given.
+ *
+ * @author jshipper
+ *
+ */
+public class ActorSuggester {
+  /** Shortest prefix matched with typos */
+  static final int MIN_FUZZY_LENGTH = 3;
+  /** Shortest prefix matched with two typos */
+  static final int MIN_TWO_TYPOS_LENGTH = 7;
+
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  // Per actor
+  private final String[] names;
+  private final long[] events;
+  // Lower-cased country to the events of each actor in it
+  private final Map<String, long[]> eventsByCountry;
+  // Sorted keys and the actor each belongs to
+  private final String[] keys;
+  private final int[] keyActors;
+
+  private ActorSuggester(Builder b) {
+    int actors = b.names.size();
+    names = b.names.toArray(new String[actors]);
+    events = Arrays.copyOf(b.events, actors);
+    eventsByCountry = new HashMap<>();
+    for (Map.Entry<String, long[]> entry : b.eventsByCountry.entrySet()) {
+      eventsByCountry.put(entry.getKey(), Arrays.copyOf(entry.getValue(), actors));
+    }
+    List<String> allKeys = new ArrayList<>();
+    List<Integer> allActors = new ArrayList<>();
+    for (int actor = 0; actor < actors; actor++) {
+      String key = normalize(names[actor]);
+      for (int i = 0; i < key.length(); i++) {
+        if (i == 0 || key.charAt(i - 1) == ' ') {
+          allKeys.add(key.substring(i));
+          allActors.add(actor);
+        }
+      }
+    }
+    Integer[] order = new Integer[allKeys.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparing(allKeys::get));
+    keys = new String[order.length];
+    keyActors = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      keys[i] = allKeys.get(order[i]);
+      keyActors[i] = allActors.get(order[i]);
+    }
+  }
+
+  /**
+   * @return Number of actors
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Suggest the actors completing a prefix
+   *
+   * @param prefix
+   *          Beginning of any word of the actor's name, ignoring case, accents
+   *          and punctuation; every actor if empty
+   * @param country
+   *          Only suggest the actors of this country's conflicts, matched
+   *          ignoring case, null for all
+   * @param limit
+   *          Maximum number of suggestions
+   * @return The best suggestions first
+   */
+  public List<ActorSuggestion> suggest(String prefix, String country, int limit) {
+    long[] counts = country == null ? events : eventsByCountry.get(country.toLowerCase(Locale.ROOT));
+    if (counts == null || limit <= 0) {
+      return new ArrayList<>();
+    }
+    String query = normalize(prefix);
+    // Actor to the fewest typos it was found with
+    Map<Integer, Integer> found = new HashMap<>();
+    if (query.isEmpty()) {
+      for (int actor = 0; actor < names.length; actor++) {
+        if (counts[actor] > 0) {
+          found.put(actor, 0);
+        }
+      }
+    } else {
+      int end = prefixEnd(query);
+      for (int i = lowerBound(query); i < end; i++) {
+        if (counts[keyActors[i]] > 0) {
+          found.put(keyActors[i], 0);
+        }
+      }
+      if (found.size() < limit && query.length() >= MIN_FUZZY_LENGTH) {
+        matchWithTypos(query, query.length() >= MIN_TWO_TYPOS_LENGTH ? 2 : 1, counts, found);
+      }
+    }
+    List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(found.entrySet());
+    ranked.sort(Comparator.<Map.Entry<Integer, Integer>> comparingInt(Map.Entry::getValue)
+      .thenComparing(e -> counts[e.getKey()], Comparator.reverseOrder())
+      .thenComparing(e -> names[e.getKey()]));
+    List<ActorSuggestion> suggestions = new ArrayList<>(Math.min(limit, ranked.size()));
+    for (int i = 0; i < limit && i < ranked.size(); i++) {
+      int actor = ranked.get(i).getKey();
+      suggestions.add(new ActorSuggestion(names[actor], counts[actor]));
+    }
+    return suggestions;
+  }
+
+  /**
+   * Add the actors with a key beginning within maxTypos edits of the query,
+   * counting the edits to the closest beginning of each key
+   */
+  private void matchWithTypos(String query, int maxTypos, long[] counts, Map<Integer, Integer> found) {
+    int m = query.length();
+    int maxDepth = m + maxTypos;
+    // rows[d][j]: edits between the first d characters of the current key and the first j of the query
+    int[][] rows = new int[maxDepth + 1][m + 1];
+    // fewest[d]: edits between the query and the closest of the first 0 to d characters of the current key
+    int[] fewest = new int[maxDepth + 1];
+    for (int j = 0; j <= m; j++) {
+      rows[0][j] = j;
+    }
+    fewest[0] = m;
+    // Rows computed for the first characters of the previous key
+    int computed = 0;
+    String previous = "";
+    int i = 0;
+    while (i < keys.length) {
+      String key = keys[i];
+      int depth = Math.min(computed, commonPrefix(previous, key));
+      previous = key;
+      boolean ruledOut = false;
+      while (depth < Math.min(key.length(), maxDepth) && fewest[depth] > 0) {
+        char c = key.charAt(depth);
+        int[] above = rows[depth];
+        int[] row = rows[++depth];
+        row[0] = depth;
+        int min = row[0];
+        for (int j = 1; j <= m; j++) {
+          int substitution = above[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+          row[j] = Math.min(substitution, Math.min(above[j], row[j - 1]) + 1);
+          min = Math.min(min, row[j]);
+        }
+        fewest[depth] = Math.min(fewest[depth - 1], row[m]);
+        if (min > maxTypos) {
+          // No longer beginning can be within maxTypos edits
+          ruledOut = true;
+          break;
+        }
+      }
+      computed = depth;
+      int next = i + 1;
+      if (ruledOut || fewest[depth] == 0) {
+        // No longer beginning can be closer: every key with this one matches alike, or none does
+        next = prefixEnd(key.substring(0, depth));
+      }
+      if (fewest[depth] <= maxTypos) {
+        for (int k = i; k < next; k++) {
+          if (counts[keyActors[k]] > 0) {
+            found.merge(keyActors[k], fewest[depth], Math::min);
+          }
+        }
+      }
+      i = next;
+    }
+  }
+
+  private static int commonPrefix(String a, String b) {
+    int length = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < length && a.charAt(i) == b.charAt(i)) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Index of the first key not less than the provided value
+   */
+  private int lowerBound(String value) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid].compareTo(value) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Index of the first key after those starting with the prefix
+   */
+  private int prefixEnd(String prefix) {
+    return lowerBound(prefix + Character.MAX_VALUE);
+  }
+
+  /**
+   * @return The value without accents, lower-cased, with runs of anything
+   *         but letters and digits replaced by a single space
+   */
+  static String normalize(String value) {
+    String stripped = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+    return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+  }
+
+  /**
+   * Accumulates the conflicts of each actor and builds an immutable
+   * {@link ActorSuggester}. Not thread-safe.
+   */
+  public static class Builder {
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> actors = new HashMap<>();
+    private long[] events = new long[64];
+    private final Map<String, long[]> eventsByCountry = new HashMap<>();
+
+    /**
+     * Count conflicts of an actor
+     *
+     * @param country
+     *          Country of the conflicts, null if unknown
+     */
+    public Builder add(String actor, String country, long conflicts) {
+      Integer code = actors.get(actor);
+      if (code == null) {
+        code = names.size();
+        names.add(actor);
+        actors.put(actor, code);
+        if (code == events.length) {
+          events = Arrays.copyOf(events, code * 2);
+        }
+      }
+      events[code] += conflicts;
+      if (country != null) {
+        long[] counts = eventsByCountry.get(country.toLowerCase(Locale.ROOT));
+        if (counts == null || counts.length <= code) {
+          counts = counts == null ? new long[events.length] : Arrays.copyOf(counts, events.length);
+          eventsByCountry.put(country.toLowerCase(Locale.ROOT), counts);
+        }
+        counts[code] += conflicts;
+      }
+      return this;
+    }
+
+    public ActorSuggester build() {
+      return new ActorSuggester(this);
+    }
+  }
+}
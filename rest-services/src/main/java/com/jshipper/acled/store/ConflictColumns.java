@@ -0,0 +1,802 @@
+package com.jshipper.acled.store;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+import com.jshipper.acled.model.ConflictMapPoint;
+
+/**
+ * Immutable, column-oriented copy of the ACLED dataset. Every attribute of
+ * {@link Conflict} is held in a primitive array indexed by row, string
+ * attributes are dictionary-encoded and rows are sorted by date, then id, so
+ * date ranges can be located with a binary search.
+ *
+ * @author jshipper
+ *
+ */
+public final class ConflictColumns {
+  /** Marker for a null integer value */
+  public static final int NULL_INT = Integer.MIN_VALUE;
+
+  private final int size;
+  private final long[] ids;
+  private final int[] dates;
+  private final int[] years;
+  private final int[] timePrecisions;
+  private final int[] eventTypes;
+  private final int[] actor1s;
+  private final int[] allyActor1s;
+  private final int[] inter1s;
+  private final int[] actor2s;
+  private final int[] allyActor2s;
+  private final int[] inter2s;
+  private final int[] interactions;
+  private final int[] countries;
+  private final int[] admin1s;
+  private final int[] admin2s;
+  private final int[] admin3s;
+  private final int[] locations;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final int[] geoPrecis;
+  private final int[] sources;
+  private final int[] fatalities;
+  private final int[] gwnos;
+  private final String[] eventIdCntys;
+
+  private final StringDictionary eventTypeDictionary;
+  private final StringDictionary actorDictionary;
+  private final StringDictionary countryDictionary;
+  private final StringDictionary adminDictionary;
+  private final StringDictionary locationDictionary;
+  private final StringDictionary sourceDictionary;
+
+  private ConflictColumns(Builder b, int[] order) {
+    size = order.length;
+    ids = new long[size];
+    dates = permute(b.dates, order);
+    years = permute(b.years, order);
+    timePrecisions = permute(b.timePrecisions, order);
+    eventTypes = permute(b.eventTypes, order);
+    actor1s = permute(b.actor1s, order);
+    allyActor1s = permute(b.allyActor1s, order);
+    inter1s = permute(b.inter1s, order);
+    actor2s = permute(b.actor2s, order);
+    allyActor2s = permute(b.allyActor2s, order);
+    inter2s = permute(b.inter2s, order);
+    interactions = permute(b.interactions, order);
+    countries = permute(b.countries, order);
+    admin1s = permute(b.admin1s, order);
+    admin2s = permute(b.admin2s, order);
+    admin3s = permute(b.admin3s, order);
+    locations = permute(b.locations, order);
+    latitudes = new double[size];
+    longitudes = new double[size];
+    geoPrecis = permute(b.geoPrecis, order);
+    sources = permute(b.sources, order);
+    fatalities = permute(b.fatalities, order);
+    gwnos = permute(b.gwnos, order);
+    eventIdCntys = new String[size];
+    for (int i = 0; i < size; i++) {
+      ids[i] = b.ids[order[i]];
+      latitudes[i] = b.latitudes[order[i]];
+      longitudes[i] = b.longitudes[order[i]];
+      eventIdCntys[i] = b.eventIdCntys[order[i]];
+    }
+    eventTypeDictionary = b.eventTypeDictionary;
+    actorDictionary = b.actorDictionary;
+    countryDictionary = b.countryDictionary;
+    adminDictionary = b.adminDictionary;
+    locationDictionary = b.locationDictionary;
+    sourceDictionary = b.sourceDictionary;
+  }
+
+  // Reads the columns in the order write saves them
+  private ConflictColumns(ConflictSnapshot.Input in) {
+    size = in.readInt();
+    ids = in.readLongs(size);
+    dates = in.readInts(size);
+    years = in.readInts(size);
+    timePrecisions = in.readInts(size);
+    eventTypes = in.readInts(size);
+    actor1s = in.readInts(size);
+    allyActor1s = in.readInts(size);
+    inter1s = in.readInts(size);
+    actor2s = in.readInts(size);
+    allyActor2s = in.readInts(size);
+    inter2s = in.readInts(size);
+    interactions = in.readInts(size);
+    countries = in.readInts(size);
+    admin1s = in.readInts(size);
+    admin2s = in.readInts(size);
+    admin3s = in.readInts(size);
+    locations = in.readInts(size);
+    latitudes = in.readDoubles(size);
+    longitudes = in.readDoubles(size);
+    geoPrecis = in.readInts(size);
+    sources = in.readInts(size);
+    fatalities = in.readInts(size);
+    gwnos = in.readInts(size);
+    eventIdCntys = in.readStrings(size);
+    eventTypeDictionary = StringDictionary.read(in);
+    actorDictionary = StringDictionary.read(in);
+    countryDictionary = StringDictionary.read(in);
+    adminDictionary = StringDictionary.read(in);
+    locationDictionary = StringDictionary.read(in);
+    sourceDictionary = StringDictionary.read(in);
+  }
+
+  /**
+   * Read columns saved by {@link #write(ConflictSnapshot.Output)}
+   */
+  static ConflictColumns read(ConflictSnapshot.Input in) {
+    return new ConflictColumns(in);
+  }
+
+  /**
+   * Save every column, in row order, and the dictionaries
+   */
+  void write(ConflictSnapshot.Output out) throws IOException {
+    out.writeInt(size);
+    out.writeLongs(ids);
+    out.writeInts(dates);
+    out.writeInts(years);
+    out.writeInts(timePrecisions);
+    out.writeInts(eventTypes);
+    out.writeInts(actor1s);
+    out.writeInts(allyActor1s);
+    out.writeInts(inter1s);
+    out.writeInts(actor2s);
+    out.writeInts(allyActor2s);
+    out.writeInts(inter2s);
+    out.writeInts(interactions);
+    out.writeInts(countries);
+    out.writeInts(admin1s);
+    out.writeInts(admin2s);
+    out.writeInts(admin3s);
+    out.writeInts(locations);
+    out.writeDoubles(latitudes);
+    out.writeDoubles(longitudes);
+    out.writeInts(geoPrecis);
+    out.writeInts(sources);
+    out.writeInts(fatalities);
+    out.writeInts(gwnos);
+    out.writeStrings(eventIdCntys);
+    eventTypeDictionary.write(out);
+    actorDictionary.write(out);
+    countryDictionary.write(out);
+    adminDictionary.write(out);
+    locationDictionary.write(out);
+    sourceDictionary.write(out);
+  }
+
+  private static int[] permute(int[] column, int[] order) {
+    int[] result = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = column[order[i]];
+    }
+    return result;
+  }
+
+  /**
+   * @return A store with no rows
+   */
+  public static ConflictColumns empty() {
+    return new Builder().build();
+  }
+
+  /**
+   * @return Number of rows
+   */
+  public int size() {
+    return size;
+  }
+
+  public long id(int row) {
+    return ids[row];
+  }
+
+  /**
+   * @return The row's date as an epoch day, {@link #NULL_INT} if unknown
+   */
+  public int date(int row) {
+    return dates[row];
+  }
+
+  public int fatalities(int row) {
+    return fatalities[row];
+  }
+
+  public double latitude(int row) {
+    return latitudes[row];
+  }
+
+  public double longitude(int row) {
+    return longitudes[row];
+  }
+
+  public int countryCode(int row) {
+    return countries[row];
+  }
+
+  public int actor1Code(int row) {
+    return actor1s[row];
+  }
+
+  public int actor2Code(int row) {
+    return actor2s[row];
+  }
+
+  public StringDictionary countryDictionary() {
+    return countryDictionary;
+  }
+
+  public StringDictionary actorDictionary() {
+    return actorDictionary;
+  }
+
+  /**
+   * Index of the first row whose date is on or after the given day
+   */
+  public int lowerBound(int day) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (dates[mid] < day) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Index of the first row whose date is after the given day
+   */
+  public int upperBound(int day) {
+    return day == Integer.MAX_VALUE ? size : lowerBound(day + 1);
+  }
+
+  /**
+   * Index of the first row that follows the provided date and id in the
+   * store's (date, id) ordering
+   */
+  public int rowAfter(int day, long id) {
+    int row = lowerBound(day);
+    int end = upperBound(day);
+    while (row < end && ids[row] <= id) {
+      row++;
+    }
+    return row;
+  }
+
+  /**
+   * Row of the conflict with the provided date and id, -1 if there is none
+   */
+  public int rowOf(int day, long id) {
+    int row = rowAfter(day, id - 1);
+    return row < size && dates[row] == day && ids[row] == id ? row : -1;
+  }
+
+  /**
+   * Select the rows that match all of the provided criteria. String criteria
+   * are matched ignoring case and an actor matches either actor column.
+   *
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @return Matching rows in date order
+   */
+  public int[] select(ConflictCriteria criteria) {
+    return select(criteria, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Select at most limit rows, starting at the provided row, that match all of
+   * the provided criteria
+   *
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param fromRow
+   *          First row to consider
+   * @param limit
+   *          Maximum number of rows to return
+   * @return Matching rows in date order
+   * @see #select(ConflictCriteria)
+   */
+  public int[] select(ConflictCriteria criteria, int fromRow, int limit) {
+    int from = fromRow;
+    int to = size;
+    if (criteria.getStartDate() != null) {
+      from = Math.max(from, lowerBound(toEpochDay(criteria.getStartDate())));
+    } else if (criteria.getEndDate() != null) {
+      from = Math.max(from, lowerBound(NULL_INT + 1));
+    }
+    if (criteria.getEndDate() != null) {
+      to = upperBound(toEpochDay(criteria.getEndDate()));
+    }
+    boolean[] countryMask = null;
+    if (criteria.getCountry() != null) {
+      countryMask = countryDictionary.matchIgnoreCase(criteria.getCountry());
+      if (countryMask == null) {
+        return new int[0];
+      }
+    }
+    boolean[] actor1Mask = null;
+    if (criteria.getActor1() != null) {
+      actor1Mask = actorDictionary.matchIgnoreCase(criteria.getActor1());
+      if (actor1Mask == null) {
+        return new int[0];
+      }
+    }
+    boolean[] actor2Mask = null;
+    if (criteria.getActor2() != null) {
+      actor2Mask = actorDictionary.matchIgnoreCase(criteria.getActor2());
+      if (actor2Mask == null) {
+        return new int[0];
+      }
+    }
+    boolean fatalityFilter =
+      criteria.getLowEnd() != null || criteria.getHighEnd() != null;
+    int lowEnd = criteria.getLowEnd() == null ? Integer.MIN_VALUE
+      : criteria.getLowEnd();
+    int highEnd = criteria.getHighEnd() == null ? Integer.MAX_VALUE
+      : criteria.getHighEnd();
+
+    int[] rows = new int[Math.max(Math.min(to - from, limit), 0)];
+    int count = 0;
+    for (int row = from; row < to && count < limit; row++) {
+      if (countryMask != null && !matches(countryMask, countries[row])) {
+        continue;
+      }
+      if (actor1Mask != null && !matches(actor1Mask, actor1s[row])
+        && !matches(actor1Mask, actor2s[row])) {
+        continue;
+      }
+      if (actor2Mask != null && !matches(actor2Mask, actor1s[row])
+        && !matches(actor2Mask, actor2s[row])) {
+        continue;
+      }
+      if (fatalityFilter) {
+        int f = fatalities[row];
+        if (f == NULL_INT || f < lowEnd || f > highEnd) {
+          continue;
+        }
+      }
+      rows[count++] = row;
+    }
+    return Arrays.copyOf(rows, count);
+  }
+
+  /**
+   * Select the rows whose fatalities are within the provided range
+   * (inclusive)
+   */
+  public int[] selectByFatalities(int lowEnd, int highEnd) {
+    int[] rows = new int[size];
+    int count = 0;
+    for (int row = 0; row < size; row++) {
+      int f = fatalities[row];
+      if (f != NULL_INT && f >= lowEnd && f <= highEnd) {
+        rows[count++] = row;
+      }
+    }
+    return Arrays.copyOf(rows, count);
+  }
+
+  private static boolean matches(boolean[] mask, int code) {
+    return code != StringDictionary.NULL_CODE && mask[code];
+  }
+
+  /**
+   * Materialize a row as a new (detached) conflict
+   */
+  public Conflict toConflict(int row) {
+    Conflict conflict = new Conflict();
+    conflict.setId(ids[row]);
+    conflict.setDate(dates[row] == NULL_INT ? null
+      : LocalDate.ofEpochDay(dates[row]));
+    conflict.setYear(toInteger(years[row]));
+    conflict.setTimePrecision(toInteger(timePrecisions[row]));
+    conflict.setEventType(eventTypeDictionary.decode(eventTypes[row]));
+    conflict.setActor1(actorDictionary.decode(actor1s[row]));
+    conflict.setAllyActor1(actorDictionary.decode(allyActor1s[row]));
+    conflict.setInter1(toInteger(inter1s[row]));
+    conflict.setActor2(actorDictionary.decode(actor2s[row]));
+    conflict.setAllyActor2(actorDictionary.decode(allyActor2s[row]));
+    conflict.setInter2(toInteger(inter2s[row]));
+    conflict.setInteraction(toInteger(interactions[row]));
+    conflict.setCountry(countryDictionary.decode(countries[row]));
+    conflict.setAdmin1(adminDictionary.decode(admin1s[row]));
+    conflict.setAdmin2(adminDictionary.decode(admin2s[row]));
+    conflict.setAdmin3(adminDictionary.decode(admin3s[row]));
+    conflict.setLocation(locationDictionary.decode(locations[row]));
+    conflict.setLatitude(Double.isNaN(latitudes[row]) ? null : latitudes[row]);
+    conflict
+      .setLongitude(Double.isNaN(longitudes[row]) ? null : longitudes[row]);
+    conflict.setGeoPrecis(toInteger(geoPrecis[row]));
+    conflict.setSource(sourceDictionary.decode(sources[row]));
+    conflict.setFatalities(toInteger(fatalities[row]));
+    conflict.setGwno(toInteger(gwnos[row]));
+    conflict.setEventIdCnty(eventIdCntys[row]);
+    return conflict;
+  }
+
+  /**
+   * Materialize the provided rows as new (detached) conflicts
+   */
+  public List<Conflict> toConflicts(int[] rows) {
+    List<Conflict> result = new ArrayList<>(rows.length);
+    for (int row : rows) {
+      result.add(toConflict(row));
+    }
+    return result;
+  }
+
+  /**
+   * Materialize every row as new (detached) conflicts
+   */
+  public List<Conflict> toConflicts() {
+    List<Conflict> result = new ArrayList<>(size);
+    for (int row = 0; row < size; row++) {
+      result.add(toConflict(row));
+    }
+    return result;
+  }
+
+  /**
+   * Materialize the provided rows as map points
+   */
+  public List<ConflictMapPoint> toMapPoints(int[] rows) {
+    List<ConflictMapPoint> result = new ArrayList<>(rows.length);
+    for (int row : rows) {
+      result.add(toMapPoint(row));
+    }
+    return result;
+  }
+
+  /**
+   * Materialize the provided row as a map point
+   */
+  public ConflictMapPoint toMapPoint(int row) {
+    return new ConflictMapPoint(ids[row],
+      dates[row] == NULL_INT ? null
+        : LocalDate.ofEpochDay(dates[row]),
+      Double.isNaN(latitudes[row]) ? null : latitudes[row],
+      Double.isNaN(longitudes[row]) ? null : longitudes[row],
+      toInteger(fatalities[row]), locationDictionary.decode(locations[row]),
+      actorDictionary.decode(actor1s[row]),
+      actorDictionary.decode(actor2s[row]));
+  }
+
+  private static Integer toInteger(int value) {
+    return value == NULL_INT ? null : value;
+  }
+
+  private static int fromInteger(Integer value) {
+    return value == null ? NULL_INT : value;
+  }
+
+  /**
+   * Convert a date to the epoch day stored in the date column
+   */
+  public static int toEpochDay(LocalDate date) {
+    return (int) date.toEpochDay();
+  }
+
+  /**
+   * Row that follows a keyset pagination cursor. Conflicts without a date,
+   * stored as {@link #NULL_INT}, come first as they do in the database.
+   */
+  public int rowAfter(ConflictCursor after) {
+    return rowAfter(after.getDate() == null ? NULL_INT : toEpochDay(after.getDate()), after.getId());
+  }
+
+  /**
+   * The rows of {@code ConflictRepository.getCountryActors()}, computed from
+   * the columns: (country, actor1, actor2, count)
+   */
+  public List<Object[]> getCountryActors() {
+    Map<Group, long[]> groups = new LinkedHashMap<>();
+    for (int row = 0; row < size; row++) {
+      groups.computeIfAbsent(new Group(countries[row], actor1s[row], actor2s[row]), g -> new long[1])[0]++;
+    }
+    List<Object[]> rows = new ArrayList<>(groups.size());
+    for (Map.Entry<Group, long[]> group : groups.entrySet()) {
+      int[] codes = group.getKey().codes;
+      rows.add(new Object[] { countryDictionary.decode(codes[0]), actorDictionary.decode(codes[1]),
+        actorDictionary.decode(codes[2]), group.getValue()[0] });
+    }
+    return rows;
+  }
+
+  /**
+   * The rows of {@code ConflictRepository.getDyads()}, computed from the
+   * columns: (actor1, actor2, country, date, fatalities, id) of the
+   * conflicts with both actors
+   */
+  public List<Object[]> getDyads() {
+    List<Object[]> rows = new ArrayList<>();
+    for (int row = 0; row < size; row++) {
+      if (actor1s[row] != StringDictionary.NULL_CODE && actor2s[row] != StringDictionary.NULL_CODE) {
+        rows.add(new Object[] { actorDictionary.decode(actor1s[row]), actorDictionary.decode(actor2s[row]),
+          countryDictionary.decode(countries[row]), toDate(dates[row]), toInteger(fatalities[row]), ids[row] });
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * The rows of {@code ConflictRepository.getLocations()}, computed from the
+   * columns: (id, date, latitude, longitude, fatalities, country, actor1,
+   * actor2, location) of the located conflicts
+   */
+  public List<Object[]> getLocations() {
+    List<Object[]> rows = new ArrayList<>();
+    for (int row = 0; row < size; row++) {
+      if (!Double.isNaN(latitudes[row]) && !Double.isNaN(longitudes[row])) {
+        rows.add(new Object[] { ids[row], toDate(dates[row]), latitudes[row], longitudes[row],
+          toInteger(fatalities[row]), countryDictionary.decode(countries[row]), actorDictionary.decode(actor1s[row]),
+          actorDictionary.decode(actor2s[row]), locationDictionary.decode(locations[row]) });
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * The rows of {@code ConflictRepository.getRollup()}, computed from the
+   * columns: (year, year of date, month of date, country, event type, count,
+   * sum of fatalities)
+   */
+  public List<Object[]> getRollup() {
+    return rollup(null, null);
+  }
+
+  /**
+   * The rows of {@code ConflictRepository.getActor1Rollup()}, computed from
+   * the columns: (year, year of date, month of date, country, event type,
+   * actor1, count, sum of fatalities)
+   */
+  public List<Object[]> getActor1Rollup() {
+    return rollup(actor1s, null);
+  }
+
+  /**
+   * The rows of {@code ConflictRepository.getActor2Rollup()}, computed from
+   * the columns: (year, year of date, month of date, country, event type,
+   * actor2, count, sum of fatalities), leaving out the conflicts whose actor2
+   * is also their actor1 ignoring case
+   */
+  public List<Object[]> getActor2Rollup() {
+    return rollup(actor2s, actor1s);
+  }
+
+  /**
+   * Count the rows and sum their fatalities by (year, year of date, month of
+   * date, country, event type), and actor if given
+   *
+   * @param actors
+   *          Actor column to group by as well, rows without actor are left
+   *          out; null to group without actor
+   * @param otherActors
+   *          Rows whose actor is also their actor in this column, ignoring
+   *          case, are left out; null to keep them
+   */
+  private List<Object[]> rollup(int[] actors, int[] otherActors) {
+    String[] lowerCaseActors = new String[actorDictionary.size()];
+    if (otherActors != null) {
+      for (int code = 0; code < lowerCaseActors.length; code++) {
+        lowerCaseActors[code] = actorDictionary.decode(code).toLowerCase(Locale.ROOT);
+      }
+    }
+    Map<Group, long[]> groups = new LinkedHashMap<>();
+    for (int row = 0; row < size; row++) {
+      int actor = StringDictionary.NULL_CODE;
+      if (actors != null) {
+        actor = actors[row];
+        if (actor == StringDictionary.NULL_CODE || otherActors != null
+          && otherActors[row] != StringDictionary.NULL_CODE
+          && lowerCaseActors[actor].equals(lowerCaseActors[otherActors[row]])) {
+          continue;
+        }
+      }
+      int dateYear = NULL_INT;
+      int month = NULL_INT;
+      if (dates[row] != NULL_INT) {
+        LocalDate date = LocalDate.ofEpochDay(dates[row]);
+        dateYear = date.getYear();
+        month = date.getMonthValue();
+      }
+      // Count, sum of fatalities, whether any fatalities are known
+      long[] group = groups.computeIfAbsent(
+        new Group(years[row], dateYear, month, countries[row], eventTypes[row], actor), g -> new long[3]);
+      group[0]++;
+      if (fatalities[row] != NULL_INT) {
+        group[1] += fatalities[row];
+        group[2] = 1;
+      }
+    }
+    List<Object[]> rows = new ArrayList<>(groups.size());
+    for (Map.Entry<Group, long[]> entry : groups.entrySet()) {
+      int[] codes = entry.getKey().codes;
+      long[] group = entry.getValue();
+      List<Object> row = new ArrayList<>(8);
+      row.add(toInteger(codes[0]));
+      row.add(toInteger(codes[1]));
+      row.add(toInteger(codes[2]));
+      row.add(countryDictionary.decode(codes[3]));
+      row.add(eventTypeDictionary.decode(codes[4]));
+      if (actors != null) {
+        row.add(actorDictionary.decode(codes[5]));
+      }
+      row.add(group[0]);
+      // SUM is null when no value is known
+      row.add(group[2] == 0 ? null : group[1]);
+      rows.add(row.toArray());
+    }
+    return rows;
+  }
+
+  private static LocalDate toDate(int day) {
+    return day == NULL_INT ? null : LocalDate.ofEpochDay(day);
+  }
+
+  /**
+   * Key of a group of rows, made of codes and values of their columns
+   */
+  private static final class Group {
+    private final int[] codes;
+    private final int hash;
+
+    Group(int... codes) {
+      this.codes = codes;
+      this.hash = Arrays.hashCode(codes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Group && Arrays.equals(codes, ((Group) obj).codes);
+    }
+  }
+
+  /**
+   * Accumulates conflicts and builds an immutable {@link ConflictColumns}.
+   * Not thread-safe.
+   */
+  public static class Builder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] dates = new int[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private int[] timePrecisions = new int[INITIAL_CAPACITY];
+    private int[] eventTypes = new int[INITIAL_CAPACITY];
+    private int[] actor1s = new int[INITIAL_CAPACITY];
+    private int[] allyActor1s = new int[INITIAL_CAPACITY];
+    private int[] inter1s = new int[INITIAL_CAPACITY];
+    private int[] actor2s = new int[INITIAL_CAPACITY];
+    private int[] allyActor2s = new int[INITIAL_CAPACITY];
+    private int[] inter2s = new int[INITIAL_CAPACITY];
+    private int[] interactions = new int[INITIAL_CAPACITY];
+    private int[] countries = new int[INITIAL_CAPACITY];
+    private int[] admin1s = new int[INITIAL_CAPACITY];
+    private int[] admin2s = new int[INITIAL_CAPACITY];
+    private int[] admin3s = new int[INITIAL_CAPACITY];
+    private int[] locations = new int[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private int[] geoPrecis = new int[INITIAL_CAPACITY];
+    private int[] sources = new int[INITIAL_CAPACITY];
+    private int[] fatalities = new int[INITIAL_CAPACITY];
+    private int[] gwnos = new int[INITIAL_CAPACITY];
+    private String[] eventIdCntys = new String[INITIAL_CAPACITY];
+
+    private final StringDictionary eventTypeDictionary = new StringDictionary();
+    private final StringDictionary actorDictionary = new StringDictionary();
+    private final StringDictionary countryDictionary = new StringDictionary();
+    private final StringDictionary adminDictionary = new StringDictionary();
+    private final StringDictionary locationDictionary = new StringDictionary();
+    private final StringDictionary sourceDictionary = new StringDictionary();
+
+    /**
+     * Add a conflict. The conflict is copied, no reference to it is kept.
+     */
+    public Builder add(Conflict conflict) {
+      if (size == ids.length) {
+        grow();
+      }
+      int i = size++;
+      ids[i] = conflict.getId();
+      dates[i] =
+        conflict.getDate() == null ? NULL_INT : toEpochDay(conflict.getDate());
+      years[i] = fromInteger(conflict.getYear());
+      timePrecisions[i] = fromInteger(conflict.getTimePrecision());
+      eventTypes[i] = eventTypeDictionary.encode(conflict.getEventType());
+      actor1s[i] = actorDictionary.encode(conflict.getActor1());
+      allyActor1s[i] = actorDictionary.encode(conflict.getAllyActor1());
+      inter1s[i] = fromInteger(conflict.getInter1());
+      actor2s[i] = actorDictionary.encode(conflict.getActor2());
+      allyActor2s[i] = actorDictionary.encode(conflict.getAllyActor2());
+      inter2s[i] = fromInteger(conflict.getInter2());
+      interactions[i] = fromInteger(conflict.getInteraction());
+      countries[i] = countryDictionary.encode(conflict.getCountry());
+      admin1s[i] = adminDictionary.encode(conflict.getAdmin1());
+      admin2s[i] = adminDictionary.encode(conflict.getAdmin2());
+      admin3s[i] = adminDictionary.encode(conflict.getAdmin3());
+      locations[i] = locationDictionary.encode(conflict.getLocation());
+      latitudes[i] = conflict.getLatitude() == null ? Double.NaN
+        : conflict.getLatitude();
+      longitudes[i] = conflict.getLongitude() == null ? Double.NaN
+        : conflict.getLongitude();
+      geoPrecis[i] = fromInteger(conflict.getGeoPrecis());
+      sources[i] = sourceDictionary.encode(conflict.getSource());
+      fatalities[i] = fromInteger(conflict.getFatalities());
+      gwnos[i] = fromInteger(conflict.getGwno());
+      eventIdCntys[i] = conflict.getEventIdCnty();
+      return this;
+    }
+
+    private void grow() {
+      int capacity = ids.length * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      dates = Arrays.copyOf(dates, capacity);
+      years = Arrays.copyOf(years, capacity);
+      timePrecisions = Arrays.copyOf(timePrecisions, capacity);
+      eventTypes = Arrays.copyOf(eventTypes, capacity);
+      actor1s = Arrays.copyOf(actor1s, capacity);
+      allyActor1s = Arrays.copyOf(allyActor1s, capacity);
+      inter1s = Arrays.copyOf(inter1s, capacity);
+      actor2s = Arrays.copyOf(actor2s, capacity);
+      allyActor2s = Arrays.copyOf(allyActor2s, capacity);
+      inter2s = Arrays.copyOf(inter2s, capacity);
+      interactions = Arrays.copyOf(interactions, capacity);
+      countries = Arrays.copyOf(countries, capacity);
+      admin1s = Arrays.copyOf(admin1s, capacity);
+      admin2s = Arrays.copyOf(admin2s, capacity);
+      admin3s = Arrays.copyOf(admin3s, capacity);
+      locations = Arrays.copyOf(locations, capacity);
+      latitudes = Arrays.copyOf(latitudes, capacity);
+      longitudes = Arrays.copyOf(longitudes, capacity);
+      geoPrecis = Arrays.copyOf(geoPrecis, capacity);
+      sources = Arrays.copyOf(sources, capacity);
+      fatalities = Arrays.copyOf(fatalities, capacity);
+      gwnos = Arrays.copyOf(gwnos, capacity);
+      eventIdCntys = Arrays.copyOf(eventIdCntys, capacity);
+    }
+
+    /**
+     * Sort the accumulated rows by date, then id, and build the store
+     */
+    public ConflictColumns build() {
+      List<Integer> order = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        order.add(i);
+      }
+      Collections.sort(order, Comparator.<Integer> comparingInt(i -> dates[i])
+        .thenComparingLong(i -> ids[i]));
+      int[] sorted = new int[size];
+      for (int i = 0; i < size; i++) {
+        sorted[i] = order.get(i);
+      }
+      return new ConflictColumns(this, sorted);
+    }
+  }
+}
@@ -0,0 +1,374 @@
+package com.jshipper.acled.store;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.model.DatasetVersion;
+
+/**
+ * Saves the {@link ConflictColumns} of a dataset version to the file
+ * {@code acled.snapshot.file} and loads them back, so that a restart does not
+ * read the whole Conflict table again. No file is used when the property is
+ * empty.
+ * <p>
+ * The file holds the columns as they are in memory, little-endian, after a
+ * header of a magic number, the format version, the length and the CRC32 of
+ * the rest of the file. The rest starts with the dataset version, its load
+ * time and row count, so that the version can be served while the database
+ * is unreachable. Loading memory-maps the file and copies each column out of
+ * it with one bulk get; a snapshot of another dataset version or format, or
+ * whose checksum does not match, is ignored. Snapshots are written to a temporary file moved over the
+ * previous one, so a crash never leaves a partial snapshot behind.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class ConflictSnapshot {
+  private static final Logger LOG = LoggerFactory.getLogger(ConflictSnapshot.class);
+
+  /** "ACLEDCOL" */
+  static final long MAGIC = 0x4143_4C45_4443_4F4CL;
+  /** Incremented on every change of the layout */
+  static final int FORMAT_VERSION = 2;
+  // Magic, format version, payload length, payload CRC32
+  static final int HEADER_SIZE = 8 + 4 + 8 + 8;
+
+  private final Path file;
+
+  @Inject
+  public ConflictSnapshot(@Value("${acled.snapshot.file:}") String file) {
+    this.file = file.isEmpty() ? null : Paths.get(file);
+  }
+
+  /**
+   * @return Whether snapshots are saved and loaded
+   */
+  public boolean isEnabled() {
+    return file != null;
+  }
+
+  /**
+   * Load the snapshot of a dataset version
+   *
+   * @param datasetVersion
+   *          Version of the data in the Conflict table
+   * @return The columns, null if there is no usable snapshot of that version
+   */
+  public ConflictColumns read(String datasetVersion) {
+    if (file == null) {
+      return null;
+    }
+    long start = System.currentTimeMillis();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = map(channel);
+      if (buffer == null) {
+        return null;
+      }
+      Input in = new Input(buffer);
+      String version = readVersion(in).getVersion();
+      if (!datasetVersion.equals(version)) {
+        LOG.info("Ignoring snapshot {}: dataset {}, now serving {}", file, version, datasetVersion);
+        return null;
+      }
+      CRC32 crc = new CRC32();
+      crc.update((ByteBuffer) buffer.duplicate().position(HEADER_SIZE));
+      if (crc.getValue() != buffer.getLong(HEADER_SIZE - 8)) {
+        LOG.warn("Ignoring snapshot {}: checksum mismatch", file);
+        return null;
+      }
+      ConflictColumns columns = ConflictColumns.read(in);
+      LOG.info("Loaded {} conflicts from snapshot {} in {} ms", columns.size(), file,
+        System.currentTimeMillis() - start);
+      return columns;
+    } catch (NoSuchFileException e) {
+      LOG.info("No snapshot {}", file);
+      return null;
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      LOG.warn("Ignoring snapshot {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Read the dataset version of the snapshot, without checking the columns
+   *
+   * @return The version the snapshot was saved with, null if there is no
+   *         snapshot of the current format
+   */
+  public DatasetVersion readVersion() {
+    if (file == null) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer buffer = map(channel);
+      return buffer == null ? null : readVersion(new Input(buffer));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      LOG.warn("Ignoring snapshot {}", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Map the file and check its header
+   *
+   * @return The file, positioned at the payload; null if it is not a
+   *         complete snapshot of the current format
+   */
+  private ByteBuffer map(FileChannel channel) throws IOException {
+    long length = channel.size();
+    if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+      LOG.warn("Ignoring snapshot {}: unexpected size of {} bytes", file, length);
+      return null;
+    }
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length)
+      .order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getLong() != MAGIC) {
+      LOG.warn("Ignoring snapshot {}: not a snapshot", file);
+      return null;
+    }
+    int format = buffer.getInt();
+    if (format != FORMAT_VERSION) {
+      LOG.info("Ignoring snapshot {}: format {}, expected {}", file, format, FORMAT_VERSION);
+      return null;
+    }
+    long payloadLength = buffer.getLong();
+    // Checksum, read once the version matches
+    buffer.getLong();
+    if (payloadLength != length - HEADER_SIZE) {
+      LOG.warn("Ignoring snapshot {}: truncated", file);
+      return null;
+    }
+    return buffer;
+  }
+
+  private static DatasetVersion readVersion(Input in) {
+    String version = in.readString();
+    long loadedAt = in.readLong();
+    long rowCount = in.readLong();
+    if (version == null) {
+      throw new IllegalArgumentException("No dataset version");
+    }
+    return new DatasetVersion(version, loadedAt < 0 ? null : new Date(loadedAt), rowCount < 0 ? null : rowCount);
+  }
+
+  /**
+   * Save the columns of a dataset version, replacing the previous snapshot.
+   * Failures are logged: the next start reads the database instead.
+   *
+   * @param datasetVersion
+   *          Version of the data the columns were loaded from
+   */
+  public void write(ConflictColumns columns, DatasetVersion datasetVersion) {
+    if (file == null) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+        Output out = new Output(channel.position(HEADER_SIZE));
+        out.writeString(datasetVersion.getVersion());
+        out.writeLong(datasetVersion.getLoadedAt() == null ? -1 : datasetVersion.getLoadedAt().getTime());
+        out.writeLong(datasetVersion.getRowCount() == null ? -1 : datasetVersion.getRowCount());
+        columns.write(out);
+        out.flush();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(MAGIC).putInt(FORMAT_VERSION).putLong(channel.size() - HEADER_SIZE)
+          .putLong(out.crc.getValue()).flip();
+        while (header.hasRemaining()) {
+          channel.write(header, header.position());
+        }
+        channel.force(false);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Wrote snapshot of {} conflicts to {} in {} ms ({} bytes)", columns.size(), file,
+        System.currentTimeMillis() - start, Files.size(file));
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Could not write snapshot {}", file, e);
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException ignored) {
+        // Overwritten by the next snapshot
+      }
+    }
+  }
+
+  /**
+   * Buffered, checksummed writes of the payload
+   */
+  static final class Output {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    Output(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void writeInt(int value) throws IOException {
+      ensure(4);
+      buffer.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+      ensure(8);
+      buffer.putLong(value);
+    }
+
+    void writeInts(int[] values) throws IOException {
+      for (int value : values) {
+        ensure(4);
+        buffer.putInt(value);
+      }
+    }
+
+    void writeLongs(long[] values) throws IOException {
+      for (long value : values) {
+        ensure(8);
+        buffer.putLong(value);
+      }
+    }
+
+    void writeDoubles(double[] values) throws IOException {
+      for (double value : values) {
+        ensure(8);
+        buffer.putDouble(value);
+      }
+    }
+
+    /**
+     * Length in bytes, -1 for null, then the UTF-8 bytes
+     */
+    void writeString(String value) throws IOException {
+      if (value == null) {
+        writeInt(-1);
+        return;
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeInt(bytes.length);
+      int offset = 0;
+      while (offset < bytes.length) {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        int length = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.put(bytes, offset, length);
+        offset += length;
+      }
+    }
+
+    void writeStrings(String[] values) throws IOException {
+      for (String value : values) {
+        writeString(value);
+      }
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      crc.update(buffer.array(), 0, buffer.limit());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Reads of the payload from the mapped file
+   */
+  static final class Input {
+    private final ByteBuffer buffer;
+
+    Input(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    int readInt() {
+      return buffer.getInt();
+    }
+
+    long readLong() {
+      return buffer.getLong();
+    }
+
+    int[] readInts(int count) {
+      int[] values = new int[checkCount(count, 4)];
+      buffer.asIntBuffer().get(values);
+      skip(count * 4L);
+      return values;
+    }
+
+    long[] readLongs(int count) {
+      long[] values = new long[checkCount(count, 8)];
+      buffer.asLongBuffer().get(values);
+      skip(count * 8L);
+      return values;
+    }
+
+    double[] readDoubles(int count) {
+      double[] values = new double[checkCount(count, 8)];
+      buffer.asDoubleBuffer().get(values);
+      skip(count * 8L);
+      return values;
+    }
+
+    String readString() {
+      int length = buffer.getInt();
+      if (length == -1) {
+        return null;
+      }
+      byte[] bytes = new byte[checkCount(length, 1)];
+      buffer.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    String[] readStrings(int count) {
+      String[] values = new String[checkCount(count, 4)];
+      for (int i = 0; i < count; i++) {
+        values[i] = readString();
+      }
+      return values;
+    }
+
+    // Checked before allocating, so that a corrupt count cannot exhaust the heap
+    private int checkCount(int count, int bytes) {
+      if (count < 0 || (long) count * bytes > buffer.remaining()) {
+        throw new BufferUnderflowException();
+      }
+      return count;
+    }
+
+    private void skip(long bytes) {
+      buffer.position(buffer.position() + (int) bytes);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.jshipper.acled.store;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.dataset.DatasetReloadedEvent;
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.model.DatasetVersion;
+import com.jshipper.acled.service.ConflictServiceImpl;
+
+/**
+ * Holds the current in-memory, columnar copy of the Conflict table. The copy
+ * is loaded on first use and rebuilt when the dataset is reloaded; readers
+ * keep using the previous copy until the new one is swapped in, so they
+ * always see a consistent snapshot. The copy is read from the
+ * {@link ConflictSnapshot} when it holds the dataset version being served,
+ * from the database otherwise, and then saved as the new snapshot.
+ * <p>
+ * With the memory implementation, the other stores are built from this copy
+ * rather than from the database: it is rebuilt before they are.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class ConflictStore {
+  private static final Logger LOG = LoggerFactory.getLogger(ConflictStore.class);
+
+  private final ConflictRepository dao;
+  private final DatasetService datasetService;
+  private final ConflictSnapshot snapshot;
+  private final boolean serving;
+  private volatile ConflictColumns columns;
+
+  @Inject
+  public ConflictStore(ConflictRepository dao, DatasetService datasetService, ConflictSnapshot snapshot,
+    @Value("${" + ConflictServiceImpl.IMPLEMENTATION_PROPERTY + ":jpa}") String implementation) {
+    this.dao = dao;
+    this.datasetService = datasetService;
+    this.snapshot = snapshot;
+    this.serving = "memory".equals(implementation);
+  }
+
+  /**
+   * @return Whether queries are answered from this copy, with the memory
+   *         implementation, rather than from the database
+   */
+  public boolean isServing() {
+    return serving;
+  }
+
+  /**
+   * Get the current snapshot, loading it from the database if needed
+   *
+   * @return The current snapshot
+   */
+  public ConflictColumns get() {
+    ConflictColumns result = columns;
+    if (result == null) {
+      synchronized (this) {
+        result = columns;
+        if (result == null) {
+          result = load(datasetService.getVersion());
+          columns = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Rebuild the snapshot, if one was loaded, from the new dataset. Runs
+   * before the other listeners, which may build their stores from it.
+   */
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onDatasetReloaded(DatasetReloadedEvent event) {
+    synchronized (this) {
+      if (columns != null) {
+        columns = load(event.getVersion());
+      }
+    }
+  }
+
+  private ConflictColumns load(DatasetVersion version) {
+    ConflictColumns result = snapshot.read(version.getVersion());
+    if (result == null) {
+      result = loadFromDatabase();
+      // A change during the load leaves the snapshot with the older version, to be ignored by the next start
+      snapshot.write(result, version);
+    }
+    return result;
+  }
+
+  private ConflictColumns loadFromDatabase() {
+    long start = System.currentTimeMillis();
+    ConflictColumns.Builder builder = new ConflictColumns.Builder();
+    // Each conflict is dropped once copied into the columns
+    dao.forEachStateless(builder::add);
+    ConflictColumns result = builder.build();
+    LOG.info("Loaded {} conflicts into columnar store in {} ms", result.size(),
+      System.currentTimeMillis() - start);
+    return result;
+  }
+}
@@ -0,0 +1,166 @@
+package com.jshipper.acled.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.dataset.DatasetReloadedEvent;
+import com.jshipper.acled.model.ActorSuggestion;
+
+/**
+ * Sorted, deduplicated values of the country and actor dimensions, built once
+ * per dataset version from a single GROUP BY query, or from the columns of
+ * the {@link ConflictStore} when it is serving, and served from memory,
+ * along with the {@link ActorSuggester} completing actor names. Actors
+ * include both actor1 and actor2; countries are matched ignoring case.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class DimensionDictionary {
+  private static final Logger LOG = LoggerFactory.getLogger(DimensionDictionary.class);
+
+  private final ConflictRepository dao;
+  private final ConflictStore conflicts;
+  private volatile Dimensions dimensions;
+
+  @Inject
+  public DimensionDictionary(ConflictRepository dao, ConflictStore conflicts) {
+    this.dao = dao;
+    this.conflicts = conflicts;
+  }
+
+  /**
+   * @return All countries, sorted
+   */
+  public List<String> getCountries() {
+    return get().countries;
+  }
+
+  /**
+   * @return All actors, as actor1 or actor2, sorted
+   */
+  public List<String> getActors() {
+    return get().actors;
+  }
+
+  /**
+   * @param country
+   *          Country's name, ignoring case
+   * @return The actors of the country's conflicts, sorted, empty list if the
+   *         country is unknown
+   */
+  public List<String> getActorsByCountry(String country) {
+    List<String> actors = get().actorsByCountry.get(country.toLowerCase(Locale.ROOT));
+    return actors == null ? Collections.<String> emptyList() : actors;
+  }
+
+  /**
+   * Suggest the actors completing a prefix, see
+   * {@link ActorSuggester#suggest(String, String, int)}
+   */
+  public List<ActorSuggestion> suggestActors(String prefix, String country, int limit) {
+    return get().suggester.suggest(prefix, country, limit);
+  }
+
+  /**
+   * Discard the dictionaries, they are rebuilt from the new dataset on next use
+   */
+  @EventListener
+  public synchronized void onDatasetReloaded(DatasetReloadedEvent event) {
+    dimensions = null;
+  }
+
+  private Dimensions get() {
+    Dimensions result = dimensions;
+    if (result == null) {
+      synchronized (this) {
+        result = dimensions;
+        if (result == null) {
+          result = load();
+          dimensions = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private Dimensions load() {
+    long start = System.currentTimeMillis();
+    SortedSet<String> countries = new TreeSet<>();
+    SortedSet<String> actors = new TreeSet<>();
+    Map<String, SortedSet<String>> actorsByCountry = new HashMap<>();
+    ActorSuggester.Builder suggester = new ActorSuggester.Builder();
+    ConflictColumns columns = conflicts.isServing() ? conflicts.get() : null;
+    for (Object[] row : columns != null ? columns.getCountryActors() : dao.getCountryActors()) {
+      String country = (String) row[0];
+      long conflicts = (Long) row[3];
+      SortedSet<String> countryActors = null;
+      if (!isBlank(country)) {
+        countries.add(country);
+        countryActors = actorsByCountry.computeIfAbsent(country.toLowerCase(Locale.ROOT),
+          c -> new TreeSet<>());
+      }
+      for (int i = 1; i <= 2; i++) {
+        String actor = (String) row[i];
+        if (isBlank(actor)) {
+          continue;
+        }
+        actors.add(actor);
+        if (countryActors != null) {
+          countryActors.add(actor);
+        }
+        // A conflict between an actor and itself is counted once
+        if (i == 1 || !actor.equals(row[1])) {
+          suggester.add(actor, isBlank(country) ? null : country, conflicts);
+        }
+      }
+    }
+    Map<String, List<String>> actorLists = new HashMap<>();
+    for (Map.Entry<String, SortedSet<String>> entry : actorsByCountry.entrySet()) {
+      actorLists.put(entry.getKey(), unmodifiableList(entry.getValue()));
+    }
+    Dimensions result = new Dimensions(unmodifiableList(countries), unmodifiableList(actors), actorLists,
+      suggester.build());
+    LOG.info("Loaded {} countries and {} actors in {} ms", countries.size(), actors.size(),
+      System.currentTimeMillis() - start);
+    return result;
+  }
+
+  private static boolean isBlank(String value) {
+    return value == null || value.trim().isEmpty();
+  }
+
+  private static List<String> unmodifiableList(SortedSet<String> values) {
+    return Collections.unmodifiableList(new ArrayList<>(values));
+  }
+
+  private static class Dimensions {
+    private final List<String> countries;
+    private final List<String> actors;
+    private final Map<String, List<String>> actorsByCountry;
+    private final ActorSuggester suggester;
+
+    Dimensions(List<String> countries, List<String> actors,
+      Map<String, List<String>> actorsByCountry, ActorSuggester suggester) {
+      this.countries = countries;
+      this.actors = actors;
+      this.actorsByCountry = actorsByCountry;
+      this.suggester = suggester;
+    }
+  }
+}
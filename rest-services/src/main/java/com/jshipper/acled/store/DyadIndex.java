@@ -0,0 +1,445 @@
+package com.jshipper.acled.store;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.jshipper.acled.model.ConflictNetwork;
+
+/**
+ * Adjacency index of the pairs of actors (dyads) that fought each other. Each
+ * entry is an unordered pair of actors in one country and holds the entry's
+ * conflicts sorted by date, with a running sum of fatalities, so that the
+ * totals of a dyad over any date window take two binary searches. Entries are
+ * also indexed by actor.
+ *
+ * Conflicts are referred to by event number, see {@link #id(int)} and
+ * {@link #day(int)}.
+ *
+ * @author jshipper
+ *
+ */
+public class DyadIndex {
+  private final StringDictionary actorDictionary;
+  private final StringDictionary countryDictionary;
+  // Per entry: actor codes (actorAs <= actorBs) and country code
+  private final int[] actorAs;
+  private final int[] actorBs;
+  private final int[] countries;
+  // Events of entry e are at [starts[e], starts[e + 1])
+  private final int[] starts;
+  // Per event
+  private final int[] days;
+  private final long[] ids;
+  // fatalitySums[i] is the sum of fatalities of events [0, i)
+  private final long[] fatalitySums;
+  // Entries of actor code a are entries[entryStarts[a] .. entryStarts[a + 1])
+  private final int[] entryStarts;
+  private final int[] entries;
+
+  private DyadIndex(Builder b, Integer[] order) {
+    actorDictionary = b.actorDictionary;
+    countryDictionary = b.countryDictionary;
+    days = new int[b.size];
+    ids = new long[b.size];
+    fatalitySums = new long[b.size + 1];
+    List<Integer> entryFirstEvents = new ArrayList<>();
+    for (int i = 0; i < b.size; i++) {
+      int event = order[i];
+      days[i] = b.days[event];
+      ids[i] = b.ids[event];
+      fatalitySums[i + 1] = fatalitySums[i] + b.fatalities[event];
+      if (i == 0 || Builder.compareEntry(b, order[i - 1], event) != 0) {
+        entryFirstEvents.add(i);
+      }
+    }
+    int entryCount = entryFirstEvents.size();
+    actorAs = new int[entryCount];
+    actorBs = new int[entryCount];
+    countries = new int[entryCount];
+    starts = new int[entryCount + 1];
+    for (int e = 0; e < entryCount; e++) {
+      int event = order[entryFirstEvents.get(e)];
+      actorAs[e] = b.actorAs[event];
+      actorBs[e] = b.actorBs[event];
+      countries[e] = b.countries[event];
+      starts[e] = entryFirstEvents.get(e);
+    }
+    starts[entryCount] = b.size;
+    entryStarts = new int[actorDictionary.size() + 1];
+    for (int e = 0; e < entryCount; e++) {
+      entryStarts[actorAs[e] + 1]++;
+      if (actorBs[e] != actorAs[e]) {
+        entryStarts[actorBs[e] + 1]++;
+      }
+    }
+    for (int a = 0; a < actorDictionary.size(); a++) {
+      entryStarts[a + 1] += entryStarts[a];
+    }
+    entries = new int[entryStarts[actorDictionary.size()]];
+    int[] next = Arrays.copyOf(entryStarts, actorDictionary.size());
+    for (int e = 0; e < entryCount; e++) {
+      entries[next[actorAs[e]]++] = e;
+      if (actorBs[e] != actorAs[e]) {
+        entries[next[actorBs[e]]++] = e;
+      }
+    }
+  }
+
+  /**
+   * @return Number of dyads per country
+   */
+  public int size() {
+    return actorAs.length;
+  }
+
+  /**
+   * @return Id of a conflict
+   */
+  public long id(int event) {
+    return ids[event];
+  }
+
+  /**
+   * @return Epoch day of a conflict, {@link ConflictColumns#NULL_INT} if it
+   *         has no date
+   */
+  public int day(int event) {
+    return days[event];
+  }
+
+  /**
+   * Select the conflicts whose actor1 and actor2 are both one of the provided
+   * actors, matched ignoring case
+   *
+   * @return Events of the matching conflicts
+   */
+  public int[] selectByActors(String actor1, String actor2) {
+    boolean[] mask1 = actorDictionary.matchIgnoreCase(actor1);
+    boolean[] mask2 = actorDictionary.matchIgnoreCase(actor2);
+    if (mask1 == null && mask2 == null) {
+      return new int[0];
+    }
+    boolean[] mask = new boolean[actorDictionary.size()];
+    for (int i = 0; i < mask.length; i++) {
+      mask[i] = (mask1 != null && mask1[i]) || (mask2 != null && mask2[i]);
+    }
+    int[] events = new int[0];
+    int count = 0;
+    for (int a = 0; a < mask.length; a++) {
+      if (!mask[a]) {
+        continue;
+      }
+      for (int i = entryStarts[a]; i < entryStarts[a + 1]; i++) {
+        int e = entries[i];
+        // Both actors are in the mask, only take the entry from its first actor
+        if (actorAs[e] != a || !mask[actorBs[e]]) {
+          continue;
+        }
+        int length = starts[e + 1] - starts[e];
+        if (count + length > events.length) {
+          events = Arrays.copyOf(events, Math.max(events.length * 2, count + length));
+        }
+        for (int event = starts[e]; event < starts[e + 1]; event++) {
+          events[count++] = event;
+        }
+      }
+    }
+    return Arrays.copyOf(events, count);
+  }
+
+  /**
+   * Build the graph of the dyads that match all provided filters
+   *
+   * @param startDate
+   *          First day to include, null for no lower bound
+   * @param endDate
+   *          Last day to include, null for no upper bound
+   * @param country
+   *          Country to match ignoring case, null for all
+   * @param actor
+   *          Only include the dyads of this actor, matched ignoring case, null
+   *          for all
+   * @param minEvents
+   *          Minimum number of conflicts of an edge
+   * @param limit
+   *          Maximum number of edges, those with the most conflicts are kept
+   * @return The graph, edges and nodes by decreasing number of conflicts
+   */
+  public ConflictNetwork network(LocalDate startDate, LocalDate endDate, String country, String actor,
+    int minEvents, int limit) {
+    ConflictNetwork network = new ConflictNetwork();
+    boolean[] countryMask = null;
+    if (country != null && (countryMask = countryDictionary.matchIgnoreCase(country)) == null) {
+      return network;
+    }
+    int startDay = startDate == null ? ConflictColumns.NULL_INT + 1 : ConflictColumns.toEpochDay(startDate);
+    int endDay = endDate == null ? Integer.MAX_VALUE : ConflictColumns.toEpochDay(endDate);
+    boolean dated = startDate != null || endDate != null;
+    Edges edges = new Edges();
+    if (actor == null) {
+      // Entries are sorted by actor pair, so the entries of a pair are added in a row
+      for (int e = 0; e < actorAs.length; e++) {
+        addEntry(e, countryMask, dated, startDay, endDay, edges);
+      }
+    } else {
+      boolean[] actorMask = actorDictionary.matchIgnoreCase(actor);
+      if (actorMask == null) {
+        return network;
+      }
+      int matchedActors = 0;
+      for (int a = 0; a < actorMask.length; a++) {
+        if (!actorMask[a]) {
+          continue;
+        }
+        matchedActors++;
+        for (int i = entryStarts[a]; i < entryStarts[a + 1]; i++) {
+          int e = entries[i];
+          // Take an entry whose two actors match only once
+          if (actorAs[e] == a || !actorMask[actorAs[e]]) {
+            addEntry(e, countryMask, dated, startDay, endDay, edges);
+          }
+        }
+      }
+      if (matchedActors > 1) {
+        // Entries of several actors are not sorted by pair, the same pair may
+        // have been added more than once
+        edges = edges.merged();
+      }
+    }
+    Map<Integer, long[]> nodes = new HashMap<>();
+    for (int edge : edges.top(minEvents, limit)) {
+      network.getEdges().add(toEdge(edges, edge));
+      addNode(nodes, edges.actorAs[edge], edges, edge);
+      if (edges.actorBs[edge] != edges.actorAs[edge]) {
+        addNode(nodes, edges.actorBs[edge], edges, edge);
+      }
+    }
+    List<Map.Entry<Integer, long[]>> sortedNodes = new ArrayList<>(nodes.entrySet());
+    sortedNodes.sort(Comparator.<Map.Entry<Integer, long[]>> comparingLong(node -> -node.getValue()[0])
+      .thenComparingLong(node -> -node.getValue()[1]));
+    for (Map.Entry<Integer, long[]> node : sortedNodes) {
+      ConflictNetwork.Node n = new ConflictNetwork.Node();
+      n.setActor(actorDictionary.decode(node.getKey()));
+      n.setEvents(node.getValue()[0]);
+      n.setFatalities(node.getValue()[1]);
+      network.getNodes().add(n);
+    }
+    return network;
+  }
+
+  private void addEntry(int e, boolean[] countryMask, boolean dated, int startDay, int endDay,
+    Edges edges) {
+    if (countryMask != null && (countries[e] == StringDictionary.NULL_CODE || !countryMask[countries[e]])) {
+      return;
+    }
+    int from = dated ? lowerBound(starts[e], starts[e + 1], startDay) : starts[e];
+    int to = dated ? lowerBound(from, starts[e + 1], endDay == Integer.MAX_VALUE ? endDay : endDay + 1)
+      : starts[e + 1];
+    if (from == to) {
+      return;
+    }
+    // Events without date sort first, they have no first day
+    int firstDated = days[from] == ConflictColumns.NULL_INT
+      ? lowerBound(from, to, ConflictColumns.NULL_INT + 1) : from;
+    edges.add(actorAs[e], actorBs[e], to - from, fatalitySums[to] - fatalitySums[from],
+      firstDated < to ? days[firstDated] : Integer.MAX_VALUE,
+      firstDated < to ? days[to - 1] : Integer.MIN_VALUE);
+  }
+
+  private int lowerBound(int low, int high, int day) {
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (days[mid] < day) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private ConflictNetwork.Edge toEdge(Edges edges, int i) {
+    ConflictNetwork.Edge edge = new ConflictNetwork.Edge();
+    edge.setSource(actorDictionary.decode(edges.actorAs[i]));
+    edge.setTarget(actorDictionary.decode(edges.actorBs[i]));
+    edge.setEvents(edges.events[i]);
+    edge.setFatalities(edges.fatalities[i]);
+    if (edges.firstDays[i] != Integer.MAX_VALUE) {
+      edge.setFirstDate(LocalDate.ofEpochDay(edges.firstDays[i]).toString());
+      edge.setLastDate(LocalDate.ofEpochDay(edges.lastDays[i]).toString());
+    }
+    return edge;
+  }
+
+  private static void addNode(Map<Integer, long[]> nodes, int actor, Edges edges, int edge) {
+    long[] node = nodes.get(actor);
+    if (node == null) {
+      node = new long[2];
+      nodes.put(actor, node);
+    }
+    node[0] += edges.events[edge];
+    node[1] += edges.fatalities[edge];
+  }
+
+  /**
+   * Totals per actor pair of a network query. Adding the same pair as the
+   * previous one adds to its totals.
+   */
+  private static final class Edges {
+    private int size;
+    private int[] actorAs = new int[256];
+    private int[] actorBs = new int[256];
+    private long[] events = new long[256];
+    private long[] fatalities = new long[256];
+    private int[] firstDays = new int[256];
+    private int[] lastDays = new int[256];
+
+    void add(int a, int b, long eventCount, long fatalitySum, int firstDay, int lastDay) {
+      int last = size - 1;
+      if (last >= 0 && actorAs[last] == a && actorBs[last] == b) {
+        events[last] += eventCount;
+        fatalities[last] += fatalitySum;
+        firstDays[last] = Math.min(firstDays[last], firstDay);
+        lastDays[last] = Math.max(lastDays[last], lastDay);
+        return;
+      }
+      if (size == actorAs.length) {
+        int capacity = size * 2;
+        actorAs = Arrays.copyOf(actorAs, capacity);
+        actorBs = Arrays.copyOf(actorBs, capacity);
+        events = Arrays.copyOf(events, capacity);
+        fatalities = Arrays.copyOf(fatalities, capacity);
+        firstDays = Arrays.copyOf(firstDays, capacity);
+        lastDays = Arrays.copyOf(lastDays, capacity);
+      }
+      actorAs[size] = a;
+      actorBs[size] = b;
+      events[size] = eventCount;
+      fatalities[size] = fatalitySum;
+      firstDays[size] = firstDay;
+      lastDays[size] = lastDay;
+      size++;
+    }
+
+    /**
+     * @return A copy with the totals of each pair added together
+     */
+    Edges merged() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.<Integer> comparingInt(i -> actorAs[i]).thenComparingInt(i -> actorBs[i]));
+      Edges merged = new Edges();
+      for (int i : order) {
+        merged.add(actorAs[i], actorBs[i], events[i], fatalities[i], firstDays[i], lastDays[i]);
+      }
+      return merged;
+    }
+
+    /**
+     * @return Indexes of the edges with the most events, at most limit of
+     *         them, by decreasing events then fatalities
+     */
+    List<Integer> top(int minEvents, int limit) {
+      Comparator<Integer> order = Comparator.<Integer> comparingLong(i -> events[i])
+        .thenComparingLong(i -> fatalities[i]);
+      // Min-heap of the best edges so far
+      PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, Math.max(size, 1)) + 1, order);
+      for (int i = 0; i < size; i++) {
+        if (events[i] < minEvents) {
+          continue;
+        }
+        if (best.size() < limit) {
+          best.add(i);
+        } else if (order.compare(i, best.peek()) > 0) {
+          best.poll();
+          best.add(i);
+        }
+      }
+      List<Integer> result = new ArrayList<>(best);
+      result.sort(order.reversed());
+      return result;
+    }
+  }
+
+  /**
+   * Accumulates conflicts and builds an immutable {@link DyadIndex}. Not
+   * thread-safe.
+   */
+  public static class Builder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StringDictionary actorDictionary = new StringDictionary();
+    private final StringDictionary countryDictionary = new StringDictionary();
+    private int size;
+    private int[] actorAs = new int[INITIAL_CAPACITY];
+    private int[] actorBs = new int[INITIAL_CAPACITY];
+    private int[] countries = new int[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private int[] fatalities = new int[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+
+    /**
+     * Add a conflict, conflicts missing either actor are ignored
+     */
+    public Builder add(String actor1, String actor2, String country, LocalDate date, Integer fatalityCount,
+      long id) {
+      if (isBlank(actor1) || isBlank(actor2)) {
+        return this;
+      }
+      if (size == ids.length) {
+        int capacity = size * 2;
+        actorAs = Arrays.copyOf(actorAs, capacity);
+        actorBs = Arrays.copyOf(actorBs, capacity);
+        countries = Arrays.copyOf(countries, capacity);
+        days = Arrays.copyOf(days, capacity);
+        fatalities = Arrays.copyOf(fatalities, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+      }
+      int code1 = actorDictionary.encode(actor1);
+      int code2 = actorDictionary.encode(actor2);
+      actorAs[size] = Math.min(code1, code2);
+      actorBs[size] = Math.max(code1, code2);
+      countries[size] = countryDictionary.encode(country);
+      days[size] = date == null ? ConflictColumns.NULL_INT : ConflictColumns.toEpochDay(date);
+      fatalities[size] = fatalityCount == null ? 0 : fatalityCount;
+      ids[size] = id;
+      size++;
+      return this;
+    }
+
+    public DyadIndex build() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (i, j) -> {
+        int c = compareEntry(this, i, j);
+        if (c == 0) {
+          c = Integer.compare(days[i], days[j]);
+        }
+        return c == 0 ? Long.compare(ids[i], ids[j]) : c;
+      });
+      return new DyadIndex(this, order);
+    }
+
+    private static int compareEntry(Builder b, int i, int j) {
+      int c = Integer.compare(b.actorAs[i], b.actorAs[j]);
+      if (c == 0) {
+        c = Integer.compare(b.actorBs[i], b.actorBs[j]);
+      }
+      return c == 0 ? Integer.compare(b.countries[i], b.countries[j]) : c;
+    }
+
+    private static boolean isBlank(String value) {
+      return value == null || value.trim().isEmpty();
+    }
+  }
+}
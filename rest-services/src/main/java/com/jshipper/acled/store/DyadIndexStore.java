@@ -0,0 +1,85 @@
+package com.jshipper.acled.store;
+
+import java.time.LocalDate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.dataset.DatasetReloadedEvent;
+
+/**
+ * Holds the current {@link DyadIndex}, built at startup and rebuilt when the
+ * dataset is reloaded, so that no request waits for it, from the database or
+ * from the columns of the {@link ConflictStore} when it is serving; readers keep using
+ * the previous index until the new one is swapped in.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class DyadIndexStore {
+  private static final Logger LOG = LoggerFactory.getLogger(DyadIndexStore.class);
+
+  private final ConflictRepository dao;
+  private final ConflictStore conflicts;
+  private volatile DyadIndex index;
+
+  @Inject
+  public DyadIndexStore(ConflictRepository dao, ConflictStore conflicts) {
+    this.dao = dao;
+    this.conflicts = conflicts;
+  }
+
+  @PostConstruct
+  public void init() {
+    get();
+  }
+
+  /**
+   * Get the current index, building it if needed
+   *
+   * @return The current index
+   */
+  public DyadIndex get() {
+    DyadIndex result = index;
+    if (result == null) {
+      synchronized (this) {
+        result = index;
+        if (result == null) {
+          result = load();
+          index = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Rebuild the index from the new dataset
+   */
+  @EventListener
+  public void onDatasetReloaded(DatasetReloadedEvent event) {
+    synchronized (this) {
+      index = load();
+    }
+  }
+
+  private DyadIndex load() {
+    long start = System.currentTimeMillis();
+    DyadIndex.Builder builder = new DyadIndex.Builder();
+    ConflictColumns columns = conflicts.isServing() ? conflicts.get() : null;
+    for (Object[] row : columns != null ? columns.getDyads() : dao.getDyads()) {
+      builder.add((String) row[0], (String) row[1], (String) row[2], (LocalDate) row[3],
+        (Integer) row[4], (Long) row[5]);
+    }
+    DyadIndex result = builder.build();
+    LOG.info("Built index of {} dyads in {} ms", result.size(), System.currentTimeMillis() - start);
+    return result;
+  }
+}
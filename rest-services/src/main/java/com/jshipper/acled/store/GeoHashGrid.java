@@ -0,0 +1,158 @@
+package com.jshipper.acled.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.jshipper.acled.model.ConflictCluster;
+
+/**
+ * Aggregates conflicts into the cells of a geohash grid of a given precision
+ * (number of base 32 characters). Not thread-safe.
+ *
+ * @author jshipper
+ *
+ */
+public class GeoHashGrid {
+  public static final int MIN_PRECISION = 1;
+  public static final int MAX_PRECISION = 12;
+  public static final int DEFAULT_TOP_ACTORS = 3;
+
+  private static final char[] BASE32 =
+    "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+  private final int precision;
+  private final int topActors;
+  private final Map<Long, Cell> cells = new HashMap<>();
+
+  /**
+   * @param precision
+   *          Geohash length, between {@link #MIN_PRECISION} and
+   *          {@link #MAX_PRECISION}
+   * @param topActors
+   *          Number of top actors to report per cell
+   */
+  public GeoHashGrid(int precision, int topActors) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("Precision should be between "
+        + MIN_PRECISION + " and " + MAX_PRECISION);
+    }
+    this.precision = precision;
+    this.topActors = topActors;
+  }
+
+  /**
+   * Add a conflict to the grid. Conflicts without a location are ignored.
+   *
+   * @param fatalities
+   *          Number of fatalities, {@link ConflictColumns#NULL_INT} if unknown
+   */
+  public void add(double latitude, double longitude, int fatalities,
+    String actor1, String actor2) {
+    if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+      return;
+    }
+    long hash = encode(latitude, longitude, precision);
+    Cell cell = cells.get(hash);
+    if (cell == null) {
+      cell = new Cell();
+      cells.put(hash, cell);
+    }
+    cell.count++;
+    cell.latitudeSum += latitude;
+    cell.longitudeSum += longitude;
+    if (fatalities != ConflictColumns.NULL_INT) {
+      cell.fatalities += fatalities;
+    }
+    cell.addActor(actor1);
+    cell.addActor(actor2);
+  }
+
+  /**
+   * @return One cluster per non-empty cell
+   */
+  public List<ConflictCluster> getClusters() {
+    List<ConflictCluster> clusters = new ArrayList<>(cells.size());
+    for (Map.Entry<Long, Cell> entry : cells.entrySet()) {
+      Cell cell = entry.getValue();
+      ConflictCluster cluster = new ConflictCluster();
+      cluster.setGeohash(toString(entry.getKey(), precision));
+      cluster.setLatitude(cell.latitudeSum / cell.count);
+      cluster.setLongitude(cell.longitudeSum / cell.count);
+      cluster.setCount(cell.count);
+      cluster.setFatalities(cell.fatalities);
+      cluster.setTopActors(cell.topActors(topActors));
+      clusters.add(cluster);
+    }
+    return clusters;
+  }
+
+  /**
+   * Encode a location as the bits of its geohash, longitude bit first
+   */
+  static long encode(double latitude, double longitude, int precision) {
+    double minLat = -90, maxLat = 90;
+    double minLon = -180, maxLon = 180;
+    long hash = 0;
+    int bits = precision * 5;
+    for (int i = 0; i < bits; i++) {
+      hash <<= 1;
+      if (i % 2 == 0) {
+        double mid = (minLon + maxLon) / 2;
+        if (longitude >= mid) {
+          hash |= 1;
+          minLon = mid;
+        } else {
+          maxLon = mid;
+        }
+      } else {
+        double mid = (minLat + maxLat) / 2;
+        if (latitude >= mid) {
+          hash |= 1;
+          minLat = mid;
+        } else {
+          maxLat = mid;
+        }
+      }
+    }
+    return hash;
+  }
+
+  static String toString(long hash, int precision) {
+    char[] chars = new char[precision];
+    for (int i = precision - 1; i >= 0; i--) {
+      chars[i] = BASE32[(int) (hash & 0x1f)];
+      hash >>>= 5;
+    }
+    return new String(chars);
+  }
+
+  private static class Cell {
+    int count;
+    int fatalities;
+    double latitudeSum;
+    double longitudeSum;
+    final Map<String, Integer> actorCounts = new HashMap<>();
+
+    void addActor(String actor) {
+      if (actor != null && !actor.isEmpty()) {
+        actorCounts.merge(actor, 1, Integer::sum);
+      }
+    }
+
+    List<String> topActors(int n) {
+      List<Map.Entry<String, Integer>> entries =
+        new ArrayList<>(actorCounts.entrySet());
+      entries.sort((a, b) -> {
+        int c = Integer.compare(b.getValue(), a.getValue());
+        return c != 0 ? c : a.getKey().compareTo(b.getKey());
+      });
+      List<String> result = new ArrayList<>(Math.min(n, entries.size()));
+      for (int i = 0; i < n && i < entries.size(); i++) {
+        result.add(entries.get(i).getKey());
+      }
+      return result;
+    }
+  }
+}
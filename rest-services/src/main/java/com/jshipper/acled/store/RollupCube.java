@@ -0,0 +1,326 @@
+package com.jshipper.acled.store;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.jshipper.acled.model.ConflictAggregate;
+import com.jshipper.acled.model.ConflictAggregate.Dimension;
+import com.jshipper.acled.model.ConflictAggregate.Grain;
+
+/**
+ * Pre-aggregated event counts and fatality sums by (month, year, country,
+ * event type) and by (month, year, country, event type, actor). Group-by
+ * queries scan the cells instead of the conflicts: the actor cells, sorted by
+ * actor, are only used when filtering or grouping by actor, since a conflict
+ * is counted once for each of its two actors. A conflict whose actors are
+ * the same ignoring case only has a cell for actor1, so that an actor filter
+ * matching both still counts it once.
+ *
+ * Months are numbered from year 0 ({@code year * 12 + month - 1});
+ * {@link ConflictColumns#NULL_INT} marks an unknown month or year.
+ *
+ * @author jshipper
+ *
+ */
+public class RollupCube {
+  private static final int ROW_YEAR = 0;
+  private static final int ROW_DATE_YEAR = 1;
+  private static final int ROW_DATE_MONTH = 2;
+  private static final int ROW_COUNTRY = 3;
+  private static final int ROW_EVENT_TYPE = 4;
+
+  private final StringDictionary countryDictionary;
+  private final StringDictionary eventTypeDictionary;
+  private final StringDictionary actorDictionary;
+  private final Cells cells;
+  private final Cells actorCells;
+  // Actor cells of actor code a are at [actorStarts[a], actorStarts[a + 1])
+  private final int[] actorStarts;
+
+  private RollupCube(Builder builder) {
+    this.countryDictionary = builder.countryDictionary;
+    this.eventTypeDictionary = builder.eventTypeDictionary;
+    this.actorDictionary = builder.actorDictionary;
+    this.cells = builder.cells;
+    this.actorCells = builder.actorCells.sortedByActor();
+    this.actorStarts = new int[actorDictionary.size() + 1];
+    for (int i = 0; i < actorCells.size; i++) {
+      actorStarts[actorCells.actors[i] + 1]++;
+    }
+    for (int a = 0; a < actorDictionary.size(); a++) {
+      actorStarts[a + 1] += actorStarts[a];
+    }
+  }
+
+  /**
+   * @return Number of cells, without and with actor
+   */
+  public int size() {
+    return cells.size + actorCells.size;
+  }
+
+  /**
+   * Aggregate the cells that match all provided filters
+   *
+   * @param startDate
+   *          Only the month of the date is used: first month to include,
+   *          null for no lower bound
+   * @param endDate
+   *          Only the month of the date is used: last month to include, null
+   *          for no upper bound
+   * @param country
+   *          Country to match ignoring case, null for all
+   * @param eventType
+   *          Event type to match ignoring case, null for all
+   * @param actor
+   *          Actor (actor1 or actor2) to match ignoring case, null for all
+   * @param groupBy
+   *          Dimensions to group by, all matching cells are summed into one
+   *          group if empty
+   * @param grain
+   *          Length of the periods when grouping by {@link Dimension#PERIOD}
+   * @return One aggregate per group, by period then by decreasing fatalities
+   */
+  public List<ConflictAggregate> aggregate(LocalDate startDate, LocalDate endDate, String country,
+    String eventType, String actor, Set<Dimension> groupBy, Grain grain) {
+    Integer fromMonth = startDate == null ? null : toMonth(startDate);
+    Integer toMonth = endDate == null ? null : toMonth(endDate);
+    boolean[] countryMask = null;
+    if (country != null && (countryMask = countryDictionary.matchIgnoreCase(country)) == null) {
+      return new ArrayList<>();
+    }
+    boolean[] eventTypeMask = null;
+    if (eventType != null && (eventTypeMask = eventTypeDictionary.matchIgnoreCase(eventType)) == null) {
+      return new ArrayList<>();
+    }
+    boolean byPeriod = groupBy.contains(Dimension.PERIOD);
+    boolean byCountry = groupBy.contains(Dimension.COUNTRY);
+    boolean byEventType = groupBy.contains(Dimension.EVENT_TYPE);
+    boolean byActor = groupBy.contains(Dimension.ACTOR);
+    Map<GroupKey, long[]> groups = new HashMap<>();
+    if (actor == null && !byActor) {
+      accumulate(cells, 0, cells.size, fromMonth, toMonth, countryMask, eventTypeMask, groups,
+        byPeriod, grain, byCountry, byEventType, false);
+    } else if (actor == null) {
+      accumulate(actorCells, 0, actorCells.size, fromMonth, toMonth, countryMask, eventTypeMask,
+        groups, byPeriod, grain, byCountry, byEventType, true);
+    } else {
+      boolean[] actorMask = actorDictionary.matchIgnoreCase(actor);
+      if (actorMask == null) {
+        return new ArrayList<>();
+      }
+      for (int a = 0; a < actorMask.length; a++) {
+        if (actorMask[a]) {
+          accumulate(actorCells, actorStarts[a], actorStarts[a + 1], fromMonth, toMonth,
+            countryMask, eventTypeMask, groups, byPeriod, grain, byCountry, byEventType, byActor);
+        }
+      }
+    }
+    List<ConflictAggregate> result = new ArrayList<>(groups.size());
+    for (Map.Entry<GroupKey, long[]> group : groups.entrySet()) {
+      result.add(toAggregate(group.getKey(), group.getValue(), grain));
+    }
+    result.sort(Comparator.comparing(ConflictAggregate::getPeriod, Comparator.nullsFirst(Comparator.<String> naturalOrder()))
+      .thenComparing(ConflictAggregate::getFatalities, Comparator.reverseOrder())
+      .thenComparing(ConflictAggregate::getEvents, Comparator.reverseOrder()));
+    return result;
+  }
+
+  private static void accumulate(Cells cells, int from, int to, Integer fromMonth,
+    Integer toMonth, boolean[] countryMask, boolean[] eventTypeMask, Map<GroupKey, long[]> groups,
+    boolean byPeriod, Grain grain, boolean byCountry, boolean byEventType, boolean byActor) {
+    for (int i = from; i < to; i++) {
+      int month = cells.months[i];
+      if ((fromMonth != null || toMonth != null) && month == ConflictColumns.NULL_INT) {
+        continue;
+      }
+      if ((fromMonth != null && month < fromMonth) || (toMonth != null && month > toMonth)) {
+        continue;
+      }
+      if (countryMask != null && !matches(countryMask, cells.countries[i])) {
+        continue;
+      }
+      if (eventTypeMask != null && !matches(eventTypeMask, cells.eventTypes[i])) {
+        continue;
+      }
+      GroupKey key = new GroupKey(
+        byPeriod ? (grain == Grain.YEAR ? cells.years[i] : month) : ConflictColumns.NULL_INT,
+        byCountry ? cells.countries[i] : StringDictionary.NULL_CODE,
+        byEventType ? cells.eventTypes[i] : StringDictionary.NULL_CODE,
+        byActor ? cells.actors[i] : StringDictionary.NULL_CODE);
+      long[] totals = groups.get(key);
+      if (totals == null) {
+        totals = new long[2];
+        groups.put(key, totals);
+      }
+      totals[0] += cells.events[i];
+      totals[1] += cells.fatalities[i];
+    }
+  }
+
+  private static boolean matches(boolean[] mask, int code) {
+    return code != StringDictionary.NULL_CODE && mask[code];
+  }
+
+  private ConflictAggregate toAggregate(GroupKey key, long[] totals, Grain grain) {
+    ConflictAggregate aggregate = new ConflictAggregate();
+    if (key.period != ConflictColumns.NULL_INT) {
+      aggregate.setPeriod(grain == Grain.YEAR ? String.format("%04d", key.period)
+        : String.format("%04d-%02d", key.period / 12, key.period % 12 + 1));
+    }
+    aggregate.setCountry(countryDictionary.decode(key.country));
+    aggregate.setEventType(eventTypeDictionary.decode(key.eventType));
+    aggregate.setActor(actorDictionary.decode(key.actor));
+    aggregate.setEvents(totals[0]);
+    aggregate.setFatalities(totals[1]);
+    return aggregate;
+  }
+
+  private static int toMonth(LocalDate date) {
+    return date.getYear() * 12 + date.getMonthValue() - 1;
+  }
+
+  private static final class GroupKey {
+    private final int period;
+    private final int country;
+    private final int eventType;
+    private final int actor;
+
+    GroupKey(int period, int country, int eventType, int actor) {
+      this.period = period;
+      this.country = country;
+      this.eventType = eventType;
+      this.actor = actor;
+    }
+
+    @Override
+    public int hashCode() {
+      return ((period * 31 + country) * 31 + eventType) * 31 + actor;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof GroupKey)) {
+        return false;
+      }
+      GroupKey other = (GroupKey) obj;
+      return period == other.period && country == other.country && eventType == other.eventType
+        && actor == other.actor;
+    }
+  }
+
+  private static final class Cells {
+    private int size;
+    private int[] years = new int[1024];
+    private int[] months = new int[1024];
+    private int[] countries = new int[1024];
+    private int[] eventTypes = new int[1024];
+    private int[] actors = new int[1024];
+    private long[] events = new long[1024];
+    private long[] fatalities = new long[1024];
+
+    void add(int year, int month, int country, int eventType, int actor, long eventCount,
+      long fatalitySum) {
+      if (size == years.length) {
+        int capacity = size * 2;
+        years = Arrays.copyOf(years, capacity);
+        months = Arrays.copyOf(months, capacity);
+        countries = Arrays.copyOf(countries, capacity);
+        eventTypes = Arrays.copyOf(eventTypes, capacity);
+        actors = Arrays.copyOf(actors, capacity);
+        events = Arrays.copyOf(events, capacity);
+        fatalities = Arrays.copyOf(fatalities, capacity);
+      }
+      years[size] = year;
+      months[size] = month;
+      countries[size] = country;
+      eventTypes[size] = eventType;
+      actors[size] = actor;
+      events[size] = eventCount;
+      fatalities[size] = fatalitySum;
+      size++;
+    }
+
+    /**
+     * @return A copy of the cells sorted by actor code
+     */
+    Cells sortedByActor() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingInt(i -> actors[i]));
+      Cells sorted = new Cells();
+      for (int i : order) {
+        sorted.add(years[i], months[i], countries[i], eventTypes[i], actors[i], events[i],
+          fatalities[i]);
+      }
+      return sorted;
+    }
+  }
+
+  /**
+   * Builder of a cube from the rows of the rollup queries of the repository
+   */
+  public static class Builder {
+    private final StringDictionary countryDictionary = new StringDictionary();
+    private final StringDictionary eventTypeDictionary = new StringDictionary();
+    private final StringDictionary actorDictionary = new StringDictionary();
+    private final Cells cells = new Cells();
+    private final Cells actorCells = new Cells();
+
+    /**
+     * Add a row of (year, year of date, month of date, country, event type,
+     * count, sum of fatalities)
+     */
+    public Builder add(Object[] row) {
+      cells.add(year(row), month(row), countryDictionary.encode((String) row[ROW_COUNTRY]),
+        eventTypeDictionary.encode((String) row[ROW_EVENT_TYPE]), StringDictionary.NULL_CODE,
+        toLong(row[5]), toLong(row[6]));
+      return this;
+    }
+
+    /**
+     * Add a row of (year, year of date, month of date, country, event type,
+     * actor, count, sum of fatalities); rows without actor are ignored
+     */
+    public Builder addWithActor(Object[] row) {
+      String actor = (String) row[5];
+      if (actor == null || actor.trim().isEmpty()) {
+        return this;
+      }
+      actorCells.add(year(row), month(row), countryDictionary.encode((String) row[ROW_COUNTRY]),
+        eventTypeDictionary.encode((String) row[ROW_EVENT_TYPE]), actorDictionary.encode(actor),
+        toLong(row[6]), toLong(row[7]));
+      return this;
+    }
+
+    public RollupCube build() {
+      return new RollupCube(this);
+    }
+
+    // The YEAR column, or the year of the date if it is missing
+    private static int year(Object[] row) {
+      Object year = row[ROW_YEAR] != null ? row[ROW_YEAR] : row[ROW_DATE_YEAR];
+      return year == null ? ConflictColumns.NULL_INT : ((Number) year).intValue();
+    }
+
+    private static int month(Object[] row) {
+      if (row[ROW_DATE_YEAR] == null || row[ROW_DATE_MONTH] == null) {
+        return ConflictColumns.NULL_INT;
+      }
+      return ((Number) row[ROW_DATE_YEAR]).intValue() * 12
+        + ((Number) row[ROW_DATE_MONTH]).intValue() - 1;
+    }
+
+    private static long toLong(Object value) {
+      return value == null ? 0 : ((Number) value).longValue();
+    }
+  }
+}
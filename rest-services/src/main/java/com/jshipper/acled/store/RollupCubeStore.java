@@ -0,0 +1,85 @@
+package com.jshipper.acled.store;
+
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.dataset.DatasetReloadedEvent;
+
+/**
+ * Holds the current {@link RollupCube}, built from GROUP BY queries, or from
+ * the columns of the {@link ConflictStore} when it is serving, on first use
+ * and rebuilt when the dataset is reloaded; readers keep using the
+ * previous cube until the new one is swapped in.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class RollupCubeStore {
+  private static final Logger LOG = LoggerFactory.getLogger(RollupCubeStore.class);
+
+  private final ConflictRepository dao;
+  private final ConflictStore conflicts;
+  private volatile RollupCube cube;
+
+  @Inject
+  public RollupCubeStore(ConflictRepository dao, ConflictStore conflicts) {
+    this.dao = dao;
+    this.conflicts = conflicts;
+  }
+
+  /**
+   * Get the current cube, building it if needed
+   *
+   * @return The current cube
+   */
+  public RollupCube get() {
+    RollupCube result = cube;
+    if (result == null) {
+      synchronized (this) {
+        result = cube;
+        if (result == null) {
+          result = load();
+          cube = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Rebuild the cube, if one was built, from the new dataset
+   */
+  @EventListener
+  public void onDatasetReloaded(DatasetReloadedEvent event) {
+    synchronized (this) {
+      if (cube != null) {
+        cube = load();
+      }
+    }
+  }
+
+  private RollupCube load() {
+    long start = System.currentTimeMillis();
+    RollupCube.Builder builder = new RollupCube.Builder();
+    ConflictColumns columns = conflicts.isServing() ? conflicts.get() : null;
+    for (Object[] row : columns != null ? columns.getRollup() : dao.getRollup()) {
+      builder.add(row);
+    }
+    for (Object[] row : columns != null ? columns.getActor1Rollup() : dao.getActor1Rollup()) {
+      builder.addWithActor(row);
+    }
+    for (Object[] row : columns != null ? columns.getActor2Rollup() : dao.getActor2Rollup()) {
+      builder.addWithActor(row);
+    }
+    RollupCube result = builder.build();
+    LOG.info("Built rollup cube of {} cells in {} ms", result.size(),
+      System.currentTimeMillis() - start);
+    return result;
+  }
+}
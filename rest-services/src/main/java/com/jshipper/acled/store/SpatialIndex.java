@@ -0,0 +1,528 @@
+package com.jshipper.acled.store;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictMapPoint;
+
+/**
+ * Spatial index of the map points of the located conflicts. Points are sorted
+ * by their 60-bit geohash, so that the points of any geohash cell are
+ * contiguous: a bounding box is covered by at most {@link #MAX_COVER_CELLS}
+ * cells of the finest precision that allows it, each located with two binary
+ * searches, and only the points of those cells are checked against the box
+ * and the criteria. Radius queries check the points of the circle's bounding
+ * box, nearest neighbour queries search radii growing until enough points
+ * are found.
+ * <p>
+ * Criteria apply as they do to {@link ConflictColumns#select}; results are in
+ * (date, id) order, nearest neighbours by distance.
+ *
+ * @author jshipper
+ *
+ */
+public class SpatialIndex {
+  /** Mean radius of the Earth */
+  public static final double EARTH_RADIUS_KM = 6371.0088;
+  /** Greatest distance between two points */
+  public static final double MAX_DISTANCE_KM = Math.PI * EARTH_RADIUS_KM;
+  static final int MAX_COVER_CELLS = 64;
+
+  private static final int KEY_PRECISION = GeoHashGrid.MAX_PRECISION;
+  private static final int KEY_BITS = KEY_PRECISION * 5;
+  // First radius of the nearest neighbour search, multiplied until enough points are found
+  private static final double INITIAL_NEAREST_RADIUS_KM = 25;
+
+  private final StringDictionary actorDictionary;
+  private final StringDictionary countryDictionary;
+  private final StringDictionary locationDictionary;
+  // Per point, in geohash order
+  private final long[] keys;
+  private final long[] ids;
+  private final int[] days;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final int[] fatalities;
+  private final int[] countries;
+  private final int[] actor1s;
+  private final int[] actor2s;
+  private final int[] locations;
+  // Rank of each point in (date, id) order, and the point of each rank
+  private final int[] ranks;
+  private final int[] pointsByRank;
+
+  private SpatialIndex(Builder b, int[] order) {
+    actorDictionary = b.actorDictionary;
+    countryDictionary = b.countryDictionary;
+    locationDictionary = b.locationDictionary;
+    int size = order.length;
+    keys = new long[size];
+    ids = new long[size];
+    days = new int[size];
+    latitudes = new double[size];
+    longitudes = new double[size];
+    fatalities = new int[size];
+    countries = new int[size];
+    actor1s = new int[size];
+    actor2s = new int[size];
+    locations = new int[size];
+    for (int i = 0; i < size; i++) {
+      int point = order[i];
+      keys[i] = b.keys[point];
+      ids[i] = b.ids[point];
+      days[i] = b.days[point];
+      latitudes[i] = b.latitudes[point];
+      longitudes[i] = b.longitudes[point];
+      fatalities[i] = b.fatalities[point];
+      countries[i] = b.countries[point];
+      actor1s[i] = b.actor1s[point];
+      actor2s[i] = b.actor2s[point];
+      locations[i] = b.locations[point];
+    }
+    Integer[] byDate = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      byDate[i] = i;
+    }
+    Arrays.sort(byDate, Comparator.<Integer> comparingInt(i -> days[i]).thenComparingLong(i -> ids[i]));
+    ranks = new int[size];
+    pointsByRank = new int[size];
+    for (int rank = 0; rank < size; rank++) {
+      ranks[byDate[rank]] = rank;
+      pointsByRank[rank] = byDate[rank];
+    }
+  }
+
+  /**
+   * @return Number of located conflicts
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  /**
+   * Get the map points inside a bounding box, edges included. A box whose
+   * minimum longitude is greater than its maximum crosses the antimeridian.
+   *
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param limit
+   *          Maximum number of points
+   * @return At most limit matching map points, the earliest in (date, id)
+   *         order
+   */
+  public List<ConflictMapPoint> inBox(ConflictCriteria criteria, double minLatitude, double minLongitude,
+    double maxLatitude, double maxLongitude, int limit) {
+    Filter filter = Filter.of(this, criteria);
+    if (filter == null || limit <= 0) {
+      return new ArrayList<>();
+    }
+    Points points = new Points();
+    if (minLongitude > maxLongitude) {
+      searchBox(filter, minLatitude, minLongitude, maxLatitude, 180, points);
+      searchBox(filter, minLatitude, -180, maxLatitude, maxLongitude, points);
+    } else {
+      searchBox(filter, minLatitude, minLongitude, maxLatitude, maxLongitude, points);
+    }
+    return toMapPointsByDate(points, limit);
+  }
+
+  /**
+   * Get the map points within a distance of a location, along the Earth's
+   * surface
+   *
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param limit
+   *          Maximum number of points
+   * @return At most limit matching map points, the earliest in (date, id)
+   *         order
+   */
+  public List<ConflictMapPoint> withinRadius(ConflictCriteria criteria, double latitude, double longitude,
+    double radiusKm, int limit) {
+    Filter filter = Filter.of(this, criteria);
+    if (filter == null || limit <= 0) {
+      return new ArrayList<>();
+    }
+    return toMapPointsByDate(searchRadius(filter, latitude, longitude, radiusKm), limit);
+  }
+
+  /**
+   * Get the map points nearest to a location
+   *
+   * @param criteria
+   *          Criteria to apply, null fields are ignored
+   * @param k
+   *          Number of points
+   * @return At most k matching map points, nearest first
+   */
+  public List<ConflictMapPoint> nearest(ConflictCriteria criteria, double latitude, double longitude, int k) {
+    Filter filter = Filter.of(this, criteria);
+    if (filter == null || k <= 0) {
+      return new ArrayList<>();
+    }
+    double radius = INITIAL_NEAREST_RADIUS_KM;
+    Points points = searchRadius(filter, latitude, longitude, radius);
+    // Every point within the radius was found: once there are k of them, the k nearest are among them
+    while (points.size < k && radius < MAX_DISTANCE_KM) {
+      radius *= 4;
+      points = searchRadius(filter, latitude, longitude, radius);
+    }
+    Integer[] byDistance = new Integer[points.size];
+    for (int i = 0; i < points.size; i++) {
+      byDistance[i] = i;
+    }
+    double[] distances = points.distances;
+    int[] found = points.points;
+    Arrays.sort(byDistance,
+      Comparator.<Integer> comparingDouble(i -> distances[i]).thenComparingInt(i -> ranks[found[i]]));
+    List<ConflictMapPoint> result = new ArrayList<>(Math.min(k, points.size));
+    for (int i = 0; i < k && i < points.size; i++) {
+      result.add(toMapPoint(found[byDistance[i]]));
+    }
+    return result;
+  }
+
+  /**
+   * Distance between two locations along the Earth's surface (haversine
+   * formula)
+   */
+  public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+    double dLat = Math.toRadians(latitude2 - latitude1);
+    double dLon = Math.toRadians(longitude2 - longitude1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(latitude1))
+      * Math.cos(Math.toRadians(latitude2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+
+  private Points searchRadius(Filter filter, double latitude, double longitude, double radiusKm) {
+    // Bounding box of the circle: the longitudes it spans are widest at the latitude whose meridian is tangent
+    double angle = radiusKm / EARTH_RADIUS_KM;
+    double minLatitude = latitude - Math.toDegrees(angle);
+    double maxLatitude = latitude + Math.toDegrees(angle);
+    Points candidates = new Points();
+    if (minLatitude <= -90 || maxLatitude >= 90 || angle >= Math.PI / 2) {
+      // A pole is inside the circle, which then spans every longitude
+      searchBox(filter, Math.max(minLatitude, -90), -180, Math.min(maxLatitude, 90), 180, candidates);
+    } else {
+      double dLon = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+      double minLongitude = longitude - dLon;
+      double maxLongitude = longitude + dLon;
+      if (maxLongitude - minLongitude >= 360) {
+        searchBox(filter, minLatitude, -180, maxLatitude, 180, candidates);
+      } else if (minLongitude < -180) {
+        searchBox(filter, minLatitude, minLongitude + 360, maxLatitude, 180, candidates);
+        searchBox(filter, minLatitude, -180, maxLatitude, maxLongitude, candidates);
+      } else if (maxLongitude > 180) {
+        searchBox(filter, minLatitude, minLongitude, maxLatitude, 180, candidates);
+        searchBox(filter, minLatitude, -180, maxLatitude, maxLongitude - 360, candidates);
+      } else {
+        searchBox(filter, minLatitude, minLongitude, maxLatitude, maxLongitude, candidates);
+      }
+    }
+    Points result = new Points();
+    for (int i = 0; i < candidates.size; i++) {
+      int point = candidates.points[i];
+      double distance = distanceKm(latitude, longitude, latitudes[point], longitudes[point]);
+      if (distance <= radiusKm) {
+        result.add(point, distance);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Add the points inside a box that does not cross the antimeridian
+   */
+  private void searchBox(Filter filter, double minLatitude, double minLongitude, double maxLatitude,
+    double maxLongitude, Points points) {
+    long low = encode(minLatitude, minLongitude);
+    long high = encode(maxLatitude, maxLongitude);
+    // Finest precision covering the box with few enough cells; bits alternate longitude first
+    int bits = KEY_BITS;
+    while (bits > 0 && cellCount(low, high, bits) > MAX_COVER_CELLS) {
+      bits--;
+    }
+    int shift = KEY_BITS - bits;
+    int lonBits = (bits + 1) / 2;
+    int latBits = bits / 2;
+    long lonLow = deinterleave(low >>> shift, bits, 0);
+    long lonHigh = deinterleave(high >>> shift, bits, 0);
+    long latLow = deinterleave(low >>> shift, bits, 1);
+    long latHigh = deinterleave(high >>> shift, bits, 1);
+    for (long lon = lonLow; lon <= lonHigh && lon < 1L << lonBits; lon++) {
+      for (long lat = latLow; lat <= latHigh && lat < 1L << latBits; lat++) {
+        long cell = interleave(lon, lat, bits);
+        int end = lowerBound((cell + 1) << shift);
+        for (int point = lowerBound(cell << shift); point < end; point++) {
+          double latitude = latitudes[point];
+          double longitude = longitudes[point];
+          if (latitude >= minLatitude && latitude <= maxLatitude && longitude >= minLongitude
+            && longitude <= maxLongitude && filter.matches(point)) {
+            points.add(point, 0);
+          }
+        }
+      }
+    }
+  }
+
+  private static long cellCount(long low, long high, int bits) {
+    int shift = KEY_BITS - bits;
+    long lons = deinterleave(high >>> shift, bits, 0) - deinterleave(low >>> shift, bits, 0) + 1;
+    long lats = deinterleave(high >>> shift, bits, 1) - deinterleave(low >>> shift, bits, 1) + 1;
+    return lons * lats;
+  }
+
+  /**
+   * @param offset
+   *          0 for the longitude bits, 1 for the latitude bits
+   */
+  private static long deinterleave(long cell, int bits, int offset) {
+    long value = 0;
+    for (int i = offset; i < bits; i += 2) {
+      value = (value << 1) | ((cell >>> (bits - 1 - i)) & 1);
+    }
+    return value;
+  }
+
+  private static long interleave(long lon, long lat, int bits) {
+    int lonBit = (bits + 1) / 2;
+    int latBit = bits / 2;
+    long cell = 0;
+    for (int i = 0; i < bits; i++) {
+      cell = (cell << 1) | (i % 2 == 0 ? (lon >>> --lonBit) & 1 : (lat >>> --latBit) & 1);
+    }
+    return cell;
+  }
+
+  static long encode(double latitude, double longitude) {
+    return GeoHashGrid.encode(latitude, longitude, KEY_PRECISION);
+  }
+
+  /**
+   * Index of the first point whose key is not less than the provided key
+   */
+  private int lowerBound(long key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private List<ConflictMapPoint> toMapPointsByDate(Points points, int limit) {
+    int[] found = new int[points.size];
+    for (int i = 0; i < points.size; i++) {
+      found[i] = ranks[points.points[i]];
+    }
+    Arrays.sort(found);
+    // Only the points returned are materialized
+    int size = Math.min(limit, found.length);
+    List<ConflictMapPoint> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(toMapPoint(pointsByRank[found[i]]));
+    }
+    return result;
+  }
+
+  private ConflictMapPoint toMapPoint(int point) {
+    return new ConflictMapPoint(ids[point],
+      days[point] == ConflictColumns.NULL_INT ? null : LocalDate.ofEpochDay(days[point]), latitudes[point],
+      longitudes[point], fatalities[point] == ConflictColumns.NULL_INT ? null : fatalities[point],
+      locationDictionary.decode(locations[point]), actorDictionary.decode(actor1s[point]),
+      actorDictionary.decode(actor2s[point]));
+  }
+
+  /**
+   * Points found by a search, with their distances
+   */
+  private static class Points {
+    int size;
+    int[] points = new int[64];
+    double[] distances = new double[64];
+
+    void add(int point, double distance) {
+      if (size == points.length) {
+        points = Arrays.copyOf(points, size * 2);
+        distances = Arrays.copyOf(distances, size * 2);
+      }
+      points[size] = point;
+      distances[size++] = distance;
+    }
+  }
+
+  /**
+   * The criteria, resolved against the index's dictionaries
+   */
+  private static class Filter {
+    private final SpatialIndex index;
+    private final boolean dated;
+    private final int startDay;
+    private final int endDay;
+    private final boolean[] countryMask;
+    private final boolean[] actor1Mask;
+    private final boolean[] actor2Mask;
+    private final boolean fatalityFilter;
+    private final int lowEnd;
+    private final int highEnd;
+
+    private Filter(SpatialIndex index, ConflictCriteria criteria, boolean[] countryMask, boolean[] actor1Mask,
+      boolean[] actor2Mask) {
+      this.index = index;
+      this.dated = criteria.getStartDate() != null || criteria.getEndDate() != null;
+      this.startDay = criteria.getStartDate() == null ? Integer.MIN_VALUE
+        : ConflictColumns.toEpochDay(criteria.getStartDate());
+      this.endDay = criteria.getEndDate() == null ? Integer.MAX_VALUE
+        : ConflictColumns.toEpochDay(criteria.getEndDate());
+      this.countryMask = countryMask;
+      this.actor1Mask = actor1Mask;
+      this.actor2Mask = actor2Mask;
+      this.fatalityFilter = criteria.getLowEnd() != null || criteria.getHighEnd() != null;
+      this.lowEnd = criteria.getLowEnd() == null ? Integer.MIN_VALUE : criteria.getLowEnd();
+      this.highEnd = criteria.getHighEnd() == null ? Integer.MAX_VALUE : criteria.getHighEnd();
+    }
+
+    /**
+     * @return The filter, null if no conflict can match
+     */
+    static Filter of(SpatialIndex index, ConflictCriteria criteria) {
+      boolean[] countryMask = null;
+      if (criteria.getCountry() != null
+        && (countryMask = index.countryDictionary.matchIgnoreCase(criteria.getCountry())) == null) {
+        return null;
+      }
+      boolean[] actor1Mask = null;
+      if (criteria.getActor1() != null
+        && (actor1Mask = index.actorDictionary.matchIgnoreCase(criteria.getActor1())) == null) {
+        return null;
+      }
+      boolean[] actor2Mask = null;
+      if (criteria.getActor2() != null
+        && (actor2Mask = index.actorDictionary.matchIgnoreCase(criteria.getActor2())) == null) {
+        return null;
+      }
+      return new Filter(index, criteria, countryMask, actor1Mask, actor2Mask);
+    }
+
+    boolean matches(int point) {
+      if (dated) {
+        int day = index.days[point];
+        if (day == ConflictColumns.NULL_INT || day < startDay || day > endDay) {
+          return false;
+        }
+      }
+      if (countryMask != null && !matches(countryMask, index.countries[point])) {
+        return false;
+      }
+      if (actor1Mask != null && !matches(actor1Mask, index.actor1s[point])
+        && !matches(actor1Mask, index.actor2s[point])) {
+        return false;
+      }
+      if (actor2Mask != null && !matches(actor2Mask, index.actor1s[point])
+        && !matches(actor2Mask, index.actor2s[point])) {
+        return false;
+      }
+      if (fatalityFilter) {
+        int f = index.fatalities[point];
+        if (f == ConflictColumns.NULL_INT || f < lowEnd || f > highEnd) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean matches(boolean[] mask, int code) {
+      return code != StringDictionary.NULL_CODE && mask[code];
+    }
+  }
+
+  /**
+   * Accumulates located conflicts and builds an immutable
+   * {@link SpatialIndex}. Not thread-safe.
+   */
+  public static class Builder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int size;
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private int[] fatalities = new int[INITIAL_CAPACITY];
+    private int[] countries = new int[INITIAL_CAPACITY];
+    private int[] actor1s = new int[INITIAL_CAPACITY];
+    private int[] actor2s = new int[INITIAL_CAPACITY];
+    private int[] locations = new int[INITIAL_CAPACITY];
+
+    private final StringDictionary actorDictionary = new StringDictionary();
+    private final StringDictionary countryDictionary = new StringDictionary();
+    private final StringDictionary locationDictionary = new StringDictionary();
+
+    /**
+     * Add a conflict. Conflicts without a location, or located outside
+     * [-90, 90] x [-180, 180], are ignored.
+     */
+    public Builder add(long id, LocalDate date, Double latitude, Double longitude, Integer fatalities,
+      String country, String actor1, String actor2, String location) {
+      if (latitude == null || longitude == null || !(latitude >= -90 && latitude <= 90)
+        || !(longitude >= -180 && longitude <= 180)) {
+        return this;
+      }
+      if (size == ids.length) {
+        grow();
+      }
+      int i = size++;
+      keys[i] = encode(latitude, longitude);
+      ids[i] = id;
+      days[i] = date == null ? ConflictColumns.NULL_INT : ConflictColumns.toEpochDay(date);
+      latitudes[i] = latitude;
+      longitudes[i] = longitude;
+      this.fatalities[i] = fatalities == null ? ConflictColumns.NULL_INT : fatalities;
+      countries[i] = countryDictionary.encode(country);
+      actor1s[i] = actorDictionary.encode(actor1);
+      actor2s[i] = actorDictionary.encode(actor2);
+      locations[i] = locationDictionary.encode(location);
+      return this;
+    }
+
+    private void grow() {
+      int capacity = ids.length * 2;
+      keys = Arrays.copyOf(keys, capacity);
+      ids = Arrays.copyOf(ids, capacity);
+      days = Arrays.copyOf(days, capacity);
+      latitudes = Arrays.copyOf(latitudes, capacity);
+      longitudes = Arrays.copyOf(longitudes, capacity);
+      fatalities = Arrays.copyOf(fatalities, capacity);
+      countries = Arrays.copyOf(countries, capacity);
+      actor1s = Arrays.copyOf(actor1s, capacity);
+      actor2s = Arrays.copyOf(actor2s, capacity);
+      locations = Arrays.copyOf(locations, capacity);
+    }
+
+    /**
+     * Sort the accumulated points by geohash and build the index
+     */
+    public SpatialIndex build() {
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.<Integer> comparingLong(i -> keys[i]).thenComparingLong(i -> ids[i]));
+      int[] sorted = new int[size];
+      for (int i = 0; i < size; i++) {
+        sorted[i] = order[i];
+      }
+      return new SpatialIndex(this, sorted);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.jshipper.acled.store;
+
+import java.time.LocalDate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.dataset.DatasetReloadedEvent;
+
+/**
+ * Holds the current {@link SpatialIndex}, built at startup and rebuilt when
+ * the dataset is reloaded, from the database or from the columns of the
+ * {@link ConflictStore} when it is serving; readers keep using the previous
+ * index until the new one is swapped in.
+ *
+ * @author jshipper
+ *
+ */
+@Component
+public class SpatialIndexStore {
+  private static final Logger LOG = LoggerFactory.getLogger(SpatialIndexStore.class);
+
+  private final ConflictRepository dao;
+  private final ConflictStore conflicts;
+  private volatile SpatialIndex index;
+
+  @Inject
+  public SpatialIndexStore(ConflictRepository dao, ConflictStore conflicts) {
+    this.dao = dao;
+    this.conflicts = conflicts;
+  }
+
+  @PostConstruct
+  public void init() {
+    get();
+  }
+
+  /**
+   * Get the current index, building it if needed
+   *
+   * @return The current index
+   */
+  public SpatialIndex get() {
+    SpatialIndex result = index;
+    if (result == null) {
+      synchronized (this) {
+        result = index;
+        if (result == null) {
+          result = load();
+          index = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Rebuild the index from the new dataset
+   */
+  @EventListener
+  public void onDatasetReloaded(DatasetReloadedEvent event) {
+    synchronized (this) {
+      index = load();
+    }
+  }
+
+  private SpatialIndex load() {
+    long start = System.currentTimeMillis();
+    SpatialIndex.Builder builder = new SpatialIndex.Builder();
+    ConflictColumns columns = conflicts.isServing() ? conflicts.get() : null;
+    for (Object[] row : columns != null ? columns.getLocations() : dao.getLocations()) {
+      builder.add((Long) row[0], (LocalDate) row[1], (Double) row[2], (Double) row[3], (Integer) row[4],
+        (String) row[5], (String) row[6], (String) row[7], (String) row[8]);
+    }
+    SpatialIndex result = builder.build();
+    LOG.info("Built spatial index of {} conflicts in {} ms", result.size(), System.currentTimeMillis() - start);
+    return result;
+  }
+}
@@ -0,0 +1,106 @@
+package com.jshipper.acled.store;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality string columns. Each distinct value
+ * is assigned a dense integer code in insertion order; null is encoded as
+ * {@link #NULL_CODE}.
+ *
+ * @author jshipper
+ *
+ */
+public class StringDictionary {
+  public static final int NULL_CODE = -1;
+
+  private final List<String> values = new ArrayList<>();
+  private final Map<String, Integer> codes = new HashMap<>();
+
+  /**
+   * Get the code for a value, adding it to the dictionary if it is not present
+   *
+   * @param value
+   *          Value to encode, may be null
+   * @return The value's code, {@link #NULL_CODE} if value is null
+   */
+  public int encode(String value) {
+    if (value == null) {
+      return NULL_CODE;
+    }
+    Integer code = codes.get(value);
+    if (code == null) {
+      code = values.size();
+      values.add(value);
+      codes.put(value, code);
+    }
+    return code;
+  }
+
+  /**
+   * Get the value for a code
+   *
+   * @param code
+   *          Code to decode
+   * @return The value, null if code is {@link #NULL_CODE}
+   */
+  public String decode(int code) {
+    return code == NULL_CODE ? null : values.get(code);
+  }
+
+  /**
+   * @return Number of distinct non-null values
+   */
+  public int size() {
+    return values.size();
+  }
+
+  /**
+   * Save the values in code order
+   */
+  void write(ConflictSnapshot.Output out) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      out.writeString(value);
+    }
+  }
+
+  /**
+   * Read a dictionary saved by {@link #write(ConflictSnapshot.Output)}, each
+   * value keeping its code
+   */
+  static StringDictionary read(ConflictSnapshot.Input in) {
+    StringDictionary dictionary = new StringDictionary();
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      dictionary.encode(in.readString());
+    }
+    if (dictionary.size() != size) {
+      throw new IllegalArgumentException("Duplicate or null dictionary values");
+    }
+    return dictionary;
+  }
+
+  /**
+   * Build a mask over all codes that marks values equal to the provided value
+   * ignoring case
+   *
+   * @param value
+   *          Value to match
+   * @return A mask indexed by code, or null if no value matches
+   */
+  public boolean[] matchIgnoreCase(String value) {
+    boolean[] mask = new boolean[values.size()];
+    boolean any = false;
+    for (int i = 0; i < mask.length; i++) {
+      if (values.get(i).equalsIgnoreCase(value)) {
+        mask[i] = true;
+        any = true;
+      }
+    }
+    return any ? mask : null;
+  }
+}
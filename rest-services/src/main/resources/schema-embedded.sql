@@ -0,0 +1,35 @@
+-- Conflict table of the embedded profile's H2 database, like schema-mysql.sql
+CREATE TABLE IF NOT EXISTS Conflict (
+  EVENT_ID_NO_CNTY BIGINT NOT NULL PRIMARY KEY,
+  GWNO INT,
+  EVENT_ID_CNTY VARCHAR(255),
+  EVENT_DATE DATE,
+  YEAR INT,
+  TIME_PRECISION INT,
+  EVENT_TYPE VARCHAR(255),
+  ACTOR1 VARCHAR(255),
+  ALLY_ACTOR_1 VARCHAR(255),
+  INTER1 INT,
+  ACTOR2 VARCHAR(255),
+  ALLY_ACTOR_2 VARCHAR(255),
+  INTER2 INT,
+  INTERACTION INT,
+  COUNTRY VARCHAR(255),
+  ADMIN1 VARCHAR(255),
+  ADMIN2 VARCHAR(255),
+  ADMIN3 VARCHAR(255),
+  LOCATION VARCHAR(255),
+  LATITUDE DOUBLE,
+  LONGITUDE DOUBLE,
+  GEO_PRECIS INT,
+  SOURCE VARCHAR(255),
+  FATALITIES INT,
+  COUNTRY_LOWER VARCHAR(255) GENERATED ALWAYS AS (LOWER(COUNTRY)),
+  ACTOR1_LOWER VARCHAR(255) GENERATED ALWAYS AS (LOWER(ACTOR1)),
+  ACTOR2_LOWER VARCHAR(255) GENERATED ALWAYS AS (LOWER(ACTOR2))
+);
+CREATE INDEX IF NOT EXISTS IDX_CONFLICT_DATE_ID ON Conflict (EVENT_DATE, EVENT_ID_NO_CNTY);
+CREATE INDEX IF NOT EXISTS IDX_CONFLICT_COUNTRY ON Conflict (COUNTRY_LOWER, EVENT_DATE);
+CREATE INDEX IF NOT EXISTS IDX_CONFLICT_ACTOR1 ON Conflict (ACTOR1_LOWER);
+CREATE INDEX IF NOT EXISTS IDX_CONFLICT_ACTOR2 ON Conflict (ACTOR2_LOWER);
+CREATE INDEX IF NOT EXISTS IDX_CONFLICT_FATALITIES ON Conflict (FATALITIES);
@@ -0,0 +1,36 @@
+-- Conflict table and the indexes of the criteria queries. Case-insensitive
+-- filters compare the lower-cased COUNTRY and ACTORx generated columns
+CREATE TABLE IF NOT EXISTS Conflict (
+  GWNO INTEGER,
+  EVENT_ID_CNTY VARCHAR(256),
+  EVENT_ID_NO_CNTY BIGINT PRIMARY KEY,
+  EVENT_DATE DATE,
+  YEAR INTEGER,
+  TIME_PRECISION INTEGER,
+  EVENT_TYPE VARCHAR(256),
+  ACTOR1 VARCHAR(256),
+  ALLY_ACTOR_1 VARCHAR(256),
+  INTER1 INTEGER,
+  ACTOR2 VARCHAR(256),
+  ALLY_ACTOR_2 VARCHAR(256),
+  INTER2 INTEGER,
+  INTERACTION INTEGER,
+  COUNTRY VARCHAR(256),
+  ADMIN1 VARCHAR(256),
+  ADMIN2 VARCHAR(256),
+  ADMIN3 VARCHAR(256),
+  LOCATION VARCHAR(256),
+  LATITUDE DOUBLE,
+  LONGITUDE DOUBLE,
+  GEO_PRECIS INTEGER,
+  SOURCE VARCHAR(256),
+  FATALITIES INTEGER,
+  COUNTRY_LOWER VARCHAR(256) GENERATED ALWAYS AS (LOWER(COUNTRY)) VIRTUAL,
+  ACTOR1_LOWER VARCHAR(256) GENERATED ALWAYS AS (LOWER(ACTOR1)) VIRTUAL,
+  ACTOR2_LOWER VARCHAR(256) GENERATED ALWAYS AS (LOWER(ACTOR2)) VIRTUAL,
+  INDEX IDX_CONFLICT_DATE_ID (EVENT_DATE, EVENT_ID_NO_CNTY),
+  INDEX IDX_CONFLICT_COUNTRY (COUNTRY_LOWER, EVENT_DATE),
+  INDEX IDX_CONFLICT_ACTOR1 (ACTOR1_LOWER),
+  INDEX IDX_CONFLICT_ACTOR2 (ACTOR2_LOWER),
+  INDEX IDX_CONFLICT_FATALITIES (FATALITIES)
+);
@@ -0,0 +1,55 @@
+package com.jshipper.acled.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Entity tags of {@link ConditionalRequestInterceptor}
+ *
+ * @author jshipper
+ *
+ */
+public class ConditionalRequestInterceptorTest {
+  private static final String URI = "/conflict/getConflictsByCriteria";
+
+  @Test
+  public void equivalentCriteriaShareTag() {
+    assertEquals(eTag("v1", true, "country", "Nigeria", "actor1", "Police", "actor2", "Civilians"),
+      eTag("v1", true, "actor1", "civilians", "country", "nigeria", "actor2", "POLICE"));
+    assertEquals(eTag("v1", true, "actor1", "Police"), eTag("v1", true, "actor1", "police", "actor2", "Police"));
+  }
+
+  @Test
+  public void otherParametersKeepTheirCase() {
+    assertNotEquals(eTag("v1", true, "country", "Nigeria", "pageToken", "abc"),
+      eTag("v1", true, "country", "Nigeria", "pageToken", "ABC"));
+  }
+
+  @Test
+  public void differentCriteriaOrVersionsDoNotShareTag() {
+    assertNotEquals(eTag("v1", true, "country", "Nigeria"), eTag("v1", true, "country", "Niger"));
+    assertNotEquals(eTag("v1", true, "country", "Nigeria"), eTag("v2", true, "country", "Nigeria"));
+    assertNotEquals(eTag("v1", true, "country", ""), eTag("v1", true));
+  }
+
+  @Test
+  public void handlersWithoutCriteriaKeepValues() {
+    assertNotEquals(eTag("v1", false, "country", "Nigeria"), eTag("v1", false, "country", "nigeria"));
+  }
+
+  @Test
+  public void invalidCriteriaAreTaggedByTheirValues() {
+    assertNotEquals(eTag("v1", true, "startDate", "2014-13-01"), eTag("v1", true, "startDate", "2014-14-01"));
+  }
+
+  private static String eTag(String version, boolean criteria, String... parameters) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", URI);
+    for (int i = 0; i < parameters.length; i += 2) {
+      request.addParameter(parameters[i], parameters[i + 1]);
+    }
+    return ConditionalRequestInterceptor.eTag(version, request, criteria);
+  }
+}
@@ -0,0 +1,90 @@
+package com.jshipper.acled.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+
+/**
+ * Keyset pagination of {@link ConflictRepositoryCustomImpl} over conflicts
+ * with and without a date, on the embedded profile's H2 database
+ *
+ * @author jshipper
+ *
+ */
+@DataJpaTest
+@ActiveProfiles("embedded")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class ConflictRepositoryPagingTest {
+  @Inject
+  private ConflictRepository dao;
+
+  @Inject
+  private EntityManager entityManager;
+
+  @BeforeEach
+  public void createConflicts() {
+    persist(5, LocalDate.of(2014, 1, 2));
+    persist(9, null);
+    persist(1, LocalDate.of(2014, 1, 1));
+    persist(3, null);
+    persist(2, LocalDate.of(2014, 1, 2));
+    persist(4, LocalDate.of(2014, 1, 1));
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private void persist(long id, LocalDate date) {
+    Conflict conflict = new Conflict();
+    conflict.setId(id);
+    conflict.setDate(date);
+    conflict.setCountry("Nigeria");
+    entityManager.persist(conflict);
+  }
+
+  @Test
+  public void pagesIncludeConflictsWithoutDate() {
+    for (int pageSize = 1; pageSize <= 4; pageSize++) {
+      assertEquals(Arrays.asList(3L, 9L, 1L, 4L, 2L, 5L), pageThrough(new ConflictCriteria(), pageSize),
+        "page size " + pageSize);
+    }
+  }
+
+  @Test
+  public void pagesWithCriteria() {
+    ConflictCriteria criteria = new ConflictCriteria(LocalDate.of(2014, 1, 2), null, "NIGERIA", null, null, null,
+      null);
+    assertEquals(Arrays.asList(2L, 5L), pageThrough(criteria, 1));
+  }
+
+  private List<Long> pageThrough(ConflictCriteria criteria, int pageSize) {
+    List<Long> ids = new ArrayList<>();
+    ConflictCursor after = null;
+    while (true) {
+      List<Conflict> page = dao.findByCriteriaAfter(criteria, after, pageSize);
+      for (Conflict conflict : page) {
+        ids.add(conflict.getId());
+      }
+      if (page.size() < pageSize) {
+        return ids;
+      }
+      // Through the token, as clients page
+      after = ConflictCursor.fromToken(ConflictCursor.of(page.get(page.size() - 1)).toToken());
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package com.jshipper.acled.dataset;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+
+/**
+ * Runs each criteria filter through {@link ConflictRepository}, EXPLAINs the
+ * SQL Hibernate generated for it with the parameters it bound, and checks
+ * that the database chose the filter's index from the schema script. Runs
+ * on H2, or against MySQL with the datasource overridden and
+ * {@code spring.sql.init.schema-locations=classpath:schema-mysql.sql}.
+ *
+ * @author jshipper
+ *
+ */
+@DataJpaTest
+@ActiveProfiles("embedded")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class ConflictIndexUsageTest {
+  private static final int ROWS = 5000;
+  private static final List<String> INDEXES = Arrays.asList("IDX_CONFLICT_DATE_ID", "IDX_CONFLICT_COUNTRY",
+    "IDX_CONFLICT_ACTOR1", "IDX_CONFLICT_ACTOR2", "IDX_CONFLICT_FATALITIES");
+  private static final List<StatementRecord> STATEMENTS = new CopyOnWriteArrayList<>();
+
+  @Inject
+  private ConflictRepository dao;
+
+  @Inject
+  private JdbcTemplate jdbcTemplate;
+
+  @TestConfiguration
+  static class RecordingConfig {
+    @Bean
+    static BeanPostProcessor recordingDataSource() {
+      return new BeanPostProcessor() {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+          return bean instanceof DataSource ? new RecordingDataSource((DataSource) bean) : bean;
+        }
+      };
+    }
+  }
+
+  @BeforeEach
+  public void createConflicts() {
+    List<Object[]> rows = new ArrayList<>();
+    LocalDate first = LocalDate.of(1997, 1, 1);
+    for (int i = 0; i < ROWS; i++) {
+      rows.add(new Object[] { i, Date.valueOf(first.plusDays(i)), "Country " + i % 50, "Actor " + i % 200,
+        "Actor " + (i + 7) % 200, i % 10 == 0 ? 100 + i : i % 3 });
+    }
+    jdbcTemplate.batchUpdate("INSERT INTO " + Conflict.TABLE_NAME
+      + " (EVENT_ID_NO_CNTY, EVENT_DATE, COUNTRY, ACTOR1, ACTOR2, FATALITIES) VALUES (?, ?, ?, ?, ?, ?)", rows);
+    if (isMySql()) {
+      jdbcTemplate.execute("ANALYZE TABLE " + Conflict.TABLE_NAME);
+    }
+    STATEMENTS.clear();
+  }
+
+  @Test
+  public void dateRangeUsesDateIndex() {
+    assertUses("IDX_CONFLICT_DATE_ID",
+      new ConflictCriteria(LocalDate.of(1997, 2, 1), LocalDate.of(1997, 2, 10), null, null, null, null, null));
+  }
+
+  @Test
+  public void dateRangePageUsesDateIndex() {
+    ConflictCriteria criteria = new ConflictCriteria(LocalDate.of(1997, 2, 1), LocalDate.of(1997, 2, 10), null,
+      null, null, null, null);
+    assertUses("IDX_CONFLICT_DATE_ID", () -> dao.findByCriteriaAfter(criteria, null, 5));
+  }
+
+  @Test
+  public void countryUsesCountryIndex() {
+    assertUses("IDX_CONFLICT_COUNTRY", new ConflictCriteria(null, null, "COUNTRY 7", null, null, null, null));
+  }
+
+  @Test
+  public void actorUsesActorIndexes() {
+    ConflictCriteria criteria = new ConflictCriteria(null, null, null, "actor 9", null, null, null);
+    if (isMySql()) {
+      // An index merge union of both indexes
+      assertUses("IDX_CONFLICT_ACTOR1", criteria);
+      assertUses("IDX_CONFLICT_ACTOR2", criteria);
+    } else {
+      // H2 does not merge indexes, so an OR over two columns is a scan there
+      assertUses(Collections.emptySet(), () -> dao.findByCriteria(criteria));
+    }
+  }
+
+  @Test
+  public void actorPairUsesAnActorIndex() {
+    assertUses(new HashSet<>(Arrays.asList("IDX_CONFLICT_ACTOR1", "IDX_CONFLICT_ACTOR2")),
+      () -> dao.findByActors("actor 9", "actor 16"));
+  }
+
+  @Test
+  public void fatalitiesUseFatalitiesIndex() {
+    assertUses("IDX_CONFLICT_FATALITIES", new ConflictCriteria(null, null, null, null, null, 4000, null));
+  }
+
+  private void assertUses(String index, ConflictCriteria criteria) {
+    assertUses(index, () -> dao.findByCriteria(criteria));
+  }
+
+  private void assertUses(String index, Runnable query) {
+    for (Set<String> keys : chosenKeys(query)) {
+      assertTrue(keys.contains(index), keys + " instead of " + index);
+    }
+  }
+
+  /**
+   * Check that each statement of the query uses one of the indexes, or none
+   * when none are given
+   */
+  private void assertUses(Set<String> indexes, Runnable query) {
+    for (Set<String> keys : chosenKeys(query)) {
+      assertTrue(indexes.isEmpty() ? keys.isEmpty() : keys.stream().anyMatch(indexes::contains),
+        keys + " instead of one of " + indexes);
+    }
+  }
+
+  /**
+   * @return The indexes chosen for each SELECT the query ran
+   */
+  private List<Set<String>> chosenKeys(Runnable query) {
+    STATEMENTS.clear();
+    query.run();
+    List<Set<String>> keys = new ArrayList<>();
+    for (StatementRecord statement : STATEMENTS) {
+      if (statement.sql.trim().toLowerCase(Locale.ROOT).startsWith("select")) {
+        keys.add(chosenKeys(statement));
+      }
+    }
+    assertFalse(keys.isEmpty(), "No query was run");
+    return keys;
+  }
+
+  /**
+   * @return The indexes the database chose for a statement: the key column
+   *         of MySQL's EXPLAIN, or the index named in H2's plan
+   */
+  private Set<String> chosenKeys(StatementRecord statement) {
+    Object[] parameters = statement.parameters.values().toArray();
+    Set<String> keys = new HashSet<>();
+    if (isMySql()) {
+      for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN " + statement.sql, parameters)) {
+        Object key = row.get("key");
+        if (key != null) {
+          keys.addAll(Arrays.asList(key.toString().toUpperCase(Locale.ROOT).split(",")));
+        }
+      }
+    } else {
+      String plan = jdbcTemplate.queryForObject("EXPLAIN " + statement.sql, String.class, parameters);
+      for (String index : INDEXES) {
+        if (plan.toUpperCase(Locale.ROOT).contains("." + index + ":")) {
+          keys.add(index);
+        }
+      }
+    }
+    return keys;
+  }
+
+  private boolean isMySql() {
+    return "MySQL".equalsIgnoreCase(jdbcTemplate.execute(
+      (ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName()));
+  }
+
+  /** A prepared statement and the parameters bound to it, by index */
+  private static class StatementRecord {
+    private final String sql;
+    private final Map<Integer, Object> parameters = new TreeMap<>();
+
+    private StatementRecord(String sql) {
+      this.sql = sql;
+    }
+  }
+
+  /**
+   * Records the statements prepared on its connections, with their
+   * parameters, when they are executed
+   */
+  private static class RecordingDataSource extends DelegatingDataSource {
+    private RecordingDataSource(DataSource dataSource) {
+      super(dataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+      return recording(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+      return recording(super.getConnection(username, password));
+    }
+
+    private static Connection recording(Connection connection) {
+      return (Connection) Proxy.newProxyInstance(ConflictIndexUsageTest.class.getClassLoader(),
+        new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+          Object result = invoke(method, connection, args);
+          if ("prepareStatement".equals(method.getName())) {
+            return recording((PreparedStatement) result, new StatementRecord((String) args[0]));
+          }
+          return result;
+        });
+    }
+
+    private static PreparedStatement recording(PreparedStatement statement, StatementRecord record) {
+      return (PreparedStatement) Proxy.newProxyInstance(ConflictIndexUsageTest.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+          if (method.getName().startsWith("set") && args != null && args.length >= 2
+            && args[0] instanceof Integer) {
+            record.parameters.put((Integer) args[0], args[1]);
+          } else if (method.getName().startsWith("execute")) {
+            STATEMENTS.add(record);
+          }
+          return invoke(method, statement, args);
+        });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package com.jshipper.acled.dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.jshipper.acled.ingest.AcledCsvParser;
+import com.jshipper.acled.ingest.ConflictBatchWriter;
+import com.jshipper.acled.ingest.ConflictIngester;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.DatasetVersion;
+import com.jshipper.acled.store.ConflictColumns;
+import com.jshipper.acled.store.ConflictSnapshot;
+
+/**
+ * Tests for the version tracking and reloads of {@link DatasetService}, on the
+ * embedded profile's H2 schema
+ *
+ * @author jshipper
+ *
+ */
+public class DatasetServiceTest {
+  private static int databases;
+
+  private JdbcTemplate jdbcTemplate;
+  private final List<Object> events = new ArrayList<>();
+
+  @BeforeEach
+  public void createDatabase() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+      "jdbc:h2:mem:versions" + databases++ + ";DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=YEAR", "sa", "");
+    new ResourceDatabasePopulator(new ClassPathResource("schema-embedded.sql")).execute(dataSource);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  private DatasetService start() {
+    return start(jdbcTemplate, new ConflictSnapshot(""));
+  }
+
+  private DatasetService start(JdbcTemplate jdbcTemplate, ConflictSnapshot snapshot) {
+    ConflictIngester ingester = new ConflictIngester(new ConflictBatchWriter(jdbcTemplate), 2, 10, 256);
+    DatasetService service = new DatasetService(jdbcTemplate, ingester, events::add, snapshot, 0);
+    service.init();
+    return service;
+  }
+
+  @Test
+  public void servesTheLastVersionRecorded() {
+    DatasetService service = start();
+    DatasetVersion last = null;
+    // Within the same second, and likely the same millisecond
+    for (int i = 0; i < 5; i++) {
+      last = service.changed();
+    }
+    assertEquals(last.getVersion(), start().getVersion().getVersion());
+  }
+
+  @Test
+  public void pollSeesOtherInstancesReloads() {
+    DatasetService instance = start();
+    DatasetService other = start();
+    DatasetVersion reloaded = other.changed();
+    events.clear();
+    instance.poll();
+    assertEquals(reloaded.getVersion(), instance.getVersion().getVersion());
+    assertEquals(1, events.size());
+    assertTrue(events.get(0) instanceof DatasetReloadedEvent);
+    instance.poll();
+    assertEquals(1, events.size());
+  }
+
+  @Test
+  public void servesTheSnapshotVersionWithoutDatabase(@TempDir Path directory) {
+    JdbcTemplate unreachable = new JdbcTemplate(
+      new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/missing", "sa", ""));
+    ConflictSnapshot snapshot = new ConflictSnapshot(directory.resolve("conflicts.snapshot").toString());
+    assertThrows(DataAccessException.class, () -> start(unreachable, snapshot));
+    DatasetVersion saved = new DatasetVersion("v1", new Date(), 0L);
+    snapshot.write(ConflictColumns.empty(), saved);
+    assertEquals("v1", start(unreachable, snapshot).getVersion().getVersion());
+  }
+
+  @Test
+  public void reloadSwapsInTheNewConflicts(@TempDir Path directory) throws IOException {
+    jdbcTemplate.update("INSERT INTO " + Conflict.TABLE_NAME + " (EVENT_ID_NO_CNTY, COUNTRY) VALUES (1, 'Chad')");
+    DatasetService service = start();
+    String before = service.getVersion().getVersion();
+    StringBuilder csv = new StringBuilder(String.join(",", AcledCsvParser.COLUMNS)).append("\r");
+    for (int id = 2; id <= 100; id++) {
+      csv.append("475,NIG").append(id).append(',').append(id)
+        .append(",18/01/1997,1997,1,Riots/Protests,Police,,1,Civilians,,7,17,Nigeria,Lagos,,,Lagos,6.45,3.4,1,AFP,")
+        .append(id % 5).append('\r');
+    }
+    Path file = directory.resolve("acled.csv");
+    Files.write(file, csv.toString().getBytes(StandardCharsets.ISO_8859_1));
+    events.clear();
+    DatasetVersion reloaded = service.reload(file);
+    assertNotEquals(before, reloaded.getVersion());
+    assertEquals(99L, (long) reloaded.getRowCount());
+    assertEquals(1, events.size());
+    assertEquals(Arrays.asList(99L, 2L, 100L, 0L), Arrays.asList(count("COUNT(*)"), count("MIN(EVENT_ID_NO_CNTY)"),
+      count("MAX(EVENT_ID_NO_CNTY)"), count("SUM(CASE WHEN COUNTRY = 'Chad' THEN 1 ELSE 0 END)")));
+    assertEquals(0L, (long) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+      + "WHERE UPPER(TABLE_NAME) = UPPER(?)", Long.class, DatasetService.STAGING_TABLE));
+    // A file that cannot be read leaves the live table untouched
+    assertThrows(IOException.class, () -> service.reload(directory.resolve("missing.csv")));
+    assertEquals(99L, (long) count("COUNT(*)"));
+    assertEquals(reloaded.getVersion(), service.getVersion().getVersion());
+  }
+
+  private Long count(String expression) {
+    return jdbcTemplate.queryForObject("SELECT " + expression + " FROM " + Conflict.TABLE_NAME, Long.class);
+  }
+}
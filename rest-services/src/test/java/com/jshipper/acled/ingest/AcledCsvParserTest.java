@@ -0,0 +1,216 @@
+package com.jshipper.acled.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Parsing of ACLED CSV lines and chunks by {@link AcledCsvParser}
+ *
+ * @author jshipper
+ *
+ */
+public class AcledCsvParserTest {
+  private static final String HEADER = String.join(",", AcledCsvParser.COLUMNS);
+  private static final String[] TERMINATORS = { "\r", "\n", "\r\n" };
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void parsesEveryColumn() {
+    Conflict conflict = parseOne(line(1));
+    assertEquals(475, (int) conflict.getGwno());
+    assertEquals("NIG1", conflict.getEventIdCnty());
+    assertEquals(1L, (long) conflict.getId());
+    assertEquals(LocalDate.of(1997, 1, 18), conflict.getDate());
+    assertEquals(1997, (int) conflict.getYear());
+    assertEquals("Riots/Protests", conflict.getEventType());
+    assertEquals("Police Forces of Nigeria", conflict.getActor1());
+    assertEquals("", conflict.getAllyActor1());
+    assertEquals("Civilians (Nigeria)", conflict.getActor2());
+    assertEquals(17, (int) conflict.getInteraction());
+    assertEquals("Nigeria", conflict.getCountry());
+    assertEquals("Lagos", conflict.getLocation());
+    assertEquals(6.45, conflict.getLatitude(), 0);
+    assertEquals(3.4, conflict.getLongitude(), 0);
+    assertEquals("Reuters", conflict.getSource());
+    assertEquals(2, (int) conflict.getFatalities());
+  }
+
+  @Test
+  public void unquotesFields() {
+    String[] fields = fields(1);
+    fields[7] = "\"Police, Nigeria\"";
+    fields[10] = "\"The \"\"Rebels\"\"\"";
+    fields[18] = "\"\"";
+    Conflict conflict = parseOne(String.join(",", fields));
+    assertEquals("Police, Nigeria", conflict.getActor1());
+    assertEquals("The \"Rebels\"", conflict.getActor2());
+    assertEquals("", conflict.getLocation());
+  }
+
+  @Test
+  public void unescapesBackslashes() {
+    String[] fields = fields(1);
+    fields[7] = "\"Police \\\"Forces\\\"\"";
+    fields[10] = "Rebels\\, North";
+    fields[18] = "Ikeja\\tLagos\\\\";
+    fields[22] = "\"Reuters\\nAFP\"";
+    Conflict conflict = parseOne(String.join(",", fields));
+    assertEquals("Police \"Forces\"", conflict.getActor1());
+    assertEquals("Rebels, North", conflict.getActor2());
+    assertEquals("Ikeja\tLagos\\", conflict.getLocation());
+    assertEquals("Reuters\nAFP", conflict.getSource());
+  }
+
+  @Test
+  public void readsBackslashNAsNull() {
+    String[] fields = fields(1);
+    fields[8] = "\\N";
+    fields[10] = "\\N";
+    fields[19] = "\\N";
+    fields[23] = "\\N";
+    Conflict conflict = parseOne(String.join(",", fields));
+    assertNull(conflict.getAllyActor1());
+    assertNull(conflict.getActor2());
+    assertNull(conflict.getLatitude());
+    assertNull(conflict.getFatalities());
+    // Only a whole field is null
+    fields[10] = "A\\N";
+    assertEquals("AN", parseOne(String.join(",", fields)).getActor2());
+  }
+
+  @Test
+  public void readsATrailingEmptyField() {
+    String[] fields = fields(1);
+    fields[23] = "";
+    String line = String.join(",", fields);
+    assertTrue(line.endsWith(","));
+    for (String terminator : Arrays.asList("", "\r", "\n", "\r\n")) {
+      Conflict conflict = parseOne(line + terminator);
+      assertNull(conflict.getFatalities());
+      assertEquals("Reuters", conflict.getSource());
+    }
+  }
+
+  @Test
+  public void splitsLinesOnAnyTerminator() {
+    String csv = HEADER + "\r" + line(1) + "\n" + line(2) + "\r\n" + line(3) + "\r\r\n\n" + line(4);
+    AcledCsvParser parser = new AcledCsvParser();
+    assertEquals(Arrays.asList(1L, 2L, 3L, 4L), ids(parse(parser, bytes(csv), true)));
+    assertEquals(0, parser.getMalformedLines());
+  }
+
+  @Test
+  public void decodesLatin1() {
+    String[] fields = fields(1);
+    fields[14] = "Côte d'Ivoire";
+    fields[18] = "Sédhiou";
+    byte[] line = String.join(",", fields).getBytes(StandardCharsets.ISO_8859_1);
+    Conflict conflict = parse(new AcledCsvParser(), line, false).get(0);
+    assertEquals("Côte d'Ivoire", conflict.getCountry());
+    assertEquals("Sédhiou", conflict.getLocation());
+  }
+
+  @Test
+  public void countsMalformedLines() {
+    String[] badDate = fields(3);
+    badDate[3] = "1997-01-18";
+    String[] badDay = fields(4);
+    badDay[3] = "31/02/1997";
+    String[] badNumber = fields(5);
+    badNumber[23] = "many";
+    String[] noId = fields(6);
+    noId[2] = "";
+    String csv = String.join("\n", line(1), line(2) + ",extra", "1,2,3", String.join(",", badDate),
+      String.join(",", badDay), String.join(",", badNumber), String.join(",", noId), line(7));
+    AcledCsvParser parser = new AcledCsvParser();
+    assertEquals(Arrays.asList(1L, 7L), ids(parse(parser, bytes(csv), false)));
+    assertEquals(6, parser.getMalformedLines());
+  }
+
+  @Test
+  public void chunksStartAtLineBoundaries() throws IOException {
+    StringBuilder csv = new StringBuilder(HEADER).append("\r\n");
+    List<Long> expected = new ArrayList<>();
+    for (int id = 1; id <= 500; id++) {
+      csv.append(line(id)).append(TERMINATORS[id % TERMINATORS.length]);
+      expected.add((long) id);
+    }
+    Path file = directory.resolve("acled.csv");
+    Files.write(file, csv.toString().getBytes(StandardCharsets.ISO_8859_1));
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      for (long chunkSize : new long[] { 1, 97, 1000, 4096, channel.size(), channel.size() * 2 }) {
+        long[] boundaries = AcledCsvParser.chunkBoundaries(channel, chunkSize);
+        assertEquals(0, boundaries[0]);
+        assertEquals(channel.size(), boundaries[boundaries.length - 1]);
+        List<Conflict> conflicts = new ArrayList<>();
+        AcledCsvParser parser = new AcledCsvParser();
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+          assertTrue(boundaries[i + 1] > boundaries[i]);
+          if (i > 0) {
+            ByteBuffer previous = ByteBuffer.allocate(1);
+            channel.read(previous, boundaries[i] - 1);
+            assertTrue(previous.get(0) == '\r' || previous.get(0) == '\n');
+          }
+          ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[i],
+            boundaries[i + 1] - boundaries[i]);
+          parser.parse(chunk, i == 0, conflicts::add);
+        }
+        assertEquals(expected, ids(conflicts), "chunk size " + chunkSize);
+        assertEquals(0, parser.getMalformedLines());
+      }
+    }
+  }
+
+  private static String[] fields(long id) {
+    return new String[] { "475", "NIG1", String.valueOf(id), "18/01/1997", "1997", "1", "Riots/Protests",
+      "Police Forces of Nigeria", "", "1", "Civilians (Nigeria)", "", "7", "17", "Nigeria", "Lagos", "", "",
+      "Lagos", "6.45", "3.4", "1", "Reuters", "2" };
+  }
+
+  private static String line(long id) {
+    return String.join(",", fields(id));
+  }
+
+  private static Conflict parseOne(String line) {
+    AcledCsvParser parser = new AcledCsvParser();
+    List<Conflict> conflicts = parse(parser, bytes(line), false);
+    assertEquals(0, parser.getMalformedLines());
+    assertEquals(1, conflicts.size());
+    return conflicts.get(0);
+  }
+
+  private static List<Conflict> parse(AcledCsvParser parser, byte[] csv, boolean skipHeader) {
+    List<Conflict> conflicts = new ArrayList<>();
+    parser.parse(ByteBuffer.wrap(csv), skipHeader, conflicts::add);
+    return conflicts;
+  }
+
+  private static byte[] bytes(String csv) {
+    return csv.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private static List<Long> ids(List<Conflict> conflicts) {
+    return conflicts.stream().map(Conflict::getId).collect(Collectors.toList());
+  }
+}
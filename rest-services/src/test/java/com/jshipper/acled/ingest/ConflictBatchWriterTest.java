@@ -0,0 +1,74 @@
+package com.jshipper.acled.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * Inserts and upserts of {@link ConflictBatchWriter}, on the embedded profile's
+ * H2 schema
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictBatchWriterTest {
+  private static int databases;
+
+  private JdbcTemplate jdbcTemplate;
+  private ConflictBatchWriter writer;
+
+  @BeforeEach
+  public void createDatabase() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+      "jdbc:h2:mem:writer" + databases++ + ";DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=YEAR", "sa", "");
+    new ResourceDatabasePopulator(new ClassPathResource("schema-embedded.sql")).execute(dataSource);
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    writer = new ConflictBatchWriter(jdbcTemplate);
+  }
+
+  @Test
+  public void writeRejectsAnExistingId() {
+    writer.write(Conflict.TABLE_NAME, Collections.singletonList(conflict(1, "Nigeria", 2)));
+    assertThrows(DuplicateKeyException.class,
+      () -> writer.write(Conflict.TABLE_NAME, Collections.singletonList(conflict(1, "Mali", 3))));
+  }
+
+  @Test
+  public void upsertReplacesExistingIds() {
+    writer.write(Conflict.TABLE_NAME, Arrays.asList(conflict(1, "Nigeria", 2), conflict(2, "Nigeria", 5)));
+    Conflict changed = conflict(2, "Mali", null);
+    changed.setActor1(null);
+    writer.upsert(Conflict.TABLE_NAME, Arrays.asList(changed, conflict(3, "Chad", 1)));
+    assertEquals(3, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + Conflict.TABLE_NAME, Integer.class));
+    assertEquals(Arrays.asList("Nigeria", "Mali", "Chad"), jdbcTemplate.queryForList(
+      "SELECT COUNTRY FROM " + Conflict.TABLE_NAME + " ORDER BY EVENT_ID_NO_CNTY", String.class));
+    assertEquals(Collections.singletonMap("FATALITIES", null), jdbcTemplate.queryForMap(
+      "SELECT FATALITIES FROM " + Conflict.TABLE_NAME + " WHERE EVENT_ID_NO_CNTY = 2"));
+    assertEquals(Collections.singletonMap("ACTOR1", null), jdbcTemplate.queryForMap(
+      "SELECT ACTOR1 FROM " + Conflict.TABLE_NAME + " WHERE EVENT_ID_NO_CNTY = 2"));
+  }
+
+  private static Conflict conflict(long id, String country, Integer fatalities) {
+    Conflict conflict = new Conflict();
+    conflict.setId(id);
+    conflict.setEventIdCnty("C" + id);
+    conflict.setDate(LocalDate.of(2010, 1, (int) id));
+    conflict.setCountry(country);
+    conflict.setActor1("Police");
+    conflict.setFatalities(fatalities);
+    return conflict;
+  }
+}
@@ -0,0 +1,248 @@
+package com.jshipper.acled.rest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.jshipper.acled.dataset.DatasetService;
+import com.jshipper.acled.metrics.ConflictMetrics;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.DatasetVersion;
+import com.jshipper.acled.service.ConflictService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Error responses and entity tags of {@link ConflictController}, with the
+ * service mocked and queries run by a {@link QueryExecutor} of one thread and
+ * one waiting query
+ *
+ * @author jshipper
+ *
+ */
+@WebMvcTest(controllers = ConflictController.class,
+  properties = { "acled.query.threads=1", "acled.query.queue-capacity=1", "acled.batch.max-rows=10",
+    "acled.batch.parallelism=1", "acled.service.implementation=memory" })
+@Import({ QueryExecutor.class, ConflictControllerTest.Config.class })
+public class ConflictControllerTest {
+  @TestConfiguration
+  static class Config {
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+
+  @Autowired
+  private MockMvc mvc;
+
+  @MockBean
+  private ConflictService conflictService;
+
+  @MockBean
+  private DatasetService datasetService;
+
+  @MockBean
+  private ConflictMetrics metrics;
+
+  @MockBean
+  private PlatformTransactionManager transactionManager;
+
+  @MockBean
+  private EntityManagerFactory entityManagerFactory;
+
+  @BeforeEach
+  public void setUp() {
+    when(datasetService.getVersion()).thenReturn(new DatasetVersion("v1", new Date(), 0L));
+  }
+
+  @Test
+  public void malformedDateIsRejected() throws Exception {
+    mvc.perform(get("/conflict/getConflictsByCriteria").param("startDate", "2015-13-01"))
+      .andExpect(status().isBadRequest()).andExpect(jsonPath("$.status").value(400))
+      .andExpect(jsonPath("$.error").value("Bad Request"))
+      .andExpect(jsonPath("$.message").value("startDate not in expected format yyyy-MM-dd: 2015-13-01"));
+    mvc.perform(get("/conflict/getConflictsByDate/01-01-2015")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.message").value("date not in expected format yyyy-MM-dd: 01-01-2015"));
+    mvc.perform(get("/conflict/getConflictsInDateRange").param("startDate", "2015-02-01")
+      .param("endDate", "2015-01-01")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.message").value("endDate should not be before startDate"));
+  }
+
+  @Test
+  public void singleDigitMonthsAndDaysAreAccepted() throws Exception {
+    when(conflictService.getConflictsByDate(any())).thenReturn(Collections.emptyList());
+    MvcResult result = mvc.perform(get("/conflict/getConflictsByDate/2015-1-1"))
+      .andExpect(request().asyncStarted()).andReturn();
+    mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    verify(conflictService).getConflictsByDate(LocalDate.of(2015, 1, 1));
+  }
+
+  @Test
+  public void missingParameterIsRejected() throws Exception {
+    mvc.perform(get("/conflict/getConflictsByActors").param("actor1", "Police"))
+      .andExpect(status().isBadRequest()).andExpect(jsonPath("$.message").value("Missing parameter: actor2"));
+  }
+
+  @Test
+  public void typeMismatchIsRejected() throws Exception {
+    mvc.perform(get("/conflict/getConflictsByFatalities/many")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.message").value("fatalities should be of type Integer: many"));
+    mvc.perform(get("/conflict/getConflictsByCriteria").param("lowEnd", "ten")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.message").value("lowEnd should be an integer: ten"));
+  }
+
+  @Test
+  public void duplicateCriteriaRunOnce() throws Exception {
+    stubConflictsPerCountry();
+    // 5 conflicts under each id, 10 in all: exactly the limit
+    MvcResult result = batch("[{\"id\":\"a\",\"country\":\"Nigeria\",\"actor1\":\"Police\","
+      + "\"actor2\":\"Civilians\"},{\"id\":\"b\",\"country\":\"NIGERIA\",\"actor1\":\"civilians\","
+      + "\"actor2\":\"police\"}]");
+    mvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(jsonPath("$.a.status").value(200))
+      .andExpect(jsonPath("$.a.conflicts.length()").value(5)).andExpect(jsonPath("$.b.conflicts.length()").value(5));
+    verify(conflictService, times(1)).getFirstConflicts(any(ConflictCriteria.class), anyInt());
+    mvc.perform(post("/conflict/batch").contentType(MediaType.APPLICATION_JSON)
+      .content("[{\"id\":\"a\"},{\"id\":\"a\",\"country\":\"Mali\"}]")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.message").value("Duplicate id: a"));
+  }
+
+  @Test
+  public void batchAtTheRowLimitIsAnswered() throws Exception {
+    stubConflictsPerCountry();
+    MvcResult result = batch("[{\"id\":\"a\",\"country\":\"Nigeria\"},{\"id\":\"b\",\"country\":\"Mali\"},"
+      + "{\"id\":\"c\",\"startDate\":\"2015-13-01\"}]");
+    mvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+      .andExpect(jsonPath("$.a.conflicts.length()").value(5)).andExpect(jsonPath("$.b.conflicts.length()").value(5))
+      // An invalid query fails on its own
+      .andExpect(jsonPath("$.c.status").value(400))
+      .andExpect(jsonPath("$.c.message").value("startDate not in expected format yyyy-MM-dd: 2015-13-01"));
+  }
+
+  @Test
+  public void batchOverTheRowLimitIsTooLarge() throws Exception {
+    stubConflictsPerCountry();
+    // 5 and 6 conflicts, one over the limit
+    MvcResult result = batch("[{\"id\":\"a\",\"country\":\"Nigeria\"},{\"id\":\"b\",\"country\":\"Chad\"}]");
+    mvc.perform(asyncDispatch(result)).andExpect(status().isPayloadTooLarge())
+      .andExpect(jsonPath("$.status").value(413))
+      .andExpect(jsonPath("$.message").value("The conflicts of a batch are limited to 10 in all"));
+    // 6 conflicts under each of two ids
+    result = batch("[{\"id\":\"a\",\"country\":\"Chad\"},{\"id\":\"b\",\"country\":\"chad\"}]");
+    mvc.perform(asyncDispatch(result)).andExpect(status().isPayloadTooLarge());
+  }
+
+  @Test
+  public void responseIsTaggedWithTheVersionItWasComputedFrom() throws Exception {
+    when(conflictService.getConflictsByDate(any())).thenReturn(Collections.emptyList());
+    MvcResult result = mvc.perform(get("/conflict/getConflictsByDate/2015-01-01"))
+      .andExpect(request().asyncStarted()).andReturn();
+    String eTag = mvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+      .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache")).andReturn().getResponse()
+      .getHeader(HttpHeaders.ETAG);
+    mvc.perform(get("/conflict/getConflictsByDate/2015-01-01").header(HttpHeaders.IF_NONE_MATCH, eTag))
+      .andExpect(status().isNotModified());
+  }
+
+  @Test
+  public void responseComputedAcrossAReloadIsNotTagged() throws Exception {
+    when(conflictService.getConflictsByDate(any())).thenAnswer(invocation -> {
+      when(datasetService.getVersion()).thenReturn(new DatasetVersion("v2", new Date(), 0L));
+      return Collections.emptyList();
+    });
+    MvcResult result = mvc.perform(get("/conflict/getConflictsByDate/2015-01-01"))
+      .andExpect(request().asyncStarted()).andReturn();
+    mvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(header().doesNotExist(HttpHeaders.ETAG));
+  }
+
+  @Test
+  public void queriesBeyondTheQueueAreUnavailable() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(conflictService.getConflictsByDate(any())).thenAnswer(invocation -> {
+      started.countDown();
+      release.await();
+      return Collections.emptyList();
+    });
+    List<MvcResult> accepted = new ArrayList<>();
+    try {
+      // One query running and one waiting fill the executor
+      accepted.add(mvc.perform(get("/conflict/getConflictsByDate/2015-01-01"))
+        .andExpect(request().asyncStarted()).andReturn());
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      accepted.add(mvc.perform(get("/conflict/getConflictsByDate/2015-01-01"))
+        .andExpect(request().asyncStarted()).andReturn());
+      mvc.perform(get("/conflict/getConflictsByDate/2015-01-01")).andExpect(status().isServiceUnavailable())
+        .andExpect(jsonPath("$.status").value(503))
+        .andExpect(jsonPath("$.message").value("Too many queries in progress, retry later"));
+    } finally {
+      release.countDown();
+    }
+    for (MvcResult result : accepted) {
+      mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+    }
+  }
+
+  private MvcResult batch(String queries) throws Exception {
+    return mvc.perform(post("/conflict/batch").contentType(MediaType.APPLICATION_JSON).content(queries))
+      .andExpect(request().asyncStarted()).andReturn();
+  }
+
+  /**
+   * 5 conflicts in Nigeria and Mali, 6 in Chad, of which the service returns
+   * at most the limit it is given
+   */
+  private void stubConflictsPerCountry() {
+    when(conflictService.getFirstConflicts(any(ConflictCriteria.class), anyInt())).thenAnswer(invocation -> {
+      String country = invocation.<ConflictCriteria> getArgument(0).getCountry();
+      int count = "chad".equals(country) ? 6 : 5;
+      return conflicts(Math.min(count, invocation.<Integer> getArgument(1)));
+    });
+  }
+
+  private static List<Conflict> conflicts(int count) {
+    List<Conflict> conflicts = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Conflict conflict = new Conflict();
+      conflict.setId((long) i);
+      conflicts.add(conflict);
+    }
+    return conflicts;
+  }
+}
@@ -0,0 +1,196 @@
+package com.jshipper.acled.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Deadlines, statement cancellation and rejection of {@link QueryExecutor},
+ * with a transaction manager binding a mocked Hibernate session like the jpa
+ * implementation's
+ *
+ * @author jshipper
+ *
+ */
+public class QueryExecutorTest {
+  private final EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+  private final Session session = mock(Session.class);
+  private final List<TransactionDefinition> transactions = new CopyOnWriteArrayList<>();
+  // Released when the statement is cancelled
+  private final CountDownLatch cancelled = new CountDownLatch(1);
+  private QueryExecutor executor;
+
+  @BeforeEach
+  public void setUp() {
+    EntityManager entityManager = mock(EntityManager.class);
+    when(entityManager.unwrap(Session.class)).thenReturn(session);
+    PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+      transactions.add(invocation.getArgument(0));
+      TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+      return new SimpleTransactionStatus();
+    });
+    doAnswer(invocation -> TransactionSynchronizationManager.unbindResource(entityManagerFactory))
+      .when(transactionManager).commit(any());
+    doAnswer(invocation -> TransactionSynchronizationManager.unbindResource(entityManagerFactory))
+      .when(transactionManager).rollback(any());
+    doAnswer(invocation -> {
+      cancelled.countDown();
+      return null;
+    }).when(session).cancelQuery();
+    MockEnvironment environment = new MockEnvironment().withProperty("acled.query.timeout.slow", "2500")
+      .withProperty("acled.query.timeout.stream", "100");
+    executor = new QueryExecutor(transactionManager, entityManagerFactory, environment, new SimpleMeterRegistry(),
+      1, 1, 60000, "jpa");
+  }
+
+  @AfterEach
+  public void tearDown() {
+    cancelled.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  public void queryRunsInAReadOnlyTransactionTimingOutAfterTheDeadline() throws Exception {
+    assertEquals("done", result(executor.submit("slow", () -> "done")));
+    // 2.5 s rounded up, and a second more for the deadline to come first
+    assertEquals(4, transactions.get(0).getTimeout());
+    assertTrue(transactions.get(0).isReadOnly());
+  }
+
+  @Test
+  public void statementIsCancelledAtTheDeadline() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    DeferredResult<String> result = executor.submit("slow", () -> {
+      started.countDown();
+      awaitCancellation();
+      return "too late";
+    });
+    MockHttpServletRequest request = startAsync(result);
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    timeOut(request);
+    assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    verify(session).cancelQuery();
+    ServiceUnavailableException e =
+      (ServiceUnavailableException) WebAsyncUtils.getAsyncManager(request).getConcurrentResult();
+    assertEquals("slow did not complete within 2500 ms", e.getMessage());
+  }
+
+  @Test
+  public void queriesBeyondTheQueueAreRejected() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    // One running and one waiting
+    DeferredResult<String> running = executor.submit("slow", () -> await(release));
+    DeferredResult<String> waiting = executor.submit("slow", () -> await(release));
+    ServiceUnavailableException e =
+      assertThrows(ServiceUnavailableException.class, () -> executor.submit("slow", () -> "rejected"));
+    assertEquals("Too many queries in progress, retry later", e.getMessage());
+    release.countDown();
+    assertEquals("released", result(running));
+    assertEquals("released", result(waiting));
+  }
+
+  @Test
+  public void streamIsCancelledAtTheDeadline() {
+    ServiceUnavailableException e =
+      assertThrows(ServiceUnavailableException.class, () -> executor.stream("stream", this::awaitCancellation));
+    assertEquals("stream did not complete within 100 ms", e.getMessage());
+    verify(session).cancelQuery();
+    // Statements started later stop at the transaction timeout
+    assertEquals(2, transactions.get(0).getTimeout());
+  }
+
+  @Test
+  public void streamCompletingInTimeIsNotCancelled() throws Exception {
+    executor.stream("stream", () -> {
+    });
+    Thread.sleep(200);
+    assertEquals(1, cancelled.getCount());
+  }
+
+  /**
+   * Block like a JDBC statement, which an interrupt does not stop, until the
+   * statement is cancelled
+   */
+  private void awaitCancellation() {
+    boolean done = false;
+    while (!done) {
+      try {
+        done = cancelled.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        // Only cancelQuery stops the statement
+      }
+    }
+    throw new IllegalStateException("Statement cancelled");
+  }
+
+  private static String await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+    return "released";
+  }
+
+  private static Object result(DeferredResult<?> result) throws InterruptedException {
+    for (int i = 0; i < 500 && !result.hasResult(); i++) {
+      Thread.sleep(10);
+    }
+    return result.getResult();
+  }
+
+  private static MockHttpServletRequest startAsync(DeferredResult<?> result) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAsyncSupported(true);
+    WebAsyncManager manager = WebAsyncUtils.getAsyncManager(request);
+    manager.setAsyncWebRequest(new StandardServletAsyncWebRequest(request, new MockHttpServletResponse()));
+    manager.startDeferredResultProcessing(result);
+    return request;
+  }
+
+  /**
+   * Time the request out, as the servlet container would at its deadline
+   */
+  private static void timeOut(MockHttpServletRequest request) throws Exception {
+    MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+    for (AsyncListener listener : context.getListeners()) {
+      listener.onTimeout(new AsyncEvent(context));
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.jshipper.acled.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jshipper.acled.dataset.DatasetReloadedEvent;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.DatasetVersion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Caching and invalidation of {@link ConflictQueryCache}
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictQueryCacheTest {
+  private ConflictQueryCache cache;
+  private ExecutorService executor;
+
+  @BeforeEach
+  public void setUp() {
+    cache = new ConflictQueryCache(new SimpleMeterRegistry(), 16, 1000);
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void equivalentCriteriaShareResult() {
+    AtomicInteger queries = new AtomicInteger();
+    List<Conflict> first = cache.getConflicts(criteria("Nigeria", "Police", "Civilians"), c -> {
+      queries.incrementAndGet();
+      return Collections.singletonList(conflict("v1"));
+    });
+    List<Conflict> second = cache.getConflicts(criteria("nigeria", "civilians", "POLICE"), c -> {
+      queries.incrementAndGet();
+      return Collections.singletonList(conflict("v1"));
+    });
+    assertSame(first, second);
+    assertEquals(1, queries.get());
+  }
+
+  @Test
+  public void completeFirstConflictsAnswerAnyLimit() {
+    ConflictCriteria criteria = criteria("Nigeria", null, null);
+    AtomicInteger queries = new AtomicInteger();
+    Function<Integer, List<Conflict>> first = limit -> cache.getFirstConflicts(criteria, limit, c -> {
+      queries.incrementAndGet();
+      return conflicts(Math.min(limit, 3));
+    });
+    // Cut short by the limit, not cached
+    assertEquals(2, first.apply(2).size());
+    assertEquals(2, first.apply(2).size());
+    assertEquals(2, queries.get());
+    // Complete, answers a lower limit too
+    assertEquals(3, first.apply(10).size());
+    assertEquals(3, first.apply(100).size());
+    assertEquals(1, first.apply(1).size());
+    assertEquals(3, queries.get());
+    // Apart from the unordered results of the same criteria
+    cache.getConflicts(criteria, c -> {
+      queries.incrementAndGet();
+      return conflicts(3);
+    });
+    assertEquals(4, queries.get());
+  }
+
+  @Test
+  public void reloadDropsResults() {
+    ConflictCriteria criteria = criteria("Nigeria", null, null);
+    cache.getConflicts(criteria, c -> Collections.singletonList(conflict("v1")));
+    cache.onDatasetReloaded(reloaded("v2"));
+    assertEquals("v2",
+      cache.getConflicts(criteria, c -> Collections.singletonList(conflict("v2"))).get(0).getSource());
+  }
+
+  @Test
+  public void queriesOfThePreviousDatasetAreRunAgain() throws Exception {
+    ConflictCriteria criteria = criteria("Nigeria", null, null);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch reloaded = new CountDownLatch(1);
+    AtomicInteger queries = new AtomicInteger();
+    Future<List<Conflict>> leader = executor.submit(() -> cache.getConflicts(criteria, c -> {
+      if (queries.getAndIncrement() > 0) {
+        return Collections.singletonList(conflict("v2"));
+      }
+      started.countDown();
+      await(reloaded);
+      return Collections.singletonList(conflict("v1"));
+    }));
+    assertEquals(true, started.await(10, TimeUnit.SECONDS));
+    CompletableFuture<Thread> waiterThread = new CompletableFuture<>();
+    Future<List<Conflict>> waiter = executor.submit(() -> {
+      waiterThread.complete(Thread.currentThread());
+      return cache.getConflicts(criteria, c -> {
+        queries.incrementAndGet();
+        return Collections.singletonList(conflict("v2"));
+      });
+    });
+    // Waiting for the leader's query
+    Thread thread = waiterThread.get(10, TimeUnit.SECONDS);
+    while (thread.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    cache.onDatasetReloaded(reloaded("v2"));
+    reloaded.countDown();
+    assertEquals("v2", leader.get(10, TimeUnit.SECONDS).get(0).getSource());
+    assertEquals("v2", waiter.get(10, TimeUnit.SECONDS).get(0).getSource());
+    // The result of the previous dataset was not cached either
+    assertEquals("v2",
+      cache.getConflicts(criteria, c -> Collections.singletonList(conflict("v3"))).get(0).getSource());
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static List<Conflict> conflicts(int count) {
+    List<Conflict> conflicts = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      conflicts.add(conflict("v1"));
+    }
+    return conflicts;
+  }
+
+  private static DatasetReloadedEvent reloaded(String version) {
+    return new DatasetReloadedEvent(new DatasetVersion(version, new Date(), 0L));
+  }
+
+  private static ConflictCriteria criteria(String country, String actor1, String actor2) {
+    return new ConflictCriteria(null, null, country, actor1, actor2, null, null);
+  }
+
+  private static Conflict conflict(String source) {
+    Conflict conflict = new Conflict();
+    conflict.setSource(source);
+    return conflict;
+  }
+}
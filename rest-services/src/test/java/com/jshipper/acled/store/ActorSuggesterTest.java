@@ -0,0 +1,161 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.jshipper.acled.model.ActorSuggestion;
+
+/**
+ * Matching and ranking of {@link ActorSuggester}
+ *
+ * @author jshipper
+ *
+ */
+public class ActorSuggesterTest {
+  private static ActorSuggester suggester() {
+    return new ActorSuggester.Builder().add("Police Forces of Nigeria", "Nigeria", 40)
+      .add("Police Forces of Mali", "Mali", 25).add("Police Forces of Nigeria", "Mali", 5)
+      .add("Boko Haram", "Nigeria", 30).add("Polisario Front", null, 12).add("Military Forces of Mali", "Mali", 20)
+      .add("Côte d'Ivoire Police", "Ivory Coast", 3).add("Policemen (Chad)", "Chad", 1).build();
+  }
+
+  @Test
+  public void completesAnyWordRankedByConflicts() {
+    ActorSuggester suggester = suggester();
+    assertEquals(Arrays.asList("Police Forces of Nigeria", "Police Forces of Mali", "Polisario Front",
+      "Côte d'Ivoire Police", "Policemen (Chad)"), names(suggester.suggest("Pol", null, 10)));
+    assertEquals(Arrays.asList(45L, 25L, 12L, 3L, 1L),
+      suggester.suggest("pol", null, 10).stream().map(ActorSuggestion::getEvents).collect(Collectors.toList()));
+    assertEquals(Collections.singletonList("Boko Haram"), names(suggester.suggest("HARAM", null, 10)));
+    // Accents and punctuation are ignored
+    assertEquals(Collections.singletonList("Côte d'Ivoire Police"), names(suggester.suggest("cote d ivo", null, 10)));
+    assertEquals(Arrays.asList("Police Forces of Nigeria", "Police Forces of Mali"),
+      names(suggester.suggest("pol", null, 2)));
+    assertEquals(7, suggester.suggest("", null, 10).size());
+    assertEquals(Collections.emptyList(), suggester.suggest("pol", null, 0));
+  }
+
+  @Test
+  public void countryRanksByItsOwnConflicts() {
+    ActorSuggester suggester = suggester();
+    List<ActorSuggestion> mali = suggester.suggest("police", "MALI", 10);
+    assertEquals(Arrays.asList("Police Forces of Mali", "Police Forces of Nigeria"), names(mali));
+    assertEquals(5L, (long) mali.get(1).getEvents());
+    // Actors without a conflict there are not suggested
+    assertEquals(Collections.emptyList(), names(suggester.suggest("boko", "Mali", 10)));
+    assertEquals(Collections.emptyList(), names(suggester.suggest("", "Chile", 10)));
+  }
+
+  @Test
+  public void matchesTyposAfterExactCompletions() {
+    ActorSuggester suggester = suggester();
+    // One typo: a letter left out, and one too many
+    assertEquals(Arrays.asList("Police Forces of Nigeria", "Police Forces of Mali", "Côte d'Ivoire Police",
+      "Policemen (Chad)"), names(suggester.suggest("plice", null, 10)));
+    assertEquals(Collections.singletonList("Boko Haram"), names(suggester.suggest("bokko", null, 10)));
+    // An exact completion ranks first whatever its conflicts
+    assertEquals(Arrays.asList("Policemen (Chad)", "Police Forces of Nigeria"),
+      names(suggester.suggest("policem", null, 2)));
+    // Typos are only looked for when there are not enough exact completions
+    assertEquals(Collections.singletonList("Policemen (Chad)"), names(suggester.suggest("policem", null, 1)));
+  }
+
+  @Test
+  public void typosAllowedGrowWithThePrefix() {
+    ActorSuggester suggester = suggester();
+    // Too short for any typo
+    assertEquals(Collections.emptyList(), names(suggester.suggest("bk", null, 10)));
+    // One typo below 7 characters, two from 7
+    assertEquals(Collections.emptyList(), names(suggester.suggest("mulota", null, 10)));
+    assertEquals(Collections.singletonList("Military Forces of Mali"),
+      names(suggester.suggest("mulotar", null, 10)));
+    assertEquals(Collections.emptyList(), names(suggester.suggest("mulotay", null, 10)));
+  }
+
+  @Test
+  public void matchesLikeABruteForceSearch() {
+    Random random = new Random(7);
+    ActorSuggester.Builder builder = new ActorSuggester.Builder();
+    List<String> names = new ArrayList<>();
+    List<Long> events = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      String name = word(random) + (random.nextBoolean() ? " " + word(random) : "");
+      if (names.contains(name)) {
+        continue;
+      }
+      long count = 1 + random.nextInt(100);
+      names.add(name);
+      events.add(count);
+      builder.add(name, null, count);
+    }
+    ActorSuggester suggester = builder.build();
+    for (int i = 0; i < 500; i++) {
+      String query = word(random);
+      int maxTypos = query.length() < ActorSuggester.MIN_FUZZY_LENGTH ? 0
+        : query.length() < ActorSuggester.MIN_TWO_TYPOS_LENGTH ? 1 : 2;
+      List<Integer> expected = new ArrayList<>();
+      int[] typos = new int[names.size()];
+      for (int actor = 0; actor < names.size(); actor++) {
+        typos[actor] = typos(names.get(actor), query);
+        if (typos[actor] <= maxTypos) {
+          expected.add(actor);
+        }
+      }
+      expected.sort(Comparator.<Integer> comparingInt(a -> typos[a])
+        .thenComparing(a -> events.get(a), Comparator.reverseOrder()).thenComparing(names::get));
+      assertEquals(expected.stream().map(names::get).collect(Collectors.toList()),
+        names(suggester.suggest(query, null, names.size())), query);
+    }
+  }
+
+  /**
+   * @return Fewest edits between the query and the beginning of any word of
+   *         the name, on to its end
+   */
+  private static int typos(String name, String query) {
+    int best = Integer.MAX_VALUE;
+    for (int start = 0; start < name.length(); start++) {
+      if (start > 0 && name.charAt(start - 1) != ' ') {
+        continue;
+      }
+      for (int end = start; end <= name.length(); end++) {
+        best = Math.min(best, distance(name.substring(start, end), query));
+      }
+    }
+    return best;
+  }
+
+  private static int distance(String a, String b) {
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      for (int j = 0; j <= b.length(); j++) {
+        d[i][j] = i == 0 ? j : j == 0 ? i
+          : Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+            Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+      }
+    }
+    return d[a.length()][b.length()];
+  }
+
+  // Short words over a few letters, so that many are within a typo or two of each other
+  private static String word(Random random) {
+    char[] word = new char[2 + random.nextInt(7)];
+    for (int i = 0; i < word.length; i++) {
+      word[i] = "abcde".charAt(random.nextInt(5));
+    }
+    return new String(word);
+  }
+
+  private static List<String> names(List<ActorSuggestion> suggestions) {
+    return suggestions.stream().map(ActorSuggestion::getName).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,77 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictCursor;
+
+/**
+ * Keyset pagination of {@link ConflictColumns} over conflicts with and
+ * without a date, in the database's order
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictColumnsPagingTest {
+  private ConflictColumns columns;
+
+  @BeforeEach
+  public void buildColumns() {
+    ConflictColumns.Builder builder = new ConflictColumns.Builder();
+    builder.add(conflict(5, LocalDate.of(2014, 1, 2)));
+    builder.add(conflict(9, null));
+    builder.add(conflict(1, LocalDate.of(2014, 1, 1)));
+    builder.add(conflict(3, null));
+    builder.add(conflict(2, LocalDate.of(2014, 1, 2)));
+    builder.add(conflict(4, LocalDate.of(2014, 1, 1)));
+    columns = builder.build();
+  }
+
+  private static Conflict conflict(long id, LocalDate date) {
+    Conflict conflict = new Conflict();
+    conflict.setId(id);
+    conflict.setDate(date);
+    conflict.setCountry("Nigeria");
+    return conflict;
+  }
+
+  @Test
+  public void pagesIncludeConflictsWithoutDate() {
+    for (int pageSize = 1; pageSize <= 4; pageSize++) {
+      assertEquals(Arrays.asList(3L, 9L, 1L, 4L, 2L, 5L), pageThrough(new ConflictCriteria(), pageSize),
+        "page size " + pageSize);
+    }
+  }
+
+  @Test
+  public void pagesWithCriteria() {
+    ConflictCriteria criteria = new ConflictCriteria(LocalDate.of(2014, 1, 2), null, "NIGERIA", null, null, null,
+      null);
+    assertEquals(Arrays.asList(2L, 5L), pageThrough(criteria, 1));
+  }
+
+  private List<Long> pageThrough(ConflictCriteria criteria, int pageSize) {
+    List<Long> ids = new ArrayList<>();
+    ConflictCursor after = null;
+    while (true) {
+      List<Conflict> page = columns.toConflicts(columns.select(criteria, after == null ? 0 : columns.rowAfter(after),
+        pageSize));
+      for (Conflict conflict : page) {
+        ids.add(conflict.getId());
+      }
+      if (page.size() < pageSize) {
+        return ids;
+      }
+      after = ConflictCursor.fromToken(ConflictCursor.of(page.get(page.size() - 1)).toToken());
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.model.Conflict;
+
+/**
+ * The queries of {@link ConflictColumns} the stores are built from with the
+ * memory implementation return the rows of the repository's queries
+ *
+ * @author jshipper
+ *
+ */
+@DataJpaTest
+@ActiveProfiles("embedded")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class ConflictColumnsQueriesTest {
+  @Inject
+  private ConflictRepository dao;
+
+  @Inject
+  private EntityManager entityManager;
+
+  private ConflictColumns columns;
+
+  @BeforeEach
+  public void createConflicts() {
+    persist(1, LocalDate.of(2014, 1, 1), 2014, "Nigeria", "Police", "Civilians", 3, 9.1, 7.4);
+    persist(2, LocalDate.of(2014, 1, 20), 2014, "Nigeria", "Police", "Civilians", null, 9.1, 7.4);
+    persist(3, LocalDate.of(2014, 2, 1), null, "nigeria", "Civilians", "CIVILIANS", 5, null, 7.4);
+    persist(4, null, 2013, "Kenya", "Rebels", null, 7, 1.3, 36.8);
+    persist(5, LocalDate.of(2013, 12, 31), 2014, null, null, "Police", null, 1.3, null);
+    persist(6, LocalDate.of(2014, 1, 1), 2014, "Kenya", "Rebels", "Police", 0, -1.3, 36.8);
+    entityManager.flush();
+    entityManager.clear();
+    columns = store(dao, true).get();
+  }
+
+  private void persist(long id, LocalDate date, Integer year, String country, String actor1, String actor2,
+    Integer fatalities, Double latitude, Double longitude) {
+    Conflict conflict = new Conflict();
+    conflict.setId(id);
+    conflict.setDate(date);
+    conflict.setYear(year);
+    conflict.setCountry(country);
+    conflict.setEventType(id % 2 == 0 ? "Battle" : "Riots");
+    conflict.setActor1(actor1);
+    conflict.setActor2(actor2);
+    conflict.setFatalities(fatalities);
+    conflict.setLatitude(latitude);
+    conflict.setLongitude(longitude);
+    conflict.setLocation("Location " + id);
+    entityManager.persist(conflict);
+  }
+
+  /**
+   * @return A store of the conflicts in the database, serving them if asked
+   *         to
+   */
+  static ConflictStore store(ConflictRepository dao, boolean serving) {
+    return new ConflictStore(dao, null, new ConflictSnapshot(""), serving ? "memory" : "jpa") {
+      @Override
+      public ConflictColumns get() {
+        ConflictColumns.Builder builder = new ConflictColumns.Builder();
+        dao.forEachStateless(builder::add);
+        return builder.build();
+      }
+    };
+  }
+
+  @Test
+  public void countryActors() {
+    assertSameRows(dao.getCountryActors(), columns.getCountryActors());
+  }
+
+  @Test
+  public void dyads() {
+    assertSameRows(dao.getDyads(), columns.getDyads());
+  }
+
+  @Test
+  public void locations() {
+    assertSameRows(dao.getLocations(), columns.getLocations());
+  }
+
+  @Test
+  public void rollups() {
+    assertSameRows(dao.getRollup(), columns.getRollup());
+    assertSameRows(dao.getActor1Rollup(), columns.getActor1Rollup());
+    assertSameRows(dao.getActor2Rollup(), columns.getActor2Rollup());
+  }
+
+  // In any order, numbers of any type
+  private static void assertSameRows(List<Object[]> expected, List<Object[]> actual) {
+    assertEquals(toStrings(expected), toStrings(actual));
+  }
+
+  private static List<String> toStrings(List<Object[]> rows) {
+    List<String> result = new ArrayList<>();
+    for (Object[] row : rows) {
+      result.add(Arrays.toString(row));
+    }
+    Collections.sort(result);
+    return result;
+  }
+}
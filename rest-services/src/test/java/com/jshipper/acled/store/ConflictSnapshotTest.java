@@ -0,0 +1,128 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.DatasetVersion;
+
+/**
+ * Saving and loading of {@link ConflictSnapshot}, and rejection of the
+ * snapshots of another dataset version or format and of damaged files
+ *
+ * @author jshipper
+ *
+ */
+public class ConflictSnapshotTest {
+  private static final DatasetVersion VERSION = new DatasetVersion("v1", new Date(1388534400000L), 2L);
+
+  @TempDir
+  Path directory;
+
+  private Path file;
+  private ConflictSnapshot snapshot;
+
+  @BeforeEach
+  public void writeSnapshot() {
+    file = directory.resolve("conflicts.snapshot");
+    snapshot = new ConflictSnapshot(file.toString());
+    ConflictColumns.Builder builder = new ConflictColumns.Builder();
+    builder.add(conflict(2, "Police"));
+    builder.add(conflict(1, "Civilians"));
+    snapshot.write(builder.build(), VERSION);
+  }
+
+  private static Conflict conflict(long id, String actor1) {
+    Conflict conflict = new Conflict();
+    conflict.setId(id);
+    conflict.setDate(LocalDate.of(2014, 1, (int) id));
+    conflict.setCountry("Nigeria");
+    conflict.setActor1(actor1);
+    conflict.setFatalities((int) id * 3);
+    conflict.setLatitude(9.1);
+    return conflict;
+  }
+
+  @Test
+  public void loadsTheSavedVersion() {
+    ConflictColumns columns = snapshot.read("v1");
+    assertNotNull(columns);
+    assertEquals(2, columns.size());
+    Conflict first = columns.toConflict(0);
+    assertEquals(1L, (long) first.getId());
+    assertEquals("Civilians", first.getActor1());
+    assertEquals(3, (int) first.getFatalities());
+    assertNull(first.getLongitude());
+    DatasetVersion version = snapshot.readVersion();
+    assertEquals(VERSION.getVersion(), version.getVersion());
+    assertEquals(VERSION.getLoadedAt(), version.getLoadedAt());
+    assertEquals(VERSION.getRowCount(), version.getRowCount());
+  }
+
+  @Test
+  public void rejectsAnotherVersion() {
+    assertNull(snapshot.read("v2"));
+  }
+
+  @Test
+  public void rejectsACorruptFile() throws IOException {
+    long size = Files.size(file);
+    // Inside the last column
+    overwrite(size - 5, (byte) 0x5a);
+    assertNull(snapshot.read("v1"));
+  }
+
+  @Test
+  public void rejectsATruncatedFile() throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+    assertNull(snapshot.read("v1"));
+    assertNull(snapshot.readVersion());
+  }
+
+  @Test
+  public void rejectsAnotherFormat() throws IOException {
+    ByteBuffer format = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+    format.putInt(ConflictSnapshot.FORMAT_VERSION + 1).flip();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      channel.write(format, 8);
+    }
+    assertNull(snapshot.read("v1"));
+    assertNull(snapshot.readVersion());
+  }
+
+  @Test
+  public void rejectsAnotherFile() throws IOException {
+    Files.write(file, new byte[ConflictSnapshot.HEADER_SIZE * 2]);
+    assertNull(snapshot.read("v1"));
+    Files.delete(file);
+    assertNull(snapshot.read("v1"));
+    assertNull(snapshot.readVersion());
+  }
+
+  private void overwrite(long position, byte value) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      ByteBuffer current = ByteBuffer.allocate(1);
+      channel.read(current, position);
+      current.flip();
+      ByteBuffer changed = ByteBuffer.wrap(new byte[] { (byte) (current.get() ^ value) });
+      channel.write(changed, position);
+    }
+  }
+}
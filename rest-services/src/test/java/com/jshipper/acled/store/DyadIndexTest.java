@@ -0,0 +1,186 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jshipper.acled.model.ConflictNetwork;
+
+/**
+ * Dyad totals and networks of {@link DyadIndex}, checked against a
+ * brute-force aggregation of the same conflicts
+ *
+ * @author jshipper
+ *
+ */
+public class DyadIndexTest {
+  // Case variants are distinct actors, matched together by the filters
+  private static final String[] ACTORS = { "Police", "POLICE", "Rebels", "Civilians", "Militia", "Army", " ", null };
+  private static final String[] COUNTRIES = { "Nigeria", "NIGERIA", "Mali", "Chad", null };
+
+  private final Random random = new Random(11);
+  private final List<Event> events = new ArrayList<>();
+  private DyadIndex index;
+
+  @BeforeEach
+  public void buildIndex() {
+    DyadIndex.Builder builder = new DyadIndex.Builder();
+    for (long id = 1; id <= 4000; id++) {
+      Event event = new Event();
+      event.id = id;
+      event.actor1 = ACTORS[random.nextInt(ACTORS.length)];
+      event.actor2 = ACTORS[random.nextInt(ACTORS.length)];
+      event.country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+      event.date = id % 41 == 0 ? null : LocalDate.of(1997, 1, 1).plusDays(random.nextInt(6000));
+      event.fatalities = id % 17 == 0 ? null : random.nextInt(30);
+      builder.add(event.actor1, event.actor2, event.country, event.date, event.fatalities, id);
+      events.add(event);
+    }
+    index = builder.build();
+  }
+
+  @Test
+  public void selectByActorsMatchesEitherOrder() {
+    for (String[] pair : new String[][] { { "police", "REBELS" }, { "Rebels", "police" }, { "army", "army" },
+      { "Militia", null }, { "Nobody", "Army" }, { "Nobody", null } }) {
+      List<Long> expected = events.stream().filter(e -> isDyad(e) && isOneOf(e.actor1, pair)
+        && isOneOf(e.actor2, pair)).map(e -> e.id).sorted().collect(Collectors.toList());
+      List<Long> actual = Arrays.stream(index.selectByActors(pair[0], pair[1])).mapToObj(index::id).sorted()
+        .collect(Collectors.toList());
+      assertEquals(expected, actual, Arrays.toString(pair));
+    }
+  }
+
+  @Test
+  public void networkTotalsEachDyad() {
+    for (int i = 0; i < 100; i++) {
+      LocalDate startDate = random.nextInt(4) == 0 ? null : LocalDate.of(1997, 1, 1).plusDays(random.nextInt(6000));
+      LocalDate endDate = random.nextInt(4) == 0 ? null
+        : (startDate == null ? LocalDate.of(1997, 1, 1) : startDate).plusDays(random.nextInt(3000));
+      String country = random.nextBoolean() ? null : COUNTRIES[random.nextInt(COUNTRIES.length - 1)];
+      String actor = random.nextBoolean() ? null : ACTORS[random.nextInt(ACTORS.length - 2)].toLowerCase();
+      String filters = startDate + " " + endDate + " " + country + " " + actor;
+      Map<String, long[]> expected = expectedEdges(startDate, endDate, country, actor);
+      ConflictNetwork network = index.network(startDate, endDate, country, actor, 1, Integer.MAX_VALUE);
+      assertEquals(describe(expected), describe(network), filters);
+      assertSorted(network);
+      // Nodes add up the events and fatalities of their actor's edges
+      Map<String, String> nodes = new TreeMap<>();
+      Map<String, long[]> totals = new TreeMap<>();
+      for (Map.Entry<String, long[]> edge : expected.entrySet()) {
+        for (String node : new TreeSet<>(Arrays.asList(edge.getKey().split("\\|")))) {
+          long[] total = totals.computeIfAbsent(node, n -> new long[2]);
+          total[0] += edge.getValue()[0];
+          total[1] += edge.getValue()[1];
+        }
+      }
+      totals.forEach((node, total) -> nodes.put(node, total[0] + "/" + total[1]));
+      assertEquals(nodes, network.getNodes().stream()
+        .collect(Collectors.toMap(ConflictNetwork.Node::getActor, n -> n.getEvents() + "/" + n.getFatalities(),
+          (a, b) -> a + " and " + b, TreeMap::new)), filters);
+    }
+  }
+
+  @Test
+  public void networkKeepsTheEdgesWithTheMostEvents() {
+    Map<String, long[]> all = expectedEdges(null, LocalDate.of(2005, 12, 31), null, null);
+    List<long[]> ranked = all.values().stream()
+      .sorted(Comparator.<long[]> comparingLong(t -> -t[0]).thenComparingLong(t -> -t[1]))
+      .collect(Collectors.toList());
+    ConflictNetwork top = index.network(null, LocalDate.of(2005, 12, 31), null, null, 1, 5);
+    assertEquals(5, top.getEdges().size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(ranked.get(i)[0], (long) top.getEdges().get(i).getEvents());
+      assertEquals(ranked.get(i)[1], (long) top.getEdges().get(i).getFatalities());
+    }
+    long minEvents = ranked.get(ranked.size() / 2)[0];
+    ConflictNetwork busy = index.network(null, LocalDate.of(2005, 12, 31), null, null, (int) minEvents,
+      Integer.MAX_VALUE);
+    assertEquals(ranked.stream().filter(t -> t[0] >= minEvents).count(), busy.getEdges().size());
+  }
+
+  /**
+   * @return Totals by dyad ("actorA|actorB", sorted): events, fatalities,
+   *         first and last epoch day
+   */
+  private Map<String, long[]> expectedEdges(LocalDate startDate, LocalDate endDate, String country, String actor) {
+    Map<String, long[]> edges = new TreeMap<>();
+    boolean dated = startDate != null || endDate != null;
+    for (Event e : events) {
+      if (!isDyad(e) || (country != null && !country.equalsIgnoreCase(e.country))
+        || (actor != null && !actor.equalsIgnoreCase(e.actor1) && !actor.equalsIgnoreCase(e.actor2))
+        || (dated && (e.date == null || (startDate != null && e.date.isBefore(startDate))
+          || (endDate != null && e.date.isAfter(endDate))))) {
+        continue;
+      }
+      long[] edge = edges.computeIfAbsent(key(e.actor1, e.actor2),
+        k -> new long[] { 0, 0, Long.MAX_VALUE, Long.MIN_VALUE });
+      edge[0]++;
+      edge[1] += e.fatalities == null ? 0 : e.fatalities;
+      if (e.date != null) {
+        edge[2] = Math.min(edge[2], e.date.toEpochDay());
+        edge[3] = Math.max(edge[3], e.date.toEpochDay());
+      }
+    }
+    return edges;
+  }
+
+  private static Map<String, String> describe(Map<String, long[]> edges) {
+    Map<String, String> described = new TreeMap<>();
+    edges.forEach((key, t) -> described.put(key, t[0] + "/" + t[1] + " "
+      + (t[2] == Long.MAX_VALUE ? "null null" : LocalDate.ofEpochDay(t[2]) + " " + LocalDate.ofEpochDay(t[3]))));
+    return described;
+  }
+
+  private static Map<String, String> describe(ConflictNetwork network) {
+    return network.getEdges().stream().collect(Collectors.toMap(e -> key(e.getSource(), e.getTarget()),
+      e -> e.getEvents() + "/" + e.getFatalities() + " " + e.getFirstDate() + " " + e.getLastDate(),
+      (a, b) -> a + " and " + b, TreeMap::new));
+  }
+
+  private static void assertSorted(ConflictNetwork network) {
+    for (int i = 1; i < network.getEdges().size(); i++) {
+      ConflictNetwork.Edge previous = network.getEdges().get(i - 1);
+      ConflictNetwork.Edge edge = network.getEdges().get(i);
+      assertTrue(previous.getEvents() > edge.getEvents() || (previous.getEvents().equals(edge.getEvents())
+        && previous.getFatalities() >= edge.getFatalities()));
+    }
+    for (int i = 1; i < network.getNodes().size(); i++) {
+      assertTrue(network.getNodes().get(i - 1).getEvents() >= network.getNodes().get(i).getEvents());
+    }
+  }
+
+  private static String key(String actor1, String actor2) {
+    return actor1.compareTo(actor2) <= 0 ? actor1 + "|" + actor2 : actor2 + "|" + actor1;
+  }
+
+  private static boolean isDyad(Event e) {
+    return e.actor1 != null && !e.actor1.trim().isEmpty() && e.actor2 != null && !e.actor2.trim().isEmpty();
+  }
+
+  private static boolean isOneOf(String actor, String[] actors) {
+    return actor.equalsIgnoreCase(actors[0]) || actor.equalsIgnoreCase(actors[1]);
+  }
+
+  private static class Event {
+    long id;
+    String actor1;
+    String actor2;
+    String country;
+    LocalDate date;
+    Integer fatalities;
+  }
+}
@@ -0,0 +1,62 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.jshipper.acled.model.ConflictCluster;
+
+/**
+ * Encoding and aggregation of {@link GeoHashGrid}
+ *
+ * @author jshipper
+ *
+ */
+public class GeoHashGridTest {
+  @Test
+  public void encodesKnownGeohashes() {
+    assertEquals("ezs42", geohash(42.6, -5.6, 5));
+    assertEquals("u4pruydqqvj", geohash(57.64911, 10.40744, 11));
+    assertEquals("s00000000000", geohash(0, 0, 12));
+    assertEquals("000000000000", geohash(-90, -180, 12));
+    assertEquals("zzzzzzzzzzzz", geohash(90, 180, 12));
+    assertEquals("s", geohash(0, 0, 1));
+  }
+
+  @Test
+  public void aggregatesOneClusterPerCell() {
+    GeoHashGrid grid = new GeoHashGrid(5, 2);
+    grid.add(42.60, -5.60, 3, "Police", "Rebels");
+    grid.add(42.61, -5.59, ConflictColumns.NULL_INT, "Rebels", null);
+    grid.add(57.64911, 10.40744, 1, "Civilians", "");
+    // No location
+    grid.add(Double.NaN, 10, 100, "Police", null);
+    List<ConflictCluster> clusters = grid.getClusters();
+    clusters.sort((a, b) -> a.getGeohash().compareTo(b.getGeohash()));
+    assertEquals(2, clusters.size());
+    ConflictCluster spain = clusters.get(0);
+    assertEquals("ezs42", spain.getGeohash());
+    assertEquals(2, (int) spain.getCount());
+    assertEquals(3, (int) spain.getFatalities());
+    assertEquals(42.605, spain.getLatitude(), 1e-9);
+    assertEquals(-5.595, spain.getLongitude(), 1e-9);
+    assertEquals(Arrays.asList("Rebels", "Police"), spain.getTopActors());
+    ConflictCluster denmark = clusters.get(1);
+    assertEquals("u4pru", denmark.getGeohash());
+    assertEquals(Arrays.asList("Civilians"), denmark.getTopActors());
+  }
+
+  @Test
+  public void rejectsPrecisionOutOfRange() {
+    assertThrows(IllegalArgumentException.class, () -> new GeoHashGrid(0, 3));
+    assertThrows(IllegalArgumentException.class, () -> new GeoHashGrid(GeoHashGrid.MAX_PRECISION + 1, 3));
+  }
+
+  private static String geohash(double latitude, double longitude, int precision) {
+    return GeoHashGrid.toString(GeoHashGrid.encode(latitude, longitude, precision), precision);
+  }
+}
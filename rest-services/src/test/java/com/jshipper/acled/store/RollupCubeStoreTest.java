@@ -0,0 +1,101 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.jshipper.acled.dao.ConflictRepository;
+import com.jshipper.acled.model.Conflict;
+import com.jshipper.acled.model.ConflictAggregate;
+import com.jshipper.acled.model.ConflictAggregate.Dimension;
+import com.jshipper.acled.model.ConflictAggregate.Grain;
+
+/**
+ * Actor filters of the {@link RollupCube} built by {@link RollupCubeStore},
+ * from the database and from the columns, over conflicts whose actors are
+ * case variants of each other
+ *
+ * @author jshipper
+ *
+ */
+@DataJpaTest
+@ActiveProfiles("embedded")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class RollupCubeStoreTest {
+  @Inject
+  private ConflictRepository dao;
+
+  @Inject
+  private EntityManager entityManager;
+
+  @BeforeEach
+  public void createConflicts() {
+    persist(1, "Civilians", "CIVILIANS", 3);
+    persist(2, "Civilians", "Civilians", 5);
+    persist(3, "Police", "civilians", 7);
+    persist(4, "Police", "Rebels", 11);
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  private void persist(long id, String actor1, String actor2, int fatalities) {
+    Conflict conflict = new Conflict();
+    conflict.setId(id);
+    conflict.setDate(LocalDate.of(2014, 1, 1));
+    conflict.setYear(2014);
+    conflict.setCountry("Nigeria");
+    conflict.setEventType("Battle");
+    conflict.setActor1(actor1);
+    conflict.setActor2(actor2);
+    conflict.setFatalities(fatalities);
+    entityManager.persist(conflict);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  public void actorFilterCountsEachConflictOnce(boolean fromColumns) {
+    List<ConflictAggregate> result = aggregate(fromColumns, "civilians", EnumSet.noneOf(Dimension.class));
+    assertEquals(1, result.size());
+    assertEquals(3L, (long) result.get(0).getEvents());
+    assertEquals(15L, (long) result.get(0).getFatalities());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  public void unfilteredTotalsCountEachConflictOnce(boolean fromColumns) {
+    List<ConflictAggregate> result = aggregate(fromColumns, null, EnumSet.noneOf(Dimension.class));
+    assertEquals(4L, (long) result.get(0).getEvents());
+    assertEquals(26L, (long) result.get(0).getFatalities());
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = { false, true })
+  public void groupingByActorCountsBothActors(boolean fromColumns) {
+    List<ConflictAggregate> result = aggregate(fromColumns, "police", EnumSet.of(Dimension.ACTOR));
+    assertEquals(1, result.size());
+    assertEquals("Police", result.get(0).getActor());
+    assertEquals(2L, (long) result.get(0).getEvents());
+  }
+
+  /**
+   * @param fromColumns
+   *          Whether the cube is built from the columns of a serving
+   *          {@link ConflictStore} rather than from the database
+   */
+  private List<ConflictAggregate> aggregate(boolean fromColumns, String actor, EnumSet<Dimension> groupBy) {
+    return new RollupCubeStore(dao, ConflictColumnsQueriesTest.store(dao, fromColumns)).get().aggregate(null, null, null, null, actor, groupBy,
+      Grain.MONTH);
+  }
+}
@@ -0,0 +1,136 @@
+package com.jshipper.acled.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jshipper.acled.model.ConflictCriteria;
+import com.jshipper.acled.model.ConflictMapPoint;
+
+/**
+ * Searches of {@link SpatialIndex}, checked against a brute-force filter of
+ * the same points
+ *
+ * @author jshipper
+ *
+ */
+public class SpatialIndexTest {
+  private static final String[] COUNTRIES = { "Nigeria", "Mali", "Fiji", null };
+  private static final String[] ACTORS = { "Police", "Civilians", "Rebels", null };
+  private static final ConflictCriteria ALL = new ConflictCriteria(null, null, null, null, null, null, null);
+  // Null dates sort first, like the index's (date, id) order
+  private static final Comparator<ConflictMapPoint> BY_DATE = Comparator
+    .comparing(ConflictMapPoint::getDate, Comparator.nullsFirst(Comparator.<LocalDate> naturalOrder()))
+    .thenComparing(ConflictMapPoint::getId);
+
+  private final Random random = new Random(42);
+  private final List<ConflictMapPoint> points = new ArrayList<>();
+  private final List<String> countries = new ArrayList<>();
+  private SpatialIndex index;
+
+  @BeforeEach
+  public void buildIndex() {
+    SpatialIndex.Builder builder = new SpatialIndex.Builder();
+    for (long id = 1; id <= 5000; id++) {
+      double latitude;
+      double longitude;
+      if (id % 5 == 0) {
+        // Around the antimeridian and the poles
+        latitude = (random.nextBoolean() ? 1 : -1) * (80 + random.nextDouble() * 10);
+        longitude = (random.nextBoolean() ? 1 : -1) * (175 + random.nextDouble() * 5);
+      } else {
+        latitude = -90 + random.nextDouble() * 180;
+        longitude = -180 + random.nextDouble() * 360;
+      }
+      LocalDate date = id % 97 == 0 ? null : LocalDate.of(1997, 1, 1).plusDays(random.nextInt(6500));
+      Integer fatalities = id % 13 == 0 ? null : random.nextInt(50);
+      String country = COUNTRIES[random.nextInt(COUNTRIES.length)];
+      String actor1 = ACTORS[random.nextInt(ACTORS.length)];
+      String actor2 = ACTORS[random.nextInt(ACTORS.length)];
+      builder.add(id, date, latitude, longitude, fatalities, country, actor1, actor2, "Location " + id % 100);
+      points.add(new ConflictMapPoint(id, date, latitude, longitude, fatalities, "Location " + id % 100, actor1,
+        actor2));
+      countries.add(country);
+    }
+    index = builder.build();
+  }
+
+  @Test
+  public void inBoxFindsEveryPointInside() {
+    for (int i = 0; i < 200; i++) {
+      double minLatitude = -90 + random.nextDouble() * 180;
+      double maxLatitude = minLatitude + random.nextDouble() * (90 - minLatitude);
+      // Crossing the antimeridian when minLongitude > maxLongitude
+      double minLongitude = -180 + random.nextDouble() * 360;
+      double maxLongitude = -180 + random.nextDouble() * 360;
+      assertSame(expected(p -> p.getLatitude() >= minLatitude && p.getLatitude() <= maxLatitude
+        && (minLongitude <= maxLongitude
+          ? p.getLongitude() >= minLongitude && p.getLongitude() <= maxLongitude
+          : p.getLongitude() >= minLongitude || p.getLongitude() <= maxLongitude)),
+        index.inBox(ALL, minLatitude, minLongitude, maxLatitude, maxLongitude, Integer.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void withinRadiusFindsEveryPointInside() {
+    for (int i = 0; i < 200; i++) {
+      double latitude = -90 + random.nextDouble() * 180;
+      double longitude = -180 + random.nextDouble() * 360;
+      // Up to a few thousand km, some circles covering a pole or crossing the antimeridian
+      double radiusKm = Math.pow(10, random.nextDouble() * 3.7);
+      assertSame(expected(p -> SpatialIndex.distanceKm(latitude, longitude, p.getLatitude(),
+        p.getLongitude()) <= radiusKm), index.withinRadius(ALL, latitude, longitude, radiusKm, Integer.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void criteriaAreApplied() {
+    ConflictCriteria criteria = new ConflictCriteria(LocalDate.of(2000, 1, 1), LocalDate.of(2009, 12, 31),
+      "nigeria", "POLICE", null, 10, 40);
+    List<ConflictMapPoint> expected = new ArrayList<>();
+    for (int i = 0; i < points.size(); i++) {
+      ConflictMapPoint p = points.get(i);
+      if ("Nigeria".equals(countries.get(i)) && p.getDate() != null && p.getDate().getYear() >= 2000
+        && p.getDate().getYear() <= 2009 && ("Police".equals(p.getActor1()) || "Police".equals(p.getActor2()))
+        && p.getFatalities() != null && p.getFatalities() >= 10 && p.getFatalities() <= 40) {
+        expected.add(p);
+      }
+    }
+    expected.sort(BY_DATE);
+    assertTrue(expected.size() > 10);
+    assertSame(expected, index.inBox(criteria, -90, -180, 90, 180, Integer.MAX_VALUE));
+    assertSame(expected, index.withinRadius(criteria, 0, 0, SpatialIndex.MAX_DISTANCE_KM, Integer.MAX_VALUE));
+    assertEquals(0, index.inBox(new ConflictCriteria(null, null, "Chad", null, null, null, null), -90, -180, 90,
+      180, Integer.MAX_VALUE).size());
+  }
+
+  @Test
+  public void limitKeepsTheEarliestPoints() {
+    List<ConflictMapPoint> expected = expected(p -> p.getLatitude() >= 0);
+    assertSame(expected.subList(0, 100), index.inBox(ALL, 0, -180, 90, 180, 100));
+    assertSame(expected.subList(0, 1), index.withinRadius(ALL, 90, 0, SpatialIndex.MAX_DISTANCE_KM / 2, 1));
+    assertEquals(0, index.inBox(ALL, 0, -180, 90, 180, 0).size());
+  }
+
+  private List<ConflictMapPoint> expected(Predicate<ConflictMapPoint> inside) {
+    return points.stream().filter(inside).sorted(BY_DATE).collect(Collectors.toList());
+  }
+
+  private static void assertSame(List<ConflictMapPoint> expected, List<ConflictMapPoint> actual) {
+    assertEquals(ids(expected), ids(actual));
+  }
+
+  private static List<Long> ids(List<ConflictMapPoint> points) {
+    return points.stream().map(ConflictMapPoint::getId).collect(Collectors.toList());
+  }
+}